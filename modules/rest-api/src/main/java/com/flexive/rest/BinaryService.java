@@ -35,22 +35,31 @@ import com.flexive.rest.interceptors.FxRestApi;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.FxContext;
 import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.exceptions.FxStreamException;
 import com.flexive.shared.stream.FxStreamUtils;
 import com.flexive.shared.value.BinaryDescriptor;
+import com.flexive.war.servlet.FxServletUtils;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 /**
  * Service providing direct access to binaries. The response is streamed directly to the caller, the standard
  * response envelope will not be added.
+ * <p>
+ * Responses carry an ETag and Last-Modified header, conditional requests are answered with 304 (Not Modified).
+ * For the original binary, single and multiple byte ranges can be requested with the Range header.
+ * </p>
  *
  * @author Daniel Lichtenberger (daniel.lichtenberger@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  * @version $Rev$
@@ -62,6 +71,8 @@ public class BinaryService implements FxRestApiService {
     private UriInfo uriInfo;
     @Context
     private HttpHeaders headers;
+    @Context
+    private HttpServletRequest request;
 
     @GET
     public Response downloadBinary(@PathParam("id") long id,
@@ -82,17 +93,74 @@ public class BinaryService implements FxRestApiService {
                 ? BinaryDescriptor.PreviewSizes.ORIGINAL
                 : BinaryDescriptor.PreviewSizes.valueOf(qualityParam.trim().toUpperCase(Locale.ENGLISH));
 
-        final InputStream in = FxStreamUtils.getBinaryStream(desc, quality);
+        final String etag = FxServletUtils.getETag(desc, quality);
+        final long lastModified = desc.getCreationTime();
+
+        if (FxServletUtils.isNotModified(request, etag, lastModified)) {
+            return cacheHeaders(Response.notModified(), etag, lastModified).build();
+        }
+
+        // the size is only known for the original binary, previews are always sent completely
+        final List<long[]> ranges = quality == BinaryDescriptor.PreviewSizes.ORIGINAL
+                && FxServletUtils.isRangeApplicable(request, etag, lastModified)
+                ? FxServletUtils.parseByteRanges(request.getHeader("Range"), desc.getSize())
+                : null;
+
+        if (ranges == null) {
+            final InputStream in = FxStreamUtils.getBinaryStream(desc, quality);
 
-        return Response.ok(new StreamingOutput() {
-            public void write(OutputStream outputStream) throws IOException, WebApplicationException {
-                try {
-                    ByteStreams.copy(in, outputStream);
-                } finally {
-                    Closeables.close(in, false);
+            final Response.ResponseBuilder builder = Response.ok(new StreamingOutput() {
+                public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+                    try {
+                        ByteStreams.copy(in, outputStream);
+                    } finally {
+                        Closeables.close(in, false);
+                    }
                 }
+            }).type(desc.getMimeType());
+            if (quality == BinaryDescriptor.PreviewSizes.ORIGINAL) {
+                builder.header("Accept-Ranges", "bytes").header("Content-Length", desc.getSize());
             }
-        }).type(desc.getMimeType()).build();
+            return cacheHeaders(builder, etag, lastModified).build();
+        } else if (ranges.isEmpty()) {
+            return cacheHeaders(Response.status(416), etag, lastModified)
+                    .header("Accept-Ranges", "bytes")
+                    .header("Content-Range", "bytes */" + desc.getSize())
+                    .build();
+        } else if (ranges.size() == 1) {
+            final long[] range = ranges.get(0);
+            return cacheHeaders(Response.status(206), etag, lastModified)
+                    .entity(new StreamingOutput() {
+                        public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+                            try {
+                                desc.download(outputStream, BinaryDescriptor.PreviewSizes.ORIGINAL, range[0], range[1] - range[0] + 1);
+                            } catch (FxStreamException e) {
+                                throw new WebApplicationException(e);
+                            }
+                        }
+                    })
+                    .type(desc.getMimeType())
+                    .header("Accept-Ranges", "bytes")
+                    .header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + desc.getSize())
+                    .header("Content-Length", range[1] - range[0] + 1)
+                    .build();
+        } else {
+            final String boundary = FxServletUtils.createMultipartBoundary();
+            return cacheHeaders(Response.status(206), etag, lastModified)
+                    .entity(new StreamingOutput() {
+                        public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+                            try {
+                                FxServletUtils.writeByteRanges(outputStream, desc, ranges, boundary);
+                            } catch (FxStreamException e) {
+                                throw new WebApplicationException(e);
+                            }
+                        }
+                    })
+                    .type("multipart/byteranges; boundary=" + boundary)
+                    .header("Accept-Ranges", "bytes")
+                    .header("Content-Length", FxServletUtils.getByteRangesLength(desc, ranges, boundary))
+                    .build();
+        }
     }
 
     @Override
@@ -104,4 +172,12 @@ public class BinaryService implements FxRestApiService {
     public UriInfo getUriInfo() {
         return uriInfo;
     }
+
+    private static Response.ResponseBuilder cacheHeaders(Response.ResponseBuilder builder, String etag, long lastModified) {
+        builder.header("ETag", etag).header("Cache-Control", "private");
+        if (lastModified > 0) {
+            builder.lastModified(new Date(lastModified));
+        }
+        return builder;
+    }
 }
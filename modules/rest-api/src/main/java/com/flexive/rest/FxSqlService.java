@@ -31,24 +31,55 @@
  */
 package com.flexive.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flexive.rest.interceptors.FxRestApi;
+import com.flexive.rest.shared.FxRestApiConst;
 import com.flexive.rest.shared.FxRestApiResponse;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.content.FxPK;
 import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.exceptions.FxStreamException;
+import com.flexive.shared.search.FxResultRowHandler;
 import com.flexive.shared.search.FxResultSet;
+import com.flexive.shared.search.FxSQLSearchParams;
 import com.flexive.shared.value.FxValue;
 import org.apache.commons.lang.StringUtils;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
 
 /**
  * FxSQL query service. Accepts FxSQL queries via POST and the "q" parameter, and returns the result set in the requested language.
+ * <p>
+ * Optional parameters:
+ * </p>
+ * <ul>
+ * <li><strong>startRow</strong>, <strong>maxRows</strong> - return only a page of the result (default: all rows).
+ * When more rows may be available, the response contains a <code>cursor</code> that can be passed in the
+ * next request instead of <code>startRow</code>.</li>
+ * <li><strong>noResultInfo</strong> - don't compute the total row count of the query
+ * (see {@link FxSQLSearchParams#setHintNoResultInfo(boolean)})</li>
+ * <li><strong>stream</strong> - write the rows as they are read from the database without building the complete
+ * result in memory. JSON results are returned as newline-delimited JSON (the column information, one array per row,
+ * and a final status line), XML results are written as a chunked XML document.
+ * The standard response envelope will not be added.</li>
+ * </ul>
  *
  * @author Daniel Lichtenberger (daniel.lichtenberger@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  * @version $Rev$
@@ -56,23 +87,57 @@ import javax.ws.rs.core.UriInfo;
 @Path("/query/fxsql")
 @FxRestApi
 public class FxSqlService implements FxRestApiService {
+    /**
+     * Media type of streamed JSON results.
+     * @since 3.2.1
+     */
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
     @Context
     private UriInfo uriInfo;
     @Context
     private HttpHeaders headers;
 
     @POST
-    public Object query(@FormParam("q") String query) throws FxApplicationException {
+    public Object query(@FormParam("q") String query,
+                        @FormParam("startRow") @DefaultValue("0") int startRow,
+                        @FormParam("maxRows") @DefaultValue("-1") int maxRows,
+                        @FormParam("cursor") String cursor,
+                        @FormParam("noResultInfo") @DefaultValue("false") boolean noResultInfo,
+                        @FormParam("stream") @DefaultValue("false") boolean stream) throws FxApplicationException {
         if (StringUtils.isBlank(query)) {
             throw new IllegalArgumentException("Empty query");
         }
+        final int startIndex = StringUtils.isNotBlank(cursor) ? parseCursor(cursor) : startRow;
+        if (startIndex < 0) {
+            throw new IllegalArgumentException("Invalid start row: " + startIndex);
+        }
+        final int fetchRows = maxRows < 0 ? Integer.MAX_VALUE : maxRows;
 
-        final FxResultSet result = EJBLookup.getSearchEngine().search(query, 0, Integer.MAX_VALUE, null);
+        final FxSQLSearchParams params = new FxSQLSearchParams();
+        params.setHintNoResultInfo(noResultInfo);
+
+        if (stream) {
+            return streamResult(query, startIndex, fetchRows, params);
+        }
+
+        final FxResultSet result = EJBLookup.getSearchEngine().search(query, startIndex, fetchRows, params);
+
+        final int totalRows = result.getTotalRowCount();
+        final boolean hasMore = totalRows >= 0
+                ? startIndex + result.getRowCount() < totalRows
+                : maxRows >= 0 && result.getRowCount() >= maxRows;
 
         return FxRestApiResponse.ok(FxRestApiUtils.responseMapBuilder()
                 .put("columns", result.getColumnNames(), "column")
                 .put("columnLabels", result.getColumnLabels(), "columnLabel")
                 .putTable("rows", unwrapResult(result), "row", "col")
+                .put("startRow", startIndex)
+                .put("rowCount", result.getRowCount())
+                .put("totalRowCount", totalRows >= 0 ? totalRows : null)
+                .put("cursor", hasMore ? String.valueOf(startIndex + result.getRowCount()) : null)
                 .build()
         );
     }
@@ -87,27 +152,238 @@ public class FxSqlService implements FxRestApiService {
         return uriInfo;
     }
 
+    private Response streamResult(final String query, final int startIndex, final int fetchRows,
+                                  final FxSQLSearchParams params) {
+        final FxRestApiUtils.ResponseFormat format = FxRestApiUtils.getResponseFormat(uriInfo);
+        return Response.ok(new StreamingOutput() {
+            public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+                final ResultWriter writer = format == FxRestApiUtils.ResponseFormat.XML
+                        ? new XmlResultWriter(outputStream)
+                        : new JsonResultWriter(outputStream);
+                try {
+                    final FxResultSet result = EJBLookup.getSearchEngineLocal().search(query, startIndex, fetchRows, params,
+                            new FxResultRowHandler() {
+                                public boolean processRow(FxResultSet result, Object[] row) throws FxApplicationException {
+                                    try {
+                                        writer.writeRow(result, unwrapRow(row));
+                                    } catch (IOException e) {
+                                        // client disconnected, stop fetching rows
+                                        throw new FxStreamException(e);
+                                    }
+                                    return true;
+                                }
+                            });
+                    writer.finish(result);
+                } catch (FxApplicationException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new WebApplicationException(e);
+                }
+            }
+        }).type(format == FxRestApiUtils.ResponseFormat.XML ? MediaType.APPLICATION_XML_TYPE : MediaType.valueOf(MEDIA_TYPE_NDJSON))
+                .build();
+    }
+
+    private static int parseCursor(String cursor) {
+        try {
+            return Integer.parseInt(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
     private static Object[][] unwrapResult(FxResultSet result) {
         final Object[][] unwrapped = new Object[result.getRowCount()][];
         int index = 0;
         for (Object[] row : result.getRows()) {
-            final Object[] rowResult = new Object[row.length];
-            for (int i = 0; i < row.length; i++) {
-                final Object rowValue = row[i];
-                final Object serializedValue;
-                if (rowValue instanceof FxValue) {
-                    final FxValue fxValue = (FxValue) rowValue;
-                    serializedValue = ContentService.serializeValue(fxValue, fxValue.getBestTranslation());
-                } else if (rowValue instanceof FxPK) {
-                    final FxPK pk = (FxPK) rowValue;
-                    serializedValue = pk.getId() + "." + pk.getVersion();
-                } else {
-                    serializedValue = rowValue;
+            unwrapped[index++] = unwrapRow(row);
+        }
+        return unwrapped;
+    }
+
+    private static Object[] unwrapRow(Object[] row) {
+        final Object[] rowResult = new Object[row.length];
+        for (int i = 0; i < row.length; i++) {
+            final Object rowValue = row[i];
+            final Object serializedValue;
+            if (rowValue instanceof FxValue) {
+                final FxValue fxValue = (FxValue) rowValue;
+                serializedValue = ContentService.serializeValue(fxValue, fxValue.getBestTranslation());
+            } else if (rowValue instanceof FxPK) {
+                final FxPK pk = (FxPK) rowValue;
+                serializedValue = pk.getId() + "." + pk.getVersion();
+            } else {
+                serializedValue = rowValue;
+            }
+            rowResult[i] = serializedValue;
+        }
+        return rowResult;
+    }
+
+    /**
+     * Writes the rows of a streamed search result. The column information is written before the first row.
+     */
+    private abstract static class ResultWriter {
+        private boolean started;
+        private int rowCount;
+
+        void writeRow(FxResultSet result, Object[] row) throws IOException {
+            if (!started) {
+                writeHeader(result);
+                started = true;
+            }
+            writeRowData(row);
+            rowCount++;
+        }
+
+        void finish(FxResultSet result) throws IOException {
+            if (!started) {
+                // empty result
+                writeHeader(result);
+                started = true;
+            }
+            writeFooter(result, rowCount);
+        }
+
+        protected abstract void writeHeader(FxResultSet result) throws IOException;
+
+        protected abstract void writeRowData(Object[] row) throws IOException;
+
+        protected abstract void writeFooter(FxResultSet result, int rowCount) throws IOException;
+    }
+
+    /**
+     * Newline-delimited JSON: the column information, one array per row, and the status.
+     */
+    private static class JsonResultWriter extends ResultWriter {
+        private final OutputStream out;
+        private final JsonGenerator generator;
+
+        JsonResultWriter(OutputStream out) throws IOException {
+            this.out = out;
+            this.generator = JSON_MAPPER.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        protected void writeHeader(FxResultSet result) throws IOException {
+            generator.writeStartObject();
+            generator.writeObjectField("columns", result.getColumnNames());
+            generator.writeObjectField("columnLabels", result.getColumnLabels());
+            generator.writeEndObject();
+            newLine();
+        }
+
+        @Override
+        protected void writeRowData(Object[] row) throws IOException {
+            generator.writeObject(row);
+            newLine();
+        }
+
+        @Override
+        protected void writeFooter(FxResultSet result, int rowCount) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("status", FxRestApiConst.STATUS_OK);
+            generator.writeNumberField("rowCount", rowCount);
+            if (result.getTotalRowCount() >= 0) {
+                generator.writeNumberField("totalRowCount", result.getTotalRowCount());
+            }
+            generator.writeEndObject();
+            newLine();
+            out.flush();
+        }
+
+        private void newLine() throws IOException {
+            generator.flush();
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Chunked XML: the same structure as the non-streamed response body.
+     */
+    private static class XmlResultWriter extends ResultWriter {
+        private final OutputStream out;
+        private final XMLStreamWriter writer;
+
+        XmlResultWriter(OutputStream out) throws IOException {
+            this.out = out;
+            try {
+                this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        protected void writeHeader(FxResultSet result) throws IOException {
+            try {
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement("result");
+                writeList("columns", "column", result.getColumnNames());
+                writeList("columnLabels", "columnLabel", result.getColumnLabels());
+                writer.writeStartElement("rows");
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        protected void writeRowData(Object[] row) throws IOException {
+            try {
+                writer.writeStartElement("row");
+                for (Object value : row) {
+                    writer.writeStartElement("col");
+                    writeValue(value);
+                    writer.writeEndElement();
                 }
-                rowResult[i] = serializedValue;
+                writer.writeEndElement();
+                writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        protected void writeFooter(FxResultSet result, int rowCount) throws IOException {
+            try {
+                writer.writeEndElement();   // rows
+                writeElement("rowCount", rowCount);
+                if (result.getTotalRowCount() >= 0) {
+                    writeElement("totalRowCount", result.getTotalRowCount());
+                }
+                writer.writeEndElement();   // result
+                writer.writeEndDocument();
+                writer.flush();
+                out.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        private void writeList(String name, String elemName, String[] values) throws XMLStreamException {
+            writer.writeStartElement(name);
+            for (String value : values) {
+                writeElement(elemName, value);
+            }
+            writer.writeEndElement();
+        }
+
+        private void writeElement(String name, Object value) throws XMLStreamException {
+            writer.writeStartElement(name);
+            writeValue(value);
+            writer.writeEndElement();
+        }
+
+        private void writeValue(Object value) throws XMLStreamException {
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    writeElement(String.valueOf(entry.getKey()), entry.getValue());
+                }
+            } else if (value != null) {
+                writer.writeCharacters(String.valueOf(value));
             }
-            unwrapped[index++] = rowResult;
         }
-        return unwrapped;
     }
 }
@@ -31,12 +31,35 @@
  */
 package com.flexive.rest.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flexive.rest.shared.FxRestApiConst;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.testng.Assert.*;
@@ -47,8 +70,10 @@ import static org.testng.Assert.*;
  */
 @Test
 public class FxRestClientTest {
+    private static final String PAGING_QUERY = "SELECT id ORDER BY id";
+
     private FxRestClient client;
-    private String username, password;
+    private String serviceUrl, username, password;
 
     @BeforeClass
     public void init() throws IOException {
@@ -66,7 +91,7 @@ public class FxRestClientTest {
         }
 
 
-        final String serviceUrl = config.getProperty("service.url");
+        this.serviceUrl = StringUtils.removeEnd(config.getProperty("service.url"), "/");
         this.client = new FxRestClient(serviceUrl);
         this.username = config.getProperty("service.username");
         this.password = config.getProperty("service.password");
@@ -99,6 +124,112 @@ public class FxRestClientTest {
         assertEquals(result.getColumns().get(0), "objectId");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void queryPagingTest() throws IOException {
+        final String token = this.client.login(username, password);
+        final List<List<Object>> allRows = this.client.queryFxSql(token, PAGING_QUERY).getRows();
+        final int total = allRows.size();
+        assertTrue(total >= 3, "Test requires at least three contents");
+
+        // first page
+        Map<String, Object> page = queryPage(token, ImmutableMap.of("startRow", "0", "maxRows", "2"));
+        assertEquals(page.get("rows"), allRows.subList(0, 2));
+        assertEquals(((Number) page.get("startRow")).intValue(), 0);
+        assertEquals(((Number) page.get("rowCount")).intValue(), 2);
+        assertEquals(((Number) page.get("totalRowCount")).intValue(), total);
+        assertEquals(page.get("cursor"), "2");
+
+        // next page via the cursor
+        page = queryPage(token, ImmutableMap.of("cursor", (String) page.get("cursor"), "maxRows", "2"));
+        assertEquals(page.get("rows"), allRows.subList(2, Math.min(4, total)));
+        assertEquals(((Number) page.get("startRow")).intValue(), 2);
+
+        // last page
+        page = queryPage(token, ImmutableMap.of("startRow", String.valueOf(total - 1), "maxRows", "2"));
+        assertEquals(page.get("rows"), allRows.subList(total - 1, total));
+        assertNull(page.get("cursor"), "No cursor expected on the last page");
+
+        // beyond the last row
+        page = queryPage(token, ImmutableMap.of("startRow", String.valueOf(total), "maxRows", "2"));
+        assertTrue(((List<Object>) page.get("rows")).isEmpty());
+        assertEquals(((Number) page.get("rowCount")).intValue(), 0);
+        assertNull(page.get("cursor"));
+
+        // without the total row count, a cursor is returned as long as the page is full
+        page = queryPage(token, ImmutableMap.of("startRow", "0", "maxRows", "2", "noResultInfo", "true"));
+        assertEquals(page.get("rows"), allRows.subList(0, 2));
+        assertNull(page.get("totalRowCount"));
+        assertEquals(page.get("cursor"), "2");
+
+        // invalid start rows
+        for (Map<String, String> params : Lists.<Map<String, String>>newArrayList(
+                ImmutableMap.of("startRow", "-1"), ImmutableMap.of("cursor", "abc"))) {
+            try {
+                queryPage(token, params);
+                fail("Invalid paging parameters accepted: " + params);
+            } catch (RemoteCallException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void queryStreamJsonTest() throws IOException {
+        final String token = this.client.login(username, password);
+        final RemoteFxSqlResult expected = this.client.queryFxSql(token, PAGING_QUERY);
+        final int total = expected.getRows().size();
+        assertTrue(total >= 3, "Test requires at least three contents");
+
+        final String body = queryStream(token, null, 1, 2, "application/x-ndjson");
+        final String[] lines = StringUtils.split(body, '\n');
+        assertEquals(lines.length, 4, "Expected header, two rows and status line: " + body);
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final Map<String, Object> header = mapper.readValue(lines[0], Map.class);
+        assertEquals(header.get("columns"), expected.getColumns());
+        assertEquals(header.get("columnLabels"), expected.getColumnLabels());
+        assertEquals(mapper.readValue(lines[1], List.class), expected.getRows().get(1));
+        assertEquals(mapper.readValue(lines[2], List.class), expected.getRows().get(2));
+
+        final Map<String, Object> status = mapper.readValue(lines[3], Map.class);
+        assertEquals(status.get("status"), FxRestApiConst.STATUS_OK);
+        assertEquals(((Number) status.get("rowCount")).intValue(), 2);
+        assertEquals(((Number) status.get("totalRowCount")).intValue(), total);
+
+        // beyond the last row: header and status only
+        final String[] empty = StringUtils.split(queryStream(token, null, total, 2, "application/x-ndjson"), '\n');
+        assertEquals(empty.length, 2);
+        assertEquals(((Number) mapper.readValue(empty[1], Map.class).get("rowCount")).intValue(), 0);
+    }
+
+    @Test
+    public void queryStreamXmlTest() throws Exception {
+        final String token = this.client.login(username, password);
+        final RemoteFxSqlResult expected = this.client.queryFxSql(token, PAGING_QUERY);
+        final int total = expected.getRows().size();
+        assertTrue(total >= 3, "Test requires at least three contents");
+
+        final Element result = parseXml(queryStream(token, "xml", 1, 2, "application/xml"));
+        assertEquals(result.getTagName(), "result");
+        final NodeList columns = ((Element) result.getElementsByTagName("columns").item(0)).getElementsByTagName("column");
+        assertEquals(columns.getLength(), expected.getColumns().size());
+        assertEquals(columns.item(0).getTextContent(), expected.getColumns().get(0));
+        final NodeList rows = ((Element) result.getElementsByTagName("rows").item(0)).getElementsByTagName("row");
+        assertEquals(rows.getLength(), 2);
+        for (int i = 0; i < rows.getLength(); i++) {
+            assertEquals(((Element) rows.item(i)).getElementsByTagName("col").getLength(), expected.getColumns().size());
+        }
+        assertEquals(result.getElementsByTagName("rowCount").item(0).getTextContent(), "2");
+        assertEquals(result.getElementsByTagName("totalRowCount").item(0).getTextContent(), String.valueOf(total));
+
+        // beyond the last row
+        final Element empty = parseXml(queryStream(token, "xml", total, 2, "application/xml"));
+        assertEquals(empty.getElementsByTagName("row").getLength(), 0);
+        assertEquals(empty.getElementsByTagName("rowCount").item(0).getTextContent(), "0");
+    }
+
     @Test
     public void genericCallTest() throws IOException {
         final RemoteMapSimple info = this.client.remoteCall(null, "/info", FxRestClient.CallMethod.GET, null);
@@ -108,4 +239,37 @@ public class FxRestClientTest {
     public FxRestClient getClient() {
         return client;
     }
+
+    private Map<String, Object> queryPage(String token, Map<String, String> params) throws IOException {
+        final Map<String, String> request = Maps.newHashMap(params);
+        request.put("q", PAGING_QUERY);
+        return this.client.remoteCall(token, "/query/fxsql", FxRestClient.CallMethod.POST, request).getRoot();
+    }
+
+    private String queryStream(String token, String format, int startRow, int maxRows, String expectedContentType) throws IOException {
+        final HttpPost post = new HttpPost(serviceUrl + "/query/fxsql" + (format != null ? "?format=" + format : ""));
+        post.setHeader("token", token);
+        final List<NameValuePair> params = Lists.newArrayList();
+        params.add(new BasicNameValuePair("q", PAGING_QUERY));
+        params.add(new BasicNameValuePair("startRow", String.valueOf(startRow)));
+        params.add(new BasicNameValuePair("maxRows", String.valueOf(maxRows)));
+        params.add(new BasicNameValuePair("stream", "true"));
+        post.setEntity(new UrlEncodedFormEntity(params));
+
+        final HttpResponse response = new DefaultHttpClient().execute(post);
+        try {
+            assertEquals(response.getStatusLine().getStatusCode(), 200);
+            assertTrue(response.getEntity().getContentType().getValue().startsWith(expectedContentType),
+                    "Unexpected content type: " + response.getEntity().getContentType().getValue());
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        } finally {
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    private static Element parseXml(String body) throws ParserConfigurationException, IOException, SAXException {
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(body)));
+        return document.getDocumentElement();
+    }
 }
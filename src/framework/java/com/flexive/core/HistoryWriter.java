@@ -0,0 +1,663 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.core;
+
+import com.flexive.core.storage.DBStorage;
+import com.flexive.core.storage.StorageManager;
+import com.flexive.shared.FxContext;
+import com.flexive.shared.FxLanguage;
+import com.flexive.shared.FxSharedUtils;
+import com.flexive.shared.content.FxPK;
+import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.exceptions.FxRuntimeException;
+import com.flexive.shared.value.FxString;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.flexive.core.DatabaseConst.TBL_HISTORY;
+
+/**
+ * Writes history entries ({@link com.flexive.shared.interfaces.HistoryTrackerEngine}) to the database.
+ * <p>
+ * By default, entries are added to a bounded queue and written by a background thread using JDBC batch
+ * inserts. A batch is written when {@code flexive.history.batchSize} entries are queued or
+ * {@code flexive.history.flushInterval} milliseconds after the first entry of the batch was queued.
+ * When the queue ({@code flexive.history.queueSize}) is full, the {@code flexive.history.overflow} policy
+ * is applied:
+ * </p>
+ * <ul>
+ * <li>{@code sync} (default) - the entry is written by the calling thread,</li>
+ * <li>{@code block} - the calling thread waits until the entry can be queued,</li>
+ * <li>{@code discard} - the entry is dropped and a warning is logged.</li>
+ * </ul>
+ * <p>
+ * Queued entries are not part of the caller's transaction. With {@code -Dflexive.history.async=false}
+ * (and after {@link #shutdown()}) all entries are written synchronously using the caller's transaction.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class HistoryWriter {
+    private static final Log LOG = LogFactory.getLog(HistoryWriter.class);
+
+    private static final String HISTORY_INSERT = "INSERT INTO " + TBL_HISTORY +
+            //1       2         3       4          5           6          7       8           9
+            "(ACCOUNT,LOGINNAME,TIMESTP,ACTION_KEY,ACTION_ARGS,EN_MESSAGE,SESSION,APPLICATION,REMOTEHOST," +
+            //10    11       12   13    14
+            "TYPEID,TYPENAME,PKID,PKVER,DATA)VALUES" +
+            "(?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private static final String HISTORY_INSERT_MANDATOR = "INSERT INTO " + TBL_HISTORY +
+            //1       2         3       4          5           6          7       8           9
+            "(ACCOUNT,LOGINNAME,TIMESTP,ACTION_KEY,ACTION_ARGS,EN_MESSAGE,SESSION,APPLICATION,REMOTEHOST," +
+            //10    11       12   13    14   15
+            "TYPEID,TYPENAME,PKID,PKVER,DATA,MANDATOR)VALUES" +
+            "(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private static final String CONFIG_ASYNC = "flexive.history.async";
+    private static final String CONFIG_QUEUE_SIZE = "flexive.history.queueSize";
+    private static final String CONFIG_BATCH_SIZE = "flexive.history.batchSize";
+    private static final String CONFIG_FLUSH_INTERVAL = "flexive.history.flushInterval";
+    private static final String CONFIG_OVERFLOW = "flexive.history.overflow";
+
+    // maximum time to wait for queued entries to be written in flush() and shutdown()
+    private static final long FLUSH_TIMEOUT = 30000;
+
+    // marker entry that causes the writer thread to write its current batch immediately
+    private static final Entry FLUSH = new Entry();
+
+    private static final HistoryWriter INSTANCE = new HistoryWriter(
+            Boolean.parseBoolean(System.getProperty(CONFIG_ASYNC, "true")),
+            getIntProperty(CONFIG_QUEUE_SIZE, 10000),
+            getIntProperty(CONFIG_BATCH_SIZE, 250),
+            getIntProperty(CONFIG_FLUSH_INTERVAL, 500),
+            getOverflowPolicy()
+    );
+
+    /**
+     * Policy applied when the queue is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Write the entry in the calling thread
+         */
+        SYNC,
+        /**
+         * Wait until the entry can be queued
+         */
+        BLOCK,
+        /**
+         * Drop the entry
+         */
+        DISCARD
+    }
+
+    private final boolean async;
+    private final int batchSize;
+    private final long flushInterval;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<Entry> queue;
+    private final ConcurrentMap<Integer, Target> targets = new ConcurrentHashMap<Integer, Target>();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    // entries that were counted as enqueued, but could not be queued since the queue was full
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final Object writtenLock = new Object();
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    /**
+     * Create a new history writer.
+     *
+     * @param async          true to write entries in a background thread
+     * @param queueSize      maximum number of queued entries
+     * @param batchSize      maximum number of entries written in one batch
+     * @param flushInterval  maximum time (in milliseconds) an entry is queued before it is written
+     * @param overflowPolicy policy applied when the queue is full
+     */
+    public HistoryWriter(boolean async, int queueSize, int batchSize, long flushInterval, OverflowPolicy overflowPolicy) {
+        this.async = async && queueSize > 0;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(1, flushInterval);
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<Entry>(Math.max(1, queueSize));
+        if (LOG.isInfoEnabled()) {
+            LOG.info("History writer: " + (this.async ? "asynchronous, queue size " + queueSize + ", batch size " + batchSize
+                    + ", flush interval " + flushInterval + "ms, overflow policy " + overflowPolicy : "synchronous"));
+        }
+    }
+
+    /**
+     * @return  the history writer instance
+     */
+    public static HistoryWriter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Write a history entry for the calling user. Blank or <code>null</code> arguments will be replaced by
+     * the values of the current {@link FxContext}.
+     *
+     * @param mandator    mandator (optional)
+     * @param typeId      type ID (optional)
+     * @param typeName    type name (optional)
+     * @param pk          affected content (optional)
+     * @param loginName   login name
+     * @param application application name
+     * @param session     session id
+     * @param remoteHost  remote host
+     * @param message     message text, if blank the message is created from the key and its arguments
+     * @param data        data
+     * @param key         message key
+     * @param args        message arguments
+     */
+    public void write(Long mandator, Long typeId, String typeName, FxPK pk, String loginName, String application,
+                      String session, String remoteHost, String message, String data, String key, Object... args) {
+        try {
+            final FxContext ctx = FxContext.get();
+            final Entry entry = new Entry();
+            entry.divisionId = ctx.getDivisionId();
+            entry.account = ctx.getTicket().getUserId();
+            entry.loginName = StringUtils.isBlank(loginName) ? ctx.getTicket().getLoginName() : loginName;
+            entry.timestamp = System.currentTimeMillis();
+            entry.key = key;
+            entry.actionArgs = StringUtils.join(args, '|');
+            entry.message = StringUtils.isNotBlank(message) ? message : null;
+            entry.messageArgs = entry.message == null ? getMessageArgs(args) : null;
+            entry.session = StringUtils.isNotBlank(session) ? session : (ctx.getSessionId() == null ? "<unknown>" : ctx.getSessionId());
+            entry.application = StringUtils.isNotBlank(application) ? application : (ctx.getApplicationId() == null ? "<unknown>" : ctx.getApplicationId());
+            entry.remoteHost = StringUtils.isNotBlank(remoteHost) ? remoteHost : (ctx.getRemoteHost() == null ? "<unknown>" : ctx.getRemoteHost());
+            entry.typeId = typeId;
+            entry.typeName = StringUtils.isNotBlank(typeName) ? typeName : null;
+            entry.pk = pk;
+            entry.data = data;
+            entry.mandator = mandator;
+            entry.target = getTarget(entry.divisionId);
+            add(entry);
+        } catch (Exception e) {
+            LOG.error("Failed to write history entry " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queue an entry, or write it synchronously if the writer is synchronous, was shut down or the queue
+     * is full (depending on the overflow policy).
+     *
+     * @param entry the history entry
+     * @throws SQLException         if the entry could not be written synchronously
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the queue
+     */
+    protected void add(Entry entry) throws SQLException, InterruptedException {
+        if (!async || !running) {
+            writeSync(entry);
+            return;
+        }
+        // count the entry before it can be written by the writer thread, otherwise flush() may
+        // return before an entry that was counted earlier has been written
+        enqueued.incrementAndGet();
+        if (queue.offer(entry)) {
+            ensureWriterStarted();
+            if (!running) {
+                // shut down concurrently, the writer thread may already have stopped
+                drain();
+            }
+        } else {
+            rejected.incrementAndGet();
+            handleOverflow(entry);
+        }
+    }
+
+    /**
+     * Wait until all entries queued by now have been written to the database.
+     */
+    public void flush() {
+        if (!async) {
+            return;
+        }
+        final long target = enqueued.get();
+        if (getCompletedEntries() >= target) {
+            return;
+        }
+        queue.offer(FLUSH);
+        final long timeout = System.currentTimeMillis() + FLUSH_TIMEOUT;
+        synchronized (writtenLock) {
+            while (getCompletedEntries() < target && System.currentTimeMillis() < timeout && isWriterAlive()) {
+                try {
+                    writtenLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (getCompletedEntries() < target && !isWriterAlive()) {
+            drain();
+        }
+    }
+
+    /**
+     * Stop the writer thread after all queued entries have been written.
+     */
+    public void shutdown() {
+        final Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writerThread;
+        }
+        if (thread != null) {
+            queue.offer(FLUSH);
+            try {
+                thread.join(FLUSH_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+        if (LOG.isInfoEnabled() && async) {
+            LOG.info("History writer stopped, " + written.get() + " entries written, " + discarded.get() + " discarded.");
+        }
+    }
+
+    /**
+     * @return  the number of entries that are queued and were not yet written
+     */
+    public long getPendingEntries() {
+        return enqueued.get() - getCompletedEntries();
+    }
+
+    /**
+     * @return  the number of entries written by the writer thread
+     */
+    public long getWrittenEntries() {
+        return written.get();
+    }
+
+    /**
+     * @return  the number of entries dropped because the queue was full
+     */
+    public long getDiscardedEntries() {
+        return discarded.get();
+    }
+
+    private long getCompletedEntries() {
+        return written.get() + rejected.get();
+    }
+
+    private void handleOverflow(Entry entry) throws SQLException, InterruptedException {
+        ensureWriterStarted();
+        switch (overflowPolicy) {
+            case BLOCK:
+                enqueued.incrementAndGet();
+                if (!queue.offer(entry, FLUSH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    rejected.incrementAndGet();
+                    writeSync(entry);
+                }
+                break;
+            case DISCARD:
+                if (discarded.incrementAndGet() % 1000 == 1) {
+                    LOG.warn("History queue is full, discarding entries (" + discarded.get() + " entries discarded so far).");
+                }
+                break;
+            default:
+                writeSync(entry);
+        }
+    }
+
+    private synchronized void ensureWriterStarted() {
+        if (running && (writerThread == null || !writerThread.isAlive())) {
+            writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runWriter();
+                }
+            }, "flexive-history-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    private synchronized boolean isWriterAlive() {
+        return writerThread != null && writerThread.isAlive();
+    }
+
+    private void runWriter() {
+        final List<Entry> batch = new ArrayList<Entry>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                final long deadline = System.currentTimeMillis() + flushInterval;
+                while (entry != null && entry != FLUSH) {
+                    batch.add(entry);
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    entry = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Throwable t) {
+                LOG.error("Failed to write history entries: " + t.getMessage(), t);
+            } finally {
+                entriesWritten(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write all queued entries in the calling thread.
+     */
+    private void drain() {
+        final List<Entry> batch = new ArrayList<Entry>();
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            if (entry != FLUSH) {
+                batch.add(entry);
+            }
+        }
+        try {
+            writeBatch(batch);
+        } catch (Throwable t) {
+            LOG.error("Failed to write history entries: " + t.getMessage(), t);
+        } finally {
+            entriesWritten(batch.size());
+        }
+    }
+
+    private void entriesWritten(int count) {
+        synchronized (writtenLock) {
+            written.addAndGet(count);
+            writtenLock.notifyAll();
+        }
+    }
+
+    /**
+     * Write a single entry in the calling thread, using the caller's transaction.
+     *
+     * @param entry the history entry
+     * @throws SQLException if the entry could not be written
+     */
+    protected void writeSync(Entry entry) throws SQLException {
+        // use the transactional data source of the caller
+        Connection con = null;
+        try {
+            con = Database.getDbConnection(entry.divisionId);
+            writeEntries(con, entry.target, Arrays.asList(entry));
+        } finally {
+            Database.closeObjects(HistoryWriter.class, con, null);
+        }
+    }
+
+    /**
+     * Write a batch of queued entries, called by the writer thread (or by the thread that drains the queue
+     * on shutdown). Errors are logged, since the entries cannot be passed back to the caller.
+     *
+     * @param batch the queued entries
+     */
+    protected void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Map<Integer, List<Entry>> divisionEntries = new LinkedHashMap<Integer, List<Entry>>();
+        for (Entry entry : batch) {
+            if (!divisionEntries.containsKey(entry.divisionId)) {
+                divisionEntries.put(entry.divisionId, new ArrayList<Entry>());
+            }
+            divisionEntries.get(entry.divisionId).add(entry);
+        }
+        for (List<Entry> entries : divisionEntries.values()) {
+            final Target target = entries.get(0).target;
+            Connection con = null;
+            try {
+                con = target.dataSource.getConnection();
+                writeEntries(con, target, entries);
+            } catch (SQLException e) {
+                LOG.error("Failed to write " + entries.size() + " history entries for division "
+                        + entries.get(0).divisionId + ": " + e.getMessage(), e);
+            } finally {
+                Database.closeObjects(HistoryWriter.class, con, null);
+            }
+        }
+    }
+
+    private void writeEntries(Connection con, Target target, List<Entry> entries) throws SQLException {
+        PreparedStatement ps = null;
+        PreparedStatement psMandator = null;
+        try {
+            for (Entry entry : entries) {
+                final boolean hasMandator = entry.mandator != null;
+                if (hasMandator && psMandator == null) {
+                    psMandator = con.prepareStatement(target.insertMandator);
+                } else if (!hasMandator && ps == null) {
+                    ps = con.prepareStatement(target.insert);
+                }
+                setParameters(hasMandator ? psMandator : ps, target.storage, entry);
+                if (entries.size() == 1) {
+                    (hasMandator ? psMandator : ps).executeUpdate();
+                } else {
+                    (hasMandator ? psMandator : ps).addBatch();
+                }
+            }
+            if (entries.size() > 1) {
+                if (ps != null) {
+                    ps.executeBatch();
+                }
+                if (psMandator != null) {
+                    psMandator.executeBatch();
+                }
+            }
+        } finally {
+            Database.closeObjects(HistoryWriter.class, ps, psMandator);
+        }
+    }
+
+    private void setParameters(PreparedStatement ps, DBStorage storage, Entry entry) throws SQLException {
+        ps.setLong(1, entry.account);
+        ps.setString(2, entry.loginName);
+        ps.setLong(3, entry.timestamp);
+        ps.setString(4, entry.key);
+        storage.setBigString(ps, 5, entry.actionArgs);
+        String message;
+        try {
+            message = entry.message != null
+                    ? entry.message
+                    : FxSharedUtils.getLocalizedMessage("History", FxLanguage.ENGLISH, "en", entry.key, (Object[]) entry.messageArgs);
+        } catch (Exception e) {
+            message = entry.key;
+        }
+        ps.setString(6, message);
+        ps.setString(7, entry.session);
+        ps.setString(8, entry.application);
+        ps.setString(9, entry.remoteHost);
+        if (entry.typeId != null)
+            ps.setLong(10, entry.typeId);
+        else
+            ps.setNull(10, java.sql.Types.NUMERIC);
+        if (entry.typeName != null)
+            ps.setString(11, entry.typeName);
+        else
+            ps.setNull(11, java.sql.Types.VARCHAR);
+        if (entry.pk != null) {
+            ps.setLong(12, entry.pk.getId());
+            ps.setInt(13, entry.pk.getVersion());
+        } else {
+            ps.setNull(12, java.sql.Types.NUMERIC);
+            ps.setNull(13, java.sql.Types.NUMERIC);
+        }
+        if (entry.data != null)
+            storage.setBigString(ps, 14, entry.data);
+        else
+            ps.setNull(14, java.sql.Types.VARCHAR);
+        if (entry.mandator != null)
+            ps.setLong(15, entry.mandator);
+    }
+
+    /**
+     * Return the data source and the vendor-specific statements of the given division. Must be called
+     * by the request thread, since the lookup depends on the current {@link FxContext}.
+     *
+     * @param divisionId    the division ID
+     * @return  the target of the history entries of the division
+     * @throws SQLException if the data source could not be retrieved
+     */
+    private Target getTarget(int divisionId) throws SQLException {
+        Target target = targets.get(divisionId);
+        if (target == null) {
+            final DBStorage storage = StorageManager.getStorageImpl();
+            target = new Target(Database.getNonTXDataSource(divisionId), storage,
+                    storage.escapeReservedWords(HISTORY_INSERT), storage.escapeReservedWords(HISTORY_INSERT_MANDATOR));
+            targets.put(divisionId, target);
+        }
+        return target;
+    }
+
+    /**
+     * Convert the message arguments to strings in the calling thread, since the arguments may be modified after
+     * the entry was queued. The conversion matches {@link com.flexive.shared.FxFormatUtils#formatResource}
+     * for the english locale.
+     *
+     * @param args  the message arguments
+     * @return      the arguments as strings
+     */
+    private static String[] getMessageArgs(Object[] args) {
+        final String[] result = new String[args != null ? args.length : 0];
+        for (int i = 0; i < result.length; i++) {
+            final Object value = args[i];
+            if (value instanceof FxString) {
+                result[i] = ((FxString) value).translationExists(FxLanguage.ENGLISH)
+                        ? ((FxString) value).getTranslation(FxLanguage.ENGLISH)
+                        : ((FxString) value).getDefaultTranslation();
+            } else if (value instanceof FxApplicationException) {
+                result[i] = ((FxApplicationException) value).getMessage(FxLanguage.ENGLISH);
+            } else if (value instanceof FxRuntimeException) {
+                result[i] = ((FxRuntimeException) value).getMessage(FxLanguage.ENGLISH);
+            } else {
+                result[i] = String.valueOf(value);
+            }
+        }
+        return result;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        final String value = System.getProperty(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static OverflowPolicy getOverflowPolicy() {
+        final String value = System.getProperty(CONFIG_OVERFLOW);
+        if (value != null) {
+            try {
+                return OverflowPolicy.valueOf(value.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                LOG.error("Invalid value for " + CONFIG_OVERFLOW + ": " + value);
+            }
+        }
+        return OverflowPolicy.SYNC;
+    }
+
+    private static final class Target {
+        private final DataSource dataSource;
+        private final DBStorage storage;
+        private final String insert;
+        private final String insertMandator;
+
+        private Target(DataSource dataSource, DBStorage storage, String insert, String insertMandator) {
+            this.dataSource = dataSource;
+            this.storage = storage;
+            this.insert = insert;
+            this.insertMandator = insertMandator;
+        }
+    }
+
+    /**
+     * A history entry.
+     */
+    protected static final class Entry {
+        private int divisionId;
+        private Target target;
+        private long account;
+        private String loginName;
+        private long timestamp;
+        private String key;
+        private String actionArgs;
+        private String message;
+        private String[] messageArgs;
+        private String session;
+        private String application;
+        private String remoteHost;
+        private Long typeId;
+        private String typeName;
+        private FxPK pk;
+        private String data;
+        private Long mandator;
+
+        private Entry() {
+        }
+
+        /**
+         * Create an entry that is not written to a division, e.g. for tests that override
+         * {@link HistoryWriter#writeSync(Entry)} and {@link HistoryWriter#writeBatch(java.util.List)}.
+         *
+         * @param key   the message key
+         */
+        public Entry(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+}
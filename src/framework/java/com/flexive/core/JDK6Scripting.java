@@ -38,20 +38,48 @@ import com.flexive.shared.exceptions.FxInvalidParameterException;
 import com.flexive.shared.scripting.FxScriptBinding;
 import com.flexive.shared.scripting.FxScriptResult;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Java 6 Scripting extensions for [fleXive]
+ * <p>
+ * The script engine factories are resolved once. Scripts executed with a script id are compiled once
+ * (if the engine implements {@link Compilable}) and kept until {@link #clearScriptCache()} is called
+ * by the scripting engine (i.e. when the environment changed).
+ * </p>
  *
  * @author Markus Plesser (markus.plesser@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  * @version $Rev$
  */
 public class JDK6Scripting {
 
+    /**
+     * Compiled scripts by script id
+     */
+    private static final ConcurrentMap<Long, CachedScript> SCRIPT_CACHE = new ConcurrentHashMap<Long, CachedScript>();
+
+    /**
+     * Number of compiled scripts
+     */
+    private static final AtomicLong COMPILATIONS = new AtomicLong();
+
     /**
      * Run a script.
      * <b>This method is internal and intended to be exclusively called by the ScriptingEngine!</b>
@@ -65,6 +93,22 @@ public class JDK6Scripting {
      * @throws FxApplicationException on errors
      */
     public static FxScriptResult runScript(String name, FxScriptBinding binding, String code) throws FxApplicationException {
+        return runScript(-1, name, binding, code);
+    }
+
+    /**
+     * Run a script and cache the compiled script under the given id.
+     * <b>This method is internal and intended to be exclusively called by the ScriptingEngine!</b>
+     *
+     * @param scriptId  the script id used for caching the compiled script, or -1 to disable caching
+     * @param name      name of the script - needed to determine language
+     * @param binding   bindings
+     * @param code      code to execute
+     * @return FxScriptResult
+     * @throws FxApplicationException on errors
+     * @since 3.2.1
+     */
+    public static FxScriptResult runScript(long scriptId, String name, FxScriptBinding binding, String code) throws FxApplicationException {
         if (name == null)
             name = "unknown";
         if (binding != null) {
@@ -75,35 +119,63 @@ public class JDK6Scripting {
             binding.setVariable("scriptname", name);
         }
         try {
-            Class.forName("javax.script.ScriptEngine"); //provoke exception if no JDK >= 6 installed
-            String ext = name.substring(name.lastIndexOf('.') + 1);
-            javax.script.ScriptEngineManager manager = new javax.script.ScriptEngineManager();
-            javax.script.ScriptEngine engine = manager.getEngineByExtension(ext);
-            if (engine == null)
-                throw new FxInvalidParameterException(name, "ex.general.scripting.noEngine", name);
-            javax.script.Bindings b = engine.createBindings();
+            CachedScript script = scriptId != -1 ? SCRIPT_CACHE.get(scriptId) : null;
+            if (script == null || !script.name.equals(name) || !script.code.equals(code)) {
+                script = new CachedScript(name, createEngine(name), code);
+                if (scriptId != -1) {
+                    SCRIPT_CACHE.put(scriptId, script);
+                }
+            }
+            final ScriptContext context = new SimpleScriptContext();
+            final Bindings b = script.engine.createBindings();
             if (binding != null)
                 b.putAll(binding.getProperties());
             b.put(ScriptEngine.FILENAME, name);
-            engine.setBindings(b, javax.script.ScriptContext.ENGINE_SCOPE);
-            Object result = engine.eval(code);
+            context.setBindings(b, ScriptContext.ENGINE_SCOPE);
+            final Object result = script.eval(context);
             if (binding != null) {
                 binding.getProperties().clear();
-                Object o;
-                for (String key : engine.getBindings(javax.script.ScriptContext.ENGINE_SCOPE).keySet()) {
-                    o = engine.getBindings(javax.script.ScriptContext.ENGINE_SCOPE).get(key);
-                    if (o instanceof Serializable)
-                        binding.getProperties().put(key, (Serializable) o);
+                for (Map.Entry<String, Object> entry : context.getBindings(ScriptContext.ENGINE_SCOPE).entrySet()) {
+                    if (entry.getValue() instanceof Serializable)
+                        binding.getProperties().put(entry.getKey(), (Serializable) entry.getValue());
                 }
             }
             return new FxScriptResult(binding, result);
-        } catch (ClassNotFoundException cnfe) {
-            throw new FxInvalidParameterException(name, "ex.general.scripting.needJDK6", name).asRuntimeException();
-        } catch (javax.script.ScriptException e) {
+        } catch (ScriptException e) {
             throw new FxInvalidParameterException(name, "ex.general.scripting.exception", name, e.getMessage()).asRuntimeException();
         }
     }
 
+    /**
+     * Remove all compiled scripts from the cache.
+     *
+     * @since 3.2.1
+     */
+    public static void clearScriptCache() {
+        SCRIPT_CACHE.clear();
+    }
+
+    /**
+     * Remove a compiled script from the cache.
+     *
+     * @param scriptId  the script id
+     * @since 3.2.1
+     */
+    public static void removeCachedScript(long scriptId) {
+        SCRIPT_CACHE.remove(scriptId);
+    }
+
+    /**
+     * Returns the number of scripts compiled (or prepared, if the script engine does not support compilation)
+     * since startup.
+     *
+     * @return the number of compiled scripts
+     * @since 3.2.1
+     */
+    public static long getCompilationCount() {
+        return COMPILATIONS.get();
+    }
+
     /**
      * Get a list of all available scripting engines
      *
@@ -111,7 +183,7 @@ public class JDK6Scripting {
      */
     public static List<String[]> getAvailableScriptEngines() {
         List<String[]> res = new ArrayList<String[]>(5);
-        for (ScriptEngineFactory f : new javax.script.ScriptEngineManager().getEngineFactories()) {
+        for (ScriptEngineFactory f : EngineFactories.FACTORIES) {
             for (String ext : f.getExtensions())
                 res.add(new String[]{ext, ext + ": " + f.getLanguageName() + " v" + f.getLanguageVersion() +
                         " (" + f.getEngineName() + " v" + f.getEngineVersion() + ")"});
@@ -119,4 +191,66 @@ public class JDK6Scripting {
         return res;
     }
 
+    private static ScriptEngine createEngine(String name) throws FxInvalidParameterException {
+        final String ext = name.substring(name.lastIndexOf('.') + 1);
+        final ScriptEngineFactory factory = EngineFactories.BY_EXTENSION.get(ext);
+        final ScriptEngine engine = factory != null ? factory.getScriptEngine() : null;
+        if (engine == null)
+            throw new FxInvalidParameterException(name, "ex.general.scripting.noEngine", name);
+        return engine;
+    }
+
+    /**
+     * The script engine factories registered with the JDK, resolved on first use.
+     */
+    private static class EngineFactories {
+        static final List<ScriptEngineFactory> FACTORIES;
+        static final Map<String, ScriptEngineFactory> BY_EXTENSION;
+
+        static {
+            final List<ScriptEngineFactory> factories = new ScriptEngineManager().getEngineFactories();
+            final Map<String, ScriptEngineFactory> byExtension = new HashMap<String, ScriptEngineFactory>();
+            for (ScriptEngineFactory factory : factories) {
+                for (String ext : factory.getExtensions()) {
+                    if (!byExtension.containsKey(ext)) {
+                        byExtension.put(ext, factory);
+                    }
+                }
+            }
+            FACTORIES = Collections.unmodifiableList(new ArrayList<ScriptEngineFactory>(factories));
+            BY_EXTENSION = Collections.unmodifiableMap(byExtension);
+        }
+    }
+
+    /**
+     * A script with its engine and (if supported by the engine) the compiled script.
+     */
+    private static class CachedScript {
+        final String name;
+        final ScriptEngine engine;
+        final CompiledScript compiled;
+        final String code;
+        /**
+         * Engines that don't declare a threading model must not be used concurrently
+         */
+        final boolean threadSafe;
+
+        CachedScript(String name, ScriptEngine engine, String code) throws ScriptException {
+            this.name = name;
+            this.engine = engine;
+            this.code = code;
+            this.compiled = engine instanceof Compilable ? ((Compilable) engine).compile(code) : null;
+            this.threadSafe = engine.getFactory().getParameter("THREADING") != null;
+            COMPILATIONS.incrementAndGet();
+        }
+
+        Object eval(ScriptContext context) throws ScriptException {
+            if (threadSafe) {
+                return compiled != null ? compiled.eval(context) : engine.eval(code, context);
+            }
+            synchronized (this) {
+                return compiled != null ? compiled.eval(context) : engine.eval(code, context);
+            }
+        }
+    }
 }
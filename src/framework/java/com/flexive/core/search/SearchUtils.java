@@ -1,6 +1,7 @@
 package com.flexive.core.search;
 
 import com.flexive.core.DatabaseConst;
+import com.flexive.core.security.UserTicketImpl;
 import com.flexive.core.storage.DBStorage;
 import com.flexive.core.storage.StorageManager;
 import com.flexive.shared.CacheAdmin;
@@ -8,6 +9,7 @@ import com.flexive.shared.FxContext;
 import com.flexive.shared.FxLanguage;
 import com.flexive.shared.security.ACLCategory;
 import com.flexive.shared.security.ACLPermission;
+import com.flexive.shared.security.UserGroup;
 import com.flexive.shared.security.UserTicket;
 import com.flexive.shared.structure.FxEnvironment;
 import com.flexive.shared.structure.FxFlatStorageMapping;
@@ -17,6 +19,8 @@ import com.flexive.shared.workflow.Step;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import java.util.*;
 
@@ -31,9 +35,66 @@ import static org.apache.commons.lang.StringUtils.isBlank;
  * @since 3.1
  */
 public class SearchUtils {
+    private static final Log LOG = LogFactory.getLog(SearchUtils.class);
+
+    /**
+     * System property for the number of cached security filters (default: 1000, 0 disables the cache)
+     *
+     * @since 3.2.1
+     */
+    public static final String CONFIG_SECURITY_FILTER_CACHE_SIZE = "flexive.search.securityFilter.cacheSize";
+
+    /**
+     * System property for the maximum number of readable ACLs that are passed as a literal IN list.
+     * If the user can read more ACLs, the ACLs are selected with a subquery on the ACL assignments (default: 500).
+     *
+     * @since 3.2.1
+     */
+    public static final String CONFIG_SECURITY_FILTER_MAX_ACLS = "flexive.search.securityFilter.maxACLs";
+
+    private static final int SECURITY_FILTER_CACHE_SIZE = getIntProperty(CONFIG_SECURITY_FILTER_CACHE_SIZE, 1000);
+    private static volatile int securityFilterMaxACLs = getIntProperty(CONFIG_SECURITY_FILTER_MAX_ACLS, 500);
+
+    /**
+     * Cached security filters, the key contains the ticket permissions and the environment timestamp
+     */
+    private static final Map<String, String> SECURITY_FILTER_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = -3516424536873547829L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > SECURITY_FILTER_CACHE_SIZE;
+                }
+            });
+
     private SearchUtils() {
     }
 
+    /**
+     * Clear the cached security filters of this node.
+     *
+     * @since 3.2.1
+     */
+    public static void clearSecurityFilterCache() {
+        SECURITY_FILTER_CACHE.clear();
+    }
+
+    /**
+     * Set the maximum number of readable ACLs that are passed as a literal IN list
+     * (see {@link #CONFIG_SECURITY_FILTER_MAX_ACLS}), mainly for testing the subquery-based security filter.
+     *
+     * @param maxACLs   the maximum number of readable ACLs
+     * @return          the previous value
+     * @since 3.2.1
+     */
+    public static int setSecurityFilterMaxACLs(int maxACLs) {
+        final int previous = securityFilterMaxACLs;
+        securityFilterMaxACLs = maxACLs;
+        clearSecurityFilterCache();
+        return previous;
+    }
+
     public static String getFlatStorageAssignmentFilter(FxEnvironment environment, String flatTableAlias, FxPropertyAssignment assignment) {
         final List<String> conditions = newArrayList();
         conditions.add(flatStorageFilterCondition(flatTableAlias, assignment));
@@ -70,6 +131,34 @@ public class SearchUtils {
             return "1=1";
         }
 
+        if (!contentTableAvailable || SECURITY_FILTER_CACHE_SIZE <= 0 || !(ticket instanceof UserTicketImpl)) {
+            return buildSecurityFilter(ticket, tableAlias, referencedTypes, contentTableAvailable);
+        }
+
+        // the filter depends only on the ticket permissions, the environment and the referenced types
+        final long[] typeIds = new long[referencedTypes.size()];
+        for (int i = 0; i < typeIds.length; i++) {
+            typeIds[i] = referencedTypes.get(i).getId();
+        }
+        Arrays.sort(typeIds);
+        final StringBuilder key = new StringBuilder(64 + typeIds.length * 4);
+        key.append(FxContext.get().getDivisionId()).append('|').append(tableAlias)
+                .append('|').append(CacheAdmin.getEnvironment().getTimeStamp())
+                .append('|').append(((UserTicketImpl) ticket).getPermissionFingerprint()).append('|');
+        for (long typeId : typeIds) {
+            key.append(typeId).append(',');
+        }
+        final String cacheKey = key.toString();
+        String filter = SECURITY_FILTER_CACHE.get(cacheKey);
+        if (filter == null) {
+            filter = buildSecurityFilter(ticket, tableAlias, referencedTypes, true);
+            SECURITY_FILTER_CACHE.put(cacheKey, filter);
+        }
+        return filter;
+    }
+
+    private static String buildSecurityFilter(UserTicket ticket, String tableAlias, List<FxType> referencedTypes, boolean contentTableAvailable) {
+
         if (!contentTableAvailable) {
             // not selected from content table, main table properties for optimized security filter are not available
             final DBStorage storage = StorageManager.getStorageImpl();
@@ -150,12 +239,23 @@ public class SearchUtils {
             // remove all ACLs that are readable regardless of the owner
             privateReadable.removeAll(readable);
 
-            final String permFilter = buildPermFilter(tableAlias, typesWithInstancePerms, typesWithPerms,
-                    contentFilterWithPrivate(ticket, tableAlias,
-                            contentAclFilter(tableAlias, readable),
-                            contentAclFilter(tableAlias, privateReadable)
-                    )
-            );
+            final String permFilter;
+            if (readable.size() + privateReadable.size() > securityFilterMaxACLs) {
+                // select the ACLs from the assignments of the user's groups instead of passing huge ID lists
+                permFilter = buildPermFilter(tableAlias, typesWithInstancePerms, typesWithPerms,
+                        contentFilterWithPrivate(ticket, tableAlias,
+                                contentAclFilter(tableAlias, readableAclSelect(ticket, false)),
+                                privateReadable.isEmpty() ? null : contentAclFilter(tableAlias, readableAclSelect(ticket, true))
+                        )
+                );
+            } else {
+                permFilter = buildPermFilter(tableAlias, typesWithInstancePerms, typesWithPerms,
+                        contentFilterWithPrivate(ticket, tableAlias,
+                                contentAclFilter(tableAlias, readable),
+                                contentAclFilter(tableAlias, privateReadable)
+                        )
+                );
+            }
             securityFilters.add(permFilter);
         }
         
@@ -233,18 +333,51 @@ public class SearchUtils {
     }
 
     private static String contentAclFilter(String contentTableAlias, Set<Long> acls) {
-        return acls.isEmpty() ? null :
-                // first check for contents that have the desired ACL in the main table column
-                "(" + contentTableAlias + ".acl IN (" + StringUtils.join(acls, ',') + ") " +
+        return acls.isEmpty() ? null : contentAclFilter(contentTableAlias, StringUtils.join(acls, ','));
+    }
+
+    private static String contentAclFilter(String contentTableAlias, String acls) {
+        // first check for contents that have the desired ACL in the main table column
+        return "(" + contentTableAlias + ".acl IN (" + acls + ") " +
                 // then check for the ACL in TBL_CONTENT_ACLS
                 "OR EXISTS(" +
                 contentAclFilter(contentTableAlias, DatabaseConst.TBL_CONTENT_ACLS, acls)
                 + "))";
     }
 
-    private static String contentAclFilter(String contentTableAlias, String table, Set<Long> acls) {
+    private static String contentAclFilter(String contentTableAlias, String table, String acls) {
         return "SELECT c.acl FROM " + table + " c WHERE c.id=" + contentTableAlias + ".id AND c.ver=" + contentTableAlias + ".ver " +
-                " AND c.acl IN (" + StringUtils.join(acls, ',') + ")";
+                " AND c.acl IN (" + acls + ")";
+    }
+
+    /**
+     * Select the readable instance ACLs of the user from the ACL assignments, equivalent to the ACLs of
+     * {@link UserTicket#getACLsId(long, ACLCategory, ACLPermission...)}.
+     *
+     * @param ticket    the user ticket
+     * @param owner     select the ACLs assigned to the owner group instead of the user's groups
+     * @return          the subquery selecting the ACL ids
+     */
+    private static String readableAclSelect(UserTicket ticket, boolean owner) {
+        return "SELECT ass.acl FROM " + DatabaseConst.TBL_ACLS_ASSIGNMENT + " ass, " + DatabaseConst.TBL_ACLS + " acl"
+                + " WHERE acl.id=ass.acl AND acl.cat_type=" + ACLCategory.INSTANCE.getId()
+                + " AND ass.pread=" + StorageManager.getStorageImpl().getBooleanTrueExpression()
+                + " AND " + (owner
+                ? "ass.usergroup=" + UserGroup.GROUP_OWNER
+                : "ass.usergroup IN (SELECT grp.usergroup FROM " + DatabaseConst.TBL_ASSIGN_GROUPS
+                + " grp WHERE grp.account=" + ticket.getUserId() + ")");
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        final String value = System.getProperty(name);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
     }
 
     private static String contentFilterWithPrivate(UserTicket ticket, String tableAlias, Set<Long> readableIds, Set<Long> privateReadableIds, String column) {
@@ -185,6 +185,27 @@ public class SqlSearch {
      * @throws FxSqlSearchException if the search failed
      */
     public FxResultSet executeQuery() throws FxSqlSearchException {
+        try {
+            return executeQuery(null);
+        } catch (FxSqlSearchException e) {
+            throw e;
+        } catch (FxApplicationException e) {
+            // cannot happen without a row handler
+            throw new FxSqlSearchException(LOG, e, "ex.sqlSearch.failed", e.getMessage(), query, null);
+        }
+    }
+
+    /**
+     * Executes the search and passes the result rows to the given handler instead of adding them to
+     * the result set. The rows are converted as they are read from the database cursor.
+     *
+     * @param handler   the row handler, or null to return all rows in the result set
+     * @return the resultset (without rows when a handler was specified)
+     * @throws FxSqlSearchException if the search failed
+     * @throws FxApplicationException if the row handler failed
+     * @since 3.2.1
+     */
+    public FxResultSet executeQuery(FxResultRowHandler handler) throws FxApplicationException {
         parseQuery();
 
         // Check if the statement will produce any resultset at all
@@ -197,6 +218,7 @@ public class SqlSearch {
         Statement stmt = null;
         Connection con = null;
         FxResultSetImpl fx_result = null;
+        int streamedRows = 0;
         final long startTime = java.lang.System.currentTimeMillis();
         DataSelector ds = null;
         DataFilter df = null;
@@ -305,6 +327,9 @@ public class SqlSearch {
             if (df.isQueryTimeoutSupported())
                 stmt.setQueryTimeout(this.params.getQueryTimeout());
             df.setVariable(stmt, "rownr", "1");
+            if (handler != null) {
+                stmt.setFetchSize(storage.getStreamingFetchSize());
+            }
             // Fetch the result
             ResultSet rs = stmt.executeQuery(selectSql);
             int dbSearchTime = (int) (java.lang.System.currentTimeMillis() - startTime);
@@ -317,6 +342,7 @@ public class SqlSearch {
             fx_result.setTruncated(df.isTruncated());
 
             final long fetchStart = java.lang.System.currentTimeMillis();
+            int rowCount = 0;
             while (rs.next()) {
                 Object[] row = new Object[pr.getResultSetColumns().size()];
                 int i = 0;
@@ -350,16 +376,27 @@ public class SqlSearch {
                     row[i] = val;
                     i++;
                 }
-                fx_result.addRow(row);
-                if (fx_result.getRowCount() == fetchRows) {
+                rowCount++;
+                if (handler != null) {
+                    streamedRows = rowCount;
+                    if (!handler.processRow(fx_result, row)) {
+                        break;
+                    }
+                } else {
+                    fx_result.addRow(row);
+                }
+                if (rowCount == fetchRows) {
                     // Maximum fetch size reached, stop
                     break;
                 }
             }
+            if (handler != null && this.params.isHintNoResultInfo()) {
+                fx_result.setTotalRowCount(rowCount);
+            }
             int timeSpent = (int) (java.lang.System.currentTimeMillis() - fetchStart);
             fx_result.setFetchTime(timeSpent);
             return fx_result;
-        } catch (FxSqlSearchException exc) {
+        } catch (FxApplicationException exc) {
             throw exc;
         } catch (SQLException exc) {
             if (StorageManager.isQueryTimeout(exc)) {
@@ -368,7 +405,7 @@ public class SqlSearch {
                             + query + "\n\nSQL:\n" + selectSql);
                 }
                 throw new FxSqlSearchException(exc, "ex.sqlSearch.query.timeout", params.getQueryTimeout());
-            } else if (StorageManager.isDeadlock(exc)) {
+            } else if (StorageManager.isDeadlock(exc) && streamedRows == 0) {
                 if (LOG.isInfoEnabled()) {
                     LOG.info("Deadlock detected during query executing, waiting 100ms and retrying...");
                     try {
@@ -376,20 +413,22 @@ public class SqlSearch {
                     } catch (InterruptedException e) {
                         // ignore
                     }
-                    return executeQuery();
+                    return executeQuery(handler);
                 }
             }
             throw new FxSqlSearchException(LOG, exc, "ex.sqlSearch.failed", exc.getMessage(), query, selectSql);
         } catch (Exception e) {
             throw new FxSqlSearchException(LOG, e, "ex.sqlSearch.failed", e.getMessage(), query, selectSql);
         } finally {
+            // close the result cursor first, streaming drivers do not allow other statements while it is open
+            Database.closeObjects(SqlSearch.class, stmt);
             try {
                 if (ds != null) ds.cleanup(con);
             } catch (Throwable t) {/*ignore*/}
             try {
                 if (df != null) df.cleanup();
             } catch (Throwable t) {/*ignore*/}
-            Database.closeObjects(SqlSearch.class, con, stmt);
+            Database.closeObjects(SqlSearch.class, con, null);
             if (fx_result != null) {
                 int timeSpent = (int) (java.lang.System.currentTimeMillis() - startTime);
                 fx_result.setTotalTime(timeSpent);
@@ -73,7 +73,10 @@ public class UserTicketImpl implements UserTicket, Serializable {
     private long[] groups;
     private Role[] roles;
     private boolean dirty;
+    private long[] generations;
     private ACLAssignment[] assignments;
+    private ACLPermissionTable permissions;
+    private transient volatile String permissionFingerprint;
     private long creationTime;
     private FxPK contactData;
     private String remoteHost;
@@ -203,6 +206,27 @@ public class UserTicketImpl implements UserTicket, Serializable {
         this.dirty = value;
     }
 
+    /**
+     * Returns the generations of the user, group and ACL data this ticket was loaded from
+     * (see {@link UserTicketStore}).
+     *
+     * @return the generations of the data this ticket was loaded from, or null if not set
+     * @since 3.2.1
+     */
+    long[] getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Sets the generations of the user, group and ACL data this ticket was loaded from.
+     *
+     * @param generations the generations of the data this ticket was loaded from
+     * @since 3.2.1
+     */
+    void setGenerations(long[] generations) {
+        this.generations = generations;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -249,11 +273,9 @@ public class UserTicketImpl implements UserTicket, Serializable {
         if (assignments == null || assignments.length == 0 || acls == null || acls.length == 0) {
             return false;
         }
-        for (ACLAssignment aclData : assignments) {
-            for (long acl : acls) {
-                if (aclData.getAclId() == acl) {
-                    return true;
-                }
+        for (long acl : acls) {
+            if (permissions.get(acl) != 0) {
+                return true;
             }
         }
         return false;
@@ -437,6 +459,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
         if (assignments == null) {
             assignments = new ACLAssignment[0];
         }
+        this.permissions = new ACLPermissionTable(assignments);
 
         // Check groups
         if (this.groups == null || this.groups.length == 0) {
@@ -555,11 +578,13 @@ public class UserTicketImpl implements UserTicket, Serializable {
      */
     @Override
     public UserTicketImpl copy() {
-        return new UserTicketImpl(this.applicationId, this.webDav, this.userName, this.loginName,
+        final UserTicketImpl copy = new UserTicketImpl(this.applicationId, this.webDav, this.userName, this.loginName,
                 this.userId, this.contactData, this.mandator, this.multiLogin, this.groups.clone(), this.roles.clone(),
                 ACLAssignment.clone(this.assignments), this.language, this.failedLoginAttempts, this.authenticationSource,
                 this.dateFormat, this.timeFormat, this.dateTimeFormat,
                 this.decimalSeparator, this.groupingSeparator, this.useGroupingSeparator);
+        copy.generations = this.generations != null ? this.generations.clone() : null;
+        return copy;
     }
 
 
@@ -571,15 +596,27 @@ public class UserTicketImpl implements UserTicket, Serializable {
         return this.assignments.clone();
     }
 
+    /**
+     * Returns a key that is equal for all tickets with the same user, mandator and ACL permissions,
+     * e.g. for caching permission-dependent data like search security filters.
+     *
+     * @return a key identifying the permissions of this ticket
+     * @since 3.2.1
+     */
+    public String getPermissionFingerprint() {
+        if (permissionFingerprint == null) {
+            permissionFingerprint = userId + ":" + mandator + ":" + mandatorSupervisor + ":" + globalSupervisor
+                    + ":" + permissions.getFingerprint();
+        }
+        return permissionFingerprint;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean isAssignedToACL(long aclId) {
-        for (ACLAssignment item : this.assignments) {
-            if (item.getAclId() == aclId && !item.isOwnerGroupAssignment()) return true;
-        }
-        return false;
+        return (permissions.get(aclId) & ACLPermissionTable.ASSIGNED) != 0;
     }
 
     /**
@@ -588,11 +625,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayReadACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment() && ownerId != userId) continue;
-            if (item.getMayRead() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.READ, ownerId == userId);
     }
 
     /**
@@ -601,11 +634,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayEditACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment() && ownerId != userId) continue;
-            if (item.getMayEdit() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.EDIT, ownerId == userId);
     }
 
     /**
@@ -614,11 +643,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayExportACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment() && ownerId != userId) continue;
-            if (item.getMayExport() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.EXPORT, ownerId == userId);
     }
 
     /**
@@ -627,11 +652,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayRelateACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment() && ownerId != userId) continue;
-            if (item.getMayRelate() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.RELATE, ownerId == userId);
     }
 
     /**
@@ -640,11 +661,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayCreateACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment()) continue; //group owner may never create!
-            if (item.getMayCreate() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.CREATE, false); //group owner may never create!
     }
 
     /**
@@ -653,11 +670,7 @@ public class UserTicketImpl implements UserTicket, Serializable {
     @Override
     public boolean mayDeleteACL(long aclId, long ownerId) {
         if (this.isGlobalSupervisor()) return true;
-        for (ACLAssignment item : this.assignments) {
-            if (item.isOwnerGroupAssignment() && ownerId != userId) continue;
-            if (item.getMayDelete() && item.getAclId() == aclId) return true;
-        }
-        return false;
+        return permissions.isGranted(aclId, ACLPermissionTable.DELETE, ownerId == userId);
     }
 
     /**
@@ -939,4 +952,92 @@ public class UserTicketImpl implements UserTicket, Serializable {
     public boolean useGroupingSeparator() {
         return useGroupingSeparator;
     }
+
+    /**
+     * The ACL assignments of a ticket, compiled to permission bitmaps per ACL. General grants are stored in the
+     * lower byte, grants of the owner group in the next byte. The table uses open addressing, so a permission
+     * check is a single hash lookup regardless of the number of assignments.
+     */
+    private static final class ACLPermissionTable implements Serializable {
+        private static final long serialVersionUID = 3295217433456917846L;
+
+        static final int READ = 1;
+        static final int EDIT = 1 << 1;
+        static final int RELATE = 1 << 2;
+        static final int DELETE = 1 << 3;
+        static final int EXPORT = 1 << 4;
+        static final int CREATE = 1 << 5;
+        static final int ASSIGNED = 1 << 6;
+        private static final int OWNER_SHIFT = 8;
+
+        private final long[] aclIds;
+        private final int[] masks;
+        private final int mask;
+
+        ACLPermissionTable(ACLAssignment[] assignments) {
+            int capacity = 4;
+            while (capacity < assignments.length * 2) {
+                capacity <<= 1;
+            }
+            this.aclIds = new long[capacity];
+            this.masks = new int[capacity];
+            this.mask = capacity - 1;
+            for (ACLAssignment assignment : assignments) {
+                final int perms = (assignment.getMayRead() ? READ : 0)
+                        | (assignment.getMayEdit() ? EDIT : 0)
+                        | (assignment.getMayRelate() ? RELATE : 0)
+                        | (assignment.getMayDelete() ? DELETE : 0)
+                        | (assignment.getMayExport() ? EXPORT : 0)
+                        | (assignment.getMayCreate() ? CREATE : 0)
+                        | ASSIGNED;
+                final int index = indexOf(assignment.getAclId());
+                aclIds[index] = assignment.getAclId();
+                masks[index] |= assignment.isOwnerGroupAssignment() ? perms << OWNER_SHIFT : perms;
+            }
+        }
+
+        /**
+         * @param aclId the ACL id
+         * @return the permission bitmap of the given ACL, 0 if the ACL is not assigned
+         */
+        int get(long aclId) {
+            return masks[indexOf(aclId)];
+        }
+
+        /**
+         * @param aclId     the ACL id
+         * @param perm      the permission bit
+         * @param owner     if the owner group assignments should be included
+         * @return if the permission was granted
+         */
+        boolean isGranted(long aclId, int perm, boolean owner) {
+            final int perms = get(aclId);
+            return (perms & perm) != 0 || (owner && (perms & (perm << OWNER_SHIFT)) != 0);
+        }
+
+        /**
+         * @return the sorted ACL ids and permission bitmaps of this table
+         */
+        String getFingerprint() {
+            final SortedMap<Long, Integer> sorted = new TreeMap<Long, Integer>();
+            for (int i = 0; i < masks.length; i++) {
+                if (masks[i] != 0) {
+                    sorted.put(aclIds[i], masks[i]);
+                }
+            }
+            final StringBuilder out = new StringBuilder(sorted.size() * 8);
+            for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+                out.append(entry.getKey()).append('=').append(Integer.toHexString(entry.getValue())).append(',');
+            }
+            return out.toString();
+        }
+
+        private int indexOf(long aclId) {
+            int index = (int) (aclId ^ (aclId >>> 32)) * 0x9E3779B9 & mask;
+            while (masks[index] != 0 && aclIds[index] != aclId) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+    }
 }
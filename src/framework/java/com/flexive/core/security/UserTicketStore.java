@@ -31,6 +31,7 @@
  ***************************************************************/
 package com.flexive.core.security;
 
+import com.flexive.core.search.SearchUtils;
 import com.flexive.core.structure.StructureLoader;
 import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
@@ -50,11 +51,19 @@ import org.apache.commons.logging.LogFactory;
 
 import javax.security.auth.Subject;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 /**
  * Store for all currently logged in user(ticket)s
+ * <p>
+ * Changes of users, groups and ACLs are tracked with generation counters in the cache
+ * ({@link CacheAdmin#ROOT_USERTICKET_GENERATIONS}). Every ticket records the generations of its user, groups and ACLs
+ * when it is loaded, and is reloaded by {@link #getTicket(boolean)} when one of these generations changed. A global
+ * generation that changes with every update allows to check a ticket with a single cache lookup in the common case.
+ * </p>
  *
  * @author Gregor Schober (gregor.schober@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  * @author Markus Plesser (markus.plesser@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
@@ -62,26 +71,37 @@ import java.util.Set;
 public class UserTicketStore {
 
     private static final String KEY_TICKET = "Ticket";
+    private static final String KEY_GLOBAL_GENERATION = "global";
+    private static final String KEY_PREFIX_USER = "user:";
+    private static final String KEY_PREFIX_GROUP = "group:";
+    private static final String KEY_PREFIX_ACL = "acl:";
     private static final Log LOG = LogFactory.getLog(UserTicketStore.class);
+    private static final Random GENERATIONS = new Random();
 
     /**
-     * Helper class
+     * Stores a subject (and its ticket) for the current session.
+     *
+     * @param sub the subject to store
      */
-    static class SubjectWithPath {
-        Subject subject;
-        String path;
+    public static void storeSubject(Subject sub) {
+        storeSubject(sub, true);
     }
 
     /**
      * Stores a subject (and its ticket) for the current session.
      *
-     * @param sub the subject to store
+     * @param sub       the subject to store
+     * @param changed   true if the session's ticket changed (see {@link CacheAdmin#getUserTicketMarker()}),
+     *                  false if the ticket was only synchronized with the current data
      */
-    public static void storeSubject(Subject sub) {
+    private static void storeSubject(Subject sub, boolean changed) {
         FxCacheMBean cache = CacheAdmin.getInstance();
         FxContext si = FxContext.get();
         try {
             cache.put(getCacheRoot(si), KEY_TICKET, sub);
+            if (changed) {
+                cache.put(getCacheRoot(si), CacheAdmin.USERTICKET_SESSION_GENERATION, GENERATIONS.nextLong());
+            }
             if (LOG.isDebugEnabled()) LOG.debug("Storing at [" + getCacheRoot(si) + "]: [" + sub + "]");
         } catch (FxCacheException exc) {
             LOG.error("Failed to store ticket in UserTickerStore: " + exc.getMessage(), exc);
@@ -89,22 +109,6 @@ public class UserTicketStore {
         }
     }
 
-    /**
-     * Stores a subject (and its ticket) for the given path
-     *
-     * @param sub the subject to store
-     */
-    private static void storeSubject(SubjectWithPath sub) {
-        FxCacheMBean cache = CacheAdmin.getInstance();
-        try {
-            cache.put(CacheAdmin.ROOT_USERTICKETSTORE + "/" + sub.path, KEY_TICKET, sub.subject);
-            if (LOG.isDebugEnabled())
-                LOG.debug("Storing at [" + CacheAdmin.ROOT_USERTICKETSTORE + "/" + sub.path + "]: [" + sub.subject + "]");
-        } catch (FxCacheException exc) {
-            LOG.error("Failed to store ticket in UserTickerStore: " + exc.getMessage(), exc);
-        }
-    }
-
     /**
      * Removes the subject for the current session
      */
@@ -113,6 +117,7 @@ public class UserTicketStore {
         FxContext si = FxContext.get();
         try {
             cache.remove(getCacheRoot(si), KEY_TICKET);
+            cache.put(getCacheRoot(si), CacheAdmin.USERTICKET_SESSION_GENERATION, GENERATIONS.nextLong());
             if (LOG.isDebugEnabled()) LOG.debug("Removing all subjects at for [" + getCacheRoot(si) + "]");
         } catch (FxCacheException exc) {
             LOG.error("Failed to clear session in UserTickerStore: " + exc.getMessage(), exc);
@@ -126,8 +131,7 @@ public class UserTicketStore {
      * @return the path of the ticket for the session
      */
     protected static String getCacheRoot(final FxContext si) {
-        return CacheAdmin.ROOT_USERTICKETSTORE + "/" + si.getApplicationId() +
-                (si.isWebDAV() ? "_WebDav" : "") + ":" + si.getSessionId();
+        return CacheAdmin.getUserTicketStorePath(si);
     }
 
 
@@ -152,48 +156,6 @@ public class UserTicketStore {
     }
 
 
-    /**
-     * Returns all subjects(tickets) in the store that match at least one of the given parameters.
-     *
-     * @param userId  the user id to look for
-     * @param groupId the group ids to match, if the ticket is a member of at least
-     *                one group it is added to the result
-     * @param acls    the acls
-     * @return the matching subjects
-     */
-    private static SubjectWithPath[] getSubjects(Long userId, long[] groupId, long[] acls) {
-        FxCacheMBean cache = CacheAdmin.getInstance();
-        try {
-            List<SubjectWithPath> result = new ArrayList<SubjectWithPath>(50);
-            Set aSet = cache.getChildrenNames(CacheAdmin.ROOT_USERTICKETSTORE);
-            if (aSet == null) return new SubjectWithPath[0];
-            UserTicketImpl aTicket;
-            Subject sub;
-            for (Object subPath : aSet) {
-                sub = (Subject) cache.get(CacheAdmin.ROOT_USERTICKETSTORE + "/" + subPath, KEY_TICKET);
-                if (sub == null) continue;
-                try {
-                    aTicket = (UserTicketImpl) FxDefaultLogin.getUserTicket(sub);
-                } catch (FxNotFoundException exc) {
-                    LOG.error("No UserTicket found in Subject " + sub, exc);
-                    continue;
-                }
-                boolean match = userId != null && aTicket.getUserId() == userId;
-                match = match || aTicket.isInAtLeastOneGroup(groupId);
-                match = match || aTicket.hasAtLeastOneACL(acls);
-                if (!match) continue;
-                SubjectWithPath sp = new SubjectWithPath();
-                sp.subject = sub;
-                sp.path = String.valueOf(subPath);
-                result.add(sp);
-            }
-            return result.toArray(new SubjectWithPath[result.size()]);
-        } catch (FxCacheException exc) {
-            LOG.error("Failed to examine tickets: " + exc.getMessage(), exc);
-            return new SubjectWithPath[0];
-        }
-    }
-
     /**
      * Gets the user ticket for the current request.
      *
@@ -219,10 +181,10 @@ public class UserTicketStore {
             } else {
                 ticket = (UserTicketImpl) FxDefaultLogin.getUserTicket(sub);
                 // Check dirty flag and sync with database if needed
-                if (refreshIfDirty && ticket.isDirty()) {
+                if (refreshIfDirty && (ticket.isDirty() || isOutdated(sub, ticket))) {
                     ticket = (UserTicketImpl) getUserTicket(ticket.getLoginName());
                     FxDefaultLogin.updateUserTicket(sub, ticket);
-                    storeSubject(sub);
+                    storeSubject(sub, false);
                 }
             }
             return ticket;
@@ -236,6 +198,7 @@ public class UserTicketStore {
         FxContext ri = FxContext.get();
         ri.runAsSystem();
         try {
+            final long globalGeneration = getGlobalGeneration();
             AccountEngine ae = EJBLookup.getAccountEngine();
             Account acc = ae.load(loginName);
             final List<UserGroup> groups = ae.getGroups(acc.getId());
@@ -244,9 +207,21 @@ public class UserTicketStore {
             final List<ACLAssignment> assignmentList = ae.loadAccountAssignments(acc.getId());
             ACLAssignment[] aad = assignmentList.toArray(new ACLAssignment[assignmentList.size()]);
             final List<Long> groupIds = FxSharedUtils.getSelectableObjectIdList(groups);
-            return new UserTicketImpl(ri.getApplicationId(), ri.isWebDAV(), acc,
+            final UserTicketImpl ticket = new UserTicketImpl(ri.getApplicationId(), ri.isWebDAV(), acc,
                     ArrayUtils.toPrimitive(groupIds.toArray(new Long[groupIds.size()])),
                     roles, aad, acc.getLanguage());
+            if (globalGeneration != -1) {
+                try {
+                    ticket.setGenerations(getGenerations(CacheAdmin.getInstance(), ticket, globalGeneration));
+                    if (getGlobalGeneration() != globalGeneration) {
+                        // data changed while the ticket was loaded, reload on next access
+                        ticket.setDirty(true);
+                    }
+                } catch (FxCacheException e) {
+                    LOG.error("Failed to read user ticket generations: " + e.getMessage(), e);
+                }
+            }
+            return ticket;
         } catch (FxNoAccessException exc) {
             // This should NEVER happen since we are running as system
             throw new FxLoadException(LOG, exc);
@@ -255,6 +230,87 @@ public class UserTicketStore {
         }
     }
 
+    /**
+     * Checks the generations recorded in the ticket against the current generations. If only the global
+     * generation changed, the recorded generations of the ticket are updated.
+     *
+     * @param sub       the subject of the ticket
+     * @param ticket    the ticket
+     * @return          true if the ticket needs to be synced with the database
+     */
+    private static boolean isOutdated(Subject sub, UserTicketImpl ticket) {
+        final long[] generations = ticket.getGenerations();
+        if (generations == null) {
+            return true;
+        }
+        try {
+            final FxCacheMBean cache = CacheAdmin.getInstance();
+            final long globalGeneration = getGeneration(cache, KEY_GLOBAL_GENERATION);
+            if (globalGeneration == generations[0]) {
+                return false;
+            }
+            final long[] current = getGenerations(cache, ticket, globalGeneration);
+            if (current.length != generations.length) {
+                return true;
+            }
+            for (int i = 1; i < current.length; i++) {
+                if (current[i] != generations[i]) {
+                    return true;
+                }
+            }
+            // not affected by the changes, remember the new global generation
+            ticket.setGenerations(current);
+            FxDefaultLogin.updateUserTicket(sub, ticket);
+            storeSubject(sub, false);
+            return false;
+        } catch (FxCacheException e) {
+            LOG.error("Failed to read user ticket generations: " + e.getMessage(), e);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the generations of the given ticket's user, groups and ACLs, preceded by the global generation.
+     *
+     * @param cache             the cache
+     * @param ticket            the ticket
+     * @param globalGeneration  the global generation
+     * @return                  the generations of the ticket
+     * @throws FxCacheException on cache errors
+     */
+    private static long[] getGenerations(FxCacheMBean cache, UserTicketImpl ticket, long globalGeneration) throws FxCacheException {
+        final long[] groups = ticket.getGroups();
+        final Set<Long> acls = new LinkedHashSet<Long>();
+        for (ACLAssignment assignment : ticket.getACLAssignments()) {
+            acls.add(assignment.getAclId());
+        }
+        final long[] result = new long[2 + groups.length + acls.size()];
+        int index = 0;
+        result[index++] = globalGeneration;
+        result[index++] = getGeneration(cache, KEY_PREFIX_USER + ticket.getUserId());
+        for (long group : groups) {
+            result[index++] = getGeneration(cache, KEY_PREFIX_GROUP + group);
+        }
+        for (Long acl : acls) {
+            result[index++] = getGeneration(cache, KEY_PREFIX_ACL + acl);
+        }
+        return result;
+    }
+
+    private static long getGlobalGeneration() {
+        try {
+            return getGeneration(CacheAdmin.getInstance(), KEY_GLOBAL_GENERATION);
+        } catch (FxCacheException e) {
+            LOG.error("Failed to read user ticket generations: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    private static long getGeneration(FxCacheMBean cache, String key) throws FxCacheException {
+        final Long generation = (Long) cache.get(CacheAdmin.ROOT_USERTICKET_GENERATIONS, key);
+        return generation != null ? generation : 0;
+    }
+
     /**
      * Flags all active UserTickets with a given user id as dirty, which will
      * force them to sync with the database upon the next access.
@@ -289,34 +345,35 @@ public class UserTicketStore {
 
     /**
      * Flags all active UserTickets with a given id or acl as dirty, which will
-     * force them to sync with the database upon the next access.
+     * force them to sync with the database upon the next access. This is done by assigning
+     * new generations to the user, group or ACL.
      *
      * @param userId  the user id, or null
      * @param aclId   a acl, or null
      * @param groupId a group id, or null
      */
     private static void flagDirtyHaving(Long userId, Long groupId, Long aclId) {
-        SubjectWithPath[] subs = getSubjects(userId,
-                groupId == null ? null : new long[]{groupId},
-                aclId == null ? null : new long[]{aclId});
         if (LOG.isDebugEnabled())
-            LOG.debug("Flagging " + subs.length + " dirty subjects with userId=" + userId + ", groupId=" + groupId + ", aclId=" + aclId);
-        for (SubjectWithPath sub : subs) {
-            if (LOG.isDebugEnabled()) LOG.debug("Dirty subject: " + sub);
-            try {
-                final UserTicketImpl ticket = (UserTicketImpl) FxDefaultLogin.getUserTicket(sub.subject);
-                if (!ticket.isDirty()) {
-                    // Flag as dirty
-                    ticket.setDirty(true);
-                    FxDefaultLogin.updateUserTicket(sub.subject, ticket);
-                    // Write back to the cluster cache
-                    storeSubject(sub);
-                }
-            } catch (Exception exc) {
-                LOG.fatal("Subject without UserTicket [" + sub + "], dirty flag update skipped", exc);
+            LOG.debug("Flagging dirty subjects with userId=" + userId + ", groupId=" + groupId + ", aclId=" + aclId);
+        try {
+            final FxCacheMBean cache = CacheAdmin.getInstance();
+            // generations are random values to avoid conflicts between concurrent updates on different nodes
+            if (userId != null) {
+                cache.put(CacheAdmin.ROOT_USERTICKET_GENERATIONS, KEY_PREFIX_USER + userId, GENERATIONS.nextLong());
+            }
+            if (groupId != null) {
+                cache.put(CacheAdmin.ROOT_USERTICKET_GENERATIONS, KEY_PREFIX_GROUP + groupId, GENERATIONS.nextLong());
             }
+            if (aclId != null) {
+                cache.put(CacheAdmin.ROOT_USERTICKET_GENERATIONS, KEY_PREFIX_ACL + aclId, GENERATIONS.nextLong());
+            }
+            cache.put(CacheAdmin.ROOT_USERTICKET_GENERATIONS, KEY_GLOBAL_GENERATION, GENERATIONS.nextLong());
+        } catch (FxCacheException exc) {
+            LOG.error("Failed to update user ticket generations: " + exc.getMessage(), exc);
         }
         if (LOG.isDebugEnabled()) LOG.debug("Done flagging dirty.");
+        // cached filters of the old permissions won't be used again
+        SearchUtils.clearSecurityFilterCache();
         final UserTicket currentUserTicket = FxContext.getUserTicket();
         if ((userId != null && userId == currentUserTicket.getUserId())
                 || (groupId != null && currentUserTicket.isInGroup(groupId))
@@ -32,6 +32,7 @@
 package com.flexive.core.storage;
 
 import com.flexive.core.storage.binary.BinaryInputStream;
+import com.flexive.shared.content.FxCachedContent;
 import com.flexive.shared.content.FxContent;
 import com.flexive.shared.content.FxContentSecurityInfo;
 import com.flexive.shared.content.FxContentVersionInfo;
@@ -177,6 +178,23 @@ public interface ContentStorage {
      */
     FxContent contentLoad(Connection con, FxPK pk, FxEnvironment env, StringBuilder sql) throws FxLoadException, FxInvalidParameterException, FxNotFoundException;
 
+    /**
+     * Load the contents with the given primary keys together with their security information.
+     * In contrast to {@link #contentLoad(java.sql.Connection, com.flexive.shared.content.FxPK, com.flexive.shared.structure.FxEnvironment, StringBuilder)},
+     * all contents are loaded with a constant number of queries for the main table,
+     * the content data and the content ACLs.
+     *
+     * @param con an open and valid connection
+     * @param pks the primary keys to load
+     * @param env Environment
+     * @return the loaded contents in the order of the given primary keys
+     * @throws FxLoadException             on errors
+     * @throws FxInvalidParameterException on invalid parameters (pk)
+     * @throws FxNotFoundException         if no instance was found for one of the primary keys
+     * @since 3.2.1
+     */
+    List<FxCachedContent> contentLoad(Connection con, List<FxPK> pks, FxEnvironment env) throws FxLoadException, FxInvalidParameterException, FxNotFoundException;
+
     /**
      * Save a content instance, creating new versions as needed
      *
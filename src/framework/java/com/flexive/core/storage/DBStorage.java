@@ -216,6 +216,16 @@ public interface DBStorage {
      */
     boolean isDirectSearchSupported();
 
+    /**
+     * Returns the JDBC fetch size to be used for streaming FxSQL results, i.e. when the rows are processed
+     * as they are read from the cursor instead of being materialized in memory.
+     *
+     * @return  the JDBC fetch size for streaming result sets
+     * @since   3.2.1
+     * @see     java.sql.Statement#setFetchSize(int)
+     */
+    int getStreamingFetchSize();
+
     /**
      * Get the sql code of the statement to fix referential integrity when removing selectlist items
      *
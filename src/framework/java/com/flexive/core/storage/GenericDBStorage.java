@@ -113,6 +113,14 @@ public abstract class GenericDBStorage implements DBStorage {
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStreamingFetchSize() {
+        return 1000;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -33,6 +33,7 @@ package com.flexive.core.storage;
 
 import com.flexive.core.Database;
 import com.flexive.core.DatabaseConst;
+import com.flexive.core.HistoryWriter;
 import com.flexive.core.flatstorage.FxFlatStorageInfo;
 import com.flexive.core.flatstorage.FxFlatStorageManager;
 import com.flexive.core.storage.binary.FxBinaryUtils;
@@ -708,6 +709,7 @@ con.close()
         Statement stmt = null;
         try {
             stmt = con.createStatement();
+            HistoryWriter.getInstance().flush();
             startEntry(out, FILE_HISTORY);
             sb.setLength(0);
             sb.append("<history>\n");
@@ -33,11 +33,13 @@ package com.flexive.core.storage;
 
 import com.flexive.core.Database;
 import com.flexive.core.DatabaseConst;
+import com.flexive.core.HistoryWriter;
 import com.flexive.core.flatstorage.FxFlatStorage;
 import com.flexive.core.flatstorage.FxFlatStorageInfo;
 import com.flexive.core.flatstorage.FxFlatStorageManager;
 import com.flexive.core.storage.binary.FxBinaryUtils;
 import com.flexive.shared.*;
+import com.flexive.shared.cache.FxPhraseCache;
 import com.flexive.shared.configuration.SystemParameters;
 import com.flexive.shared.exceptions.FxApplicationException;
 import com.flexive.shared.exceptions.FxDbException;
@@ -229,6 +231,7 @@ try {
         dropTableData(stmt, DatabaseConst.TBL_PHRASE_TREE);
         dropTableData(stmt, DatabaseConst.TBL_PHRASE_VALUES);
         dropTableData(stmt, DatabaseConst.TBL_PHRASE);
+        HistoryWriter.getInstance().flush();
         dropTableData(stmt, DatabaseConst.TBL_HISTORY);
         dropTableData(stmt, DatabaseConst.TBL_ACCOUNT_DETAILS);
         dropTableData(stmt, DatabaseConst.TBL_LOCKS);
@@ -1094,6 +1097,7 @@ try {
             importTable(stmt, zip, ze, "resources/phraseVal", DatabaseConst.TBL_PHRASE_VALUES);
             importTable(stmt, zip, ze, "resources/phraseTree", DatabaseConst.TBL_PHRASE_TREE);
             importTable(stmt, zip, ze, "resources/phraseMap", DatabaseConst.TBL_PHRASE_MAP);
+            FxPhraseCache.clear();
         } finally {
             Database.closeObjects(GenericDivisionImporter.class, stmt);
         }
@@ -37,7 +37,9 @@ import com.flexive.shared.content.FxPK;
 import com.flexive.shared.exceptions.FxLockException;
 
 import java.sql.Connection;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Lock storage
@@ -101,6 +103,18 @@ public interface LockStorage {
      */
     FxLock getLock(Connection con, FxPK pk) throws FxLockException;
 
+    /**
+     * Get the locks for several primary keys with distinct versions. Instances that are not locked
+     * are not contained in the result map.
+     *
+     * @param con an open and valid connection
+     * @param pks primary keys with distinct versions
+     * @return the locks of all locked instances
+     * @throws FxLockException on errors
+     * @since 3.2.1
+     */
+    Map<FxPK, FxLock> getLocks(Connection con, Collection<FxPK> pks) throws FxLockException;
+
     /**
      * Get the lock for a resource. If the resource is not locked a lock with <code>FxLockType.None</code> is returned
      *
@@ -31,6 +31,7 @@
  ***************************************************************/
 package com.flexive.core.storage.binary;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -44,6 +45,7 @@ public class BinaryInputStream extends InputStream {
     private String mimeType;
     private int size;
     private boolean binaryFound;
+    private File file;
 
     /**
      * Ctor
@@ -60,6 +62,20 @@ public class BinaryInputStream extends InputStream {
         this.size = size;
     }
 
+    /**
+     * Ctor for binaries stored in the filesystem
+     *
+     * @param stream   wrapped stream
+     * @param mimeType mimeType
+     * @param size     size
+     * @param file     the file containing the binary
+     * @since 3.2.1
+     */
+    public BinaryInputStream(InputStream stream, String mimeType, int size, File file) {
+        this(true, stream, mimeType, size);
+        this.file = file;
+    }
+
     /**
      * Was the binary found?
      *
@@ -69,6 +85,16 @@ public class BinaryInputStream extends InputStream {
         return binaryFound;
     }
 
+    /**
+     * Get the file containing the binary
+     *
+     * @return the file containing the binary or <code>null</code> if the binary is streamed from the database
+     * @since 3.2.1
+     */
+    public File getFile() {
+        return file;
+    }
+
     /**
      * Get the mimeType
      *
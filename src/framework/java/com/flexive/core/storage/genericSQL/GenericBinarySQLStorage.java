@@ -265,9 +265,17 @@ public class GenericBinarySQLStorage implements BinaryStorage {
                 File fsBinary = FxBinaryUtils.getBinaryFile(divisionId, binaryId, binaryVersion, binaryQuality, size.getBlobIndex());
 
                 try {
-                    if (fsBinary != null)
+                    if (fsBinary != null) {
                         bin = new FileInputStream(fsBinary);
-                    else {
+                        mimeType = rs.getString(2);
+                        datasize = rs.getInt(3);
+                        if (!rs.wasNull() || size != PreviewSizes.SCREENVIEW) {
+                            //the database is not needed to stream the file, release the connection right away
+                            Database.closeObjects(GenericBinarySQLInputStream.class, con == null ? _con : null, ps);
+                            return new BinaryInputStream(bin, mimeType, datasize, fsBinary);
+                        }
+                        FxSharedUtils.close(bin);
+                    } else {
                         if (size == PreviewSizes.SCREENVIEW) {
                             //since screenview is a new preview size, it might not exist in old versions. Fall back to Preview3
                             Database.closeObjects(GenericBinarySQLInputStream.class, _con, ps);
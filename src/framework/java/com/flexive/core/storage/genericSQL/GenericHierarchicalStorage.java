@@ -53,6 +53,7 @@ import com.flexive.shared.scripting.FxScriptBinding;
 import com.flexive.shared.scripting.FxScriptEvent;
 import com.flexive.shared.security.ACL;
 import com.flexive.shared.security.ACLPermission;
+import com.flexive.shared.security.LifeCycleInfo;
 import com.flexive.shared.security.Mandator;
 import com.flexive.shared.security.UserTicket;
 import com.flexive.shared.structure.*;
@@ -114,13 +115,23 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
             //20         21          22       23      24       25
             "MODIFIED_BY,MODIFIED_AT,MANDATOR,DBIN_ID,DBIN_ACL,GROUP_POS FROM " + TBL_CONTENT;
 
-    //                                                        1   2    3      4     5                6
-    protected static final String CONTENT_DATA_LOAD = "SELECT POS,LANG,ASSIGN,XMULT,FALSE as ISGROUP,ISMLDEF," +
+    //                                                               1   2    3      4     5                6
+    protected static final String CONTENT_DATA_LOAD_COLUMNS = "SELECT POS,LANG,ASSIGN,XMULT,FALSE as ISGROUP,ISMLDEF," +
             //7     8      9     10    11   12      13        14      15     16    17      18
-            "FDATE1,FDATE2,FBLOB,FCLOB,FINT,FBIGINT,FTEXT1024,FDOUBLE,FFLOAT,FBOOL,FSELECT,FREF FROM " + TBL_CONTENT_DATA +
+            "FDATE1,FDATE2,FBLOB,FCLOB,FINT,FBIGINT,FTEXT1024,FDOUBLE,FFLOAT,FBOOL,FSELECT,FREF";
+
+    protected static final String CONTENT_DATA_LOAD = CONTENT_DATA_LOAD_COLUMNS + " FROM " + TBL_CONTENT_DATA +
             //         1         2
             " WHERE ID=? AND VER=? ORDER BY XDEPTH ASC, POS ASC, ASSIGN ASC, XMULT ASC";
 
+    //content data of several contents, the WHERE condition is appended by the caller
+    //                                                                                    19 20
+    protected static final String CONTENT_DATA_LOAD_MULTI = CONTENT_DATA_LOAD_COLUMNS + ",ID,VER FROM " + TBL_CONTENT_DATA + " WHERE ";
+    protected static final String CONTENT_DATA_LOAD_MULTI_ORDER = " ORDER BY ID ASC, VER ASC, XDEPTH ASC, POS ASC, ASSIGN ASC, XMULT ASC";
+
+    //maximum number of contents loaded with one query by contentLoad(Connection, List, FxEnvironment)
+    protected static final int CONTENT_LOAD_BATCH_SIZE = 250;
+
     //single insert statement for content data
     protected static final String CONTENT_DATA_INSERT = "INSERT INTO " + TBL_CONTENT_DATA +
             //1  2   3   4    5      6     7      8           9         10         11      12    13
@@ -213,6 +224,8 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
     protected static final String CONTENT_GET_TYPE = "SELECT DISTINCT TDEF FROM " + TBL_CONTENT + " WHERE ID=?";
 
     protected static final String CONTENT_ACLS_LOAD = "SELECT ACL FROM " + TBL_CONTENT_ACLS + " WHERE ID=? AND VER=?";
+    //ACLs of several contents, the WHERE condition is appended by the caller
+    protected static final String CONTENT_ACLS_LOAD_MULTI = "SELECT ID, VER, ACL FROM " + TBL_CONTENT_ACLS + " WHERE ";
     protected static final String CONTENT_ACLS_CLEAR = "DELETE FROM " + TBL_CONTENT_ACLS + " WHERE ID=? AND VER=?";
     protected static final String CONTENT_ACL_INSERT = "INSERT INTO " + TBL_CONTENT_ACLS + "(ID, VER, ACL) VALUES (?, ?, ?)";
 
@@ -1666,6 +1679,275 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FxCachedContent> contentLoad(Connection con, List<FxPK> pks, FxEnvironment env) throws FxLoadException, FxInvalidParameterException, FxNotFoundException {
+        final Map<FxPK, FxCachedContent> loaded = Maps.newHashMapWithExpectedSize(pks.size());
+        for (List<FxPK> batch : Lists.partition(Lists.newArrayList(Sets.newLinkedHashSet(pks)), CONTENT_LOAD_BATCH_SIZE)) {
+            contentLoadBatch(con, batch, env, loaded);
+        }
+        final List<FxCachedContent> result = new ArrayList<FxCachedContent>(pks.size());
+        for (FxPK pk : pks) {
+            final FxCachedContent content = loaded.get(pk);
+            if (content == null) {
+                throw new FxNotFoundException("ex.content.notFound", pk);
+            }
+            result.add(content);
+        }
+        return result;
+    }
+
+    /**
+     * Load a batch of contents with one query for the main table, the content data and the content ACLs.
+     *
+     * @param con       an open and valid connection
+     * @param pks       the primary keys to be loaded
+     * @param env       the environment
+     * @param loaded    the loaded contents and their security information, stored under the requested primary key
+     * @throws FxLoadException              on errors
+     * @throws FxInvalidParameterException  on invalid primary keys
+     * @throws FxNotFoundException          on errors
+     */
+    protected void contentLoadBatch(Connection con, List<FxPK> pks, FxEnvironment env, Map<FxPK, FxCachedContent> loaded) throws FxLoadException, FxInvalidParameterException, FxNotFoundException {
+        final Set<Long> liveIds = Sets.newHashSet();
+        final Set<Long> maxIds = Sets.newHashSet();
+        final Set<FxPK> versionPKs = Sets.newHashSet();
+        for (FxPK pk : pks) {
+            if (pk.isNew())
+                throw new FxInvalidParameterException("pk", "ex.content.load.newPK");
+            if (pk.isDistinctVersion())
+                versionPKs.add(pk);
+            else if (pk.getVersion() == FxPK.LIVE)
+                liveIds.add(pk.getId());
+            else if (pk.getVersion() == FxPK.MAX)
+                maxIds.add(pk.getId());
+        }
+        final StringBuilder sql = new StringBuilder(1000).append(CONTENT_MAIN_LOAD).append(" WHERE ");
+        boolean first = true;
+        if (!liveIds.isEmpty()) {
+            sql.append("(ISLIVE_VER=? AND ID IN (").append(StringUtils.join(liveIds, ',')).append("))");
+            first = false;
+        }
+        if (!maxIds.isEmpty()) {
+            sql.append(first ? "" : " OR ").append("(ISMAX_VER=? AND ID IN (").append(StringUtils.join(maxIds, ',')).append("))");
+            first = false;
+        }
+        if (!versionPKs.isEmpty()) {
+            sql.append(first ? "" : " OR ");
+            appendVersionCondition(sql, versionPKs);
+        }
+
+        // the main table entries of the loaded content versions, sorted by ID and version
+        final SortedMap<FxPK, ContentMainEntry> entries = Maps.newTreeMap(new Comparator<FxPK>() {
+            @Override
+            public int compare(FxPK o1, FxPK o2) {
+                final int result = FxSharedUtils.compare(o1.getId(), o2.getId());
+                return result != 0 ? result : FxSharedUtils.compare(o1.getVersion(), o2.getVersion());
+            }
+        });
+        PreparedStatement ps = null;
+        Connection conNoTX = null;
+        try {
+            ps = con.prepareStatement(sql.toString());
+            int param = 1;
+            if (!liveIds.isEmpty())
+                ps.setBoolean(param++, true);
+            if (!maxIds.isEmpty())
+                ps.setBoolean(param, true);
+            ResultSet rs = ps.executeQuery();
+            while (rs != null && rs.next()) {
+                final FxPK contentPK = new FxPK(rs.getLong(1), rs.getInt(2));
+                final List<FxPK> requestedPKs = Lists.newArrayListWithCapacity(1);
+                if (versionPKs.contains(contentPK))
+                    requestedPKs.add(contentPK);
+                if (rs.getBoolean(9) && liveIds.contains(contentPK.getId()))
+                    requestedPKs.add(new FxPK(contentPK.getId(), FxPK.LIVE));
+                if (rs.getBoolean(8) && maxIds.contains(contentPK.getId()))
+                    requestedPKs.add(new FxPK(contentPK.getId(), FxPK.MAX));
+                for (FxPK pk : requestedPKs) {
+                    if (!pk.isDistinctVersion() && loaded.containsKey(pk))
+                        throw new FxLoadException("ex.content.load.notDistinct", pk);
+                    loaded.put(pk, null);   // mark as found
+                }
+                final ContentMainEntry entry = new ContentMainEntry(env, rs, requestedPKs);
+                entries.put(contentPK, entry);
+                if (conNoTX == null && !entry.type.getAssignmentsForDataType(FxDataType.Binary).isEmpty()) {
+                    conNoTX = Database.getNonTXDataSource().getConnection();
+                }
+            }
+            ps.close();
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            // load the ACLs of contents with more than one ACL
+            final Map<FxPK, List<Long>> aclTable = Maps.newHashMap();
+            final Set<FxPK> multipleACLs = Sets.newHashSet();
+            for (ContentMainEntry entry : entries.values()) {
+                if (entry.aclId == ACL.NULL_ACL_ID)
+                    multipleACLs.add(entry.pk);
+            }
+            if (!multipleACLs.isEmpty()) {
+                sql.setLength(0);
+                sql.append(CONTENT_ACLS_LOAD_MULTI);
+                appendVersionCondition(sql, multipleACLs);
+                ps = con.prepareStatement(sql.toString());
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    final FxPK pk = new FxPK(rs.getLong(1), rs.getInt(2));
+                    if (!aclTable.containsKey(pk))
+                        aclTable.put(pk, new ArrayList<Long>(2));
+                    aclTable.get(pk).add(rs.getLong(3));
+                }
+                ps.close();
+            }
+
+            // load the content data of all contents
+            sql.setLength(0);
+            sql.append(CONTENT_DATA_LOAD_MULTI);
+            appendVersionCondition(sql, entries.keySet());
+            sql.append(CONTENT_DATA_LOAD_MULTI_ORDER);
+            ps = con.prepareStatement(sql.toString());
+            final ContentDataRows rows = new ContentDataRows(ps.executeQuery(), 19);
+            final Map<FxPK, FxLock> locks = StorageManager.getLockStorage().getLocks(con, entries.keySet());
+            for (ContentMainEntry entry : entries.values()) {
+                final FxPK contentPK = entry.pk;
+                final FxType type = entry.type;
+                // the first requested version is used to resolve references
+                final FxGroupData root = loadDetails(con, conNoTX, type, env, contentPK, entry.requestedPKs.get(0).getVersion(),
+                        entry.groupPositions, rows);
+                final FxContent content = entry.createContent(root);
+                final List<Long> acls = entry.aclId == ACL.NULL_ACL_ID
+                        ? FxSharedUtils.get(aclTable, contentPK, new ArrayList<Long>(0))
+                        : Arrays.asList(entry.aclId);
+                if (type.isMultipleContentACLs() && entry.aclId == ACL.NULL_ACL_ID) {
+                    content.setAclIds(acls);
+                }
+                final Set<Long> propertyPerms = new HashSet<Long>();
+                if ((type.getBitCodedPermissions() & 0x02) == 0x02) {
+                    //use property permissions
+                    collectPropertyACLs(content, propertyPerms);
+                }
+                final FxContentSecurityInfo securityInfo = new FxContentSecurityInfo(contentPK,
+                        content.getLifeCycleInfo().getCreatorId(), content.getBinaryPreviewId(), type.getId(),
+                        content.getMandatorId(), type.getBitCodedPermissions(), type.getACL().getId(),
+                        env.getStep(content.getStepId()).getAclId(), acls, content.getBinaryPreviewACL(),
+                        Lists.newArrayList(propertyPerms), FxSharedUtils.get(locks, contentPK, FxLock.noLockPK()));
+                final FxCachedContent cachedContent = new FxCachedContent(content, securityInfo);
+                for (FxPK pk : entry.requestedPKs) {
+                    loaded.put(pk, cachedContent);
+                }
+            }
+        } catch (SQLException e) {
+            throw new FxLoadException(LOG, e, "ex.db.sqlError", e.getMessage());
+        } catch (FxDbException e) {
+            throw new FxLoadException(e);
+        } catch (FxLockException e) {
+            throw new FxLoadException(e);
+        } finally {
+            Database.closeObjects(GenericHierarchicalStorage.class, conNoTX, ps);
+        }
+    }
+
+    /**
+     * A row of the main content table selected by {@link #CONTENT_MAIN_LOAD}.
+     */
+    private static class ContentMainEntry {
+        final FxPK pk;
+        final List<FxPK> requestedPKs;
+        final FxType type;
+        final long aclId;
+        final Step step;
+        final Mandator mandator;
+        final GroupPositionsProvider groupPositions;
+        final int maxVersion;
+        final int liveVersion;
+        final boolean active;
+        final int mainLanguage;
+        final FxPK sourcePK;
+        final FxPK destinationPK;
+        final int sourcePosition;
+        final int destinationPosition;
+        final LifeCycleInfo lifeCycleInfo;
+        final long binaryPreviewId;
+        final long binaryPreviewACL;
+
+        ContentMainEntry(FxEnvironment env, ResultSet rs, List<FxPK> requestedPKs) throws SQLException {
+            this.pk = new FxPK(rs.getLong(1), rs.getInt(2));
+            this.requestedPKs = requestedPKs;
+            this.type = env.getType(rs.getLong(3));
+            this.aclId = rs.getLong(4);
+            this.step = env.getStep(rs.getLong(5));
+            this.mandator = env.getMandator(rs.getInt(22));
+            this.groupPositions = new GroupPositionsProvider(rs.getString(25));
+            this.maxVersion = rs.getInt(6);
+            this.liveVersion = rs.getInt(7);
+            this.active = rs.getBoolean(10);
+            this.mainLanguage = rs.getInt(11);
+            rs.getLong(12);
+            if (!rs.wasNull()) {
+                this.sourcePK = new FxPK(rs.getLong(12), rs.getInt(13));
+                this.destinationPK = new FxPK(rs.getLong(14), rs.getInt(15));
+                this.sourcePosition = rs.getInt(16);
+                this.destinationPosition = rs.getInt(17);
+            } else {
+                this.sourcePK = null;
+                this.destinationPK = null;
+                this.sourcePosition = 0;
+                this.destinationPosition = 0;
+            }
+            this.lifeCycleInfo = LifeCycleInfoImpl.load(rs, 18, 19, 20, 21);
+            this.binaryPreviewId = rs.getLong(23);
+            this.binaryPreviewACL = rs.getLong(24);
+        }
+
+        FxContent createContent(FxGroupData root) {
+            return new FxContent(pk, null /* use lazy loading for lock */,
+                    type.getId(), type.isRelation(), mandator.getId(),
+                    aclId != ACL.NULL_ACL_ID ? aclId : -1,
+                    step.getId(), maxVersion,
+                    liveVersion, active, mainLanguage, sourcePK, destinationPK, sourcePosition, destinationPosition,
+                    lifeCycleInfo, root, binaryPreviewId, binaryPreviewACL).initSystemProperties();
+        }
+    }
+
+    /**
+     * Append a condition that selects the given content versions.
+     *
+     * @param sql   the SQL statement
+     * @param pks   primary keys with distinct versions
+     */
+    protected void appendVersionCondition(StringBuilder sql, Collection<FxPK> pks) {
+        sql.append('(');
+        boolean first = true;
+        for (FxPK pk : pks) {
+            if (!first)
+                sql.append(" OR ");
+            sql.append("(ID=").append(pk.getId()).append(" AND VER=").append(pk.getVersion()).append(')');
+            first = false;
+        }
+        sql.append(')');
+    }
+
+    /**
+     * Collect the ACLs of all (non-system-internal) properties of the given content.
+     *
+     * @param content   the content
+     * @param acls      the ACL IDs
+     */
+    private void collectPropertyACLs(FxContent content, Set<Long> acls) {
+        final FxContent co = content.copy();
+        co.getRootGroup().removeEmptyEntries();
+        for (String xp : co.getAllPropertyXPaths()) {
+            final FxPropertyAssignment pa = co.getPropertyData(xp).getPropertyAssignment();
+            if (pa.isSystemInternal())
+                continue;
+            acls.add(pa.getACL().getId());
+        }
+    }
+
     protected List<Long> loadContentAclTable(Connection con, FxPK pk) throws SQLException {
         if (pk.getVersion() < 0) {
             throw new IllegalArgumentException("No distinct version number given in PK " + pk);
@@ -1702,19 +1984,47 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
      * @throws FxInvalidParameterException on errors
      * @throws FxDbException               on errors
      */
-    @SuppressWarnings("unchecked")
     protected FxGroupData loadDetails(Connection con, Connection conNoTX, FxType type, FxEnvironment env, FxPK pk, int requestedVersion, GroupPositionsProvider groupPositionsProvider) throws FxLoadException, SQLException, FxInvalidParameterException, FxDbException {
-        FxGroupData root;
         PreparedStatement ps = null;
+        try {
+            ps = con.prepareStatement(CONTENT_DATA_LOAD);
+            ps.setLong(1, pk.getId());
+            ps.setInt(2, pk.getVersion());
+            return loadDetails(con, conNoTX, type, env, pk, requestedVersion, groupPositionsProvider,
+                    new ContentDataRows(ps.executeQuery(), -1));
+        } finally {
+            Database.closeObjects(GenericHierarchicalStorage.class, ps);
+        }
+    }
+
+    /**
+     * Load all detail entries for a content instance from the given content data rows
+     * (selected with {@link #CONTENT_DATA_LOAD_COLUMNS}).
+     *
+     * @param con              open and valid(!) connection
+     * @param conNoTX          a non-transactional connection (only used if the content contains binary properties)
+     * @param type             FxType used
+     * @param env              FxEnvironment
+     * @param pk               primary key of the content data to load
+     * @param requestedVersion the originally requested version (LIVE, MAX or specific version number, needed to resolve references since the pk's version is resolved already)
+     * @param rows             the content data rows
+     * @return a (root) group containing all data
+     * @throws com.flexive.shared.exceptions.FxLoadException
+     *                                     on errors
+     * @throws SQLException                on errors
+     * @throws FxInvalidParameterException on errors
+     * @throws FxDbException               on errors
+     * @since 3.2.1
+     */
+    @SuppressWarnings("unchecked")
+    protected FxGroupData loadDetails(Connection con, Connection conNoTX, FxType type, FxEnvironment env, FxPK pk, int requestedVersion, GroupPositionsProvider groupPositionsProvider, ContentDataRows rows) throws FxLoadException, SQLException, FxInvalidParameterException, FxDbException {
+        FxGroupData root;
         try {
             root = type.createEmptyData(type.buildXPathPrefix(pk));
 //            root.removeEmptyEntries(true);
 //            root.compactPositions(true);
             root.removeNonInternalData();
-            ps = con.prepareStatement(CONTENT_DATA_LOAD);
-            ps.setLong(1, pk.getId());
-            ps.setInt(2, pk.getVersion());
-            ResultSet rs = ps.executeQuery();
+            final ResultSet rs = rows.getResultSet();
             String currXPath = null;
             int currXDepth = 0;
             FxAssignment currAssignment = null, thisAssignment = null;
@@ -1732,7 +2042,7 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
             FxFlatStorageLoadContainer flatContainer = type.isContainsFlatStorageAssignments()
                     ? FxFlatStorageManager.getInstance().loadContent(this, con, type.getId(), pk, requestedVersion)
                     : null;
-            while (rs != null && rs.next()) {
+            while (rows.next(pk)) {
 
                 if (thisAssignment == null || thisAssignment.getId() != rs.getLong(3)) {
                     //new data type
@@ -1972,12 +2282,77 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
             throw new FxLoadException(e);
         } catch (FxNotFoundException e) {
             throw new FxLoadException(e);
-        } finally {
-            Database.closeObjects(GenericHierarchicalStorage.class, ps);
         }
         return root;
     }
 
+    /**
+     * Cursor over content data rows. The rows of a single content are selected by
+     * {@link #CONTENT_DATA_LOAD}, the rows of several contents by {@link #CONTENT_DATA_LOAD_MULTI}
+     * (sorted by ID and version). In the latter case the cursor stops at the first row of the next content.
+     *
+     * @since 3.2.1
+     */
+    protected static class ContentDataRows {
+        private final ResultSet rs;
+        private final int idColumn;
+        private boolean pending;
+        private boolean exhausted;
+
+        /**
+         * Create a new cursor.
+         *
+         * @param rs        the result set
+         * @param idColumn  the position of the ID column (followed by the version column), or -1 if the
+         *                  result set contains the rows of a single content
+         */
+        protected ContentDataRows(ResultSet rs, int idColumn) {
+            this.rs = rs;
+            this.idColumn = idColumn;
+            this.exhausted = rs == null;
+        }
+
+        protected ResultSet getResultSet() {
+            return rs;
+        }
+
+        /**
+         * Move to the next row of the given content.
+         *
+         * @param pk    the content (with a distinct version)
+         * @return      true if the cursor is positioned on a row of the given content
+         * @throws SQLException on database errors
+         */
+        protected boolean next(FxPK pk) throws SQLException {
+            while (!exhausted) {
+                if (!pending) {
+                    if (!rs.next()) {
+                        exhausted = true;
+                        return false;
+                    }
+                    pending = true;
+                }
+                if (idColumn == -1) {
+                    pending = false;
+                    return true;
+                }
+                final long id = rs.getLong(idColumn);
+                final int version = rs.getInt(idColumn + 1);
+                if (id == pk.getId() && version == pk.getVersion()) {
+                    pending = false;
+                    return true;
+                }
+                if (id > pk.getId() || (id == pk.getId() && version > pk.getVersion())) {
+                    // row of a subsequent content
+                    return false;
+                }
+                // skip row of a previous content
+                pending = false;
+            }
+            return false;
+        }
+    }
+
     private void fixGroupPositions(FxGroupData group, GroupPositionsProvider groupPositions) {
         // TODO generic but inefficient implementation (lots of copying of the group's data list)
         if (group.getParent() != null && groupPositions.getPositions().containsKey(group.getAssignmentId()) && !group.isEmpty()) {
@@ -2666,15 +3041,7 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
                             co = storage.contentLoad(con, pk, CacheAdmin.getEnvironment(), sql);
                         }
                     }
-                    co = co.copy();
-                    co.getRootGroup().removeEmptyEntries();
-                    for (String xp : co.getAllPropertyXPaths()) {
-                        final FxPropertyAssignment pa = co.getPropertyData(xp).getPropertyAssignment();
-                        if (pa.isSystemInternal())
-                            continue;
-                        Long propACL = pa.getACL().getId();
-                        propertyPerms.add(propACL);
-                    }
+                    collectPropertyACLs(co, propertyPerms);
                 } catch (FxInvalidParameterException e) {
                     throw new FxLoadException(e);
                 }
@@ -3381,6 +3748,7 @@ public abstract class GenericHierarchicalStorage implements ContentStorage {
     @Override
     public void updateBinaryPreview(Connection con, long id, int version, int quality, int preview, int width, int height, long length, InputStream binary) throws FxApplicationException {
         binaryStorage.updateBinaryPreview(con, id, version, quality, preview, width, height, length, binary);
+        CacheAdmin.setBinaryPreviewModified(id);
     }
 
     /**
@@ -53,8 +53,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 import static com.flexive.core.DatabaseConst.TBL_LOCKS;
 
@@ -133,6 +132,50 @@ public class GenericLockStorage implements LockStorage {
         return _getLock(con, pk);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings({"ThrowableInstanceNeverThrown"})
+    public Map<FxPK, FxLock> getLocks(Connection con, Collection<FxPK> pks) throws FxLockException {
+        final Map<FxPK, FxLock> result = new HashMap<FxPK, FxLock>();
+        if (pks.isEmpty())
+            return result;
+        final Set<Long> ids = new HashSet<Long>(pks.size());
+        for (FxPK pk : pks) {
+            if (!pk.isDistinctVersion())
+                throw new FxLockException("ex.lock.distictPK");
+            ids.add(pk.getId());
+        }
+        final List<FxPK> expired = new ArrayList<FxPK>(0);
+        PreparedStatement ps = null;
+        try {
+            //                                1       2        3          4          5       6
+            ps = con.prepareStatement("SELECT USER_ID,LOCKTYPE,CREATED_AT,EXPIRES_AT,LOCK_ID,LOCK_VER FROM " + TBL_LOCKS +
+                    " WHERE LOCK_ID IN (" + StringUtils.join(ids, ',') + ")");
+            ResultSet rs = ps.executeQuery();
+            while (rs != null && rs.next()) {
+                final FxPK pk = new FxPK(rs.getLong(5), rs.getInt(6));
+                if (!pks.contains(pk))
+                    continue;
+                final FxLock lock = new FxLock(FxLockType.getById(rs.getInt(2)), rs.getLong(3), rs.getLong(4), rs.getLong(1), pk);
+                if (lock.isExpired())
+                    expired.add(pk);
+                else
+                    result.put(pk, lock);
+            }
+        } catch (SQLException e) {
+            throw new FxDbException(e, "ex.db.sqlError", e.getMessage()).asRuntimeException();
+        } finally {
+            Database.closeObjects(GenericLockStorage.class, null, ps);
+        }
+        for (FxPK pk : expired) {
+            // removes the expired lock
+            _getLock(con, pk);
+        }
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -249,26 +292,31 @@ public class GenericLockStorage implements LockStorage {
     private void checkEditPermission(Connection con, FxPK pk, UserTicket ticket) throws FxLockException {
         if( ticket.isGuest() || ticket.getUserId() == Account.USER_GUEST )
             throw new FxLockException("ex.lock.content.guest");
-        FxContent content;
+        final long creatorId;
+        final long typeId;
         FxContentSecurityInfo si;
         FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
         if (cachedContent == null) {
             StringBuilder sb = new StringBuilder(5000);
             try {
                 final ContentStorage contentStorage = StorageManager.getContentStorage(pk.getStorageMode());
-                content = contentStorage.contentLoad(con, pk, CacheAdmin.getEnvironment(), sb);
+                final FxContent content = contentStorage.contentLoad(con, pk, CacheAdmin.getEnvironment(), sb);
                 si = contentStorage.getContentSecurityInfo(con, pk, content);
+                creatorId = content.getLifeCycleInfo().getCreatorId();
+                typeId = content.getTypeId();
             } catch (FxApplicationException e) {
                 throw new FxLockException(e);
             }
         } else {
-            content = cachedContent.getContent();
+            // the cached instance is shared between threads, only read its (immutable) creator and type
+            creatorId = cachedContent.getContent().getLifeCycleInfo().getCreatorId();
+            typeId = cachedContent.getContent().getTypeId();
             si = cachedContent.getSecurityInfo();
         }
         try {
-            FxPermissionUtils.checkPermission(ticket, content.getLifeCycleInfo().getCreatorId(),
+            FxPermissionUtils.checkPermission(ticket, creatorId,
                     ACLPermission.EDIT,
-                    CacheAdmin.getEnvironment().getType(content.getTypeId()),
+                    CacheAdmin.getEnvironment().getType(typeId),
                     si.getStepACL(),
                     si.getContentACLs(), true);
         } catch (FxNoAccessException e) {
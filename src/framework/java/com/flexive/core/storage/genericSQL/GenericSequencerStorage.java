@@ -33,6 +33,7 @@ package com.flexive.core.storage.genericSQL;
 
 import com.flexive.core.storage.SequencerStorage;
 import com.flexive.shared.CustomSequencer;
+import com.flexive.shared.FxContext;
 import com.flexive.shared.FxSystemSequencer;
 import com.flexive.shared.exceptions.FxApplicationException;
 import com.flexive.shared.exceptions.FxCreateException;
@@ -40,21 +41,80 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Generic sequencer storage implementation
+ * Generic sequencer storage implementation.
+ * <p>
+ * Sequencers can optionally reserve blocks of ids per node: a single database round-trip reserves
+ * the next <i>n</i> ids, which are then handed out from memory without further locking.
+ * Ids remain unique, but are no longer issued in strict ascending order across nodes, and unused ids of
+ * a block are lost when the node is restarted. The block size is configured with system properties:
+ * </p>
+ * <ul>
+ * <li><code>flexive.sequencer.blockSize</code> - default block size for all sequencers (default: 1, i.e. no blocks)</li>
+ * <li><code>flexive.sequencer.blockSize.&lt;NAME&gt;</code> - block size for the sequencer NAME, e.g.
+ * <code>flexive.sequencer.blockSize.SYS_CONTENT</code> for {@link FxSystemSequencer#CONTENT}</li>
+ * </ul>
+ * <p>
+ * Resetting or removing a sequencer discards the block of the current node only, so sequencers
+ * that are reset at runtime (e.g. tree sequencers) should not use blocks in a cluster.
+ * </p>
  *
  * @author Markus Plesser (markus.plesser@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  */
 public abstract class GenericSequencerStorage implements SequencerStorage {
     private static final Log LOG = LogFactory.getLog(GenericSequencerStorage.class);
 
+    /**
+     * System property for the default block size, suffixed with <code>"." + sequencer name</code> for a single sequencer
+     *
+     * @since 3.2.1
+     */
+    public static final String CONFIG_BLOCK_SIZE = "flexive.sequencer.blockSize";
+
+    // reserved id blocks per division and sequencer name
+    private static final ConcurrentMap<String, IdBlock> BLOCKS = new ConcurrentHashMap<String, IdBlock>();
+    private static final ConcurrentMap<String, Object> BLOCK_LOCKS = new ConcurrentHashMap<String, Object>();
+    private static final ConcurrentMap<String, Integer> BLOCK_SIZES = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * A block of reserved ids, handed out in the order returned by the database.
+     */
+    private static final class IdBlock {
+        private final long[] ids;
+        private final AtomicInteger position = new AtomicInteger();
+
+        private IdBlock(long[] ids) {
+            this.ids = ids;
+        }
+
+        /**
+         * @return the next id of this block, or -1 if the block is exhausted
+         */
+        long next() {
+            final int index = position.getAndIncrement();
+            return index < ids.length ? ids[index] : -1;
+        }
+
+        long getLast() {
+            return ids[ids.length - 1];
+        }
+
+        long getLastIssued() {
+            final int index = Math.min(position.get(), ids.length);
+            return index == 0 ? ids[0] - 1 : ids[index - 1];
+        }
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public long getId(FxSystemSequencer type) throws FxApplicationException {
-        return fetchId(type.getSequencerName(), type.isAllowRollover());
+        return nextId(type.getSequencerName(), type.isAllowRollover());
     }
 
     /**
@@ -64,7 +124,7 @@ public abstract class GenericSequencerStorage implements SequencerStorage {
     public long getId(String sequencer) throws FxApplicationException {
         if (StringUtils.isEmpty(sequencer) || sequencer.toUpperCase().trim().startsWith("SYS_"))
             throw new FxCreateException(LOG, "ex.sequencer.fetch.invalid", sequencer);
-        return fetchId(sequencer, false);
+        return nextId(sequencer, false);
     }
 
     /**
@@ -74,7 +134,115 @@ public abstract class GenericSequencerStorage implements SequencerStorage {
     public long getCurrentId(String sequencer) throws FxApplicationException {
         for (CustomSequencer cs : getCustomSequencers())
             if (cs.getName().equalsIgnoreCase(sequencer))
-                return cs.getCurrentNumber();
+                return getCurrentId(cs.getName(), cs.getCurrentNumber());
         throw new FxCreateException(LOG, "ex.sequencer.notFound", sequencer);
     }
+
+    /**
+     * Fetch a block of new ids in a single database round-trip. The ids must not be reused by the database,
+     * even if the current transaction is rolled back.
+     * The default implementation fetches a single id.
+     *
+     * @param name          sequencer name
+     * @param allowRollover allow rollover?
+     * @param count         the requested number of ids
+     * @return at least one and at most <code>count</code> new ids
+     * @throws FxCreateException on errors
+     * @since 3.2.1
+     */
+    protected long[] fetchIds(String name, boolean allowRollover, int count) throws FxCreateException {
+        return new long[]{fetchId(name, allowRollover)};
+    }
+
+    /**
+     * Return the next id of a sequencer, either from the reserved block of this node or from the database.
+     *
+     * @param name          sequencer name
+     * @param allowRollover allow rollover?
+     * @return the next id
+     * @throws FxCreateException on errors
+     */
+    protected long nextId(String name, boolean allowRollover) throws FxCreateException {
+        final int blockSize = getBlockSize(name);
+        if (blockSize <= 1) {
+            return fetchId(name, allowRollover);
+        }
+        final String key = getBlockKey(name);
+        final IdBlock block = BLOCKS.get(key);
+        long id = block != null ? block.next() : -1;
+        if (id != -1) {
+            return id;
+        }
+        synchronized (getBlockLock(key)) {
+            final IdBlock current = BLOCKS.get(key);
+            id = current != null ? current.next() : -1;
+            if (id == -1) {
+                final IdBlock reserved = new IdBlock(fetchIds(name, allowRollover, blockSize));
+                id = reserved.next();
+                BLOCKS.put(key, reserved);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Return the current value of a sequencer. If this node reserved the latest block of ids,
+     * the last id handed out by this node is returned instead of the end of the reserved block.
+     *
+     * @param name      sequencer name
+     * @param currentId the current value stored in the database
+     * @return the current value of the sequencer
+     * @since 3.2.1
+     */
+    protected long getCurrentId(String name, long currentId) {
+        final IdBlock block = BLOCKS.get(getBlockKey(name));
+        return block != null && block.getLast() == currentId ? block.getLastIssued() : currentId;
+    }
+
+    /**
+     * Discard the reserved block of ids of a sequencer (e.g. because the sequencer was reset or removed).
+     *
+     * @param name sequencer name
+     * @since 3.2.1
+     */
+    protected void discardBlock(String name) {
+        if (name != null) {
+            BLOCKS.remove(getBlockKey(name));
+        }
+    }
+
+    private static String getBlockKey(String name) {
+        return FxContext.get().getDivisionId() + ":" + name.trim().toUpperCase();
+    }
+
+    private static Object getBlockLock(String key) {
+        final Object lock = BLOCK_LOCKS.get(key);
+        if (lock != null) {
+            return lock;
+        }
+        final Object newLock = new Object();
+        final Object existing = BLOCK_LOCKS.putIfAbsent(key, newLock);
+        return existing != null ? existing : newLock;
+    }
+
+    private static int getBlockSize(String name) {
+        final String key = name.trim().toUpperCase();
+        Integer size = BLOCK_SIZES.get(key);
+        if (size == null) {
+            size = 1;
+            for (String property : new String[]{CONFIG_BLOCK_SIZE + "." + key, CONFIG_BLOCK_SIZE}) {
+                final String value = System.getProperty(property);
+                if (value != null) {
+                    try {
+                        size = Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        LOG.error("Invalid value for " + property + ": " + value);
+                    }
+                    break;
+                }
+            }
+            BLOCK_SIZES.put(key, size);
+        }
+        return size;
+    }
 }
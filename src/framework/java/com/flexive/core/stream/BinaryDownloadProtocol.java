@@ -47,8 +47,10 @@ import com.flexive.stream.StreamProtocol;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -65,6 +67,8 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
     private BinaryInputStream bin;
     private byte[] _buffer;
     private int pre_read = 0;
+    private FileChannel fileChannel;
+    private boolean fileResolved;
 
     /**
      * Ctor
@@ -107,6 +111,8 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
                         && previewSize == BinaryDescriptor.PreviewSizes.ORIGINAL
                         && !bin.getMimeType().startsWith("image")) {
                     // choose biggest preview size if an image is required, but the binary is no image
+                    if (bin.getFile() != null)
+                        FxSharedUtils.close(bin);
                     bin = loadBinaryDescriptor(dataPacket, BinaryDescriptor.PreviewSizes.SCREENVIEW);
                 }
             } catch (NullPointerException e) {
@@ -120,6 +126,11 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
             }
             if (bin == null || !bin.isBinaryFound())
                 return new DataPacket<BinaryDownloadPayload>(new BinaryDownloadPayload(true, "ex.stream.notFound"), false);
+            if (bin.getFile() != null) {
+                //binary is read from the filesystem, the connection is not needed anymore
+                Database.closeObjects(BinaryDownloadProtocol.class, con, null);
+                con = null;
+            }
             mimeType = bin.getMimeType();
             datasize = bin.getSize();
             _buffer = new byte[4096];
@@ -134,6 +145,11 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
                     mimeType = tmp;
             } else
                 pre_read = 0;
+            if (bin.getFile() != null && dataPacket.getPayload().isResolveFile()) {
+                //local client, let it read the file directly
+                fileResolved = true;
+                return new DataPacket<BinaryDownloadPayload>(new BinaryDownloadPayload(mimeType, datasize, bin.getFile().getAbsolutePath()), false);
+            }
             return new DataPacket<BinaryDownloadPayload>(new BinaryDownloadPayload(mimeType, datasize), false);
         }
         return null;
@@ -160,7 +176,7 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
      */
     @Override
     public void closeResources() {
-        FxSharedUtils.close(bin);
+        FxSharedUtils.close(bin, fileChannel);
         Database.closeObjects(BinaryDownloadProtocol.class, con, null);
     }
 
@@ -169,12 +185,22 @@ public class BinaryDownloadProtocol extends StreamProtocol<BinaryDownloadPayload
      */
     @Override
     public boolean sendStream(ByteBuffer buffer) throws IOException {
+        if (fileResolved)
+            return false; //client reads the file directly
         if (buffer.remaining() <= 0 || bin == null)
             return true; //should not happen but possible ...
+        if (bin.getFile() != null && fileChannel == null) {
+            //read the file into the packet buffer directly, skipping the bytes read for mime type detection
+            fileChannel = new FileInputStream(bin.getFile()).getChannel();
+            fileChannel.position(pre_read);
+        }
         if (pre_read > 0) {
             buffer.put(_buffer, 0, pre_read); //size should not matter since its only 100 bytes
             pre_read = 0;
         }
+        if (fileChannel != null) {
+            return fileChannel.read(buffer) != -1;
+        }
         int max = Math.min(buffer.remaining(), _buffer.length);
         int read = bin.read(_buffer, 0, max);
         if (read == -1) {
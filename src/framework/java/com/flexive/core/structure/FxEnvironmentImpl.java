@@ -98,6 +98,18 @@ public final class FxEnvironmentImpl implements FxEnvironment {
     private transient ImmutableList<FxGroupAssignment> groupAssignmentsAll;
     private transient long[] assignmentIds;
     private transient long[] propertyIds;
+    // ID-sorted copies of types, steps, mandators and ACLs with their ID arrays for binary search
+    private transient ImmutableList<FxType> typesById;
+    private transient long[] typeIds;
+    private transient ImmutableMap<String, FxType> typeNameLookup;
+    private transient ImmutableList<Step> stepsById;
+    private transient long[] stepIds;
+    private transient ImmutableList<Mandator> mandatorsById;
+    private transient long[] mandatorIds;
+    private transient ImmutableMap<String, Mandator> mandatorNameLookup;
+    private transient ImmutableList<ACL> aclsById;
+    private transient long[] aclIds;
+    private transient ImmutableMap<String, ACL> aclNameLookup;
 
     public FxEnvironmentImpl() {
     }
@@ -140,6 +152,18 @@ public final class FxEnvironmentImpl implements FxEnvironment {
         this.assignmentIds = e.assignmentIds;   // read-only arrays
         this.propertyIds = e.propertyIds;
 
+        this.typesById = e.typesById;
+        this.typeIds = e.typeIds;
+        this.typeNameLookup = e.typeNameLookup;
+        this.stepsById = e.stepsById;
+        this.stepIds = e.stepIds;
+        this.mandatorsById = e.mandatorsById;
+        this.mandatorIds = e.mandatorIds;
+        this.mandatorNameLookup = e.mandatorNameLookup;
+        this.aclsById = e.aclsById;
+        this.aclIds = e.aclIds;
+        this.aclNameLookup = e.aclNameLookup;
+
         this.resolveFlatMappings();
     }
 
@@ -165,6 +189,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void setAcls(List<ACL> acls) {
         this.acls = ImmutableList.copyOf(acls);
+        initACLLookupTables();
     }
 
     /**
@@ -252,9 +277,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public Step getStep(long stepId) {
-        for (Step step : steps)
-            if (step.getId() == stepId)
-                return step;
+        final Step step = findById(stepIds, stepsById, stepId);
+        if (step != null)
+            return step;
         throw new FxNotFoundException("ex.step.notFound.id", stepId).asRuntimeException();
     }
 
@@ -277,6 +302,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void setSteps(List<Step> steps) {
         this.steps = ImmutableList.copyOf(steps);
+        initStepLookupTables();
     }
 
     /**
@@ -298,6 +324,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     public void setMandators(Mandator[] mandators) {
         this.mandators = ImmutableList.copyOf(mandators);
+        initMandatorLookupTables();
     }
 
     /**
@@ -332,6 +359,34 @@ public final class FxEnvironmentImpl implements FxEnvironment {
         initPropertyLookupTables();
 
         initAssignmentLookupTables();
+
+        initTypeLookupTables();
+        initStepLookupTables();
+        initMandatorLookupTables();
+        initACLLookupTables();
+    }
+
+    private void initTypeLookupTables() {
+        this.typesById = sortById(types);
+        this.typeIds = FxSharedUtils.getSelectableObjectIdArray(typesById);
+        this.typeNameLookup = buildNameLookup(types, true);
+    }
+
+    private void initStepLookupTables() {
+        this.stepsById = sortById(steps);
+        this.stepIds = FxSharedUtils.getSelectableObjectIdArray(stepsById);
+    }
+
+    private void initMandatorLookupTables() {
+        this.mandatorsById = sortById(mandators);
+        this.mandatorIds = FxSharedUtils.getSelectableObjectIdArray(mandatorsById);
+        this.mandatorNameLookup = buildNameLookup(mandators, false);
+    }
+
+    private void initACLLookupTables() {
+        this.aclsById = sortById(acls);
+        this.aclIds = FxSharedUtils.getSelectableObjectIdArray(aclsById);
+        this.aclNameLookup = buildNameLookup(acls, false);
     }
 
     void initPropertyLookupTables() {
@@ -396,6 +451,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void setTypes(List<FxType> fxTypes) {
         this.types = ImmutableList.copyOf(fxTypes);
+        initTypeLookupTables();
     }
 
     /**
@@ -469,9 +525,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public ACL getACL(long id) {
-        for (ACL acl : acls)
-            if (acl.getId() == id)
-                return acl;
+        final ACL acl = findById(aclIds, aclsById, id);
+        if (acl != null)
+            return acl;
         throw new FxNotFoundException("ex.structure.acl.notFound.id", id).asRuntimeException();
     }
 
@@ -481,9 +537,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public ACL getACL(String name) {
-        for (ACL acl : acls)
-            if (acl.getName().equals(name))
-                return acl;
+        final ACL acl = name != null ? aclNameLookup.get(name) : null;
+        if (acl != null)
+            return acl;
         throw new FxNotFoundException("ex.structure.acl.notFound.name", name).asRuntimeException();
     }
 
@@ -492,10 +548,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public boolean aclExists(String name) {
-        for (ACL acl : acls)
-            if (acl.getName().equals(name))
-                return true;
-        return false;
+        return name != null && aclNameLookup.containsKey(name);
     }
 
     /**
@@ -598,9 +651,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public Mandator getMandator(long id) {
-        for (Mandator mandator : mandators)
-            if (mandator.getId() == id)
-                return mandator;
+        final Mandator mandator = findById(mandatorIds, mandatorsById, id);
+        if (mandator != null)
+            return mandator;
         throw new FxNotFoundException("ex.structure.mandator.notFound.id", id).asRuntimeException();
     }
 
@@ -609,10 +662,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public Mandator getMandator(String name) {
-        for (Mandator mandator : mandators) {
-            if (mandator.getName().equals(name)) {
-                return mandator;
-            }
+        final Mandator mandator = name != null ? mandatorNameLookup.get(name) : null;
+        if (mandator != null) {
+            return mandator;
         }
         throw new FxNotFoundException("ex.structure.mandator.notFound.name", name).asRuntimeException();
     }
@@ -1048,9 +1100,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public FxType getType(String name) {
-        for (FxType type : types)
-            if (type.getName().equalsIgnoreCase(name))
-                return type;
+        final FxType type = name != null ? typeNameLookup.get(name.toUpperCase()) : null;
+        if (type != null)
+            return type;
         throw new FxNotFoundException("ex.structure.type.notFound.name", name).asRuntimeException();
     }
 
@@ -1059,10 +1111,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public boolean typeExists(String name) {
-        for (FxType type : types)
-            if (type.getName().equalsIgnoreCase(name))
-                return true;
-        return false;
+        return name != null && typeNameLookup.containsKey(name.toUpperCase());
     }
 
     /**
@@ -1070,9 +1119,9 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     @Override
     public FxType getType(long id) {
-        for (FxType type : types)
-            if (type.getId() == id)
-                return type;
+        final FxType type = findById(typeIds, typesById, id);
+        if (type != null)
+            return type;
         throw new FxNotFoundException("ex.structure.type.notFound.id", id).asRuntimeException();
     }
 
@@ -1279,6 +1328,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void updateACL(ACL _acl) {
         this.acls = updateOrAdd(this.acls, _acl);
+        initACLLookupTables();
     }
 
     /**
@@ -1288,6 +1338,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void removeACL(long id) {
         this.acls = remove(this.acls, getACL(id));
+        initACLLookupTables();
     }
 
     /**
@@ -1298,6 +1349,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     public void updateType(FxType type) throws FxNotFoundException {
         this.types = updateOrAdd(this.types, type);
+        initTypeLookupTables();
         resolveDependencies();
     }
 
@@ -1308,6 +1360,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     protected void addMandator(Mandator mandator) {
         this.mandators = updateOrAdd(this.mandators, mandator);
+        initMandatorLookupTables();
         this.inactiveMandators = null;
     }
 
@@ -1318,6 +1371,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     public void updateMandator(Mandator mandator) {
         this.mandators = updateOrAdd(this.mandators, mandator);
+        initMandatorLookupTables();
         this.inactiveMandators = null;
     }
 
@@ -1328,6 +1382,7 @@ public final class FxEnvironmentImpl implements FxEnvironment {
      */
     public void removeMandator(long mandatorId) {
         this.mandators = remove(this.mandators, getMandator(mandatorId));
+        initMandatorLookupTables();
         this.inactiveMandators = null;
     }
 
@@ -1356,10 +1411,11 @@ public final class FxEnvironmentImpl implements FxEnvironment {
     }
 
     /**
-     * Update the timestamp of the environment to the current time
+     * Update the timestamp of the environment to the current time. The timestamp is always increased, even
+     * if the environment was updated in the same millisecond.
      */
     public void updateTimeStamp() {
-        this.timeStamp = System.currentTimeMillis();
+        this.timeStamp = Math.max(System.currentTimeMillis(), this.timeStamp + 1);
     }
 
     /**
@@ -1682,4 +1738,39 @@ public final class FxEnvironmentImpl implements FxEnvironment {
         return ImmutableList.copyOf(sorted);
     }
 
+    /**
+     * Find an object by its ID in a list sorted by {@link #sortById(java.util.List)}.
+     *
+     * @param ids       the IDs of the sorted values
+     * @param sorted    the values, sorted by ID
+     * @param id        the requested ID
+     * @return          the object, or null if not found
+     */
+    private static <T extends SelectableObject> T findById(long[] ids, List<T> sorted, long id) {
+        final int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? sorted.get(index) : null;
+    }
+
+    /**
+     * Build a name lookup table. If more than one object has the same name, the first one is returned
+     * (as with a linear search).
+     *
+     * @param values        the values
+     * @param ignoreCase    if the names should be converted to upper case (the keys must then also be upper case)
+     * @return              the name lookup table
+     */
+    private static <T extends SelectableObjectWithName> ImmutableMap<String, T> buildNameLookup(List<T> values, boolean ignoreCase) {
+        final Map<String, T> result = new HashMap<String, T>(values.size() * 4 / 3 + 1);
+        for (T value : values) {
+            if (value.getName() == null) {
+                continue;
+            }
+            final String key = ignoreCase ? value.getName().toUpperCase() : value.getName();
+            if (!result.containsKey(key)) {
+                result.put(key, value);
+            }
+        }
+        return ImmutableMap.copyOf(result);
+    }
+
 }
@@ -137,7 +137,9 @@ public final class StructureLoader {
             //structure might have been loaded meanwhile on another node - only put it into the cache if forcing
             if (FxEnvironmentUtils.cacheGet(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME) == null || forceReload) {
                 FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, environment);
-                if (LOG.isDebugEnabled())
+                if (forceReload && LOG.isInfoEnabled())
+                    LOG.info("Reloaded environment of division " + divisionId + " in " + (System.currentTimeMillis() - time) + "[ms]");
+                else if (LOG.isDebugEnabled())
                     LOG.debug("Loaded structure and put into cache in " + (System.currentTimeMillis() - time) + "[ms]");
                 //put a dummy cached entry to create the path to avoid cache warnings if the content cache is
                 //accessed and it does not exist because its empty
@@ -210,6 +212,8 @@ public final class StructureLoader {
             //resync workflows
             for (FxType type : structure.getTypes(true, true, true, true))
                 type.reloadWorkflow(structure);
+            // step ACLs may have changed, invalidate timestamp-based caches (e.g. search security filters)
+            structure.updateTimeStamp();
             FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, structure);
             CacheAdmin.getEnvironment();
         } catch (FxCacheException e) {
@@ -265,10 +269,64 @@ public final class StructureLoader {
      * @since 3.1.4
      */
     public static void reloadAssignments(int divisionId) throws FxApplicationException {
-        Connection con = null;
+        try {
+            reloadStructure(divisionId, null, "assignments", false, false);
+        } catch (FxCacheException e) {
+            LOG.error(e, e);
+        }
+    }
+
+    /**
+     * Reload all types of the given division including all type-dependent structure information
+     * (groups, properties, assignments and script mappings). In contrast to {@link #reload(java.sql.Connection)},
+     * the remaining parts of the environment (ACLs, workflows, mandators, select lists, scripts, languages and
+     * user groups) are taken from the current environment.
+     *
+     * @param divisionId    the division to reload
+     * @param con           an open connection, or null if a new connection should be used
+     * @throws FxCacheException on cache errors
+     * @throws FxLoadException  on errors
+     * @since 3.2.1
+     */
+    public static void reloadTypes(int divisionId, Connection con) throws FxCacheException, FxLoadException {
+        reloadStructure(divisionId, con, "types", false, true);
+    }
+
+    /**
+     * Reload all select lists of the given division. Since properties and assignments hold references to their
+     * select lists, properties and assignments are reloaded as well. All other parts of the environment are taken
+     * from the current environment.
+     *
+     * @param divisionId    the division to reload
+     * @param con           an open connection, or null if a new connection should be used
+     * @throws FxCacheException on cache errors
+     * @throws FxLoadException  on errors
+     * @since 3.2.1
+     */
+    public static void reloadSelectLists(int divisionId, Connection con) throws FxCacheException, FxLoadException {
+        reloadStructure(divisionId, con, "select lists", true, false);
+    }
+
+    /**
+     * Reload parts of the structure into a copy of the current environment and put it into the cache.
+     * Groups, properties and assignments are always reloaded.
+     *
+     * @param divisionId        the division to reload
+     * @param _con              an open connection, or null if a new connection should be used
+     * @param description       description of the reloaded structure elements (for logging)
+     * @param reloadSelectLists reload the select lists
+     * @param reloadTypes       reload the types and script mappings
+     * @throws FxCacheException on cache errors
+     * @throws FxLoadException  on errors
+     */
+    private static void reloadStructure(int divisionId, Connection _con, String description,
+                                        boolean reloadSelectLists, boolean reloadTypes) throws FxCacheException, FxLoadException {
+        final long time = System.currentTimeMillis();
+        Connection con = _con;
         try {
             try {
-                con = FxEnvironmentUtils.getDbConnection(divisionId);
+                if (con == null)
+                    con = FxEnvironmentUtils.getDbConnection(divisionId);
             } catch (SQLException e) {
                 LOG.error(e);
                 return;
@@ -282,22 +340,38 @@ public final class StructureLoader {
             EnvironmentLoader loader;
             loader = StorageManager.getEnvironmentLoader(EJBLookup.getGlobalConfigurationEngine().getDivisionData(divisionId));
 
+            if (reloadSelectLists)
+                environment.setSelectLists(loader.loadSelectLists(con, environment));
+            if (reloadTypes)
+                environment.setTypes(loader.loadTypes(con, environment));
             environment.setGroups(loader.loadGroups(con));
             environment.setProperties(loader.loadProperties(con, environment));
             environment.initPropertyLookupTables();
             environment.setAssignments(loader.loadAssignments(con, environment));
             environment.initAssignmentLookupTables();
+            if (reloadTypes)
+                environment.setScriptMappings(loader.loadScriptMapping(con, environment));
             environment.resolveDependencies();
 
             environment.updateTimeStamp();
             FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, environment);
-        } catch (FxCacheException e) {
-            LOG.error(e, e);
+            CacheAdmin.environmentChanged();
+            if (reloadSelectLists || reloadTypes) {
+                // cached contents may reference removed types or outdated select list items
+                CacheAdmin.expireCachedContents();
+            }
         } catch (FxNotFoundException e) {
             throw new FxLoadException(e);
+        } catch (FxLoadException e) {
+            throw e;
+        } catch (FxApplicationException e) {
+            throw new FxLoadException(LOG, e);
         } finally {
-            Database.closeObjects(StructureLoader.class, con, null);
+            if (_con == null)
+                Database.closeObjects(StructureLoader.class, con, null);
         }
+        if (LOG.isInfoEnabled())
+            LOG.info("Reloaded " + description + " of division " + divisionId + " in " + (System.currentTimeMillis() - time) + "[ms]");
     }
 
     /**
@@ -310,6 +384,7 @@ public final class StructureLoader {
         try {
             FxEnvironmentImpl structure = ((FxEnvironmentImpl) CacheAdmin.getEnvironment()).deepClone();
             structure.updateACL(acl);
+            structure.updateTimeStamp();
             FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, structure);
         } catch (FxCacheException e) {
             LOG.error(e, e);
@@ -326,6 +401,7 @@ public final class StructureLoader {
         try {
             FxEnvironmentImpl structure = ((FxEnvironmentImpl) CacheAdmin.getEnvironment()).deepClone();
             structure.removeACL(id);
+            structure.updateTimeStamp();
             FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, structure);
         } catch (FxCacheException e) {
             LOG.error(e, e);
@@ -343,6 +419,9 @@ public final class StructureLoader {
         try {
             FxEnvironmentImpl structure = ((FxEnvironmentImpl) CacheAdmin.getEnvironment()).deepClone();
             structure.updateType(type);
+            // the type ACL or permission flags may have changed, invalidate timestamp-based caches
+            // (e.g. search security filters)
+            structure.updateTimeStamp();
             FxEnvironmentUtils.cachePut(divisionId, CacheAdmin.ENVIRONMENT_BASE, CacheAdmin.ENVIRONMENT_RUNTIME, structure);
         } catch (FxCacheException e) {
             LOG.error(e, e);
@@ -60,6 +60,9 @@ import org.apache.commons.logging.LogFactory;
 
 import javax.annotation.Resource;
 import javax.ejb.*;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -77,9 +80,15 @@ import java.util.*;
 public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
 
     private static final Log LOG = LogFactory.getLog(ContentEngineBean.class);
+    // transaction resource key of the pending content modification sequence update
+    private static final String TX_CONTENT_MODIFIED = ContentEngineBean.class.getName() + ".contentModified";
+
     @Resource
     javax.ejb.SessionContext ctx;
 
+    @Resource
+    TransactionSynchronizationRegistry txRegistry;
+
     @EJB
     SequencerEngineLocal seq;
 
@@ -212,43 +221,112 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
                 cachedContent = new FxCachedContent(rawContent, securityInfo);
                 CacheAdmin.cacheContent(cachedContent, false);
             }
-            FxContent content = cachedContent.getContent().copy();
+            return prepareLoadedContent(cachedContent, env);
+        } catch (SQLException e) {
+            throw new FxLoadException(LOG, e, "ex.db.sqlError", e.getMessage());
+        } finally {
+            Database.closeObjects(ContentEngineBean.class, con, ps);
+        }
+    }
 
-            //security check start
-            UserTicket ticket = FxContext.getUserTicket();
-            FxType type = env.getType(cachedContent.getContent().getTypeId());
-            FxPermissionUtils.checkPermission(ticket, content.getLifeCycleInfo().getCreatorId(), ACLPermission.READ, type,
-                    cachedContent.getSecurityInfo().getStepACL(),
-                    cachedContent.getSecurityInfo().getContentACLs(), true);
-            FxPermissionUtils.checkMandatorExistance(content.getMandatorId());
-            FxPermissionUtils.checkTypeAvailable(type.getId(), true);
-            if (type.isUsePropertyPermissions() && !ticket.isGlobalSupervisor()) {
-                //wrap with FxNoAccess or set to readonly when appropriate
-                FxPermissionUtils.wrapNoAccessValues(ticket, cachedContent.getSecurityInfo(),
-                        content, type, env);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<FxContent> load(List<FxPK> pks) throws FxApplicationException {
+        FxSharedUtils.checkParameterNull(pks, "pks");
+        final FxEnvironment env = CacheAdmin.getEnvironment();
+        final List<FxCachedContent> cachedContents = new ArrayList<FxCachedContent>(pks.size());
+        final Map<TypeStorageMode, List<FxPK>> uncached = new EnumMap<TypeStorageMode, List<FxPK>>(TypeStorageMode.class);
+        for (FxPK pk : pks) {
+            final FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
+            cachedContents.add(cachedContent);
+            if (cachedContent == null) {
+                if (!uncached.containsKey(pk.getStorageMode()))
+                    uncached.put(pk.getStorageMode(), new ArrayList<FxPK>());
+                uncached.get(pk.getStorageMode()).add(pk);
             }
-            //security check end
-            //scripting after start
-            FxScriptBinding binding = null;
-            long[] scripts = env.getType(content.getTypeId()).getScriptMapping(FxScriptEvent.AfterContentLoad);
-            if (scripts != null)
-                for (long script : scripts) {
-                    if (binding == null)
-                        binding = new FxScriptBinding();
-                    binding.setVariable("content", content);
-                    scripting.runScript(script, binding);
+        }
+        Connection con = null;
+        try {
+            if (!uncached.isEmpty()) {
+                con = Database.getDbConnection();
+                final Map<FxPK, FxCachedContent> loaded = new HashMap<FxPK, FxCachedContent>();
+                for (Map.Entry<TypeStorageMode, List<FxPK>> entry : uncached.entrySet()) {
+                    final List<FxPK> storagePKs = entry.getValue();
+                    final List<FxCachedContent> contents = StorageManager.getContentStorage(entry.getKey())
+                            .contentLoad(con, storagePKs, env);
+                    for (int i = 0; i < storagePKs.size(); i++) {
+                        if (loaded.containsKey(storagePKs.get(i)))
+                            continue;
+                        final FxCachedContent content = contents.get(i);
+                        final FxContent rawContent = content.getContent().copy();
+                        rawContent.updateLock(content.getSecurityInfo().getLock());
+                        final FxCachedContent cachedContent = new FxCachedContent(rawContent, content.getSecurityInfo());
+                        CacheAdmin.cacheContent(cachedContent, false);
+                        loaded.put(storagePKs.get(i), cachedContent);
+                    }
                 }
-            //scripting after end
-            content.getRootGroup().removeEmptyEntries();
-            content.getRootGroup().compactPositions(true);
-            return content;
+                for (int i = 0; i < cachedContents.size(); i++) {
+                    if (cachedContents.get(i) == null)
+                        cachedContents.set(i, loaded.get(pks.get(i)));
+                }
+            }
+            final List<FxContent> result = new ArrayList<FxContent>(cachedContents.size());
+            for (FxCachedContent cachedContent : cachedContents) {
+                result.add(prepareLoadedContent(cachedContent, env));
+            }
+            return result;
         } catch (SQLException e) {
             throw new FxLoadException(LOG, e, "ex.db.sqlError", e.getMessage());
         } finally {
-            Database.closeObjects(ContentEngineBean.class, con, ps);
+            Database.closeObjects(ContentEngineBean.class, con, null);
         }
     }
 
+    /**
+     * Check the read permissions on a cached content and return a copy that is ready to be returned
+     * to the caller.
+     *
+     * @param cachedContent the (cached) content
+     * @param env           the environment
+     * @return              the content
+     * @throws FxApplicationException if the content may not be read or on scripting errors
+     */
+    private FxContent prepareLoadedContent(FxCachedContent cachedContent, FxEnvironment env) throws FxApplicationException {
+        FxContent content = cachedContent.getContent().copy();
+
+        //security check start
+        UserTicket ticket = FxContext.getUserTicket();
+        FxType type = env.getType(cachedContent.getContent().getTypeId());
+        FxPermissionUtils.checkPermission(ticket, content.getLifeCycleInfo().getCreatorId(), ACLPermission.READ, type,
+                cachedContent.getSecurityInfo().getStepACL(),
+                cachedContent.getSecurityInfo().getContentACLs(), true);
+        FxPermissionUtils.checkMandatorExistance(content.getMandatorId());
+        FxPermissionUtils.checkTypeAvailable(type.getId(), true);
+        if (type.isUsePropertyPermissions() && !ticket.isGlobalSupervisor()) {
+            //wrap with FxNoAccess or set to readonly when appropriate
+            FxPermissionUtils.wrapNoAccessValues(ticket, cachedContent.getSecurityInfo(),
+                    content, type, env);
+        }
+        //security check end
+        //scripting after start
+        FxScriptBinding binding = null;
+        long[] scripts = env.getType(content.getTypeId()).getScriptMapping(FxScriptEvent.AfterContentLoad);
+        if (scripts != null)
+            for (long script : scripts) {
+                if (binding == null)
+                    binding = new FxScriptBinding();
+                binding.setVariable("content", content);
+                scripting.runScript(script, binding);
+            }
+        //scripting after end
+        content.getRootGroup().removeEmptyEntries();
+        content.getRootGroup().compactPositions(true);
+        return content;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -348,7 +426,8 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
                     FxCachedContent cachedContent = CacheAdmin.getCachedContent(content.getPk());
                     FxContent orgContent;
                     if (cachedContent != null)
-                        orgContent = cachedContent.getContent();
+                        // cached instances are shared between threads, compute the delta on a copy
+                        orgContent = cachedContent.getContent().copy();
                     else
                         orgContent = storage.contentLoad(con, content.getPk(), CacheAdmin.getEnvironment(), null);
                     FxDelta delta = FxDelta.processDelta(orgContent, content);
@@ -414,8 +493,10 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
                 FxBinaryUtils.removeTXFiles();
             } else
                 FxBinaryUtils.resetTXFiles();
-            if (!ctx.getRollbackOnly() && pk != null)
+            if (!ctx.getRollbackOnly() && pk != null) {
                 CacheAdmin.expireCachedContent(pk.getId());
+                setContentWasModified();
+            }
         }
     }
 
@@ -526,8 +607,10 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             throw new FxCreateException(LOG, t);
         } finally {
             Database.closeObjects(ContentEngineBean.class, con, ps);
-            if (!ctx.getRollbackOnly())
+            if (!ctx.getRollbackOnly()) {
                 CacheAdmin.expireCachedContent(content.getId());
+                setContentWasModified();
+            }
         }
     }
 
@@ -684,8 +767,10 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             throw new FxRemoveException(LOG, e, "ex.db.sqlError", e.getMessage());
         } finally {
             Database.closeObjects(ContentEngineBean.class, con, ps);
-            if (!ctx.getRollbackOnly())
+            if (!ctx.getRollbackOnly()) {
                 CacheAdmin.expireCachedContent(pk.getId());
+                setContentWasModified();
+            }
         }
     }
 
@@ -717,8 +802,10 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             throw new FxRemoveException(LOG, e, "ex.db.sqlError", e.getMessage());
         } finally {
             Database.closeObjects(ContentEngineBean.class, con, ps);
-            if (!ctx.getRollbackOnly())
+            if (!ctx.getRollbackOnly()) {
                 CacheAdmin.expireCachedContent(pk.getId());
+                setContentWasModified();
+            }
         }
     }
 
@@ -819,8 +906,10 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             throw new FxRemoveException(LOG, e, "ex.db.sqlError", e.getMessage());
         } finally {
             Database.closeObjects(ContentEngineBean.class, con, null);
-            if (!ctx.getRollbackOnly())
+            if (!ctx.getRollbackOnly()) {
                 CacheAdmin.expireCachedContents();
+                setContentWasModified();
+            }
         }
     }
 
@@ -1047,6 +1136,57 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         return ConversionEngine.getXStream().toXML(content);
     }
 
+    /**
+     * Change the content modification sequence (see {@link CacheAdmin#setContentWasModified()}) after the
+     * current transaction was committed. Changing it before the commit would allow concurrent requests
+     * to cache output rendered from the uncommitted state under the new sequence.
+     * Without an active transaction, the sequence is changed immediately.
+     */
+    private void setContentWasModified() {
+        try {
+            if (txRegistry != null && txRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+                if (txRegistry.getResource(TX_CONTENT_MODIFIED) == null) {
+                    // register once per transaction
+                    txRegistry.putResource(TX_CONTENT_MODIFIED, Boolean.TRUE);
+                    txRegistry.registerInterposedSynchronization(new Synchronization() {
+                        @Override
+                        public void beforeCompletion() {
+                        }
+
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status == Status.STATUS_COMMITTED) {
+                                CacheAdmin.setContentWasModified();
+                            }
+                        }
+                    });
+                }
+                return;
+            }
+        } catch (IllegalStateException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Failed to register content modification for the current transaction: " + e.getMessage());
+            }
+        }
+        CacheAdmin.setContentWasModified();
+    }
+
+    /**
+     * Update the lock of a cached content instance. Cached instances are shared between threads,
+     * so the lock is set on a copy that replaces the cached instance.
+     *
+     * @param pk    primary key of the content
+     * @param lock  the new lock
+     */
+    private static void updateCachedLock(FxPK pk, FxLock lock) {
+        final FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
+        if (cachedContent != null) {
+            final FxContent content = cachedContent.getContent().copy();
+            content.updateLock(lock);
+            CacheAdmin.cacheContent(new FxCachedContent(content, cachedContent.getSecurityInfo()));
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1057,11 +1197,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         try {
             con = Database.getDbConnection();
             FxLock lock = StorageManager.getLockStorage().lock(con, lockType, pk);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
-            if (cachedContent != null) {
-                cachedContent.updateLock(lock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(pk, lock);
             return lock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1082,11 +1218,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         try {
             con = Database.getDbConnection();
             FxLock lock = StorageManager.getLockStorage().lock(con, lockType, pk, duration);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
-            if (cachedContent != null) {
-                cachedContent.updateLock(lock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(pk, lock);
             return lock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1109,11 +1241,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         try {
             con = Database.getDbConnection();
             FxLock newLock = StorageManager.getLockStorage().takeOver(con, lock);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(lock.getLockedPK());
-            if (cachedContent != null) {
-                cachedContent.updateLock(newLock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(lock.getLockedPK(), newLock);
             return newLock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1140,11 +1268,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
                 newLock = lockStorage.takeOver(con, lock);
             else
                 newLock = lockStorage.lock(con, FxLockType.Loose, pk);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
-            if (cachedContent != null) {
-                cachedContent.updateLock(newLock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(pk, newLock);
             return newLock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1165,11 +1289,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         try {
             con = Database.getDbConnection();
             FxLock newLock = StorageManager.getLockStorage().extend(con, lock, duration);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(lock.getLockedPK());
-            if (cachedContent != null) {
-                cachedContent.updateLock(newLock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(lock.getLockedPK(), newLock);
             return newLock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1196,11 +1316,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
                 newLock = lockStorage.extend(con, lock, duration);
             else
                 newLock = lockStorage.lock(con, FxLockType.Loose, pk, duration);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
-            if (cachedContent != null) {
-                cachedContent.updateLock(newLock);
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(pk, newLock);
             return newLock;
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
@@ -1222,6 +1338,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             con = Database.getDbConnection();
             FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
             if (cachedContent != null)
+                // read-only access to the shared instance, FxLock is immutable
                 return cachedContent.getContent().getLock();
             return StorageManager.getLockStorage().getLock(con, pk);
         } catch (SQLException e) {
@@ -1249,11 +1366,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
             final FxLock lock = lockStorage.getLock(con, pk);
             if (lock.isLocked())
                 lockStorage.unlock(con, pk);
-            FxCachedContent cachedContent = CacheAdmin.getCachedContent(pk);
-            if (cachedContent != null) {
-                cachedContent.updateLock(FxLock.noLockPK());
-                CacheAdmin.cacheContent(cachedContent);
-            }
+            updateCachedLock(pk, FxLock.noLockPK());
         } catch (SQLException e) {
             throw new FxLockException(e, "ex.db.sqlError", e.getMessage());
         } catch (FxNotFoundException e) {
@@ -1451,6 +1564,7 @@ public class ContentEngineBean implements ContentEngine, ContentEngineLocal {
         } finally { // flush cache after update was completed
             Database.closeObjects(ContentEngineBean.class, con, null);
             CacheAdmin.expireCachedContent(contentPK.getId());
+            setContentWasModified();
         }
     }
 }
@@ -32,15 +32,13 @@
 package com.flexive.ejb.beans;
 
 import com.flexive.core.Database;
+import com.flexive.core.HistoryWriter;
 import com.flexive.core.storage.StorageManager;
 import com.flexive.shared.FxContext;
 import com.flexive.shared.FxHistory;
-import com.flexive.shared.FxLanguage;
-import com.flexive.shared.FxSharedUtils;
 import com.flexive.shared.content.FxPK;
 import com.flexive.shared.interfaces.HistoryTrackerEngine;
 import com.flexive.shared.interfaces.HistoryTrackerEngineLocal;
-import com.flexive.shared.security.UserTicket;
 import com.flexive.shared.structure.FxType;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -68,20 +66,6 @@ public class HistoryTrackerEngineBean implements HistoryTrackerEngine, HistoryTr
 
     private static final Log LOG = LogFactory.getLog(HistoryTrackerEngineBean.class);
 
-    private static final String HISTORY_INSERT = "INSERT INTO " + TBL_HISTORY +
-            //1       2         3       4          5           6          7       8           9
-            "(ACCOUNT,LOGINNAME,TIMESTP,ACTION_KEY,ACTION_ARGS,EN_MESSAGE,SESSION,APPLICATION,REMOTEHOST," +
-            //10    11       12   13    14
-            "TYPEID,TYPENAME,PKID,PKVER,DATA)VALUES" +
-            "(?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
-
-    private static final String HISTORY_INSERT_MANDATOR = "INSERT INTO " + TBL_HISTORY +
-            //1       2         3       4          5           6          7       8           9
-            "(ACCOUNT,LOGINNAME,TIMESTP,ACTION_KEY,ACTION_ARGS,EN_MESSAGE,SESSION,APPLICATION,REMOTEHOST," +
-            //10    11       12   13    14   15
-            "TYPEID,TYPENAME,PKID,PKVER,DATA,MANDATOR)VALUES" +
-            "(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
-
     //                                                   1       2         3       4          5           6
     private static final String HISTORY_SELECT = "SELECT ACCOUNT,LOGINNAME,TIMESTP,ACTION_KEY,ACTION_ARGS,APPLICATION," +
             //7         8      9    10    11   12
@@ -121,52 +105,8 @@ public class HistoryTrackerEngineBean implements HistoryTrackerEngine, HistoryTr
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public void track(Long mandator, String typeName, String loginname, String application, String session, String remoteHost,
                       String message, String data, String key, Object... args) {
-        Connection con = null;
-        PreparedStatement ps = null;
-        try {
-            final UserTicket ticket = FxContext.getUserTicket();
-            con = Database.getDbConnection();
-            boolean hasMandator = mandator != null;
-            ps = con.prepareStatement(StorageManager.escapeReservedWords(hasMandator ? HISTORY_INSERT_MANDATOR : HISTORY_INSERT));
-            ps.setLong(1, ticket.getUserId());
-            ps.setString(2, StringUtils.isBlank(loginname) ? ticket.getLoginName() : loginname);
-
-            ps.setLong(3, System.currentTimeMillis());
-            ps.setString(4, key);
-            StorageManager.setBigString(ps, 5, StringUtils.join(args, '|'));
-            try {
-                if (StringUtils.isNotBlank(message))
-                    ps.setString(6, message);
-                else
-                    ps.setString(6, FxSharedUtils.getLocalizedMessage("History", FxLanguage.ENGLISH, "en", key, args));
-            } catch (Exception e) {
-                ps.setString(6, key);
-            }
-            FxContext si = FxContext.get();
-            ps.setString(7, StringUtils.isNotBlank(session) ? session : (si.getSessionId() == null ? "<unknown>" : si.getSessionId()));
-            ps.setString(8, StringUtils.isNotBlank(application) ? application : (si.getApplicationId() == null ? "<unknown>" : si.getApplicationId()));
-            ps.setString(9, StringUtils.isNotBlank(remoteHost) ? remoteHost : (si.getRemoteHost() == null ? "<unknown>" : si.getRemoteHost()));
-            if (StringUtils.isNotBlank(typeName)) {
-                ps.setNull(10, java.sql.Types.NUMERIC);
-                ps.setString(11, typeName);
-            } else {
-                ps.setNull(10, java.sql.Types.NUMERIC);
-                ps.setNull(11, java.sql.Types.VARCHAR);
-            }
-            ps.setNull(12, java.sql.Types.NUMERIC);
-            ps.setNull(13, java.sql.Types.NUMERIC);
-            if (StringUtils.isNotBlank(data))
-                StorageManager.setBigString(ps, 14, data);
-            else
-                ps.setNull(14, java.sql.Types.VARCHAR);
-            if (hasMandator)
-                ps.setLong(15, mandator);
-            ps.executeUpdate();
-        } catch (Exception ex) {
-            LOG.error(ex.getMessage());
-        } finally {
-            Database.closeObjects(HistoryTrackerEngineBean.class, con, ps);
-        }
+        HistoryWriter.getInstance().write(mandator, null, typeName, null, loginname, application, session, remoteHost,
+                message, StringUtils.isNotBlank(data) ? data : null, key, args);
     }
 
     /**
@@ -175,51 +115,8 @@ public class HistoryTrackerEngineBean implements HistoryTrackerEngine, HistoryTr
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public void track(FxType type, FxPK pk, String data, String key, Object... args) {
-        Connection con = null;
-        PreparedStatement ps = null;
-        try {
-            final UserTicket ticket = FxContext.getUserTicket();
-            con = Database.getDbConnection();
-            ps = con.prepareStatement(StorageManager.escapeReservedWords(HISTORY_INSERT));
-            ps.setLong(1, ticket.getUserId());
-            ps.setString(2, ticket.getLoginName());
-
-            ps.setLong(3, System.currentTimeMillis());
-            ps.setString(4, key);
-            StorageManager.setBigString(ps, 5, StringUtils.join(args, '|'));
-            try {
-                ps.setString(6, FxSharedUtils.getLocalizedMessage("History", FxLanguage.ENGLISH, "en", key, args));
-            } catch (Exception e) {
-                ps.setString(6, key);
-            }
-            FxContext si = FxContext.get();
-            ps.setString(7, (si.getSessionId() == null ? "<unknown>" : si.getSessionId()));
-            ps.setString(8, (si.getApplicationId() == null ? "<unknown>" : si.getApplicationId()));
-            ps.setString(9, (si.getRemoteHost() == null ? "<unknown>" : si.getRemoteHost()));
-            if (type != null) {
-                ps.setLong(10, type.getId());
-                ps.setString(11, type.getName());
-            } else {
-                ps.setNull(10, java.sql.Types.NUMERIC);
-                ps.setNull(11, java.sql.Types.VARCHAR);
-            }
-            if (pk != null) {
-                ps.setLong(12, pk.getId());
-                ps.setInt(13, pk.getVersion());
-            } else {
-                ps.setNull(12, java.sql.Types.NUMERIC);
-                ps.setNull(13, java.sql.Types.NUMERIC);
-            }
-            if (data != null)
-                StorageManager.setBigString(ps, 14, data);
-            else
-                ps.setNull(14, java.sql.Types.VARCHAR);
-            ps.executeUpdate();
-        } catch (Exception ex) {
-            LOG.error(ex.getMessage());
-        } finally {
-            Database.closeObjects(HistoryTrackerEngineBean.class, con, ps);
-        }
+        HistoryWriter.getInstance().write(null, type != null ? type.getId() : null, type != null ? type.getName() : null,
+                pk, null, null, null, null, null, data, key, args);
     }
 
     /**
@@ -231,6 +128,7 @@ public class HistoryTrackerEngineBean implements HistoryTrackerEngine, HistoryTr
         Connection con = null;
         PreparedStatement ps = null;
         try {
+            HistoryWriter.getInstance().flush();
             con = Database.getDbConnection();
             ps = con.prepareStatement(StorageManager.escapeReservedWords(HISTORY_SELECT) + " WHERE PKID=? ORDER BY TIMESTP");
             ps.setLong(1, contentId);
@@ -258,6 +156,7 @@ public class HistoryTrackerEngineBean implements HistoryTrackerEngine, HistoryTr
         Connection con = null;
         PreparedStatement ps = null;
         try {
+            HistoryWriter.getInstance().flush();
             con = Database.getDbConnection();
             String query = "";
             if (accountMatch != null) query += " AND ACCOUNT=" + accountMatch;
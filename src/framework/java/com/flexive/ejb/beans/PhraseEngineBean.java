@@ -33,6 +33,7 @@ package com.flexive.ejb.beans;
 
 import com.flexive.core.Database;
 import com.flexive.shared.*;
+import com.flexive.shared.cache.FxPhraseCache;
 import com.flexive.shared.exceptions.*;
 import com.flexive.shared.interfaces.PhraseEngine;
 import com.flexive.shared.interfaces.PhraseEngineLocal;
@@ -49,7 +50,9 @@ import javax.annotation.Resource;
 import javax.ejb.*;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.flexive.core.DatabaseConst.*;
 
@@ -410,6 +413,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
                 }
                 ps.executeBatch();
             }
+            FxPhraseCache.remove(mandator, category, phraseKey);
             return phraseId;
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
@@ -448,6 +452,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
             ps.setLong(3, mandator);
             ps.setInt(4, category);
             ps.executeUpdate();
+            FxPhraseCache.remove(mandator, category, phraseKey);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -513,6 +518,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
                 ps.setLong(2, mandator);
                 ps.setInt(3, category);
                 ps.execute();
+                FxPhraseCache.remove(mandator, category, phraseKey);
                 return true;
             }
             return false;
@@ -586,6 +592,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
             }
             if (rsResolve != null)
                 rsResolve.close();
+            FxPhraseCache.removeCategory(mandator, category);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -662,6 +669,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
                 count = ps.executeUpdate();
             }
             removePhraseSequencer(mandator); //force a re-initialization on next use/call
+            FxPhraseCache.removeMandator(mandator);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -677,32 +685,15 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public String loadPhraseValue(long language, String phraseKey, long... mandators) throws FxNotFoundException {
-        Connection con = null;
-        PreparedStatement ps = null;
         checkPhraseKey(phraseKey);
         if (mandators == null || mandators.length == 0)
             mandators = new long[]{FxContext.getUserTicket().getMandatorId()};
-        try {
-            // Obtain a database connection
-            con = Database.getDbConnection();
-            ps = con.prepareStatement("SELECT v.PVAL FROM " + TBL_PHRASE_VALUES + " v, " + TBL_PHRASE +
-                    " p WHERE p.PKEY=? AND p.MANDATOR=? AND v.ID=p.ID AND v.MANDATOR=p.MANDATOR AND v.LANG=?");
-            ps.setString(1, phraseKey);
-            ps.setLong(3, language);
-            for (long mandator : mandators) {
-                ps.setLong(2, mandator);
-                ResultSet rs = ps.executeQuery();
-                if (rs != null && rs.next()) {
-                    return rs.getString(1);
-                }
-                if (rs != null)
-                    rs.close();
+        for (long mandator : mandators) {
+            final FxPhraseCache.Entry entry = getCachedPhrase(FxPhraseCache.ANY_CATEGORY, phraseKey, mandator);
+            for (int i = 0; i < entry.getSize(); i++) {
+                if (entry.getLanguage(i) == language)
+                    return entry.getValue(i);
             }
-        } catch (SQLException exc) {
-            EJBUtils.rollback(ctx);
-            throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
-        } finally {
-            Database.closeObjects(PhraseEngineBean.class, con, ps);
         }
         throw new FxNotFoundException("ex.phrase.key.notFound", phraseKey);
     }
@@ -713,35 +704,18 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public FxString loadPhraseValue(String phraseKey, long... mandators) throws FxNotFoundException {
-        Connection con = null;
-        PreparedStatement ps = null;
         checkPhraseKey(phraseKey);
         if (mandators == null || mandators.length == 0)
             mandators = new long[]{FxContext.getUserTicket().getMandatorId()};
-        try {
-            // Obtain a database connection
-            con = Database.getDbConnection();
-            ps = con.prepareStatement("SELECT v.LANG, v.PVAL FROM " + TBL_PHRASE_VALUES + " v, " + TBL_PHRASE +
-                    " p WHERE p.PKEY=? AND p.MANDATOR=? AND v.ID=p.ID AND v.MANDATOR=p.MANDATOR");
-            ps.setString(1, phraseKey);
-            for (long mandator : mandators) {
-                ps.setLong(2, mandator);
-                ResultSet rs = ps.executeQuery();
-                if (rs != null && rs.next()) {
-                    boolean ml = rs.getLong(1) != FxLanguage.SYSTEM_ID;
-                    FxString val = new FxString(ml, rs.getLong(1), rs.getString(2));
-                    while (rs.next())
-                        val.setTranslation(rs.getLong(1), rs.getString(2));
-                    return val;
-                }
-                if (rs != null)
-                    rs.close();
+        for (long mandator : mandators) {
+            final FxPhraseCache.Entry entry = getCachedPhrase(FxPhraseCache.ANY_CATEGORY, phraseKey, mandator);
+            if (entry.isFound()) {
+                boolean ml = entry.getLanguage(0) != FxLanguage.SYSTEM_ID;
+                FxString val = new FxString(ml, entry.getLanguage(0), entry.getValue(0));
+                for (int i = 1; i < entry.getSize(); i++)
+                    val.setTranslation(entry.getLanguage(i), entry.getValue(i));
+                return val;
             }
-        } catch (SQLException exc) {
-            EJBUtils.rollback(ctx);
-            throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
-        } finally {
-            Database.closeObjects(PhraseEngineBean.class, con, ps);
         }
         throw new FxNotFoundException("ex.phrase.key.notFound", phraseKey);
     }
@@ -762,52 +736,118 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public FxPhrase loadPhrase(int category, String phraseKey, long... mandators) throws FxNotFoundException {
-        Connection con = null;
-        PreparedStatement ps = null;
         checkPhraseKey(phraseKey);
         if (mandators == null || mandators.length == 0)
             mandators = new long[]{FxContext.getUserTicket().getMandatorId()};
+        for (long mandator : mandators) {
+            final FxPhraseCache.Entry entry = getCachedPhrase(category, phraseKey, mandator);
+            if (entry.isFound()) {
+                boolean ml = entry.getLanguage(0) != FxLanguage.SYSTEM_ID;
+                FxString val = new FxString(ml, entry.getLanguage(0), entry.getValue(0));
+                FxString fxTag;
+                boolean hasTag = false;
+                if (entry.getTag(0) == null)
+                    fxTag = new FxString(FxString.EMPTY).setEmpty();
+                else {
+                    fxTag = new FxString(ml, entry.getLanguage(0), entry.getTag(0));
+                    hasTag = true;
+                }
+                for (int i = 1; i < entry.getSize(); i++) {
+                    val.setTranslation(entry.getLanguage(i), entry.getValue(i));
+                    if (hasTag)
+                        fxTag.setTranslation(entry.getLanguage(i), entry.getTag(i));
+                }
+                return new FxPhrase(mandator, phraseKey, val, fxTag).setId(entry.getId()).flagHidden(entry.isHidden()).flagCategory(category);
+            }
+        }
+        throw new FxNotFoundException("ex.phrase.key.notFound", phraseKey);
+    }
+
+    /**
+     * Return a phrase from the phrase cache. If the phrase is not cached, it is loaded from the database.
+     * If no phrase of the category is cached, all phrases of the category are loaded at once.
+     *
+     * @param category  phrase category or {@link FxPhraseCache#ANY_CATEGORY} to ignore the category
+     * @param phraseKey phrase key
+     * @param mandator  mandator
+     * @return the cached phrase, {@link FxPhraseCache.Entry#notFound()} if the phrase does not exist
+     */
+    private FxPhraseCache.Entry getCachedPhrase(int category, String phraseKey, long mandator) {
+        FxPhraseCache.Entry entry = FxPhraseCache.get(mandator, category, phraseKey);
+        if (entry != null)
+            return entry;
+        Connection con = null;
+        PreparedStatement ps = null;
         try {
             // Obtain a database connection
             con = Database.getDbConnection();
+            if (category != FxPhraseCache.ANY_CATEGORY && FxPhraseCache.isEmpty(mandator, category)) {
+                //                                  1      2      3      4     5    6
+                ps = con.prepareStatement("SELECT p.PKEY,v.LANG,v.PVAL,v.TAG,p.ID,p.HID FROM " + TBL_PHRASE_VALUES + " v, " + TBL_PHRASE +
+                        " p WHERE p.MANDATOR=? AND p.CAT=? AND v.ID=p.ID AND v.MANDATOR=p.MANDATOR ORDER BY p.PKEY");
+                ps.setLong(1, mandator);
+                ps.setInt(2, category);
+                final ResultSet rs = ps.executeQuery();
+                final Map<String, FxPhraseCache.Entry> entries = new HashMap<String, FxPhraseCache.Entry>();
+                boolean hasRow = rs != null && rs.next();
+                while (hasRow) {
+                    final String key = rs.getString(1);
+                    final long id = rs.getLong(5);
+                    final boolean hidden = rs.getBoolean(6);
+                    final List<Long> languages = Lists.newArrayList();
+                    final List<String> values = Lists.newArrayList();
+                    final List<String> tags = Lists.newArrayList();
+                    do {
+                        languages.add(rs.getLong(2));
+                        values.add(rs.getString(3));
+                        tags.add(rs.getString(4));
+                        hasRow = rs.next();
+                    } while (hasRow && key.equals(rs.getString(1)));
+                    entries.put(key, createCacheEntry(id, hidden, languages, values, tags));
+                }
+                FxPhraseCache.putAll(mandator, category, entries);
+                entry = entries.get(phraseKey);
+                return entry != null ? entry : FxPhraseCache.Entry.notFound();
+            }
+            //                                  1      2      3    4    5
             ps = con.prepareStatement("SELECT v.LANG,v.PVAL,v.TAG,p.ID,p.HID FROM " + TBL_PHRASE_VALUES + " v, " + TBL_PHRASE +
-                    " p WHERE p.PKEY=? AND p.MANDATOR=? AND v.ID=p.ID AND v.MANDATOR=p.MANDATOR AND p.CAT=?");
+                    " p WHERE p.PKEY=? AND p.MANDATOR=? AND v.ID=p.ID AND v.MANDATOR=p.MANDATOR" +
+                    (category != FxPhraseCache.ANY_CATEGORY ? " AND p.CAT=?" : ""));
             ps.setString(1, phraseKey);
-            ps.setInt(3, category);
-            for (long mandator : mandators) {
-                ps.setLong(2, mandator);
-                ResultSet rs = ps.executeQuery();
-                if (rs != null && rs.next()) {
-                    final long id = rs.getLong(4);
-                    final boolean hidden = rs.getBoolean(5);
-                    boolean ml = rs.getLong(1) != FxLanguage.SYSTEM_ID;
-                    FxString val = new FxString(ml, rs.getLong(1), rs.getString(2));
-                    FxString fxTag;
-                    String tag = rs.getString(3);
-                    boolean hasTag = false;
-                    if (rs.wasNull())
-                        fxTag = new FxString(FxString.EMPTY).setEmpty();
-                    else {
-                        fxTag = new FxString(ml, rs.getLong(1), tag);
-                        hasTag = true;
-                    }
-                    while (rs.next()) {
-                        val.setTranslation(rs.getLong(1), rs.getString(2));
-                        if (hasTag)
-                            fxTag.setTranslation(rs.getLong(1), rs.getString(3));
-                    }
-                    return new FxPhrase(mandator, phraseKey, val, fxTag).setId(id).flagHidden(hidden).flagCategory(category);
+            ps.setLong(2, mandator);
+            if (category != FxPhraseCache.ANY_CATEGORY)
+                ps.setInt(3, category);
+            final ResultSet rs = ps.executeQuery();
+            final List<Long> languages = Lists.newArrayList();
+            final List<String> values = Lists.newArrayList();
+            final List<String> tags = Lists.newArrayList();
+            long id = -1;
+            boolean hidden = false;
+            while (rs != null && rs.next()) {
+                if (languages.isEmpty()) {
+                    id = rs.getLong(4);
+                    hidden = rs.getBoolean(5);
                 }
-                if (rs != null)
-                    rs.close();
+                languages.add(rs.getLong(1));
+                values.add(rs.getString(2));
+                tags.add(rs.getString(3));
             }
+            entry = languages.isEmpty() ? FxPhraseCache.Entry.notFound() : createCacheEntry(id, hidden, languages, values, tags);
+            FxPhraseCache.put(mandator, category, phraseKey, entry);
+            return entry;
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
         } finally {
             Database.closeObjects(PhraseEngineBean.class, con, ps);
         }
-        throw new FxNotFoundException("ex.phrase.key.notFound", phraseKey);
+    }
+
+    private static FxPhraseCache.Entry createCacheEntry(long id, boolean hidden, List<Long> languages, List<String> values, List<String> tags) {
+        final long[] langs = new long[languages.size()];
+        for (int i = 0; i < langs.length; i++)
+            langs[i] = languages.get(i);
+        return new FxPhraseCache.Entry(id, hidden, langs, values.toArray(new String[values.size()]), tags.toArray(new String[tags.size()]));
     }
 
     /**
@@ -960,6 +1000,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
             ps.setLong(1, mandatorId);
             ps.executeUpdate();
             removePhraseSequencer(mandatorId);
+            FxPhraseCache.removeMandator(mandatorId);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -992,6 +1033,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
             ps.setLong(1, mandatorId);
             ps.executeUpdate();
             //sequencer can not be removed if categories is not any
+            FxPhraseCache.removeMandator(mandatorId);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -2989,6 +3031,7 @@ public class PhraseEngineBean implements PhraseEngine, PhraseEngineLocal {
             if (seq.sequencerExists(SEQ_NAME))
                 seq.removeSequencer(SEQ_NAME);
             seq.createSequencer(SEQ_NAME, false, currentId + 1);
+            FxPhraseCache.removeMandator(targetMandator);
         } catch (SQLException exc) {
             EJBUtils.rollback(ctx);
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage()).asRuntimeException();
@@ -58,6 +58,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 import javax.annotation.Resource;
 import javax.ejb.*;
@@ -70,6 +71,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.flexive.core.DatabaseConst.*;
 import static com.flexive.shared.EJBLookup.getDivisionConfigurationEngine;
@@ -99,9 +101,21 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
     static class LocalScriptingCache {
 
         /**
-         * Cache for compile groovy scripts
+         * Cache for compiled groovy script classes. A new script instance is created for every invocation,
+         * so the same script can be executed concurrently.
          */
-        static ConcurrentMap<Long, Script> groovyScriptCache = new ConcurrentHashMap<Long, Script>(50);
+        static ConcurrentMap<Long, Class<? extends Script>> groovyScriptCache = new ConcurrentHashMap<Long, Class<? extends Script>>(50);
+
+        /**
+         * Cache for the source code of cached non-groovy (JSR-223) scripts, the compiled scripts are
+         * cached by {@link JDK6Scripting}.
+         */
+        static ConcurrentMap<Long, String> scriptCodeCache = new ConcurrentHashMap<Long, String>(50);
+
+        /**
+         * Execution statistics by script id (not cleared when the script cache is reset)
+         */
+        static final ConcurrentMap<Long, ScriptCounter> scriptCounters = new ConcurrentHashMap<Long, ScriptCounter>(50);
 
         /**
          * Timestamp of the script cache
@@ -115,25 +129,23 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
 
         static volatile List<FxScriptRunInfo> runOnceInfos = null;
 
-        static Script checkoutScript(long scriptId, FxScriptInfo si, String code) throws FxInvalidParameterException {
-            Script script = LocalScriptingCache.groovyScriptCache.get(scriptId);
-            if (script == null) {
-                try {
-                    GroovyShell shell = new GroovyShell();
-                    script = shell.parse(code);
-                } catch (CompilationFailedException e) {
-                    throw new FxInvalidParameterException(si.getName(), "ex.general.scripting.compileFailed", si.getName(), e.getMessage());
-                } catch (Throwable t) {
-                    throw new FxInvalidParameterException(si.getName(), "ex.general.scripting.exception", si.getName(), t.getMessage());
+        /**
+         * Record a script execution in the statistics.
+         *
+         * @param scriptId  the script id
+         * @param nanos     the execution time in nanoseconds
+         * @param success   false if the script threw an exception
+         */
+        static void recordExecution(long scriptId, long nanos, boolean success) {
+            ScriptCounter counter = scriptCounters.get(scriptId);
+            if (counter == null) {
+                final ScriptCounter newCounter = new ScriptCounter();
+                counter = scriptCounters.putIfAbsent(scriptId, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
                 }
-                if (si.isCached())
-                    LocalScriptingCache.groovyScriptCache.putIfAbsent(scriptId, script);
             }
-            return null;
-        }
-
-        static void checkinScript(long scriptId, Script script) {
-
+            counter.record(nanos, success);
         }
 
         /**
@@ -150,13 +162,28 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
          */
         @SuppressWarnings({"ThrowableInstanceNeverThrown"})
         static FxScriptResult internal_runScript(String name, FxScriptBinding binding, String code) throws FxApplicationException {
+            return internal_runScript(-1, name, binding, code);
+        }
+
+        /**
+         * Execute a script. Non-groovy scripts are compiled once and cached if a script id is given.
+         *
+         * @param scriptId  the script id used to cache non-groovy scripts, or -1 to disable caching
+         * @param name      name of the script, extension is needed to choose interpreter
+         * @param binding   bindings to apply
+         * @param code      the script code
+         * @return last script evaluation result
+         * @throws FxApplicationException on errors
+         */
+        @SuppressWarnings({"ThrowableInstanceNeverThrown"})
+        static FxScriptResult internal_runScript(long scriptId, String name, FxScriptBinding binding, String code) throws FxApplicationException {
             if (name == null)
                 name = "unknown";
             if (name.indexOf('.') < 0)
                 throw new FxInvalidParameterException(name, "ex.general.scripting.noExtension", name);
             if (!FxSharedUtils.isGroovyScript(name)) {
                 try {
-                    return JDK6Scripting.runScript(name, binding, code);
+                    return JDK6Scripting.runScript(scriptId, name, binding, code);
                 } catch (Throwable t) {
                     if (name.endsWith(".class")) {
                         // probable cause: compiled script files (or stubs) ended up in the scripts folder
@@ -202,6 +229,32 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
 
     }
 
+    /**
+     * Execution counters of a single script
+     */
+    static class ScriptCounter {
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean success) {
+            invocations.incrementAndGet();
+            if (!success) {
+                errors.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        FxScriptStatistics toStatistics(long scriptId, String name) {
+            return new FxScriptStatistics(scriptId, name, invocations.get(), errors.get(), totalNanos.get(), maxNanos.get());
+        }
+    }
+
     private static final Object RUNONCE_LOCK = new Object();
 
     /**
@@ -306,8 +359,11 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
             ps.setLong(7, script.getId());
             ps.executeUpdate();
             // remove script from cache if necessary
-            if (FxSharedUtils.isGroovyScript(script.getName()) && !script.isCached())
+            if (!script.isCached()) {
                 LocalScriptingCache.groovyScriptCache.remove(script.getId());
+                LocalScriptingCache.scriptCodeCache.remove(script.getId());
+                JDK6Scripting.removeCachedScript(script.getId());
+            }
             success = true;
         } catch (SQLException exc) {
             throw new FxUpdateException(LOG, exc, "ex.scripting.update.failed", script.getName(), exc.getMessage());
@@ -375,6 +431,8 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
     private void resetLocalCaches(long timeStamp) {
         LocalScriptingCache.scriptCacheTimestamp = timeStamp;
         LocalScriptingCache.groovyScriptCache.clear();
+        LocalScriptingCache.scriptCodeCache.clear();
+        JDK6Scripting.clearScriptCache();
         LocalScriptingCache.scriptsByEvent.clear();
     }
 
@@ -544,8 +602,10 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
             Database.closeObjects(ScriptingEngineBean.class, con, ps);
             if (!success)
                 EJBUtils.rollback(ctx);
-            else
+            else {
+                LocalScriptingCache.scriptCounters.remove(scriptId);
                 StructureLoader.reloadScripting(FxContext.get().getDivisionId());
+            }
         }
     }
 
@@ -573,8 +633,32 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
             return new FxScriptResult(binding, null);
         }
 
-        if (!FxSharedUtils.isGroovyScript(si.getName()))
-            return LocalScriptingCache.internal_runScript(si.getName(), binding, loadScriptCode(si.getId()));
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final FxScriptResult result = runActiveScript(si, binding);
+            success = true;
+            return result;
+        } finally {
+            LocalScriptingCache.recordExecution(si.getId(), System.nanoTime() - start, success);
+        }
+    }
+
+    private FxScriptResult runActiveScript(FxScriptInfo si, FxScriptBinding binding) throws FxApplicationException {
+        final long scriptId = si.getId();
+        if (!FxSharedUtils.isGroovyScript(si.getName())) {
+            if (!si.isCached())
+                return LocalScriptingCache.internal_runScript(si.getName(), binding, loadScriptCode(scriptId));
+            long timeStamp = CacheAdmin.getEnvironment().getTimeStamp();
+            if (timeStamp != LocalScriptingCache.scriptCacheTimestamp)
+                resetLocalCaches(timeStamp);
+            String code = LocalScriptingCache.scriptCodeCache.get(scriptId);
+            if (code == null) {
+                code = loadScriptCode(scriptId);
+                LocalScriptingCache.scriptCodeCache.put(scriptId, code);
+            }
+            return LocalScriptingCache.internal_runScript(scriptId, si.getName(), binding, code);
+        }
 
         if (si.getEvent() == FxScriptEvent.Manual)
             FxPermissionUtils.checkRole(FxContext.getUserTicket(), Role.ScriptExecution);
@@ -582,8 +666,9 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
         long timeStamp = CacheAdmin.getEnvironment().getTimeStamp();
         if (timeStamp != LocalScriptingCache.scriptCacheTimestamp)
             resetLocalCaches(timeStamp);
-        Script script = LocalScriptingCache.groovyScriptCache.get(scriptId);
-        if (script == null) {
+        final Class<? extends Script> scriptClass = LocalScriptingCache.groovyScriptCache.get(scriptId);
+        Script script;
+        if (scriptClass == null) {
             try {
                 GroovyShell shell = new GroovyShell();
                 script = shell.parse(loadScriptCode(scriptId));
@@ -593,11 +678,11 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
                 throw new FxInvalidParameterException(si.getName(), "ex.general.scripting.exception", si.getName(), t.getMessage());
             }
             if (si.isCached()) {
-            	Script cachedScript = LocalScriptingCache.groovyScriptCache.putIfAbsent(scriptId, script);
-                if (cachedScript != null) {
-                    script = cachedScript;
-                }
+                LocalScriptingCache.groovyScriptCache.putIfAbsent(scriptId, script.getClass());
             }
+        } else {
+            // every invocation gets its own script instance and binding
+            script = InvokerHelper.createScript(scriptClass, new Binding());
         }
 
         if (binding == null)
@@ -608,24 +693,46 @@ public class ScriptingEngineBean implements ScriptingEngine, ScriptingEngineLoca
             binding.setVariable("environment", CacheAdmin.getEnvironment());
         binding.setVariable("scriptname", si.getName());
 
-        synchronized (script) {
-            try {
-                Object result;
-                script.setBinding(new Binding(binding.getProperties()));
-                result = script.run();
-                return new FxScriptResult(new FxScriptBinding(binding.getProperties()), result);
-            } catch (Throwable e) {
-                if (e instanceof FxApplicationException)
-                    throw (FxApplicationException) e;
-                LOG.error("Scripting error: " + e.getMessage(), e);
-                throw new FxInvalidParameterException(si.getName(), "ex.general.scripting.exception", si.getName(), e.getMessage());
-            } finally {
-                // don't leave binding in script cache
-                script.setBinding(null);
-            }
+        try {
+            Object result;
+            script.setBinding(new Binding(binding.getProperties()));
+            result = script.run();
+            return new FxScriptResult(new FxScriptBinding(binding.getProperties()), result);
+        } catch (Throwable e) {
+            if (e instanceof FxApplicationException)
+                throw (FxApplicationException) e;
+            LOG.error("Scripting error: " + e.getMessage(), e);
+            throw new FxInvalidParameterException(si.getName(), "ex.general.scripting.exception", si.getName(), e.getMessage());
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<FxScriptStatistics> getScriptStatistics() {
+        final Map<Long, String> names = new HashMap<Long, String>();
+        for (FxScriptInfo si : CacheAdmin.getEnvironment().getScripts()) {
+            names.put(si.getId(), si.getName());
+        }
+        final List<FxScriptStatistics> result = new ArrayList<FxScriptStatistics>(LocalScriptingCache.scriptCounters.size());
+        for (Map.Entry<Long, ScriptCounter> entry : new TreeMap<Long, ScriptCounter>(LocalScriptingCache.scriptCounters).entrySet()) {
+            result.add(entry.getValue().toStatistics(entry.getKey(), names.get(entry.getKey())));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void resetScriptStatistics() throws FxApplicationException {
+        FxPermissionUtils.checkRole(FxContext.getUserTicket(), Role.ScriptManagement);
+        LocalScriptingCache.scriptCounters.clear();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -38,6 +38,7 @@ import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.FxContext;
 import com.flexive.shared.FxLanguage;
+import com.flexive.shared.cache.FxTreePathCache;
 import com.flexive.shared.configuration.SystemParameters;
 import com.flexive.shared.content.FxContent;
 import com.flexive.shared.content.FxContentSecurityInfo;
@@ -153,10 +154,24 @@ public class TreeEngineBean implements TreeEngine, TreeEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public long getIdByFQNPath(FxTreeMode mode, long startNode, String path) throws FxApplicationException {
+        final FxTreePathCache cache = CacheAdmin.getTreePathCache();
+        final boolean useCache = isTreePathCacheEnabled();
+        final int divisionId = FxContext.get().getDivisionId();
+        final long timestamp = useCache ? CacheAdmin.getTreeModificationTimestamp() : -1;
+        if (useCache) {
+            final Long cachedId = cache.getIdByPath(divisionId, mode, timestamp, startNode, path);
+            if (cachedId != null) {
+                return cachedId;
+            }
+        }
         Connection con = null;
         try {
             con = Database.getDbConnection();
-            return StorageManager.getTreeStorage().getIdByFQNPath(con, mode, startNode, path);
+            final long id = StorageManager.getTreeStorage().getIdByFQNPath(con, mode, startNode, path);
+            if (useCache) {
+                cache.putIdByPath(divisionId, mode, timestamp, startNode, path, id);
+            }
+            return id;
         } catch (FxApplicationException ae) {
             throw ae;
         } catch (Throwable t) {
@@ -189,10 +204,24 @@ public class TreeEngineBean implements TreeEngine, TreeEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public String getPathById(FxTreeMode mode, long nodeId) throws FxApplicationException {
+        final FxTreePathCache cache = CacheAdmin.getTreePathCache();
+        final boolean useCache = isTreePathCacheEnabled();
+        final int divisionId = FxContext.get().getDivisionId();
+        final long timestamp = useCache ? CacheAdmin.getTreeModificationTimestamp() : -1;
+        if (useCache) {
+            final String cachedPath = cache.getPathById(divisionId, mode, timestamp, nodeId);
+            if (cachedPath != null) {
+                return cachedPath;
+            }
+        }
         Connection con = null;
         try {
             con = Database.getDbConnection();
-            return StorageManager.getTreeStorage().getPathById(con, mode, nodeId);
+            final String path = StorageManager.getTreeStorage().getPathById(con, mode, nodeId);
+            if (useCache) {
+                cache.putPathById(divisionId, mode, timestamp, nodeId, path);
+            }
+            return path;
         } catch (FxApplicationException ae) {
             throw ae;
         } catch (Throwable t) {
@@ -208,10 +237,24 @@ public class TreeEngineBean implements TreeEngine, TreeEngineLocal {
     @Override
     @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     public long[] getIdChain(FxTreeMode mode, long nodeId) throws FxApplicationException {
+        final FxTreePathCache cache = CacheAdmin.getTreePathCache();
+        final boolean useCache = isTreePathCacheEnabled();
+        final int divisionId = FxContext.get().getDivisionId();
+        final long timestamp = useCache ? CacheAdmin.getTreeModificationTimestamp() : -1;
+        if (useCache) {
+            final long[] cachedChain = cache.getIdChain(divisionId, mode, timestamp, nodeId);
+            if (cachedChain != null) {
+                return cachedChain;
+            }
+        }
         Connection con = null;
         try {
             con = Database.getDbConnection();
-            return StorageManager.getTreeStorage().getIdChain(con, mode, nodeId);
+            final long[] chain = StorageManager.getTreeStorage().getIdChain(con, mode, nodeId);
+            if (useCache && chain != null) {
+                cache.putIdChain(divisionId, mode, timestamp, nodeId, chain);
+            }
+            return chain;
         } catch (FxApplicationException ae) {
             throw ae;
         } catch (Throwable t) {
@@ -221,6 +264,17 @@ public class TreeEngineBean implements TreeEngine, TreeEngineLocal {
         }
     }
 
+    /**
+     * Returns true if path lookups may be served from (and added to) the tree path cache. Lookups in a request
+     * that modified the tree always query the database, since the modifications are not yet visible
+     * to other transactions.
+     *
+     * @return  true if the tree path cache may be used
+     */
+    private static boolean isTreePathCacheEnabled() {
+        return CacheAdmin.getTreePathCache().isEnabled() && !FxContext.get().getTreeWasModified();
+    }
+
     /**
      * Create a new node
      *
@@ -687,13 +741,25 @@ public class TreeEngineBean implements TreeEngine, TreeEngineLocal {
     public List<String> getPaths(FxTreeMode mode, long... ids) throws FxApplicationException {
         if (ids == null || ids.length == 0)
             return new ArrayList<String>(0);
+        final FxTreePathCache cache = CacheAdmin.getTreePathCache();
+        final boolean useCache = isTreePathCacheEnabled();
+        final int divisionId = FxContext.get().getDivisionId();
+        final long timestamp = useCache ? CacheAdmin.getTreeModificationTimestamp() : -1;
         Connection con = null;
         try {
-            con = Database.getDbConnection();
             List<String> res = new ArrayList<String>(ids.length);
             TreeStorage tree = StorageManager.getTreeStorage();
-            for (long id : ids)
-                res.add(tree.getPathById(con, mode, id));
+            for (long id : ids) {
+                String path = useCache ? cache.getPathById(divisionId, mode, timestamp, id) : null;
+                if (path == null) {
+                    if (con == null)
+                        con = Database.getDbConnection();
+                    path = tree.getPathById(con, mode, id);
+                    if (useCache)
+                        cache.putPathById(divisionId, mode, timestamp, id, path);
+                }
+                res.add(path);
+            }
             return res;
         } catch (FxApplicationException ae) {
             throw ae;
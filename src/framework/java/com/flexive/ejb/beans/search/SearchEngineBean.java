@@ -37,6 +37,7 @@ import com.flexive.core.storage.StorageManager;
 import com.flexive.ejb.beans.EJBUtils;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.FxContext;
+import com.flexive.shared.FxSharedUtils;
 import com.flexive.shared.configuration.Parameter;
 import com.flexive.shared.configuration.ParameterDataBean;
 import com.flexive.shared.configuration.ParameterPathBean;
@@ -121,6 +122,25 @@ public class SearchEngineBean implements SearchEngine, SearchEngineLocal {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public FxResultSet search(String query, int startIndex, int fetchRows, FxSQLSearchParams params, FxResultRowHandler handler) throws FxApplicationException {
+        FxSharedUtils.checkParameterNull(handler, "handler");
+        try {
+            if (params == null) {
+                params = new FxSQLSearchParams();
+            }
+            return new SqlSearch(seq, briefcase, treeEngine, query, startIndex, fetchRows,
+                    params, resultPreferences, AdminResultLocations.DEFAULT, ResultViewType.LIST).executeQuery(handler);
+        } catch (FxApplicationException exc) {
+            EJBUtils.rollback(ctx);
+            throw exc;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -894,9 +894,8 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                 throw new FxInvalidParameterException("ASSIGNMENT", "ex.structure.assignment.noEditAssignment");
             try {
                 if (reload) {
-                    StructureLoader.reload(con);
-                    //clear instance cache
-                    CacheAdmin.expireCachedContents();
+                    // also expires the cached contents
+                    StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                     //check for possible side effects on the flat storage
                     if (divisionConfig.isFlatStorageEnabled()) {
                         //check if flattened assignments now are required to be unflattened
@@ -910,7 +909,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                                     // moved to other storage type, flatten again
                                     fs.flatten(con, pa.getFlatStorageMapping().getStorage(), pa);
                                 }
-                                StructureLoader.reload(con);
+                                StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                             }
                         } else if (assignment instanceof FxGroupAssignment) {
                             boolean needReload = false;
@@ -928,12 +927,12 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                                 }
                             }
                             if (needReload)
-                                StructureLoader.reload(con);
+                                StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                         }
                         if (divisionConfig.get(SystemParameters.FLATSTORAGE_AUTO)) {
                             //check if some assignments can now be flattened
                             FxFlatStorageManager.getInstance().flattenType(con, fs.getDefaultStorage(), assignment.getAssignedType(), null);
-                            StructureLoader.reload(con);
+                            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                         }
                     }
                 }
@@ -1510,7 +1509,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                         }
                         if (flattened.size() > 0) {
                             try {
-                                StructureLoader.reload(con);
+                                StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                                 final FxEnvironment envNew = CacheAdmin.getEnvironment();
                                 boolean needReload = false;
                                 for (FxPropertyAssignment ref : flattened) {
@@ -1521,7 +1520,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                                     }
                                 }
                                 if (needReload)
-                                    StructureLoader.reload(con);
+                                    StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                             } catch (FxCacheException e) {
                                 EJBUtils.rollback(ctx);
                                 throw new FxCreateException(e, "ex.cache", e.getMessage());
@@ -2158,7 +2157,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
                     final FxFlatStorage fs = FxFlatStorageManager.getInstance();
                     if (fs.isFlattenable(pa)) {
                         try {
-                            StructureLoader.reload(con);
+                            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                         } catch (FxCacheException e) {
                             EJBUtils.rollback(ctx);
                             throw new FxCreateException(e, "ex.cache", e.getMessage());
@@ -2451,7 +2450,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
 
             FxStructureUtils.removeOrphanedProperties(con);
             FxStructureUtils.removeOrphanedGroups(con);
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
             htracker.track(assignment.getAssignedType(),
                     disableAssignment ? "history.assignment.remove" : "history.assignment.disable",
                     assignment.getXPath(), assignmentId, removeSubAssignments, removeDerivedAssignments);
@@ -2549,7 +2548,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
             con = Database.getDbConnection();
             reload = updateProperty(con, property);
             if (reload)
-                StructureLoader.reload(con);
+                StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (SQLException e) {
             EJBUtils.rollback(ctx);
             throw new FxCreateException(LOG, e, "ex.db.sqlError", e.getMessage());
@@ -2579,7 +2578,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
             con = Database.getDbConnection();
             reload = updateGroup(con, group);
             if (reload)
-                StructureLoader.reload(con);
+                StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (SQLException e) {
             EJBUtils.rollback(ctx);
             throw new FxCreateException(LOG, e, "ex.db.sqlError", e.getMessage());
@@ -2780,7 +2779,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
             final FxFlatStorage fs = FxFlatStorageManager.getInstance();
             fs.flatten(con, storage, assignment);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (FxApplicationException e) {
             EJBUtils.rollback(ctx);
             throw e;
@@ -2807,7 +2806,7 @@ public class AssignmentEngineBean implements AssignmentEngine, AssignmentEngineL
 
             FxFlatStorageManager.getInstance().unflatten(con, assignment);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (FxApplicationException e) {
             EJBUtils.rollback(ctx);
             throw e;
@@ -165,7 +165,7 @@ public class SelectListEngineBean implements SelectListEngine, SelectListEngineL
             }
             try {
                 if (changes)
-                    StructureLoader.reload(null);
+                    StructureLoader.reloadSelectLists(FxContext.get().getDivisionId(), null);
             } catch (FxCacheException e1) {
                 EJBUtils.rollback(ctx);
                 throw new FxCreateException(LOG, e1, "ex.cache", e1.getMessage());
@@ -243,7 +243,7 @@ public class SelectListEngineBean implements SelectListEngine, SelectListEngineL
         } else
             return id;
         try {
-            StructureLoader.reload(null);
+            StructureLoader.reloadSelectLists(FxContext.get().getDivisionId(), null);
         } catch (FxCacheException e1) {
             EJBUtils.rollback(ctx);
             throw new FxCreateException(LOG, e1, "ex.cache", e1.getMessage());
@@ -304,7 +304,7 @@ public class SelectListEngineBean implements SelectListEngine, SelectListEngineL
             ps = con.prepareStatement(sb.toString());
             ps.setLong(1, list.getId());
             ps.executeUpdate();
-            StructureLoader.reload(null);
+            StructureLoader.reloadSelectLists(FxContext.get().getDivisionId(), null);
         } catch (SQLException e) {
             e.printStackTrace();
             EJBUtils.rollback(ctx);
@@ -351,7 +351,7 @@ public class SelectListEngineBean implements SelectListEngine, SelectListEngineL
             ps = con.prepareStatement(sb.toString());
             ps.setLong(1, item.getId());
             ps.executeUpdate();
-            StructureLoader.reload(null);
+            StructureLoader.reloadSelectLists(FxContext.get().getDivisionId(), null);
         } catch (SQLException e) {
             EJBUtils.rollback(ctx);
             throw new FxCreateException(LOG, e, "ex.db.sqlError", e.getMessage());
@@ -187,7 +187,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
             ps.executeUpdate();
             Database.storeFxString(type.getLabel(), con, TBL_STRUCT_TYPES, "DESCRIPTION", "ID", newId);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
             FxType thisType = CacheAdmin.getEnvironment().getType(newId);
             htracker.track(thisType, "history.type.create", type.getName(), newId);
 
@@ -241,7 +241,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
             // store structure options
             storeTypeOptions(con, TBL_STRUCT_TYPES_OPTIONS, "ID", newId, type.getOptions(), false);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (SQLException e) {
             if (StorageManager.isUniqueConstraintViolation(e)) {
                 EJBUtils.rollback(ctx);
@@ -322,7 +322,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
 
             FxFlatStorageManager.getInstance().flattenType(con, storage, CacheAdmin.getEnvironment().getType(typeId), options);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (FxApplicationException e) {
             EJBUtils.rollback(ctx);
             throw e;
@@ -356,7 +356,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
             final FxFlatStorage flatStorage = FxFlatStorageManager.getInstance();
             flatStorage.flattenType(con, flatStorage.getDefaultStorage(), CacheAdmin.getEnvironment().getType(typeId), options);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (FxApplicationException e) {
             EJBUtils.rollback(ctx);
             throw e;
@@ -388,7 +388,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
                     flatStorage.unflatten(con, pa);
             }
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
         } catch (FxApplicationException e) {
             EJBUtils.rollback(ctx);
             throw e;
@@ -902,7 +902,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
             //sync back to cache
             try {
                 if (needReload)
-                    StructureLoader.reload(con);
+                    StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
                 else {
                     StructureLoader.updateType(FxContext.get().getDivisionId(), loadType(con, type.getId()));
                     // reload any derived types if type options have changed
@@ -1088,7 +1088,7 @@ public class TypeEngineBean implements TypeEngine, TypeEngineLocal {
             FxStructureUtils.removeOrphanedProperties(con);
             FxStructureUtils.removeOrphanedGroups(con);
 
-            StructureLoader.reload(con);
+            StructureLoader.reloadTypes(FxContext.get().getDivisionId(), con);
             htracker.track(type, "history.type.remove", type.getName(), type.getId());
         } catch (SQLException e) {
             if (StorageManager.isForeignKeyViolation(e)) {
@@ -31,6 +31,7 @@
  ***************************************************************/
 package com.flexive.ejb.mbeans;
 
+import com.flexive.core.HistoryWriter;
 import com.flexive.core.stream.BinaryDownloadProtocol;
 import com.flexive.core.stream.BinaryUploadProtocol;
 import com.flexive.core.structure.StructureLoader;
@@ -39,6 +40,7 @@ import com.flexive.shared.cache.FxBackingCache;
 import com.flexive.shared.cache.FxBackingCacheProvider;
 import com.flexive.shared.cache.FxBackingCacheProviderFactory;
 import com.flexive.shared.cache.FxCacheException;
+import com.flexive.shared.cache.FxPhraseCache;
 import com.flexive.shared.mbeans.FxCacheMBean;
 import com.flexive.shared.mbeans.FxCacheProxy;
 import com.flexive.shared.mbeans.MBeanHelper;
@@ -72,6 +74,7 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
     private long nodeStartupTime = -1;
 
     private FxBackingCacheProvider cacheProvider = null;
+    private FxContentCacheListener contentCacheListener = null;
 
 
     /**
@@ -90,6 +93,8 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
                 cacheProvider.getInstance().put("/" + this.getClass().getName(), SYSTEM_UP_KEY, System.currentTimeMillis());
             }
             nodeStartupTime = System.currentTimeMillis();
+            contentCacheListener = new FxContentCacheListener();
+            cacheProvider.getInstance().getCache().addCacheListener(contentCacheListener);
         }
         return cacheProvider.getInstance();
     }
@@ -171,9 +176,14 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
         //EJBLookup.getTimerServiceInterface().uninstall();
         //System.out.println("timers uninstalled");
         stopLocalStreamServers();
+        HistoryWriter.getInstance().shutdown();
         try {
             if (cacheProvider != null) {
                 cleanupAfterRequest();
+                if (contentCacheListener != null) {
+                    cacheProvider.getInstance().getCache().removeCacheListener(contentCacheListener);
+                    contentCacheListener = null;
+                }
                 cacheProvider.shutdown();
                 cacheProvider = null;
             }
@@ -211,7 +221,16 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
             FxCache.class.getCanonicalName(),
             "[fleXive] Cache MBean",
             new MBeanAttributeInfo[]{
-                    new MBeanAttributeInfo("FxCache", FxCache.class.getCanonicalName(), "", true, false, false)
+                    new MBeanAttributeInfo("FxCache", FxCache.class.getCanonicalName(), "", true, false, false),
+                    new MBeanAttributeInfo("LocalContentCacheHits", "long", "Hits of the node-local content cache", true, false, false),
+                    new MBeanAttributeInfo("LocalContentCacheMisses", "long", "Misses of the node-local content cache", true, false, false),
+                    new MBeanAttributeInfo("LocalContentCacheEvictions", "long", "Evictions of the node-local content cache", true, false, false),
+                    new MBeanAttributeInfo("LocalContentCacheSize", "int", "Contents in the node-local content cache", true, false, false),
+                    new MBeanAttributeInfo("TreePathCacheHits", "long", "Hits of the tree path cache", true, false, false),
+                    new MBeanAttributeInfo("TreePathCacheMisses", "long", "Misses of the tree path cache", true, false, false),
+                    new MBeanAttributeInfo("TreePathCacheSize", "int", "Entries in the tree path cache", true, false, false),
+                    new MBeanAttributeInfo("PhraseCacheHits", "long", "Hits of the phrase cache", true, false, false),
+                    new MBeanAttributeInfo("PhraseCacheMisses", "long", "Misses of the phrase cache", true, false, false)
             },
             new MBeanConstructorInfo[]{
             },
@@ -415,6 +434,24 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
             return getSystemStartTime();
         else if ("NodeStartTime".equals(attribute))
             return getNodeStartTime();
+        else if ("LocalContentCacheHits".equals(attribute))
+            return getLocalContentCacheHits();
+        else if ("LocalContentCacheMisses".equals(attribute))
+            return getLocalContentCacheMisses();
+        else if ("LocalContentCacheEvictions".equals(attribute))
+            return getLocalContentCacheEvictions();
+        else if ("LocalContentCacheSize".equals(attribute))
+            return getLocalContentCacheSize();
+        else if ("TreePathCacheHits".equals(attribute))
+            return getTreePathCacheHits();
+        else if ("TreePathCacheMisses".equals(attribute))
+            return getTreePathCacheMisses();
+        else if ("TreePathCacheSize".equals(attribute))
+            return getTreePathCacheSize();
+        else if ("PhraseCacheHits".equals(attribute))
+            return getPhraseCacheHits();
+        else if ("PhraseCacheMisses".equals(attribute))
+            return getPhraseCacheMisses();
         return null;  //To change body of implemented methods use File | Settings | File Templates.
     }
 
@@ -444,6 +481,87 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getContentInvalidations(Integer divisionId, Long sinceSequence) throws FxCacheException {
+        getBackingCache();  // make sure the listener is registered
+        return contentCacheListener.getInvalidations(divisionId, sinceSequence);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheHits() {
+        return CacheAdmin.getLocalContentCache().getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheMisses() {
+        return CacheAdmin.getLocalContentCache().getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheEvictions() {
+        return CacheAdmin.getLocalContentCache().getEvictions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLocalContentCacheSize() {
+        return CacheAdmin.getLocalContentCache().getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTreePathCacheHits() {
+        return CacheAdmin.getTreePathCache().getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTreePathCacheMisses() {
+        return CacheAdmin.getTreePathCache().getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTreePathCacheSize() {
+        return CacheAdmin.getTreePathCache().getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPhraseCacheHits() {
+        return FxPhraseCache.getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPhraseCacheMisses() {
+        return FxPhraseCache.getMisses();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -509,6 +627,8 @@ public class FxCache implements FxCacheMBean, DynamicMBean {
                 cleanupAfterRequest();
             } else if ("isPathLockedInTx".equals(actionName)) {
                 return isPathLockedInTx((String) params[0]);
+            } else if ("getContentInvalidations".equals(actionName)) {
+                return getContentInvalidations((Integer) params[0], (Long) params[1]);
             } else {
                 LOG.warn("Tried to call [" + actionName + "] which is not implemented!");
             }
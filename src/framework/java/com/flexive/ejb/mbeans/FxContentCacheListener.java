@@ -0,0 +1,173 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.ejb.mbeans;
+
+import com.flexive.shared.CacheAdmin;
+import com.google.common.collect.Maps;
+import org.jboss.cache.Fqn;
+import org.jboss.cache.notifications.annotation.CacheListener;
+import org.jboss.cache.notifications.annotation.NodeModified;
+import org.jboss.cache.notifications.annotation.NodeRemoved;
+import org.jboss.cache.notifications.annotation.TransactionCompleted;
+import org.jboss.cache.notifications.event.NodeEvent;
+import org.jboss.cache.notifications.event.TransactionCompletedEvent;
+
+import javax.transaction.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listens for modifications of cached contents in the backing cache (both local and replicated from
+ * other cluster nodes) and records them in an invalidation log. The log is used to invalidate
+ * the node-local content caches of all deployments that share the backing cache
+ * (see {@link com.flexive.shared.cache.FxLocalContentCache}).
+ * <p>
+ * Modifications made in a transaction are recorded again when the transaction completes, since
+ * concurrent readers may have seen the previous (committed) value in the meantime.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+@CacheListener
+public class FxContentCacheListener {
+    private static final int LOG_SIZE = 4096;
+    private static final String DIVISION_PREFIX = "Division";
+    private static final String CONTENTCACHE_NODE = CacheAdmin.CONTENTCACHE_BASE.substring(1);
+
+    private final int[] divisionIds = new int[LOG_SIZE];
+    private final long[] contentIds = new long[LOG_SIZE];
+    private final Map<Transaction, List<long[]>> pending = Maps.newHashMap();
+    private long sequence = 0;
+
+    @NodeModified
+    @NodeRemoved
+    public void nodeChanged(NodeEvent event) {
+        if (event.isPre()) {
+            return;
+        }
+        final long[] entry = parseContentPath(event.getFqn());
+        if (entry == null) {
+            return;
+        }
+        synchronized (this) {
+            record((int) entry[0], entry[1]);
+            if (event.getTransaction() != null) {
+                List<long[]> entries = pending.get(event.getTransaction());
+                if (entries == null) {
+                    entries = new ArrayList<long[]>();
+                    pending.put(event.getTransaction(), entries);
+                }
+                entries.add(entry);
+            }
+        }
+    }
+
+    @TransactionCompleted
+    public void transactionCompleted(TransactionCompletedEvent event) {
+        if (event.getTransaction() == null) {
+            return;
+        }
+        synchronized (this) {
+            final List<long[]> entries = pending.remove(event.getTransaction());
+            if (entries != null) {
+                for (long[] entry : entries) {
+                    record((int) entry[0], entry[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the invalidations of the given division since the given sequence.
+     *
+     * @param divisionId    the division ID
+     * @param since         the last sequence returned to the caller, or -1
+     * @return              the current sequence, followed by the invalidated content IDs (-1 if all contents
+     *                      should be removed)
+     */
+    public synchronized long[] getInvalidations(int divisionId, long since) {
+        if (since == -1 || since > sequence) {
+            // first synchronization or restarted log, drop everything
+            return new long[]{sequence, -1};
+        }
+        if (sequence - since > LOG_SIZE) {
+            // log overflow
+            return new long[]{sequence, -1};
+        }
+        final long[] result = new long[(int) (sequence - since) + 1];
+        int count = 1;
+        for (long seq = since; seq < sequence; seq++) {
+            final int index = (int) (seq % LOG_SIZE);
+            if (divisionIds[index] == divisionId) {
+                result[count++] = contentIds[index];
+            }
+        }
+        result[0] = sequence;
+        final long[] trimmed = new long[count];
+        System.arraycopy(result, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    private void record(int divisionId, long id) {
+        final int index = (int) (sequence % LOG_SIZE);
+        divisionIds[index] = divisionId;
+        contentIds[index] = id;
+        sequence++;
+    }
+
+    /**
+     * Parse a cache path of the form /Division[id]/FxContent[/contentId].
+     *
+     * @param fqn   the cache path
+     * @return      the division ID and the content ID (-1 for the content cache root node), or null if the
+     *              path does not denote a cached content
+     */
+    private static long[] parseContentPath(Fqn<?> fqn) {
+        if (fqn.size() < 2 || fqn.size() > 3 || !CONTENTCACHE_NODE.equals(String.valueOf(fqn.get(1)))) {
+            return null;
+        }
+        final String division = String.valueOf(fqn.get(0));
+        if (!division.startsWith(DIVISION_PREFIX)) {
+            return null;
+        }
+        try {
+            return new long[]{
+                    Integer.parseInt(division.substring(DIVISION_PREFIX.length())),
+                    fqn.size() == 3 ? Long.parseLong(String.valueOf(fqn.get(2))) : -1
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -32,6 +32,8 @@
 package com.flexive.shared;
 
 import com.flexive.shared.cache.FxCacheException;
+import com.flexive.shared.cache.FxLocalContentCache;
+import com.flexive.shared.cache.FxTreePathCache;
 import com.flexive.shared.configuration.*;
 import com.flexive.shared.configuration.parameters.ParameterFactory;
 import com.flexive.shared.content.FxCachedContent;
@@ -53,6 +55,7 @@ import org.apache.commons.logging.LogFactory;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import java.util.List;
+import java.util.Random;
 
 /**
  * FxCache access
@@ -64,6 +67,11 @@ public class CacheAdmin {
 
     public static final String ROOT_USERTICKETSTORE = "/UserTicketStore";
     public static final String ROOT_WEBDAV_USERTICKETSTORE = "/WebdavUserTicketStore";
+    public static final String ROOT_USERTICKET_GENERATIONS = "/UserTicketGenerations";
+    // key of the user ticket generation of a session, stored below ROOT_USERTICKETSTORE/<session>
+    public static final String USERTICKET_SESSION_GENERATION = "generation";
+    // key of the global user ticket generation below ROOT_USERTICKET_GENERATIONS (see UserTicketStore.KEY_GLOBAL_GENERATION)
+    public static final String USERTICKET_GLOBAL_GENERATION = "global";
     public static final String CACHE_SERVICE_NAME = "flexive:service=FxCache";
     public static final String LANGUAGES_ID = "/FxLang/FxId";
     public static final String LANGUAGES_ISO = "/FxLang/ISO";
@@ -75,6 +83,9 @@ public class CacheAdmin {
     public static final String CONTENTCACHE_BASE = "/FxContent";
     public static final String TREE_BASE = "/FxTree";
     public static final String TREE_MODIFIED_TIMESTAMP = "modified";
+    public static final String CONTENT_MODIFIED_BASE = "/FxContentModified";
+    public static final String CONTENT_MODIFIED_SEQUENCE = "sequence";
+    public static final String BINARY_PREVIEW_MODIFIED_BASE = "/FxBinaryPreviewModified";
 
     private static final String CONTENTCACHE_KEY_STORE = "content";
 
@@ -83,6 +94,8 @@ public class CacheAdmin {
 
     // request-scoped cache for FxEnvironment
     public static final String ATTR_ENVIRONMENT = "$flexive_environment$";
+    // request-scoped flag that indicates that the local content cache was synchronized with the backing cache
+    private static final String ATTR_LOCAL_CONTENT_CACHE_SYNC = "$flexive_localcontentcache_sync$";
 
 
     // "cached" cache beans
@@ -90,6 +103,8 @@ public class CacheAdmin {
     //    private static ThreadLocal<FxEnvironment> requestEnvironment = new ThreadLocal<FxEnvironment>();
     // environment loader lock
     private static final Object ENV_LOCK = new Object();
+    // generator for content modification sequence values
+    private static final Random CONTENT_MODIFIED_SEQUENCES = new Random();
     
     /** 
      * {@see #isSharedCache()}
@@ -103,6 +118,28 @@ public class CacheAdmin {
     // system property to override CACHE_ALL_VERSIONS settings
     private static final String CONFIG_CACHE_ALL_VERSIONS = "flexive.cache.allVersions";
 
+    // system property to set the maximum size (in content data entries) of the local content cache
+    private static final String CONFIG_LOCAL_CONTENT_CACHE_SIZE = "flexive.cache.localContentSize";
+
+    // default local content cache size when the cache is shared (otherwise the local content cache is disabled by default)
+    private static final long DEFAULT_LOCAL_CONTENT_CACHE_SIZE = 200000;
+
+    /**
+     * Node-local content cache in front of the backing cache, see {@link #getLocalContentCache()}.
+     */
+    private static final FxLocalContentCache LOCAL_CONTENT_CACHE;
+
+    // system property to set the maximum number of cached tree path lookups per division and tree mode
+    private static final String CONFIG_TREE_PATH_CACHE_SIZE = "flexive.cache.treePathSize";
+
+    // default maximum number of cached tree path lookups per division and tree mode
+    private static final int DEFAULT_TREE_PATH_CACHE_SIZE = 20000;
+
+    /**
+     * Node-local cache for tree path lookups, see {@link #getTreePathCache()}.
+     */
+    private static final FxTreePathCache TREE_PATH_CACHE;
+
     /**
      * {@see #isWebProfileDeployment}
      */
@@ -122,9 +159,31 @@ public class CacheAdmin {
 
         CACHE_ALL_VERSIONS = Boolean.parseBoolean(System.getProperty(CONFIG_SHARED_CACHE));
 
+        long localContentCacheSize = SHARED_CACHE ? DEFAULT_LOCAL_CONTENT_CACHE_SIZE : 0;
+        if (System.getProperty(CONFIG_LOCAL_CONTENT_CACHE_SIZE) != null) {
+            try {
+                localContentCacheSize = Long.parseLong(System.getProperty(CONFIG_LOCAL_CONTENT_CACHE_SIZE));
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid local content cache size: " + System.getProperty(CONFIG_LOCAL_CONTENT_CACHE_SIZE));
+            }
+        }
+        LOCAL_CONTENT_CACHE = new FxLocalContentCache(localContentCacheSize);
+
+        int treePathCacheSize = DEFAULT_TREE_PATH_CACHE_SIZE;
+        if (System.getProperty(CONFIG_TREE_PATH_CACHE_SIZE) != null) {
+            try {
+                treePathCacheSize = Integer.parseInt(System.getProperty(CONFIG_TREE_PATH_CACHE_SIZE));
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid tree path cache size: " + System.getProperty(CONFIG_TREE_PATH_CACHE_SIZE));
+            }
+        }
+        TREE_PATH_CACHE = new FxTreePathCache(treePathCacheSize);
+
         if (LOG.isInfoEnabled()) {
             LOG.info("EJB web profile deployment: " + (WEB_PROFILE_DEPLOYMENT ? "yes" : "no"));
             LOG.info("Shared cache: " + (SHARED_CACHE ? "yes" : "no") + ". This can be set manually with -D" + CONFIG_SHARED_CACHE + "=true or false");
+            LOG.info("Local content cache size: " + localContentCacheSize + ". This can be set manually with -D" + CONFIG_LOCAL_CONTENT_CACHE_SIZE + "=<size> (0 to disable)");
+            LOG.info("Tree path cache size: " + treePathCacheSize + ". This can be set manually with -D" + CONFIG_TREE_PATH_CACHE_SIZE + "=<size> (0 to disable)");
         }
     }
 
@@ -231,6 +290,55 @@ public class CacheAdmin {
         }
     }
 
+    /**
+     * Returns the cache path of the user ticket store entry of a session.
+     *
+     * @param ctx   the context of the session
+     * @return      the cache path of the user ticket store entry
+     * @since 3.2.1
+     */
+    public static String getUserTicketStorePath(FxContext ctx) {
+        return ROOT_USERTICKETSTORE + "/" + ctx.getApplicationId() +
+                (ctx.isWebDAV() ? "_WebDav" : "") + ":" + ctx.getSessionId();
+    }
+
+    /**
+     * Returns a marker for the user ticket of the current session. The marker changes when a ticket is stored
+     * for or removed from the session (login and logout), when users, groups or ACLs are modified, or when the
+     * environment changes. As long as the marker is unchanged, a previously retrieved ticket of the session
+     * is still valid.
+     * <p>
+     * The environment read by this method is used for the rest of the request.
+     * </p>
+     *
+     * @return  the marker for the user ticket of the current session, or null if it is not available
+     *          (e.g. because the environment was not loaded yet)
+     * @since 3.2.1
+     */
+    public static long[] getUserTicketMarker() {
+        try {
+            final FxCacheMBean cache = getInstance();
+            FxEnvironment environment = getCachedEnvironment();
+            if (environment == null) {
+                environment = (FxEnvironment) cache.get(ENVIRONMENT_BASE, ENVIRONMENT_RUNTIME);
+                if (environment == null) {
+                    return null;
+                }
+                setCachedEnvironment(environment);
+            }
+            final Long sessionGeneration = (Long) cache.get(getUserTicketStorePath(FxContext.get()), USERTICKET_SESSION_GENERATION);
+            final Long globalGeneration = (Long) cache.get(ROOT_USERTICKET_GENERATIONS, USERTICKET_GLOBAL_GENERATION);
+            return new long[]{
+                    sessionGeneration != null ? sessionGeneration : 0,
+                    globalGeneration != null ? globalGeneration : 0,
+                    environment.getTimeStamp()
+            };
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to read user ticket marker: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
     /**
      * Get the FxEnvironment runtime from the cache
      *
@@ -358,6 +466,7 @@ public class CacheAdmin {
             } else {
                 EJBLookup.getEngine(TransCacheEngine.class).putNoTx(cachePath, CONTENTCACHE_KEY_STORE, container);
             }
+            LOCAL_CONTENT_CACHE.remove(FxContext.get().getDivisionId(), content.getContent().getId());
         } catch (FxCacheException e) {
             LOG.warn(e.getMessage(), e);
         }
@@ -371,12 +480,27 @@ public class CacheAdmin {
      */
     public static FxCachedContent getCachedContent(FxPK pk) {
         try {
+            final int divisionId = FxContext.get().getDivisionId();
+            if (LOCAL_CONTENT_CACHE.isEnabled()) {
+                syncLocalContentCache(divisionId);
+                final FxCachedContent cached = LOCAL_CONTENT_CACHE.get(divisionId, pk);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            final String cachePath = getContentCachePath(pk.getId());
+            final long stamp = LOCAL_CONTENT_CACHE.getInvalidationStamp(pk.getId());
             FxCachedContentContainer container = (FxCachedContentContainer) getInstance().get(
-                    getContentCachePath(pk.getId()),
+                    cachePath,
                     CONTENTCACHE_KEY_STORE
             );
-            if (container != null)
+            if (container != null) {
+                if (LOCAL_CONTENT_CACHE.isEnabled() && !getInstance().isPathLockedInTx(cachePath)) {
+                    // don't publish data that may be modified by the current transaction
+                    LOCAL_CONTENT_CACHE.put(divisionId, container, stamp);
+                }
                 return container.get(pk);
+            }
             return null;
         } catch (FxCacheException e) {
             LOG.warn(e.getMessage(), e);
@@ -388,6 +512,36 @@ public class CacheAdmin {
         return CONTENTCACHE_BASE + "/" + id;
     }
 
+    /**
+     * Remove all contents from the local content cache that were changed in the backing cache, e.g. by another
+     * cluster node. This is done once per request.
+     *
+     * @param divisionId    the division ID
+     * @throws FxCacheException on cache errors
+     */
+    private static void syncLocalContentCache(int divisionId) throws FxCacheException {
+        final FxContext ctx = FxContext.get();
+        if (ctx.getAttribute(ATTR_LOCAL_CONTENT_CACHE_SYNC) == null) {
+            LOCAL_CONTENT_CACHE.applyInvalidations(divisionId,
+                    getInstance().getContentInvalidations(divisionId, LOCAL_CONTENT_CACHE.getSyncedSequence(divisionId)));
+            ctx.setAttribute(ATTR_LOCAL_CONTENT_CACHE_SYNC, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns the node-local content cache. It is checked before the backing cache in
+     * {@link #getCachedContent(FxPK)} and avoids the cache MBean invocation and, for a shared cache,
+     * the deserialization of the cached content. The cache size can be set with
+     * {@code -Dflexive.cache.localContentSize=<number of content data entries>}, by default it is
+     * enabled only for shared caches.
+     *
+     * @return  the node-local content cache
+     * @since 3.2.1
+     */
+    public static FxLocalContentCache getLocalContentCache() {
+        return LOCAL_CONTENT_CACHE;
+    }
+
 
     /**
      * Expire all cached versions of a content with the requested id
@@ -400,6 +554,7 @@ public class CacheAdmin {
         try {
 //            System.out.println("=> Expired cache for id "+id);
             getInstance().remove(getContentCachePath(id), CONTENTCACHE_KEY_STORE);
+            LOCAL_CONTENT_CACHE.remove(FxContext.get().getDivisionId(), id);
         } catch (FxCacheException e) {
             LOG.warn(e.getMessage(), e);
         }
@@ -411,11 +566,98 @@ public class CacheAdmin {
     public static void expireCachedContents() {
         try {
             getInstance().remove(CONTENTCACHE_BASE);
+            LOCAL_CONTENT_CACHE.clear(FxContext.get().getDivisionId());
         } catch (FxCacheException e) {
             LOG.warn(e.getMessage(), e);
         }
     }
 
+    /**
+     * Flag the contents of the current division as modified by changing the content modification sequence.
+     * Called by the content engine when a content instance was created, saved or removed.
+     * <p>
+     * The new value is chosen randomly (like the user ticket generations), since a read-and-increment
+     * of the cached value is not atomic across cluster nodes and concurrent modifications on different nodes
+     * would otherwise produce the same value.
+     * </p>
+     *
+     * @since 3.2.1
+     */
+    public static void setContentWasModified() {
+        try {
+            final Object current = getInstance().get(CONTENT_MODIFIED_BASE, CONTENT_MODIFIED_SEQUENCE);
+            long sequence;
+            do {
+                sequence = CONTENT_MODIFIED_SEQUENCES.nextLong();
+            } while (sequence == -1 || (current instanceof Long && (Long) current == sequence));
+            getInstance().put(CONTENT_MODIFIED_BASE, CONTENT_MODIFIED_SEQUENCE, sequence);
+        } catch (FxCacheException e) {
+            LOG.error("Failed to set content modification sequence", e);
+        }
+    }
+
+    /**
+     * Returns the content modification sequence of the current division. The sequence changes
+     * whenever a content instance of the division is created, saved or removed (also on other cluster nodes),
+     * so it can be used to detect content modifications since a previous call. The values are not ordered,
+     * they may only be compared for equality.
+     *
+     * @return  the current content modification sequence, or -1 if it could not be determined
+     * @since 3.2.1
+     */
+    public static long getContentModificationSequence() {
+        try {
+            final Object sequence = getInstance().get(CONTENT_MODIFIED_BASE, CONTENT_MODIFIED_SEQUENCE);
+            if (sequence == null) {
+                setContentWasModified();
+                final Object initial = getInstance().get(CONTENT_MODIFIED_BASE, CONTENT_MODIFIED_SEQUENCE);
+                return initial instanceof Long ? (Long) initial : -1;
+            }
+            if (sequence instanceof Long)
+                return (Long) sequence;
+            LOG.error("Content modification sequence expected as Long, but was: " + sequence.getClass().getCanonicalName());
+            return -1;
+        } catch (FxCacheException e) {
+            LOG.error("Failed to get content modification sequence", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Flag the previews of a binary as modified. Must be called when the previews of an existing binary
+     * are replaced, since the binary ID, version and quality remain unchanged.
+     *
+     * @param binaryId  the binary ID
+     * @since 3.2.1
+     */
+    public static void setBinaryPreviewModified(long binaryId) {
+        try {
+            final Object current = getInstance().get(BINARY_PREVIEW_MODIFIED_BASE, binaryId);
+            getInstance().put(BINARY_PREVIEW_MODIFIED_BASE, binaryId,
+                    Math.max(System.currentTimeMillis(), current instanceof Long ? (Long) current + 1 : 0));
+        } catch (FxCacheException e) {
+            LOG.error("Failed to set binary preview modification timestamp", e);
+        }
+    }
+
+    /**
+     * Returns the timestamp of the last preview modification of a binary
+     * (see {@link #setBinaryPreviewModified(long)}).
+     *
+     * @param binaryId  the binary ID
+     * @return  the timestamp of the last preview modification, or 0 if the previews were not modified
+     * @since 3.2.1
+     */
+    public static long getBinaryPreviewModification(long binaryId) {
+        try {
+            final Object timestamp = getInstance().get(BINARY_PREVIEW_MODIFIED_BASE, binaryId);
+            return timestamp instanceof Long ? (Long) timestamp : 0;
+        } catch (FxCacheException e) {
+            LOG.error("Failed to get binary preview modification timestamp", e);
+            return 0;
+        }
+    }
+
     /**
      * Called from external methods when the environment changed.
      */
@@ -476,6 +718,19 @@ public class CacheAdmin {
         }
     }
 
+    /**
+     * Returns the node-local cache for tree path lookups (path to node ID, node ID to path, ID chains).
+     * Its entries are invalidated by the tree modification timestamp ({@link #getTreeModificationTimestamp()}).
+     * The maximum number of entries per division and tree mode can be set with
+     * {@code -Dflexive.cache.treePathSize=<size>} (0 disables the cache).
+     *
+     * @return  the tree path cache
+     * @since 3.2.1
+     */
+    public static FxTreePathCache getTreePathCache() {
+        return TREE_PATH_CACHE;
+    }
+
     /**
      * Get the timestamp of the last tree modification
      *
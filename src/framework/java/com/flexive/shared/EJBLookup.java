@@ -122,6 +122,22 @@ public class EJBLookup {
         return getEngine(SearchEngine.class);
     }
 
+    /**
+     * Lookup of the local interface of the SqlSearch EJB, e.g. for streaming searches. Only available
+     * in the VM of the EJB container (i.e. in web applications and the embedded container).
+     *
+     * @return a reference to the local interface of the SqlSearch EJB
+     * @throws com.flexive.shared.exceptions.FxRuntimeException if only a remote interface is available
+     * @since 3.2.1
+     */
+    public static SearchEngineLocal getSearchEngineLocal() {
+        final SearchEngine engine = getSearchEngine();
+        if (!(engine instanceof SearchEngineLocal)) {
+            throw new FxLookupException("The local interface of the search engine is not available").asRuntimeException();
+        }
+        return (SearchEngineLocal) engine;
+    }
+
     /**
      * Lookup of the Briefcase EJB.
      *
@@ -128,6 +128,14 @@ public class FxContext implements Serializable {
         session.setAttribute("LAST_USERTICKET", lastUserTicket);
     }
 
+    private static long[] getLastUserTicketMarker(HttpSession session) {
+        return (long[]) session.getAttribute("LAST_USERTICKET_MARKER");
+    }
+
+    private static void setLastUserTicketMarker(HttpSession session, long[] marker) {
+        session.setAttribute("LAST_USERTICKET_MARKER", marker);
+    }
+
     public UserTicket getTicket() {
         if (getRunAsSystem() && ticket != null) {
             return ticket.cloneAsGlobalSupervisor();
@@ -702,9 +710,20 @@ public class FxContext implements Serializable {
         }
         if (dynamicContent || isWebdav) {
             UserTicket last = getLastUserTicket(session);
-            // Always determine the current user ticket for dynamic pages and webdav requests.
+            // Use the last user ticket of the session if it is still valid, otherwise determine the
+            // current user ticket. The marker must be read before the ticket is retrieved.
+            final long[] marker = CacheAdmin.getUserTicketMarker();
+            if (last != null && marker != null && Arrays.equals(marker, getLastUserTicketMarker(session))
+                    && !(last.isGuest() && (last.getACLAssignments() == null || last.getACLAssignments().length == 0))) {
+                // use a copy for authenticated users, since request-specific changes (e.g. of the language)
+                // must not be visible to other requests of the session
+                si.setTicket(last.isGuest() ? last : last.copy());
+                setThreadLocal(si);
+                return si;
+            }
             // This takes about 1 x 5ms for every request on a development machine
             si.setTicket(getTicketFromEJB(session));
+            setLastUserTicketMarker(session, marker);
             if (si.ticket.isGuest()) {
                 try {
                     final FxLanguage language;
@@ -0,0 +1,316 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.cache;
+
+import com.flexive.shared.content.FxCachedContent;
+import com.flexive.shared.content.FxCachedContentContainer;
+import com.flexive.shared.content.FxData;
+import com.flexive.shared.content.FxGroupData;
+import com.flexive.shared.content.FxPK;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, node-local cache for content containers in front of the (possibly shared) backing cache.
+ * <p>
+ * Entries are weighted by the number of data entries of the cached content versions, the least recently used
+ * entries are evicted when the configured maximum weight is exceeded. Cached instances are shared between
+ * threads and must not be modified by callers.
+ * </p>
+ * <p>
+ * To prevent stale data from being added to the cache by a reader that raced with an invalidation,
+ * callers obtain an invalidation stamp ({@link #getInvalidationStamp(long)}) before reading the backing cache
+ * and pass it to {@link #put(int, FxCachedContentContainer, long)}.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class FxLocalContentCache {
+    private static final int STRIPES = 64;
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(256, 0.75f, true);
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+    private final Map<Integer, Long> syncedSequences = new ConcurrentHashMap<Integer, Long>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long weight;
+
+    /**
+     * Create a new local content cache.
+     *
+     * @param maxWeight the maximum total weight (number of data entries) of all cached contents,
+     *                  0 to disable the cache
+     */
+    public FxLocalContentCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return  true if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return maxWeight > 0;
+    }
+
+    /**
+     * @return  the maximum total weight of all cached contents
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Return the cached content for the given primary key.
+     *
+     * @param divisionId    the division ID
+     * @param pk            the primary key
+     * @return              the cached content, or null if not found
+     */
+    public FxCachedContent get(int divisionId, FxPK pk) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(new Key(divisionId, pk.getId()));
+        }
+        final FxCachedContent result = entry != null ? entry.container.get(pk) : null;
+        (result != null ? hits : misses).incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Return the current invalidation stamp for the given content ID. Must be called before the
+     * backing cache is queried for a content that will be added to this cache.
+     *
+     * @param id    the content ID
+     * @return      the current invalidation stamp
+     */
+    public long getInvalidationStamp(long id) {
+        return invalidations.get(stripe(id));
+    }
+
+    /**
+     * Add a content container to the cache, unless the content was invalidated since the given stamp was obtained.
+     *
+     * @param divisionId    the division ID
+     * @param container     the content container
+     * @param stamp         the invalidation stamp obtained before the container was read from the backing cache
+     */
+    public void put(int divisionId, FxCachedContentContainer container, long stamp) {
+        if (!isEnabled()) {
+            return;
+        }
+        final int entryWeight = getWeight(container);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        synchronized (entries) {
+            if (invalidations.get(stripe(container.getId())) != stamp) {
+                return;     // invalidated while the container was read from the backing cache
+            }
+            final Entry previous = entries.put(new Key(divisionId, container.getId()), new Entry(container, entryWeight));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entryWeight;
+            final Iterator<Entry> iter = entries.values().iterator();
+            while (weight > maxWeight && iter.hasNext()) {
+                weight -= iter.next().weight;
+                iter.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove all cached versions of the given content.
+     *
+     * @param divisionId    the division ID
+     * @param id            the content ID
+     */
+    public void remove(int divisionId, long id) {
+        invalidations.incrementAndGet(stripe(id));
+        synchronized (entries) {
+            final Entry entry = entries.remove(new Key(divisionId, id));
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+    }
+
+    /**
+     * Remove all cached contents of the given division.
+     *
+     * @param divisionId    the division ID
+     */
+    public void clear(int divisionId) {
+        for (int i = 0; i < STRIPES; i++) {
+            invalidations.incrementAndGet(i);
+        }
+        synchronized (entries) {
+            final Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator();
+            while (iter.hasNext()) {
+                final Map.Entry<Key, Entry> entry = iter.next();
+                if (entry.getKey().divisionId == divisionId) {
+                    weight -= entry.getValue().weight;
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply the invalidations reported by the backing cache
+     * (see {@link com.flexive.shared.mbeans.FxCacheMBean#getContentInvalidations(Integer, Long)}).
+     *
+     * @param divisionId    the division ID
+     * @param invalidations the current invalidation sequence, followed by the invalidated content IDs
+     */
+    public void applyInvalidations(int divisionId, long[] invalidations) {
+        for (int i = 1; i < invalidations.length; i++) {
+            if (invalidations[i] == -1) {
+                clear(divisionId);
+                break;
+            }
+            remove(divisionId, invalidations[i]);
+        }
+        syncedSequences.put(divisionId, invalidations[0]);
+    }
+
+    /**
+     * @param divisionId    the division ID
+     * @return  the last invalidation sequence applied for the given division, or -1 if the
+     *          cache was not synchronized yet
+     */
+    public long getSyncedSequence(int divisionId) {
+        final Long sequence = syncedSequences.get(divisionId);
+        return sequence != null ? sequence : -1;
+    }
+
+    /**
+     * @return  the number of successful lookups
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  the number of lookups that did not find the requested content version
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  the number of entries evicted because the maximum weight was exceeded
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return  the number of cached content containers
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return  the current total weight of all cached contents
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (STRIPES - 1));
+    }
+
+    private static int getWeight(FxCachedContentContainer container) {
+        int result = 0;
+        for (FxCachedContent content : container.getCachedContents()) {
+            result += 1 + getWeight(content.getContent().getRootGroup());
+        }
+        return result;
+    }
+
+    private static int getWeight(FxGroupData group) {
+        int result = 0;
+        for (FxData data : group.getChildren()) {
+            result += data.isGroup() ? 1 + getWeight((FxGroupData) data) : 1;
+        }
+        return result;
+    }
+
+    private static final class Key {
+        private final int divisionId;
+        private final long id;
+
+        private Key(int divisionId, long id) {
+            this.divisionId = divisionId;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return divisionId == key.divisionId && id == key.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * divisionId + (int) (id ^ (id >>> 32));
+        }
+    }
+
+    private static final class Entry {
+        private final FxCachedContentContainer container;
+        private final int weight;
+
+        private Entry(FxCachedContentContainer container, int weight) {
+            this.container = container;
+            this.weight = weight;
+        }
+    }
+}
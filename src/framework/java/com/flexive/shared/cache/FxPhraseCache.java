@@ -0,0 +1,298 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.cache;
+
+import com.flexive.shared.CacheAdmin;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Division-wide cache for phrase values, stored in the (possibly shared) backing cache.
+ * <p>
+ * Phrases are cached per mandator, category and phrase key. An entry holds the values of all languages, phrases
+ * that do not exist are cached as entries without values. A category can be loaded at once
+ * ({@link #putAll(long, int, java.util.Map)}), further lookups of keys that are not in the category are
+ * answered without querying the database until a phrase of the category is modified.
+ * </p>
+ * <p>
+ * Lookups that do not specify a category are cached in the pseudo category {@link #ANY_CATEGORY}.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public final class FxPhraseCache {
+    private static final Log LOG = LogFactory.getLog(FxPhraseCache.class);
+
+    /**
+     * Pseudo category for lookups that do not filter by category
+     */
+    public static final int ANY_CATEGORY = -1;
+
+    private static final String CACHE_BASE = "/FxPhrases";
+    // marks a category that was loaded completely (phrase keys cannot start with a blank)
+    private static final String KEY_COMPLETE = " $complete";
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private FxPhraseCache() {
+    }
+
+    /**
+     * A cached phrase with the values and tags of all languages.
+     */
+    public static final class Entry implements Serializable {
+        private static final long serialVersionUID = 5271364381915367352L;
+
+        private static final Entry NOT_FOUND = new Entry(-1, false, new long[0], new String[0], new String[0]);
+
+        private final long id;
+        private final boolean hidden;
+        private final long[] languages;
+        private final String[] values;
+        private final String[] tags;
+
+        /**
+         * Create a new cache entry.
+         *
+         * @param id        the phrase ID
+         * @param hidden    the hidden flag
+         * @param languages the languages of the phrase values, in the order returned by the database
+         * @param values    the phrase values
+         * @param tags      the tags (null if not set)
+         */
+        public Entry(long id, boolean hidden, long[] languages, String[] values, String[] tags) {
+            this.id = id;
+            this.hidden = hidden;
+            this.languages = languages;
+            this.values = values;
+            this.tags = tags;
+        }
+
+        /**
+         * @return  an entry for a phrase that does not exist
+         */
+        public static Entry notFound() {
+            return NOT_FOUND;
+        }
+
+        /**
+         * @return  true if the phrase exists and has at least one value
+         */
+        public boolean isFound() {
+            return languages.length > 0;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public boolean isHidden() {
+            return hidden;
+        }
+
+        public int getSize() {
+            return languages.length;
+        }
+
+        public long getLanguage(int index) {
+            return languages[index];
+        }
+
+        public String getValue(int index) {
+            return values[index];
+        }
+
+        public String getTag(int index) {
+            return tags[index];
+        }
+    }
+
+    /**
+     * Return the cached phrase.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category, or {@link #ANY_CATEGORY}
+     * @param key       the phrase key
+     * @return  the cached phrase (which may be {@link Entry#notFound()}), or null if the phrase is not cached
+     */
+    public static Entry get(long mandator, int category, String key) {
+        try {
+            final String path = getPath(mandator, category);
+            Entry entry = (Entry) CacheAdmin.getInstance().get(path, key);
+            if (entry == null && CacheAdmin.getInstance().get(path, KEY_COMPLETE) != null) {
+                entry = Entry.notFound();
+            }
+            (entry != null ? HITS : MISSES).incrementAndGet();
+            return entry;
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to read phrase cache: " + e.getMessage(), e);
+            MISSES.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if no phrases of the given category are cached. A category that is not cached
+     * should be loaded at once with {@link #putAll(long, int, java.util.Map)}.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category
+     * @return  true if no phrases of the category are cached
+     */
+    public static boolean isEmpty(long mandator, int category) {
+        try {
+            final Set<?> keys = CacheAdmin.getInstance().getKeys(getPath(mandator, category));
+            return keys == null || keys.isEmpty();
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to read phrase cache: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Cache a phrase.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category, or {@link #ANY_CATEGORY}
+     * @param key       the phrase key
+     * @param entry     the phrase entry
+     */
+    public static void put(long mandator, int category, String key, Entry entry) {
+        try {
+            CacheAdmin.getInstance().put(getPath(mandator, category), key, entry);
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to update phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cache all phrases of a category. Keys that are not in the given map will be reported as not found
+     * until the category is invalidated.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category
+     * @param entries   all phrases of the category
+     */
+    public static void putAll(long mandator, int category, Map<String, Entry> entries) {
+        try {
+            final String path = getPath(mandator, category);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                CacheAdmin.getInstance().put(path, entry.getKey(), entry.getValue());
+            }
+            CacheAdmin.getInstance().put(path, KEY_COMPLETE, Boolean.TRUE);
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to update phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove a phrase from the cache.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category
+     * @param key       the phrase key
+     */
+    public static void remove(long mandator, int category, String key) {
+        try {
+            final String path = getPath(mandator, category);
+            CacheAdmin.getInstance().remove(path, KEY_COMPLETE);
+            CacheAdmin.getInstance().remove(path, key);
+            CacheAdmin.getInstance().remove(getPath(mandator, ANY_CATEGORY), key);
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to update phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove all phrases of a category from the cache.
+     *
+     * @param mandator  the mandator ID
+     * @param category  the phrase category
+     */
+    public static void removeCategory(long mandator, int category) {
+        try {
+            CacheAdmin.getInstance().remove(getPath(mandator, category));
+            CacheAdmin.getInstance().remove(getPath(mandator, ANY_CATEGORY));
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to update phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove all phrases of a mandator from the cache.
+     *
+     * @param mandator  the mandator ID
+     */
+    public static void removeMandator(long mandator) {
+        try {
+            CacheAdmin.getInstance().remove(CACHE_BASE + "/" + mandator);
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to update phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remove all phrases of the current division from the cache.
+     */
+    public static void clear() {
+        try {
+            CacheAdmin.getInstance().remove(CACHE_BASE);
+        } catch (FxCacheException e) {
+            LOG.warn("Failed to clear phrase cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return  the number of phrase lookups answered by the cache
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return  the number of phrase lookups that were not answered by the cache
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    private static String getPath(long mandator, int category) {
+        return CACHE_BASE + "/" + mandator + "/" + (category == ANY_CATEGORY ? "any" : String.valueOf(category));
+    }
+}
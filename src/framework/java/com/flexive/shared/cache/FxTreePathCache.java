@@ -0,0 +1,320 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.cache;
+
+import com.flexive.shared.tree.FxTreeMode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, node-local cache for tree path lookups (path to node ID, node ID to path and node ID chains).
+ * <p>
+ * The cached entries of a division and tree mode are valid for a tree modification timestamp
+ * ({@link com.flexive.shared.CacheAdmin#getTreeModificationTimestamp()}). Callers obtain the current timestamp
+ * before querying the cache or the database and pass it to all methods of this class. When the timestamp
+ * changed, all entries of the division and tree mode are discarded. Entries that were read from the database with
+ * an outdated timestamp are not added to the cache.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class FxTreePathCache {
+    private static final byte KIND_PATH_TO_ID = 0;
+    private static final byte KIND_ID_TO_PATH = 1;
+    private static final byte KIND_ID_CHAIN = 2;
+
+    private final int maxEntries;
+    private final Map<SegmentKey, Segment> segments = new HashMap<SegmentKey, Segment>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a new tree path cache.
+     *
+     * @param maxEntries    the maximum number of entries per division and tree mode, 0 to disable the cache
+     */
+    public FxTreePathCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return  true if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * @return  the maximum number of entries per division and tree mode
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Return the cached node ID of a (FQN) path.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the current tree modification timestamp
+     * @param startNode     the node where the path starts
+     * @param path          the path
+     * @return              the node ID (-1 if the path does not exist), or null if not cached
+     */
+    public Long getIdByPath(int divisionId, FxTreeMode mode, long timestamp, long startNode, String path) {
+        return (Long) get(divisionId, mode, timestamp, new Key(KIND_PATH_TO_ID, startNode, path));
+    }
+
+    /**
+     * Add the node ID of a (FQN) path to the cache.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the tree modification timestamp obtained before the node ID was selected
+     * @param startNode     the node where the path starts
+     * @param path          the path
+     * @param nodeId        the node ID (-1 if the path does not exist)
+     */
+    public void putIdByPath(int divisionId, FxTreeMode mode, long timestamp, long startNode, String path, long nodeId) {
+        put(divisionId, mode, timestamp, new Key(KIND_PATH_TO_ID, startNode, path), nodeId);
+    }
+
+    /**
+     * Return the cached path of a node.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the current tree modification timestamp
+     * @param nodeId        the node ID
+     * @return              the path, or null if not cached
+     */
+    public String getPathById(int divisionId, FxTreeMode mode, long timestamp, long nodeId) {
+        return (String) get(divisionId, mode, timestamp, new Key(KIND_ID_TO_PATH, nodeId, null));
+    }
+
+    /**
+     * Add the path of a node to the cache.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the tree modification timestamp obtained before the path was selected
+     * @param nodeId        the node ID
+     * @param path          the path
+     */
+    public void putPathById(int divisionId, FxTreeMode mode, long timestamp, long nodeId, String path) {
+        put(divisionId, mode, timestamp, new Key(KIND_ID_TO_PATH, nodeId, null), path);
+    }
+
+    /**
+     * Return the cached ID chain of a node.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the current tree modification timestamp
+     * @param nodeId        the node ID
+     * @return              a copy of the ID chain, or null if not cached
+     */
+    public long[] getIdChain(int divisionId, FxTreeMode mode, long timestamp, long nodeId) {
+        final long[] chain = (long[]) get(divisionId, mode, timestamp, new Key(KIND_ID_CHAIN, nodeId, null));
+        return chain != null ? chain.clone() : null;
+    }
+
+    /**
+     * Add the ID chain of a node to the cache.
+     *
+     * @param divisionId    the division ID
+     * @param mode          the tree mode
+     * @param timestamp     the tree modification timestamp obtained before the ID chain was selected
+     * @param nodeId        the node ID
+     * @param chain         the ID chain
+     */
+    public void putIdChain(int divisionId, FxTreeMode mode, long timestamp, long nodeId, long[] chain) {
+        put(divisionId, mode, timestamp, new Key(KIND_ID_CHAIN, nodeId, null), chain.clone());
+    }
+
+    /**
+     * Remove all entries of the given division.
+     *
+     * @param divisionId    the division ID
+     */
+    public void clear(int divisionId) {
+        synchronized (segments) {
+            final Iterator<SegmentKey> iter = segments.keySet().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().divisionId == divisionId) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return  the number of successful lookups
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  the number of lookups that were not answered from the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  the total number of cached entries
+     */
+    public int getSize() {
+        int size = 0;
+        synchronized (segments) {
+            for (Segment segment : segments.values()) {
+                synchronized (segment) {
+                    size += segment.entries.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    private Object get(int divisionId, FxTreeMode mode, long timestamp, Key key) {
+        final Segment segment = getSegment(divisionId, mode);
+        final Object result;
+        synchronized (segment) {
+            if (timestamp > segment.timestamp) {
+                // the tree was modified, the newer timestamp is authoritative
+                segment.entries.clear();
+                segment.timestamp = timestamp;
+            }
+            // a reader with an older timestamp must not reset the cache of newer readers
+            result = timestamp == segment.timestamp ? segment.entries.get(key) : null;
+        }
+        (result != null ? hits : misses).incrementAndGet();
+        return result;
+    }
+
+    private void put(int divisionId, FxTreeMode mode, long timestamp, Key key, Object value) {
+        if (!isEnabled()) {
+            return;
+        }
+        final Segment segment = getSegment(divisionId, mode);
+        synchronized (segment) {
+            if (segment.timestamp == timestamp) {
+                segment.entries.put(key, value);
+            }
+        }
+    }
+
+    private Segment getSegment(int divisionId, FxTreeMode mode) {
+        final SegmentKey key = new SegmentKey(divisionId, mode);
+        synchronized (segments) {
+            Segment segment = segments.get(key);
+            if (segment == null) {
+                segment = new Segment(maxEntries);
+                segments.put(key, segment);
+            }
+            return segment;
+        }
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<Key, Object> entries;
+        private long timestamp = -1;
+
+        private Segment(final int maxEntries) {
+            this.entries = new LinkedHashMap<Key, Object>(256, 0.75f, true) {
+                private static final long serialVersionUID = -2480932541524466263L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+
+    private static final class SegmentKey {
+        private final int divisionId;
+        private final FxTreeMode mode;
+
+        private SegmentKey(int divisionId, FxTreeMode mode) {
+            this.divisionId = divisionId;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final SegmentKey that = (SegmentKey) o;
+            return divisionId == that.divisionId && mode == that.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * divisionId + mode.hashCode();
+        }
+    }
+
+    private static final class Key {
+        private final byte kind;
+        private final long id;
+        private final String path;
+
+        private Key(byte kind, long id, String path) {
+            this.kind = kind;
+            this.id = id;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return kind == key.kind && id == key.id && (path != null ? path.equals(key.path) : key.path == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind;
+            result = 31 * result + (int) (id ^ (id >>> 32));
+            result = 31 * result + (path != null ? path.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -33,6 +33,7 @@ package com.flexive.shared.content;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -91,6 +92,16 @@ public class FxCachedContentContainer implements Serializable {
         return liveVersion;
     }
 
+    /**
+     * Return all cached versions of the content.
+     *
+     * @return all cached versions of the content
+     * @since 3.2.1
+     */
+    public synchronized List<FxCachedContent> getCachedContents() {
+        return Collections.unmodifiableList(new ArrayList<FxCachedContent>(content));
+    }
+
     /**
      * Try to get a content by its primary key, will return <code>null</code> if not found
      *
@@ -49,6 +49,7 @@ import org.apache.commons.lang.StringUtils;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A content instance
@@ -101,6 +102,9 @@ public class FxContent implements Serializable {
     private volatile boolean hasCaption = false;
     private volatile FxString caption = null;
 
+    // index of full XPaths (with multiplicities) to data entries, rebuilt when data was removed or replaced
+    private transient volatile XPathIndex xpathIndex;
+
     /**
      * Constructor
      *
@@ -542,7 +546,14 @@ public class FxContent implements Serializable {
         if (StringUtils.isEmpty(XPath) || "/".equals(XPath)) {
             return base;
         }
+        final XPathIndex index = getXPathIndex();
+        final String key = XPathElement.toXPathMult(XPath);
+        final FxData indexed = index.get(key);
+        if (indexed != null) {
+            return indexed.isProperty() ? ImmutableList.of(indexed) : ((FxGroupData) indexed).getChildren();
+        }
         List<FxData> ret = base;
+        FxData last = null;
         boolean found;
         final List<XPathElement> elems = XPathElement.split(XPathElement.xpToUpperCase(XPath));
         final int elemCount = elems.size();
@@ -553,11 +564,13 @@ public class FxContent implements Serializable {
                 if (curr.equalToXPathElement(xpe)) {
                     if (curr.isProperty()) {
                         if (i == elemCount - 1) {
+                            index.put(key, curr);
                             return ImmutableList.of(curr);
                         } else {
                             return null;
                         }
                     } else {
+                        last = curr;
                         ret = ((FxGroupData) curr).getChildren();
                         found = true;
                         break;
@@ -568,9 +581,71 @@ public class FxContent implements Serializable {
                 return null;
             }
         }
+        index.put(key, last);
         return ret;
     }
 
+    /**
+     * Return the XPath index of this content, (re)building it if data was removed or replaced since the last lookup.
+     *
+     * @return the XPath index
+     */
+    private XPathIndex getXPathIndex() {
+        final XPathIndex index = xpathIndex;
+        if (index != null && index.isValid(data)) {
+            return index;
+        }
+        final XPathIndex rebuilt = new XPathIndex(data);
+        xpathIndex = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * Index of the full XPaths of all data entries of a content. The index is built when it is first used and
+     * discarded when data is removed or replaced (see {@link FxGroupData#structureChanged()}). Entries added later
+     * are indexed when they are looked up for the first time, entries moved to other indices are detected by
+     * comparing their current XPath.
+     */
+    private static final class XPathIndex {
+        private final FxGroupData root;
+        private final int structureVersion;
+        private final Map<String, FxData> entries;
+
+        XPathIndex(FxGroupData root) {
+            this.root = root;
+            this.structureVersion = root.getStructureVersion();
+            this.entries = new ConcurrentHashMap<String, FxData>(64);
+            add(root);
+        }
+
+        private void add(FxGroupData group) {
+            for (FxData child : group.getChildren()) {
+                if (!entries.containsKey(child.getXPathFull())) {
+                    // like the linear lookup, the first entry of an XPath wins
+                    entries.put(child.getXPathFull(), child);
+                }
+                if (child instanceof FxGroupData) {
+                    add((FxGroupData) child);
+                }
+            }
+        }
+
+        boolean isValid(FxGroupData currentRoot) {
+            return root == currentRoot && structureVersion == root.getStructureVersion();
+        }
+
+        FxData get(String xpathMult) {
+            final FxData data = entries.get(xpathMult);
+            return data != null && xpathMult.equals(data.getXPathFull()) ? data : null;
+        }
+
+        void put(String xpathMult, FxData data) {
+            if (xpathMult.equals(data.getXPathFull())) {
+                entries.put(xpathMult, data);
+            }
+        }
+    }
+
     /**
      * Get the FxPropertyData entry for the given XPath
      *
@@ -611,6 +686,9 @@ public class FxContent implements Serializable {
         //this is a slightly modified version of getData() but since groups may not contain children its safer
         if (StringUtils.isEmpty(XPath) || "/".equals(XPath))
             return getRootGroup();
+        final FxData indexed = getXPathIndex().get(XPathElement.toXPathMult(XPath));
+        if (indexed instanceof FxGroupData)
+            return (FxGroupData) indexed;
         List<FxData> currChildren = data.getChildren();
         FxGroupData group = null;
         boolean found;
@@ -915,6 +993,12 @@ public class FxContent implements Serializable {
         FxEnvironment env = CacheAdmin.getEnvironment();
         if (!env.getType(this.getTypeId()).isXPathValid(XPath, true))
             throw new FxInvalidParameterException("XPATH", "ex.content.xpath.set.invalid", XPath, env.getType(getTypeId()).getName()).asRuntimeException();
+        final FxData existing = getXPathIndex().get(XPathElement.toXPathMult(XPath));
+        if (existing instanceof FxPropertyData) {
+            if (existing.getParent().hasChangeListener()) //ensure a change listener is attached
+                ((FxPropertyData) existing).getValue().setChangeListener(existing.getParent().getChangeListener());
+            return; //property exists
+        }
         List<XPathElement> elements = XPathElement.split(XPathElement.xpToUpperCase(XPath));
         FxGroupData currGroup = this.getRootGroup();
         boolean found;
@@ -1786,33 +1870,27 @@ public class FxContent implements Serializable {
     }
 
     /**
-     * Load all FxContent instances from properties of type FxReference
+     * Load all FxContent instances from properties of type FxReference.
+     * All references are loaded with a single batch call, see {@link FxReferenceResolver}.
      *
      * @param ce ContentEngine
      * @throws FxApplicationException on errors
      */
     public void loadReferences(ContentEngine ce) throws FxApplicationException {
-        List<FxReference> references = getRootGroup().getReferences(true);
-//        int refcount = 0;
-//        long time = System.currentTimeMillis();
-        for (FxReference ref : references) {
-            if (ref.isEmpty() || !ref.isValid())
-                continue;
-            if (ref.isMultiLanguage()) {
-                for (long lang : ref.getTranslatedLanguages()) {
-                    ReferencedContent r = ref.getTranslation(lang);
-                    if (!r.hasContent() && r.isAccessGranted()) {
-                        r.setContent(ce.load(r));
-//                        refcount++;
-                    }
-                }
-            } else {
-                if (!ref.getDefaultTranslation().hasContent() && ref.getDefaultTranslation().isAccessGranted())
-                    ref.getDefaultTranslation().setContent(ce.load(ref.getDefaultTranslation()));
-//                refcount++;
-            }
-        }
-//        System.out.println("=> Loading " + refcount + " references took " + (System.currentTimeMillis() - time) + "[ms]");
+        loadReferences(ce, 1);
+    }
+
+    /**
+     * Load all FxContent instances from properties of type FxReference, including the references
+     * of the loaded contents up to the given depth.
+     *
+     * @param ce    ContentEngine
+     * @param depth depth of the resolved references (1 to load only the references of this content)
+     * @throws FxApplicationException on errors
+     * @since 3.2.1
+     */
+    public void loadReferences(ContentEngine ce, int depth) throws FxApplicationException {
+        new FxReferenceResolver(ce).depth(depth).resolve(this);
     }
 
     /**
@@ -1925,6 +2003,7 @@ public class FxContent implements Serializable {
                 rmChildren.add(check);
         }
         parent.getChildren().removeAll(rmChildren);
+        parent.structureChanged();
         for(FxData currData: orgData.getElements()) {
             parent.addChild(currData.copy(parent));
         }
@@ -1938,6 +2017,7 @@ public class FxContent implements Serializable {
             if (d.isSystemInternal())
                 continue;
             data.getChildren().remove(d);
+            data.structureChanged();
             removeData();
             return;
         }
@@ -38,14 +38,12 @@ import com.flexive.shared.exceptions.FxInvalidParameterException;
 import com.flexive.shared.exceptions.FxNotFoundException;
 import com.flexive.shared.structure.*;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Abstract base class for property and group data
@@ -62,8 +60,9 @@ public abstract class FxData implements Serializable {
      * XPath cache Workaround since Strings no longer share the backing array when created via String#substring since JDK 1.7_06+.
      * We would end up with lots of duplicate Strings that previously used the same XPath String data
      * (from the FxASssignment) unless we cache them manually.
+     * The interner is a concurrent map with weak keys, so lookups of existing XPaths don't need a lock.
      */
-    private static final WeakHashMap<String, WeakReference<String>> XP_CACHE = new WeakHashMap<String, WeakReference<String>>();
+    private static volatile Interner<String> XP_CACHE = Interners.newWeakInterner();
 
     /**
      * XPath without indices
@@ -553,49 +552,16 @@ public abstract class FxData implements Serializable {
      * @return          the canonical String object for {@code xpath}
      */
     static String xpCached(String xpath) {
-        final WeakReference<String> cached;
-        XP_READ.lock();
-        try {
-            cached = XP_CACHE.get(xpath);
-        } finally {
-            XP_READ.unlock();
-        }
-        final String cachedValue = cached != null ? cached.get() : null;
-        if (cachedValue != null) {
-            return cachedValue;
-        }
-        XP_WRITE.lock();
-        try {
-            // check if the value was cached in the meantime
-            final WeakReference<String> currentCache = XP_CACHE.get(xpath);
-            final String currentValue = currentCache != null ? currentCache.get() : null;
-            if (currentValue != null) {
-                return currentValue;
-            } else {
-                XP_CACHE.put(xpath, new WeakReference<String>(xpath));
-            }
-        } finally {
-            XP_WRITE.unlock();
-        }
-        return xpath;
+        return xpath != null ? XP_CACHE.intern(xpath) : null;
     }
 
     /**
      * Remove all cached XPaths.
      */
     public static void clearXPathCache() {
-        XP_WRITE.lock();
-        try {
-            XP_CACHE.clear();
-        } finally {
-            XP_WRITE.unlock();
-        }
+        XP_CACHE = Interners.newWeakInterner();
     }
 
-    private static final ReadWriteLock XP_UPDATE_LOCK = new ReentrantReadWriteLock();
-    private static final Lock XP_READ = XP_UPDATE_LOCK.readLock();
-    private static final Lock XP_WRITE = XP_UPDATE_LOCK.writeLock();
-
     /**
      * {@inheritDoc}
      */
@@ -553,66 +553,66 @@ public class FxDelta implements Serializable {
      * @throws FxNotFoundException         on errors
      */
     public static FxDelta processDelta(final FxContent original, final FxContent compare) throws FxNotFoundException, FxInvalidParameterException {
-        List<String> org = original.getAllXPaths("/");
-        List<String> comp = compare.getAllXPaths("/");
+        final Map<String, FxData> org = indexXPaths(original);
+        final Map<String, FxData> comp = indexXPaths(compare);
 
         List<FxDeltaChange> updates = null, adds = null, removes = null;
 
-        //remove all xpaths from comp that are not contained in org => updates
-        List<String> update = new ArrayList<String>(comp);
-        update.retainAll(org);
-        for (String xp : update) {
-            if (xp.endsWith("/")) {
-                //group
-                xp = xp.substring(0, xp.length() - 1);
-                if (!compare.getGroupData(xp).equals(original.getGroupData(xp))) {
+        //xpaths of comp that are contained in org => updates, all others => adds
+        for (Map.Entry<String, FxData> entry : comp.entrySet()) {
+            final FxData compData = entry.getValue();
+            final FxData orgData = org.get(entry.getKey());
+            if (orgData != null) {
+                if (!compData.equals(orgData)) {
                     if (updates == null)
                         updates = new ArrayList<FxDeltaChange>(10);
-                    updates.add(new FxDeltaChange(FxDeltaChange.ChangeType.Update, xp, original.getGroupData(xp), compare.getGroupData(xp)));
+                    updates.add(new FxDeltaChange(FxDeltaChange.ChangeType.Update, compData.getXPathFull(), orgData, compData));
                 }
-            } else if (!compare.getData(xp).equals(original.getData(xp))) {
-                //property
-                if (updates == null)
-                    updates = new ArrayList<FxDeltaChange>(10);
-                final FxPropertyData orgData = original.getPropertyData(xp);
-                updates.add(new FxDeltaChange(FxDeltaChange.ChangeType.Update, xp, orgData, compare.getPropertyData(xp)));
+            } else {
+                if (adds == null)
+                    adds = new ArrayList<FxDeltaChange>(10);
+                adds.add(new FxDeltaChange(FxDeltaChange.ChangeType.Add, compData.getXPathFull(), null, compData));
             }
         }
 
-        List<String> add = new ArrayList<String>(comp);
-        add.removeAll(org);
-        for (String xp : add) {
-            if (adds == null)
-                adds = new ArrayList<FxDeltaChange>(10);
-            if (xp.endsWith("/")) {
-                //group
-                xp = xp.substring(0, xp.length() - 1);
-                adds.add(new FxDeltaChange(FxDeltaChange.ChangeType.Add, xp, null, compare.getGroupData(xp)));
-            } else {
-                //property
-                final FxPropertyData pdata = compare.getPropertyData(xp);
-                adds.add(new FxDeltaChange(FxDeltaChange.ChangeType.Add, xp, null, pdata));
+        //xpaths of org that are not contained in comp => removes
+        for (Map.Entry<String, FxData> entry : org.entrySet()) {
+            final FxData orgData = entry.getValue();
+            if (!comp.containsKey(entry.getKey()) && !orgData.isEmpty()) {
+                if (removes == null)
+                    removes = new ArrayList<FxDeltaChange>(10);
+                removes.add(new FxDeltaChange(FxDeltaChange.ChangeType.Remove, orgData.getXPathFull(), orgData, null));
             }
         }
+        return new FxDelta(updates, adds, removes);
+    }
 
-        List<String> rem = new ArrayList<String>(org);
-        rem.removeAll(comp);
-        for (String xp : rem) {
-            if (removes == null)
-                removes = new ArrayList<FxDeltaChange>(10);
-            if (xp.endsWith("/")) {
-                xp = xp.substring(0, xp.length() - 1);
-                final FxGroupData groupData = original.getGroupData(xp);
-                if (!groupData.isEmpty()) {
-                    removes.add(new FxDeltaChange(FxDeltaChange.ChangeType.Remove, xp, groupData, null));
-                }
-            } else {
-                final FxPropertyData propertyData = original.getPropertyData(xp);
-                if (!propertyData.isEmpty()) {
-                    removes.add(new FxDeltaChange(FxDeltaChange.ChangeType.Remove, xp, propertyData, null));
+    /**
+     * Index all group and property entries of a content by their full XPath, in the order of
+     * {@link FxContent#getAllXPaths(String)}. Group XPaths are stored with a trailing "/" to distinguish
+     * them from properties with the same name.
+     *
+     * @param content the content
+     * @return all data entries of the content, indexed by their (group) XPath
+     */
+    private static Map<String, FxData> indexXPaths(FxContent content) {
+        final Map<String, FxData> index = new LinkedHashMap<String, FxData>();
+        indexXPaths(index, content.getRootGroup());
+        return index;
+    }
+
+    private static void indexXPaths(Map<String, FxData> index, FxGroupData group) {
+        for (FxData child : group.getChildren()) {
+            // keep the first entry for an XPath, like FxContent#getData(String)
+            if (child instanceof FxGroupData) {
+                final String xp = child.getXPathFull() + "/";
+                if (!index.containsKey(xp)) {
+                    index.put(xp, child);
                 }
+                indexXPaths(index, (FxGroupData) child);
+            } else if (child instanceof FxPropertyData && !index.containsKey(child.getXPathFull())) {
+                index.put(child.getXPathFull(), child);
             }
         }
-        return new FxDelta(updates, adds, removes);
     }
 }
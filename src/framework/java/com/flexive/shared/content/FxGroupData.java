@@ -41,6 +41,7 @@ import com.flexive.shared.value.FxReference;
 import com.flexive.shared.value.FxValue;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ForwardingListIterator;
 import com.google.common.collect.Lists;
 
 import java.util.*;
@@ -54,6 +55,10 @@ public class FxGroupData extends FxData {
     private static final long serialVersionUID = 133412774300450631L;
     private List<FxData> data;
     private FxValueChangeListener changeListener = null;
+    // number of changes that removed or replaced data of this tree, only maintained by the root group
+    private transient int structureVersion;
+    // write-through view of the children, see getChildren()
+    private transient List<FxData> children;
 
     public FxGroupData(String xpPrefix, String alias, int index, String xPath, String xPathFull,
                        long assignmentId, int pos, FxGroupData parent, List<FxData> data, boolean skipXPathSanitize) throws FxInvalidParameterException {
@@ -105,12 +110,120 @@ public class FxGroupData extends FxData {
     }
 
     /**
-     * Get all child entries for this group
+     * Get all child entries for this group. The returned list writes all changes through to this group
+     * and notifies the root group of them (see {@link #structureChanged()}).
      *
      * @return child entries
      */
     public List<FxData> getChildren() {
-        return data;
+        if (data == null) {
+            return null;
+        }
+        if (children == null) {
+            children = new ChildList();
+        }
+        return children;
+    }
+
+    /**
+     * Notify the root group that data of this tree was removed or replaced.
+     * Must be called whenever children are removed from a group, since indexed XPath lookups
+     * (see {@link FxContent#getData(String)}) rely on it.
+     *
+     * @since 3.2.1
+     */
+    void structureChanged() {
+        FxGroupData root = this;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        root.structureVersion++;
+    }
+
+    /**
+     * @return the number of changes that removed or replaced data of this tree (only valid for the root group)
+     * @since 3.2.1
+     */
+    int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * View of the children of this group that calls {@link FxGroupData#structureChanged()} for every modification,
+     * including modifications through iterators and sub lists.
+     *
+     * @since 3.2.1
+     */
+    private final class ChildList extends AbstractList<FxData> implements RandomAccess {
+
+        @Override
+        public FxData get(int index) {
+            return data.get(index);
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public FxData set(int index, FxData element) {
+            final FxData previous = data.set(index, element);
+            structureChanged();
+            return previous;
+        }
+
+        @Override
+        public void add(int index, FxData element) {
+            data.add(index, element);
+            modified();
+        }
+
+        @Override
+        public FxData remove(int index) {
+            final FxData removed = data.remove(index);
+            modified();
+            return removed;
+        }
+
+        @Override
+        public Iterator<FxData> iterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<FxData> listIterator(int index) {
+            final ListIterator<FxData> delegate = data.listIterator(index);
+            return new ForwardingListIterator<FxData>() {
+                @Override
+                protected ListIterator<FxData> delegate() {
+                    return delegate;
+                }
+
+                @Override
+                public void remove() {
+                    delegate.remove();
+                    modified();
+                }
+
+                @Override
+                public void set(FxData element) {
+                    delegate.set(element);
+                    structureChanged();
+                }
+
+                @Override
+                public void add(FxData element) {
+                    delegate.add(element);
+                    modified();
+                }
+            };
+        }
+
+        private void modified() {
+            modCount++;
+            structureChanged();
+        }
     }
 
     /**
@@ -161,6 +274,7 @@ public class FxGroupData extends FxData {
 
         // replace group children
         this.data = empty.data;
+        structureChanged();
     }
 
     /**
@@ -541,6 +655,7 @@ public class FxGroupData extends FxData {
               just remove the current group (and clear it) from the parrent and let GC do its job*/
             if (removeAll) {
                 currentData.clear();
+                currentGroup.structureChanged();
                 if (currentGroup.getAssignmentMultiplicity().isOptional()) {
                     FxGroupData currentParent = currentGroup.getParent();
                     if (currentParent != null) {
@@ -568,6 +683,7 @@ public class FxGroupData extends FxData {
                     }
                 }
                 currentData.remove(curr);
+                currentGroup.structureChanged();
                 // just store any removed item with its ID as key in a map, and only do this if we don't removed all the elements
                 toCompact.put(curr.getAssignmentId(), curr);
 //                curr.compact();
@@ -799,8 +915,10 @@ public class FxGroupData extends FxData {
         );
 
         FxData check = parentGroup.containsChild(data.getXPathElement());
-        if (check != null)
+        if (check != null) {
             parentGroup.data.remove(check);
+            parentGroup.structureChanged();
+        }
         parentGroup.addChild(data);
         /*boolean added = false;
         for (int i = 0; i < parentGroup.data.size(); i++) {
@@ -843,6 +961,7 @@ public class FxGroupData extends FxData {
         for (int i = 0; i < this.data.size(); i++) {
             if (this.data.get(i).equalToXPathElement(xpathElem)) {
                 this.data.set(i, data.copy(this));
+                structureChanged();
                 valueChanged(data.getXPathFull(), FxValueChangeListener.ChangeType.Update);
                 return;
             }
@@ -918,6 +1037,7 @@ public class FxGroupData extends FxData {
 
         if (!this.data.remove(data)) //was: if (!data.getParent().data.remove(data))
             throw new FxInvalidParameterException("ex.content.xpath.remove.notFound", data.getXPathFull()).asRuntimeException();
+        structureChanged();
         if(hasChangeListener())
             valueChanged(data.getXPathFull(), FxValueChangeListener.ChangeType.Remove);
         data.compact();
@@ -938,6 +1058,7 @@ public class FxGroupData extends FxData {
 
             if (!this.data.remove(data))
                 throw new FxInvalidParameterException("ex.content.xpath.remove.notFound", data.getXPathFull()).asRuntimeException();
+            structureChanged();
             valueChanged(data.getXPathFull(), FxValueChangeListener.ChangeType.Remove);
             if (!compactCandidates.containsKey(data.getXPath()))
                 compactCandidates.put(data.getXPath(), data);
@@ -1097,6 +1218,7 @@ public class FxGroupData extends FxData {
         }
         for (FxData d : nonInternal)
             data.remove(d);
+        structureChanged();
         this.compactPositions(true);
     }
 
@@ -0,0 +1,293 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.content;
+
+import com.flexive.shared.FxContext;
+import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.exceptions.FxLoadException;
+import com.flexive.shared.interfaces.ContentEngine;
+import com.flexive.shared.value.FxReference;
+import com.flexive.shared.value.ReferencedContent;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the references of contents in bulk: all unresolved references of a level are collected,
+ * deduplicated and loaded with a single call to {@link ContentEngine#load(java.util.List)}.
+ * Nested references are resolved level by level up to the configured depth.
+ * <p>
+ * Large batches can optionally be split across a bounded thread pool, whose size is configured with
+ * the system property <code>flexive.content.referenceLoadThreads</code> (default: 1, i.e. no parallel loading).
+ * Parallel loads run outside the transaction of the caller.
+ * </p>
+ * <pre>
+ * new FxReferenceResolver(EJBLookup.getContentEngine()).depth(2).resolve(content);
+ * </pre>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class FxReferenceResolver {
+    private static final Log LOG = LogFactory.getLog(FxReferenceResolver.class);
+
+    /**
+     * System property for the number of threads used for loading references
+     */
+    public static final String CONFIG_THREADS = "flexive.content.referenceLoadThreads";
+
+    /**
+     * Minimum number of references loaded by a single thread
+     */
+    private static final int MIN_PARTITION_SIZE = 50;
+
+    private static final int THREADS = getThreadCount();
+    private static volatile ExecutorService executor;
+
+    private final ContentEngine contentEngine;
+    private int depth = 1;
+    private boolean parallel = THREADS > 1;
+
+    /**
+     * Create a new reference resolver.
+     *
+     * @param contentEngine the content engine used for loading the referenced contents
+     */
+    public FxReferenceResolver(ContentEngine contentEngine) {
+        this.contentEngine = contentEngine;
+    }
+
+    /**
+     * Set the depth of nested references that will be resolved (default: 1, i.e. only the references
+     * of the given contents are resolved).
+     *
+     * @param depth the depth of resolved references
+     * @return this
+     */
+    public FxReferenceResolver depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * Enable or disable parallel loading of references. Has no effect if no reference loader threads
+     * were configured.
+     *
+     * @param parallel true to split large batches across the reference loader threads
+     * @return this
+     */
+    public FxReferenceResolver parallel(boolean parallel) {
+        this.parallel = parallel && THREADS > 1;
+        return this;
+    }
+
+    /**
+     * Resolve all references of the given contents.
+     *
+     * @param contents the contents
+     * @throws FxApplicationException on errors, e.g. when a referenced content could not be loaded
+     */
+    public void resolve(FxContent... contents) throws FxApplicationException {
+        resolve(Arrays.asList(contents));
+    }
+
+    /**
+     * Resolve all references of the given contents.
+     *
+     * @param contents the contents
+     * @throws FxApplicationException on errors, e.g. when a referenced content could not be loaded
+     */
+    public void resolve(List<FxContent> contents) throws FxApplicationException {
+        List<FxContent> level = contents;
+        for (int i = 0; i < depth && !level.isEmpty(); i++) {
+            level = resolveLevel(level);
+        }
+    }
+
+    /**
+     * Resolve the references of the given contents.
+     *
+     * @param contents the contents
+     * @return the contents assigned to the resolved references
+     * @throws FxApplicationException on errors
+     */
+    private List<FxContent> resolveLevel(List<FxContent> contents) throws FxApplicationException {
+        // collect all unresolved references, grouped by their primary key
+        final Map<FxPK, List<ReferencedContent>> unresolved = new LinkedHashMap<FxPK, List<ReferencedContent>>();
+        for (FxContent content : contents) {
+            for (FxReference ref : content.getRootGroup().getReferences(true)) {
+                if (ref.isEmpty() || !ref.isValid())
+                    continue;
+                if (ref.isMultiLanguage()) {
+                    for (long lang : ref.getTranslatedLanguages()) {
+                        addUnresolved(unresolved, ref.getTranslation(lang));
+                    }
+                } else {
+                    addUnresolved(unresolved, ref.getDefaultTranslation());
+                }
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<FxPK> pks = new ArrayList<FxPK>(unresolved.keySet());
+        final List<FxContent> loaded = load(pks);
+        final List<FxContent> resolved = new ArrayList<FxContent>(loaded.size());
+        for (int i = 0; i < pks.size(); i++) {
+            final FxContent content = loaded.get(i);
+            boolean first = true;
+            for (ReferencedContent ref : unresolved.get(pks.get(i))) {
+                // every reference gets its own instance, like when the contents are loaded one by one
+                final FxContent instance = first ? content : content.copy();
+                ref.setContent(instance);
+                resolved.add(instance);
+                first = false;
+            }
+        }
+        return resolved;
+    }
+
+    private void addUnresolved(Map<FxPK, List<ReferencedContent>> unresolved, ReferencedContent ref) {
+        if (ref == null || ref.hasContent() || !ref.isAccessGranted())
+            return;
+        final FxPK pk = new FxPK(ref.getId(), ref.getVersion());
+        List<ReferencedContent> refs = unresolved.get(pk);
+        if (refs == null) {
+            refs = new ArrayList<ReferencedContent>(1);
+            unresolved.put(pk, refs);
+        }
+        refs.add(ref);
+    }
+
+    private List<FxContent> load(List<FxPK> pks) throws FxApplicationException {
+        final int partitions = parallel ? Math.min(THREADS, pks.size() / MIN_PARTITION_SIZE) : 1;
+        if (partitions <= 1) {
+            return contentEngine.load(pks);
+        }
+        final FxContext context = FxContext.get();
+        final boolean runAsSystem = context.getRunAsSystem();
+        final int partitionSize = (pks.size() + partitions - 1) / partitions;
+        final List<Future<List<FxContent>>> futures = new ArrayList<Future<List<FxContent>>>(partitions);
+        for (int start = 0; start < pks.size(); start += partitionSize) {
+            final List<FxPK> partition = pks.subList(start, Math.min(pks.size(), start + partitionSize));
+            final FxContext taskContext = context.copy();
+            futures.add(getExecutor().submit(new Callable<List<FxContent>>() {
+                @Override
+                public List<FxContent> call() throws Exception {
+                    taskContext.replace();
+                    if (runAsSystem) {
+                        taskContext.runAsSystem();
+                    }
+                    try {
+                        return contentEngine.load(partition);
+                    } finally {
+                        FxContext.remove();
+                    }
+                }
+            }));
+        }
+        final List<FxContent> result = new ArrayList<FxContent>(pks.size());
+        try {
+            for (Future<List<FxContent>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FxLoadException(LOG, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FxApplicationException) {
+                throw (FxApplicationException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new FxLoadException(LOG, e.getCause());
+        } finally {
+            for (Future<List<FxContent>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    private static ExecutorService getExecutor() {
+        ExecutorService result = executor;
+        if (result == null) {
+            synchronized (FxReferenceResolver.class) {
+                result = executor;
+                if (result == null) {
+                    final AtomicInteger counter = new AtomicInteger();
+                    result = executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "flexive-reference-loader-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Shutdown the thread pool used for parallel reference loading. Needed since the worker threads
+     * must be terminated explicitly when the application is undeployed. A subsequent parallel load
+     * creates a new pool.
+     *
+     * @since 3.2.1
+     */
+    public static void shutdown() {
+        synchronized (FxReferenceResolver.class) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    private static int getThreadCount() {
+        final String value = System.getProperty(CONFIG_THREADS);
+        if (value != null) {
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid value for " + CONFIG_THREADS + ": " + value);
+            }
+        }
+        return 1;
+    }
+}
@@ -95,6 +95,19 @@ public interface ContentEngine {
      */
     FxContent load(FxPK pk) throws FxApplicationException;
 
+    /**
+     * Load several contents. The result is the same as calling {@link #load(FxPK)} for each primary key,
+     * but all contents that are not cached are loaded with a constant number of database queries.
+     *
+     * @param pks primary keys to load
+     * @return the contents in the order of the given primary keys
+     * @throws FxApplicationException on errors
+     * @throws FxNoAccessException    if one of the contents may not be read
+     * @throws FxNotFoundException    if no instance for one of the primary keys was found
+     * @since 3.2.1
+     */
+    List<FxContent> load(List<FxPK> pks) throws FxApplicationException;
+
     /**
      * Load a content container (all versions of a content)
      *
@@ -370,6 +370,24 @@ public interface ScriptingEngine {
      */
     List<FxScriptRunInfo> getRunOnceInformation() throws FxApplicationException;
 
+    /**
+     * Get the execution statistics (invocation count and execution times) of all scripts that were executed
+     * in the current VM. Scripts executed by name without a script ID (e.g. from the script console)
+     * are not included.
+     *
+     * @return the execution statistics, ordered by script ID
+     * @since 3.2.1
+     */
+    List<FxScriptStatistics> getScriptStatistics();
+
+    /**
+     * Reset the execution statistics of all scripts in the current VM.
+     *
+     * @throws FxApplicationException if the calling user may not manage scripts
+     * @since 3.2.1
+     */
+    void resetScriptStatistics() throws FxApplicationException;
+
     /**
      * Create a script schedule
      *
@@ -31,6 +31,11 @@
  ***************************************************************/
 package com.flexive.shared.interfaces;
 
+import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.search.FxResultRowHandler;
+import com.flexive.shared.search.FxResultSet;
+import com.flexive.shared.search.FxSQLSearchParams;
+
 import javax.ejb.Local;
 
 /**
@@ -38,7 +43,33 @@ import javax.ejb.Local;
  *
  * @author Daniel Lichtenberger (daniel.lichtenberger@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
  * @version $Rev$
+ * @see com.flexive.shared.EJBLookup#getSearchEngineLocal()
  */
 @Local
 public interface SearchEngineLocal extends SearchEngine {
+
+    /**
+     * Executes a query and passes the result rows to the given handler as they are read from the
+     * database, without building the complete result in memory. Use this for exports or other
+     * searches that return very large results.
+     * <p>
+     * When {@link FxSQLSearchParams#isHintNoResultInfo()} is set, the search is executed in a single pass
+     * (if supported by the database) and no total row count is computed. The total row count of the
+     * returned result set is then the number of rows passed to the handler.
+     * </p>
+     * <p>
+     * Only available through the local interface, since the handler is called back in the caller's VM.
+     * </p>
+     *
+     * @param query the query to execute
+     * @param startIndex return data starting at the given row, 0 based
+     * @param fetchRows the maximum rows to fetch, -1 to fetch all rows
+     * @param params all additional search options
+     * @param handler the handler that processes the result rows
+     * @return the result set containing the column and type information, but no rows
+     * @throws FxApplicationException if the search failed, or if the handler threw an exception
+     * @since 3.2.1
+     */
+    FxResultSet search(String query, int startIndex, int fetchRows, FxSQLSearchParams params,
+                       FxResultRowHandler handler) throws FxApplicationException;
 }
@@ -189,6 +189,92 @@ public interface FxCacheMBean extends FxBackingCache {
      */
     void setEvictionStrategy(Integer divisionId, String path, Integer maxContents, Integer timeToIdle, Integer timeToLive, Boolean overwrite) throws FxCacheException;
 
+    /**
+     * Return the IDs of the cached contents of a division that were modified or removed in the backing cache
+     * (locally or on another cluster node) since the given sequence number. Used for invalidating the
+     * node-local content cache ({@link com.flexive.shared.cache.FxLocalContentCache}).
+     *
+     * @param divisionId    division
+     * @param sinceSequence the sequence number returned by the last invocation, or -1
+     * @return  an array containing the current sequence number, followed by the IDs of the modified contents.
+     *          An ID of -1 indicates that all cached contents must be removed.
+     * @throws FxCacheException on cache errors
+     * @since 3.2.1
+     */
+    long[] getContentInvalidations(Integer divisionId, Long sinceSequence) throws FxCacheException;
+
+    /**
+     * Returns the number of hits of the node-local content cache.
+     *
+     * @return the number of hits of the node-local content cache
+     * @since 3.2.1
+     */
+    long getLocalContentCacheHits();
+
+    /**
+     * Returns the number of misses of the node-local content cache.
+     *
+     * @return the number of misses of the node-local content cache
+     * @since 3.2.1
+     */
+    long getLocalContentCacheMisses();
+
+    /**
+     * Returns the number of entries evicted from the node-local content cache because its size limit was reached.
+     *
+     * @return the number of evictions of the node-local content cache
+     * @since 3.2.1
+     */
+    long getLocalContentCacheEvictions();
+
+    /**
+     * Returns the number of contents stored in the node-local content cache.
+     *
+     * @return the number of contents stored in the node-local content cache
+     * @since 3.2.1
+     */
+    int getLocalContentCacheSize();
+
+    /**
+     * Returns the number of tree path lookups answered by the tree path cache.
+     *
+     * @return the number of hits of the tree path cache
+     * @since 3.2.1
+     */
+    long getTreePathCacheHits();
+
+    /**
+     * Returns the number of tree path lookups that were not answered by the tree path cache.
+     *
+     * @return the number of misses of the tree path cache
+     * @since 3.2.1
+     */
+    long getTreePathCacheMisses();
+
+    /**
+     * Returns the number of entries stored in the tree path cache.
+     *
+     * @return the number of entries stored in the tree path cache
+     * @since 3.2.1
+     */
+    int getTreePathCacheSize();
+
+    /**
+     * Returns the number of phrase lookups answered by the phrase cache.
+     *
+     * @return the number of hits of the phrase cache
+     * @since 3.2.1
+     */
+    long getPhraseCacheHits();
+
+    /**
+     * Returns the number of phrase lookups that had to be loaded from the database.
+     *
+     * @return the number of misses of the phrase cache
+     * @since 3.2.1
+     */
+    long getPhraseCacheMisses();
+
     /**
      * Perform (optional) cleanup after the request has finished (called e.g. by {@link com.flexive.shared.FxContext#cleanup()}).
      *
@@ -35,6 +35,7 @@ import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.FxContext;
 import com.flexive.shared.cache.FxBackingCache;
 import com.flexive.shared.cache.FxCacheException;
+import com.flexive.shared.cache.FxPhraseCache;
 import org.apache.commons.lang.SerializationUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -464,6 +465,96 @@ public class FxCacheProxy implements FxCacheMBean {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getContentInvalidations(Integer divisionId, Long sinceSequence) throws FxCacheException {
+        try {
+            return (long[]) server.invoke(name, "getContentInvalidations", new Object[]{divisionId, sinceSequence},
+                    new String[]{"java.lang.Integer", "java.lang.Long"});
+        } catch (InstanceNotFoundException e) {
+            throw newNotFoundException(e);
+        } catch (MBeanException e) {
+            throw newMBeanException(e);
+        } catch (ReflectionException e) {
+            throw newReflectionException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheHits() {
+        // the local content cache is kept per deployment, so it is not queried through the MBean server
+        return CacheAdmin.getLocalContentCache().getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheMisses() {
+        return CacheAdmin.getLocalContentCache().getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLocalContentCacheEvictions() {
+        return CacheAdmin.getLocalContentCache().getEvictions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLocalContentCacheSize() {
+        return CacheAdmin.getLocalContentCache().getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTreePathCacheHits() {
+        return CacheAdmin.getTreePathCache().getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTreePathCacheMisses() {
+        return CacheAdmin.getTreePathCache().getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTreePathCacheSize() {
+        return CacheAdmin.getTreePathCache().getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPhraseCacheHits() {
+        return FxPhraseCache.getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPhraseCacheMisses() {
+        return FxPhraseCache.getMisses();
+    }
+
     @Override
     public void cleanupAfterRequest() throws FxCacheException {
         try {
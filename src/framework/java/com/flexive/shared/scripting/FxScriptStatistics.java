@@ -0,0 +1,111 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.scripting;
+
+import java.io.Serializable;
+
+/**
+ * Execution statistics of a script in the current VM (since the last restart or
+ * {@link com.flexive.shared.interfaces.ScriptingEngine#resetScriptStatistics() reset}).
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class FxScriptStatistics implements Serializable {
+    private static final long serialVersionUID = -3179040592316744658L;
+
+    private final long scriptId;
+    private final String name;
+    private final long invocations;
+    private final long errors;
+    private final long totalTimeNanos;
+    private final long maxTimeNanos;
+
+    public FxScriptStatistics(long scriptId, String name, long invocations, long errors, long totalTimeNanos, long maxTimeNanos) {
+        this.scriptId = scriptId;
+        this.name = name;
+        this.invocations = invocations;
+        this.errors = errors;
+        this.totalTimeNanos = totalTimeNanos;
+        this.maxTimeNanos = maxTimeNanos;
+    }
+
+    public long getScriptId() {
+        return scriptId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return  the number of script executions
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * @return  the number of script executions that failed with an exception
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return  the total execution time of all invocations in nanoseconds
+     */
+    public long getTotalTimeNanos() {
+        return totalTimeNanos;
+    }
+
+    /**
+     * @return  the longest execution time in nanoseconds
+     */
+    public long getMaxTimeNanos() {
+        return maxTimeNanos;
+    }
+
+    /**
+     * @return  the average execution time in milliseconds
+     */
+    public double getAverageTimeMillis() {
+        return invocations == 0 ? 0 : totalTimeNanos / 1000000.0 / invocations;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return name + " (" + scriptId + "): " + invocations + " invocations, " + errors + " errors, avg "
+                + getAverageTimeMillis() + " ms, max " + maxTimeNanos / 1000000.0 + " ms";
+    }
+}
@@ -0,0 +1,63 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.search;
+
+import com.flexive.shared.exceptions.FxApplicationException;
+
+/**
+ * Callback for streaming FxSQL searches. The rows are passed to the handler as they are read
+ * from the database cursor, so the result is never materialized in memory.
+ * <p>
+ * The handler is invoked while the database cursor is still open. Some drivers (e.g. MySQL)
+ * do not allow other statements on the same connection until the cursor is closed, so the handler
+ * should not perform database operations in the calling transaction.
+ * </p>
+ * <p>
+ * Streaming searches are only available through the local interface of the search engine.
+ * </p>
+ *
+ * @see com.flexive.shared.interfaces.SearchEngineLocal#search(String, int, int, FxSQLSearchParams, FxResultRowHandler)
+ * @since 3.2.1
+ */
+public interface FxResultRowHandler {
+
+    /**
+     * Process a single result row.
+     *
+     * @param result    the result set of the search. It holds the column information and timings,
+     *                  but contains no rows.
+     * @param row       the row values, in the same order as the selected columns
+     * @return          true to continue fetching, false to stop the search
+     * @throws FxApplicationException   if the row could not be processed. The search is aborted.
+     */
+    boolean processRow(FxResultSet result, Object[] row) throws FxApplicationException;
+}
@@ -50,11 +50,13 @@ public class BinaryDownloadPayload implements Serializable {
     private int division;
     private int size;
     private boolean forceImage;
+    private boolean resolveFile;
 
     private boolean serverError;
     private String errorMessage;
     private String mimeType;
     private int datasize;
+    private String filePath;
 
 
     public BinaryDownloadPayload(long id, int version, int quality, int size, boolean forceImage) {
@@ -81,6 +83,20 @@ public class BinaryDownloadPayload implements Serializable {
         this.datasize = datasize;
     }
 
+    /**
+     * Response for a binary stored in the filesystem of the stream server's node, sent if the
+     * client requested {@link #setResolveFile(boolean) file resolution}. No stream is sent in this case.
+     *
+     * @param mimeType  the mime type
+     * @param datasize  the binary size
+     * @param filePath  the absolute path of the binary file
+     * @since 3.2.1
+     */
+    public BinaryDownloadPayload(String mimeType, int datasize, String filePath) {
+        this(mimeType, datasize);
+        this.filePath = filePath;
+    }
+
     public long getId() {
         return id;
     }
@@ -120,4 +136,33 @@ public class BinaryDownloadPayload implements Serializable {
     public boolean isForceImage() {
         return forceImage;
     }
+
+    /**
+     * Request the path of the binary file instead of the binary stream if the binary is stored in the filesystem.
+     * Only useful for clients running on the same node as the stream server.
+     *
+     * @param resolveFile   true to request the file path
+     * @return this
+     * @since 3.2.1
+     */
+    public BinaryDownloadPayload setResolveFile(boolean resolveFile) {
+        this.resolveFile = resolveFile;
+        return this;
+    }
+
+    /**
+     * @return true if the client requested the path of the binary file
+     * @since 3.2.1
+     */
+    public boolean isResolveFile() {
+        return resolveFile;
+    }
+
+    /**
+     * @return the absolute path of the binary file if the binary was resolved to a file, <code>null</code> otherwise
+     * @since 3.2.1
+     */
+    public String getFilePath() {
+        return filePath;
+    }
 }
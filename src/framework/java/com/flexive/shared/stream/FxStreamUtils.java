@@ -43,13 +43,14 @@ import com.flexive.stream.*;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
@@ -263,12 +264,21 @@ public class FxStreamUtils {
         try {
             client = getClient(server);
             DataPacket<BinaryDownloadPayload> req = new DataPacket<BinaryDownloadPayload>(
-                    new BinaryDownloadPayload(binaryId, 1, 1, selector.getSize().getBlobIndex(), selector.isForceImage()),
+                    new BinaryDownloadPayload(binaryId, 1, 1, selector.getSize().getBlobIndex(), selector.isForceImage())
+                            .setResolveFile(client.isLocal() && !selector.isApplyManipulations()),
                     true, true);
             DataPacket<BinaryDownloadPayload> resp = client.connect(req);
             if (resp.getPayload().isServerError())
                 throw new FxStreamException("ex.stream.serverError", resp.getPayload().getErrorMessage());
-            if (!selector.isApplyManipulations()) {
+            if (resp.getPayload().getFilePath() != null) {
+                client.close();
+                client = null;
+                if (callback != null) {
+                    callback.setMimeType(resp.getPayload().getMimeType());
+                    callback.setBinarySize(resp.getPayload().getDatasize());
+                }
+                transferFile(new File(resp.getPayload().getFilePath()), stream, 0, -1);
+            } else if (!selector.isApplyManipulations()) {
                 if (callback != null) {
                     callback.setMimeType(resp.getPayload().getMimeType());
                     callback.setBinarySize(resp.getPayload().getDatasize());
@@ -354,16 +364,49 @@ public class FxStreamUtils {
      * @throws FxStreamException on errors
      */
     public static void downloadBinary(List<ServerLocation> server, OutputStream stream, BinaryDescriptor descriptor, BinaryDescriptor.PreviewSizes size) throws FxStreamException {
+        downloadBinary(server, stream, descriptor, size, 0, -1);
+    }
+
+    /**
+     * Download a range of a binary. If the binary is stored in the filesystem and the stream server runs
+     * in the same VM, the file is written with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * instead of being streamed through the stream server.
+     *
+     * @param server     (optional) list of remote stream servers
+     * @param stream     the output stream to send the binary to
+     * @param descriptor binary descriptor
+     * @param size       preview size
+     * @param offset     the index of the first byte to send
+     * @param length     the number of bytes to send, -1 to send all bytes starting at <code>offset</code>
+     * @throws FxStreamException on errors
+     * @since 3.2.1
+     */
+    public static void downloadBinary(List<ServerLocation> server, OutputStream stream, BinaryDescriptor descriptor,
+                                      BinaryDescriptor.PreviewSizes size, long offset, long length) throws FxStreamException {
         if (stream == null)
             throw new FxStreamException("ex.stream.download.param.missing");
-        if (descriptor.getSize() <= 0)
+        if (descriptor.getSize() <= 0 || length == 0)
             return; //no need to request a 0-byte stream
         StreamClient client = null;
         try {
-            client = requestBinary(server, descriptor, size);
-            client.receiveStream(stream, descriptor.getSize());
-            client.close();
-            client = null;
+            client = getClient(server);
+            DataPacket<BinaryDownloadPayload> req = new DataPacket<BinaryDownloadPayload>(
+                    new BinaryDownloadPayload(descriptor.getId(), descriptor.getVersion(), descriptor.getQuality(), size.getBlobIndex(), false)
+                            .setResolveFile(client.isLocal()),
+                    true, true);
+            DataPacket<BinaryDownloadPayload> resp = client.connect(req);
+            if (resp.getPayload().isServerError())
+                throw new FxStreamException("ex.stream.serverError", resp.getPayload().getErrorMessage());
+            if (resp.getPayload().getFilePath() != null) {
+                client.close();
+                client = null;
+                transferFile(new File(resp.getPayload().getFilePath()), stream, offset, length);
+            } else {
+                client.receiveStream(offset == 0 && length == -1 ? stream : new RangeOutputStream(stream, offset, length),
+                        descriptor.getSize());
+                client.close();
+                client = null;
+            }
         } catch (StreamException e) {
             throw wrapStreamException(e);
         } finally {
@@ -376,6 +419,71 @@ public class FxStreamUtils {
         }
     }
 
+    /**
+     * Write a range of a file to the given stream.
+     *
+     * @param file   the file
+     * @param stream the output stream
+     * @param offset the index of the first byte to send
+     * @param length the number of bytes to send, -1 to send all bytes starting at <code>offset</code>
+     * @throws FxStreamException on errors
+     */
+    private static void transferFile(File file, OutputStream stream, long offset, long length) throws FxStreamException {
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final FileChannel channel = in.getChannel();
+            final long end = length == -1 ? channel.size() : Math.min(channel.size(), offset + length);
+            final WritableByteChannel target = Channels.newChannel(stream);
+            long position = offset;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        } catch (IOException e) {
+            throw new FxStreamException(e, "ex.stream", e.getMessage());
+        } finally {
+            FxSharedUtils.close(in);
+        }
+    }
+
+    /**
+     * Output stream that passes only a range of the written bytes to the wrapped stream.
+     */
+    private static class RangeOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final long end;
+        private long position;
+
+        private RangeOutputStream(OutputStream out, long offset, long length) {
+            this.out = out;
+            this.position = -offset;
+            this.end = length == -1 ? Long.MAX_VALUE : length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position >= 0 && position < end) {
+                out.write(b);
+            }
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final long from = Math.max(position, 0);
+            final long to = Math.min(position + len, end);
+            if (from < to) {
+                out.write(b, off + (int) (from - position), (int) (to - from));
+            }
+            position += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
     protected static FxStreamException wrapStreamException(StreamException e) {
         return new FxStreamException(e.getMessage(), e);
     }
@@ -462,6 +462,21 @@ public class BinaryDescriptor implements Serializable {
         FxStreamUtils.downloadBinary(server, stream, this, size);
     }
 
+    /**
+     * Downloads a range of the binary in the requested size to the given stream.
+     * The stream won't be flushed or closed!
+     *
+     * @param stream stream used for download
+     * @param size   requested size (original or preview images if available)
+     * @param offset the index of the first byte to download
+     * @param length the number of bytes to download, -1 to download all bytes starting at <code>offset</code>
+     * @throws FxStreamException on errors
+     * @since 3.2.1
+     */
+    public void download(OutputStream stream, PreviewSizes size, long offset, long length) throws FxStreamException {
+        FxStreamUtils.downloadBinary(server, stream, this, size, offset, length);
+    }
+
     /**
      * Get the binary as InputStream for a requested preview size
      *
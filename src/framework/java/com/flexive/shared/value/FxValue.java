@@ -42,13 +42,13 @@ import com.flexive.shared.structure.FxDataType;
 import com.flexive.shared.structure.FxPropertyAssignment;
 import com.flexive.shared.value.renderer.FxValueRendererFactory;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.primitives.Longs;
 import org.apache.commons.lang.StringUtils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -108,9 +108,9 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
         if (multiLanguage) {
             if (translations == null) {
                 //valid to pass null, create an empty one
-                this.translations = new HashMap<Long, T>(4);
+                this.translations = new TranslationMap<T>();
             } else {
-                this.translations = new HashMap<Long, T>(translations);
+                this.translations = new TranslationMap<T>(translations);
             }
             if (this.defaultLanguage < 0) {
                 this.defaultLanguage = FxLanguage.SYSTEM_ID;
@@ -138,7 +138,7 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
         this.defaultLanguage = defaultLanguage;
         this.readOnly = false;
         if (multiLanguage) {
-            this.translations = new HashMap<Long, T>(4);
+            this.translations = new TranslationMap<T>();
             if (this.defaultLanguage < 0) {
                 this.defaultLanguage = FxLanguage.SYSTEM_ID;
             }
@@ -185,7 +185,8 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
      * @param pos          position (index) in the array to use
      */
     protected FxValue(Map<Long, T[]> translations, int pos) {
-        this(DEFAULT_MULTILANGUAGE, FxLanguage.SYSTEM_ID, new HashMap<Long, T>((translations == null ? 5 : translations.size())));
+        //noinspection RedundantCast
+        this(DEFAULT_MULTILANGUAGE, FxLanguage.SYSTEM_ID, (Map<Long, T>) null);
         if (translations == null)
             return;
         for (Entry<Long, T[]> e : translations.entrySet())
@@ -254,17 +255,18 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
      */
     @SuppressWarnings("unchecked")
     protected FxValue(FxValue<T, TDerived> clone) {
-        this(clone.isMultiLanguage(), clone.getDefaultLanguage(), new HashMap<Long, T>((clone.translations != null ? clone.translations.size() : 1)));
+        //noinspection RedundantCast
+        this(clone.isMultiLanguage(), clone.getDefaultLanguage(), (Map<Long, T>) null);
         this.XPath = clone.XPath;
         this.xpathPrefix = clone.xpathPrefix;
         this.valueData = clone.valueData;
         if(clone.multiLangData != null)
-            this.multiLangData = Maps.newHashMap(clone.multiLangData);
+            this.multiLangData = new TranslationMap<Integer>(clone.multiLangData);
         this.changeListener = clone.changeListener;
         if (clone.isImmutableValueType()) {
             if (clone.isMultiLanguage()) {
-                // clone only hashmap
-                this.translations = new HashMap(clone.translations);
+                // clone only the translation map
+                this.translations = new TranslationMap<T>(clone.translations);
             } else {
                 this.singleValue = clone.singleValue;
                 this.singleValueEmpty = clone.singleValueEmpty;
@@ -360,7 +362,7 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
         this.changeListener = other.changeListener;
         if (copyValueData) {
             this.valueData = other.valueData;
-            this.multiLangData = other.multiLangData == null ? null : Maps.<Long, Integer>newHashMap(other.multiLangData);
+            this.multiLangData = other.multiLangData == null ? null : new TranslationMap<Integer>(other.multiLangData);
         }
     }
 
@@ -826,7 +828,7 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
         }
         if (translations == null) {
             //create an empty one, not yet initialized
-            this.translations = new HashMap<Long, T>(4);
+            this.translations = new TranslationMap<T>();
         }
         if (language == FxLanguage.SYSTEM_ID)
             throw new FxInvalidParameterException("language", "ex.content.value.invalid.multilanguage.sys").asRuntimeException();
@@ -1281,7 +1283,7 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
                 } else if (!valueData.equals(this.valueData) || multiLangData == null || multiLangData.isEmpty()) {
                     // store only "non-default" flags (and the initial value) in the hashmap
                     if (multiLangData == null)
-                        multiLangData = Maps.newHashMap();
+                        multiLangData = new TranslationMap<Integer>();
                     multiLangData.put(language, valueData);
                 }
             }
@@ -1373,6 +1375,17 @@ public abstract class FxValue<T, TDerived extends FxValue<T, TDerived>> implemen
         return value instanceof EmptyTranslation ? null : (T) value;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // translations are serialized as HashMaps, restore the compact representation
+        if (translations != null) {
+            translations = new TranslationMap<T>(translations);
+        }
+        if (multiLangData != null) {
+            multiLangData = new TranslationMap<Integer>(multiLangData);
+        }
+    }
+
     private static class EmptyTranslation implements Serializable {
     }
 }
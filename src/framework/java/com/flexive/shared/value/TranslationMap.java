@@ -0,0 +1,287 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.shared.value;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact map from language IDs to translations (or other per-language data) used by {@link FxValue}.
+ * <p>
+ * Most values hold only one to three translations, so the entries are stored in parallel arrays sorted by the
+ * language ID instead of a hash table with boxed keys. A single entry is stored directly in fields without
+ * any arrays.
+ * </p>
+ * <p>
+ * For serialization the map is replaced by a {@link HashMap}, so the serialized form of {@link FxValue}
+ * is not affected.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+final class TranslationMap<V> extends AbstractMap<Long, V> implements Serializable {
+    private static final long serialVersionUID = 4403582745164108592L;
+
+    /** Sorted language IDs, null if the map has at most one entry. */
+    private long[] keys;
+    /** The values of {@link #keys}. */
+    private Object[] values;
+    /** The single entry if {@link #keys} is null and the size is 1. */
+    private long singleKey;
+    private Object singleValue;
+    private int size;
+
+    TranslationMap() {
+    }
+
+    TranslationMap(Map<Long, ? extends V> other) {
+        if (other instanceof TranslationMap) {
+            final TranslationMap<?> map = (TranslationMap<?>) other;
+            this.size = map.size;
+            this.singleKey = map.singleKey;
+            this.singleValue = map.singleValue;
+            if (map.keys != null) {
+                this.keys = Arrays.copyOf(map.keys, map.size);
+                this.values = Arrays.copyOf(map.values, map.size);
+            }
+        } else if (other != null) {
+            putAll(other);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && indexOf((Long) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        final long language = (Long) key;
+        if (keys == null) {
+            return size == 1 && singleKey == language ? (V) singleValue : null;
+        }
+        final int index = Arrays.binarySearch(keys, 0, size, language);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(Long key, V value) {
+        final long language = key;
+        if (keys == null) {
+            if (size == 0) {
+                singleKey = language;
+                singleValue = value;
+                size = 1;
+                return null;
+            } else if (singleKey == language) {
+                final Object old = singleValue;
+                singleValue = value;
+                return (V) old;
+            }
+            // second entry, switch to arrays
+            keys = new long[]{singleKey, 0};
+            values = new Object[]{singleValue, null};
+            singleKey = 0;
+            singleValue = null;
+        }
+        final int index = Arrays.binarySearch(keys, 0, size, language);
+        if (index >= 0) {
+            final Object old = values[index];
+            values[index] = value;
+            return (V) old;
+        }
+        final int pos = -(index + 1);
+        if (size == keys.length) {
+            final int capacity = size + Math.max(2, size >> 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        keys[pos] = language;
+        values[pos] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        final long language = (Long) key;
+        if (keys == null) {
+            if (size == 1 && singleKey == language) {
+                final Object old = singleValue;
+                clear();
+                return (V) old;
+            }
+            return null;
+        }
+        final int index = Arrays.binarySearch(keys, 0, size, language);
+        if (index < 0) {
+            return null;
+        }
+        final Object old = values[index];
+        removeAt(index);
+        return (V) old;
+    }
+
+    @Override
+    public void clear() {
+        keys = null;
+        values = null;
+        singleKey = 0;
+        singleValue = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<Long, V>> entrySet() {
+        return new AbstractSet<Entry<Long, V>>() {
+            @Override
+            public Iterator<Entry<Long, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(long language) {
+        if (keys == null) {
+            return size == 1 && singleKey == language ? 0 : -1;
+        }
+        return Arrays.binarySearch(keys, 0, size, language);
+    }
+
+    private long keyAt(int index) {
+        return keys == null ? singleKey : keys[index];
+    }
+
+    private Object valueAt(int index) {
+        return keys == null ? singleValue : values[index];
+    }
+
+    private void removeAt(int index) {
+        if (keys == null) {
+            clear();
+            return;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
+        if (size == 1) {
+            // back to a single entry
+            singleKey = keys[0];
+            singleValue = values[0];
+            keys = null;
+            values = null;
+        }
+    }
+
+    private Object writeReplace() {
+        return new HashMap<Long, V>(this);
+    }
+
+    private class EntryIterator implements Iterator<Entry<Long, V>> {
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<Long, V> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new TranslationEntry(keyAt(last), (V) valueAt(last));
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    private class TranslationEntry extends SimpleEntry<Long, V> {
+        private static final long serialVersionUID = -1876262426340718449L;
+
+        private TranslationEntry(long key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -65,6 +66,7 @@ public class H2SequencerStorage extends GenericSequencerStorage {
     private final static String TBL_H2_SEQUENCES = "INFORMATION_SCHEMA.SEQUENCES";
     private final static String H2_SEQ_PREFIX = "FXSEQ_";
     private final static String SQL_NEXT = "SELECT CURRVAL(?), NEXTVAL(?) FROM DUAL";
+    private final static String SQL_NEXT_BLOCK = "SELECT NEXTVAL(?) FROM SYSTEM_RANGE(1, ?)";
     private final static String SQL_CREATE = "CREATE SEQUENCE ";
     private final static String SQL_DELETE = "DROP SEQUENCE " + H2_SEQ_PREFIX;
     private final static String SQL_EXIST = "SELECT COUNT(*) FROM " + TBL_H2_SEQUENCES + " WHERE SEQUENCE_NAME=?";
@@ -144,6 +146,41 @@ public class H2SequencerStorage extends GenericSequencerStorage {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long[] fetchIds(String name, boolean allowRollover, int count) throws FxCreateException {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            // sequence values are not affected by rollbacks, so the current transaction can be used
+            con = Database.getDbConnection();
+            ps = con.prepareStatement(SQL_NEXT_BLOCK);
+            ps.setString(1, H2_SEQ_PREFIX + name);
+            ps.setInt(2, count);
+            final ResultSet rs = ps.executeQuery();
+            final long[] ids = new long[count];
+            int found = 0;
+            while (rs != null && rs.next() && found < count) {
+                final long id = rs.getLong(1);
+                if (id >= getMaxId() || (found > 0 && id <= ids[found - 1])) {
+                    // exhausted or rolled over - handled by fetchId
+                    break;
+                }
+                ids[found++] = id;
+            }
+            if (found == 0) {
+                return super.fetchIds(name, allowRollover, count);
+            }
+            return found < count ? Arrays.copyOf(ids, found) : ids;
+        } catch (SQLException exc) {
+            throw new FxCreateException(LOG, exc, "ex.sequencer.fetch.failedMsg", name, exc.getMessage());
+        } finally {
+            Database.closeObjects(H2SequencerStorage.class, con, ps);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -155,6 +192,7 @@ public class H2SequencerStorage extends GenericSequencerStorage {
         if (sequencerExists(name))
             throw new FxCreateException(LOG, "ex.sequencer.create.invalid.name", name);
 
+        discardBlock(name);
         Connection con = null;
         Statement stmt = null;
         try {
@@ -176,6 +214,7 @@ public class H2SequencerStorage extends GenericSequencerStorage {
     public void removeSequencer(String name) throws FxApplicationException {
         if (!sequencerExists(name))
             throw new FxCreateException(LOG, "ex.sequencer.notFound", name);
+        discardBlock(name);
         Connection con = null;
         Statement stmt = null;
         try {
@@ -260,7 +299,7 @@ public class H2SequencerStorage extends GenericSequencerStorage {
             ps.setString(1, H2_SEQ_PREFIX + sequencer.getSequencerName());
             ResultSet rs = ps.executeQuery();
             if (rs != null && rs.next())
-                return rs.getLong(1);
+                return getCurrentId(sequencer.getSequencerName(), rs.getLong(1));
         } catch (SQLException exc) {
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage());
         } finally {
@@ -274,6 +313,7 @@ public class H2SequencerStorage extends GenericSequencerStorage {
      */
     @Override
     public void setSequencerId(String name, long newId) throws FxApplicationException {
+        discardBlock(name);
         Connection con = null;
         PreparedStatement ps = null;
         try {
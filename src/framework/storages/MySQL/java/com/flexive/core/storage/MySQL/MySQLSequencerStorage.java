@@ -90,6 +90,7 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
     private final static String SQL_GET_CURRVALUE = "SELECT ID FROM " + TBL_SEQUENCE + " WHERE NAME=?";
 
     private final static String SQL_NEXT = "UPDATE " + TBL_SEQUENCE + " SET ID=LAST_INSERT_ID(ID+1) WHERE NAME=?";
+    private final static String SQL_NEXT_BLOCK = "UPDATE " + TBL_SEQUENCE + " SET ID=LAST_INSERT_ID(ID+?) WHERE NAME=? AND ID<?";
     private final static String SQL_RESET = "UPDATE " + TBL_SEQUENCE + " SET ID=0 WHERE NAME=?";
     private final static String SQL_GETID = "SELECT LAST_INSERT_ID()";
     private final static String SQL_GET_ROLLOVER = "SELECT ROLLOVER FROM " + TBL_SEQUENCE + " WHERE NAME=?";
@@ -160,6 +161,43 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long[] fetchIds(String name, boolean allowRollover, int count) throws FxCreateException {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            // reserve the block outside of the current transaction, a rollback must not hand out the ids again
+            con = Database.getNonTXDataSource().getConnection();
+            ps = con.prepareStatement(SQL_NEXT_BLOCK);
+            ps.setInt(1, count);
+            ps.setString(2, name);
+            ps.setLong(3, MAX_ID - count);
+            ps.executeUpdate();
+            if (ps.getUpdateCount() == 0) {
+                // unknown sequencer or near the maximum id - let fetchId handle errors and rollover
+                return super.fetchIds(name, allowRollover, count);
+            }
+            ps.close();
+            ps = con.prepareStatement(SQL_GETID);
+            final ResultSet rs = ps.executeQuery();
+            if (rs == null || !rs.next())
+                throw new FxCreateException(LOG, "ex.sequencer.fetch.failed", name);
+            final long lastId = rs.getLong(1);
+            final long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = lastId - count + 1 + i;
+            }
+            return ids;
+        } catch (SQLException exc) {
+            throw new FxCreateException(LOG, exc, "ex.sequencer.fetch.failedMsg", name, exc.getMessage());
+        } finally {
+            Database.closeObjects(MySQLSequencerStorage.class, con, ps);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -173,6 +211,7 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
 
         Connection con = null;
         PreparedStatement ps = null;
+        discardBlock(name);
         try {
             con = Database.getDbConnection();
 
@@ -197,6 +236,7 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
     public void removeSequencer(String name) throws FxApplicationException {
         if (!sequencerExists(name))
             throw new FxCreateException(LOG, "ex.sequencer.notFound", name);
+        discardBlock(name);
         Connection con = null;
         PreparedStatement ps = null;
         try {
@@ -284,7 +324,7 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
             ps.setString(1, sequencer.getSequencerName());
             ResultSet rs = ps.executeQuery();
             if (rs != null && rs.next())
-                return rs.getLong(1);
+                return getCurrentId(sequencer.getSequencerName(), rs.getLong(1));
         } catch (SQLException exc) {
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage());
         } finally {
@@ -298,6 +338,7 @@ public class MySQLSequencerStorage extends GenericSequencerStorage {
      */
     @Override
     public void setSequencerId(String name, long newId) throws FxApplicationException {
+        discardBlock(name);
         Connection con = null;
         PreparedStatement ps = null;
         try {
@@ -271,6 +271,15 @@ public class MySQLStorageFactory extends GenericDBStorage  implements DBStorage
                 || e.getClass().getName().equals("com.mysql.jdbc.exceptions.MySQLTimeoutException");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStreamingFetchSize() {
+        // Connector/J ignores positive fetch sizes and reads the complete result unless row streaming is requested
+        return Integer.MIN_VALUE;
+    }
+
     /**
      * {@inheritDoc}
      */
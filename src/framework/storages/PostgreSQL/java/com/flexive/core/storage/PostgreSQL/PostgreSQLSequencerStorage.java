@@ -47,6 +47,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -63,6 +64,7 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
     private final static String TBL_PG_SEQUENCES = "PG_CLASS";
     private final static String PG_SEQ_PREFIX = "FXSEQ_";
 //    private final static String SQL_NEXT = "SELECT CURRVAL(?), NEXTVAL(?)";
+    private final static String SQL_NEXT_BLOCK = "SELECT NEXTVAL(?) FROM GENERATE_SERIES(1, ?)";
     private final static String SQL_CREATE = "CREATE SEQUENCE ";
     private final static String SQL_DELETE = "DROP SEQUENCE " + PG_SEQ_PREFIX;
     private final static String SQL_EXIST = "SELECT COUNT(*) FROM " + TBL_PG_SEQUENCES + " WHERE RELKIND='S' AND UPPER(RELNAME)=?";
@@ -116,6 +118,36 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long[] fetchIds(String name, boolean allowRollover, int count) throws FxCreateException {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            // sequence values are not affected by rollbacks, so the current transaction can be used
+            con = Database.getDbConnection();
+            ps = con.prepareStatement(SQL_NEXT_BLOCK);
+            ps.setString(1, PG_SEQ_PREFIX + name);
+            ps.setInt(2, count);
+            final ResultSet rs = ps.executeQuery();
+            final long[] ids = new long[count];
+            int found = 0;
+            while (rs != null && rs.next() && found < count) {
+                ids[found++] = rs.getLong(1);
+            }
+            if (found == 0) {
+                return super.fetchIds(name, allowRollover, count);
+            }
+            return found < count ? Arrays.copyOf(ids, found) : ids;
+        } catch (SQLException exc) {
+            throw new FxCreateException(LOG, exc, "ex.sequencer.fetch.failedMsg", name, exc.getMessage());
+        } finally {
+            Database.closeObjects(PostgreSQLSequencerStorage.class, con, ps);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -127,6 +159,7 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
         if (sequencerExists(name))
             throw new FxCreateException(LOG, "ex.sequencer.create.invalid.name", name);
 
+        discardBlock(name);
         Connection con = null;
         Statement stmt = null;
         try {
@@ -148,6 +181,7 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
     public void removeSequencer(String name) throws FxApplicationException {
         if (!sequencerExists(name))
             throw new FxCreateException(LOG, "ex.sequencer.notFound", name);
+        discardBlock(name);
         Connection con = null;
         Statement stmt = null;
         try {
@@ -274,7 +308,7 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
             ps = con.prepareStatement(SQL_GET_INFO + PG_SEQ_PREFIX + sequencer.getSequencerName());
             ResultSet rs = ps.executeQuery();
             if (rs != null && rs.next())
-                return rs.getLong(2);
+                return getCurrentId(sequencer.getSequencerName(), rs.getLong(2));
         } catch (SQLException exc) {
             throw new FxDbException(LOG, exc, "ex.db.sqlError", exc.getMessage());
         } finally {
@@ -293,7 +327,8 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
         try {
             nonTxCon = Database.getNonTXDataSource().getConnection();
             s = nonTxCon.createStatement();
-            return loadCustomSequencer(s, sequencer).getCurrentNumber();
+            final CustomSequencer cs = loadCustomSequencer(s, sequencer);
+            return getCurrentId(cs.getName(), cs.getCurrentNumber());
         } catch (SQLException e) {
             throw new FxDbException(LOG, e, "ex.db.sqlError", e.getMessage());
         } finally {
@@ -306,6 +341,7 @@ public class PostgreSQLSequencerStorage extends GenericSequencerStorage {
      */
     @Override
     public void setSequencerId(String name, long newId) throws FxApplicationException {
+        discardBlock(name);
         Connection con = null;
         PreparedStatement ps = null;
         try {
@@ -32,14 +32,29 @@
 package com.flexive.tests.embedded;
 
 import com.flexive.shared.CacheAdmin;
+import com.flexive.shared.FxContext;
 import com.flexive.shared.cache.FxCacheException;
+import com.flexive.shared.cache.FxLocalContentCache;
+import com.flexive.shared.content.FxCachedContent;
+import com.flexive.shared.content.FxCachedContentContainer;
+import com.flexive.shared.content.FxPK;
+import com.flexive.shared.exceptions.FxApplicationException;
+import com.flexive.shared.interfaces.ContentEngine;
 import com.flexive.shared.mbeans.FxCacheMBean;
+import com.flexive.shared.structure.FxType;
 import org.apache.commons.lang.StringUtils;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
+import static com.flexive.shared.EJBLookup.getContentEngine;
+import static com.flexive.tests.embedded.FxTestUtils.login;
+import static com.flexive.tests.embedded.FxTestUtils.logout;
+
 /**
  * Tree cache tests.
  *
@@ -113,4 +128,155 @@ public class CacheTest {
                 , "Node start time in the future or more than one hour in the past: " + cache.getNodeStartTime());
         Assert.assertTrue(cache.getSystemStartTime() <= cache.getNodeStartTime(), "System start time later than node start time.");
     }
+
+    @Test
+    public void testLocalContentCacheEviction() throws Exception {
+        login(TestUsers.SUPERVISOR);
+        final List<FxPK> pks = createFolders(3);
+        try {
+            final int divisionId = FxContext.get().getDivisionId();
+            final FxCachedContentContainer c1 = getContainer(pks.get(0));
+            final FxCachedContentContainer c2 = getContainer(pks.get(1));
+            final FxCachedContentContainer c3 = getContainer(pks.get(2));
+
+            final FxLocalContentCache sizeCache = new FxLocalContentCache(Long.MAX_VALUE);
+            sizeCache.put(divisionId, c1, sizeCache.getInvalidationStamp(c1.getId()));
+            final long weight = sizeCache.getWeight();
+            Assert.assertTrue(weight > 0, "Content weight not computed");
+
+            // room for two contents of the same type
+            final FxLocalContentCache cache = new FxLocalContentCache(2 * weight);
+            cache.put(divisionId, c1, cache.getInvalidationStamp(c1.getId()));
+            cache.put(divisionId, c2, cache.getInvalidationStamp(c2.getId()));
+            Assert.assertEquals(cache.getSize(), 2);
+            Assert.assertEquals(cache.getWeight(), 2 * weight);
+            // make c1 the most recently used entry
+            Assert.assertNotNull(cache.get(divisionId, pks.get(0)));
+
+            cache.put(divisionId, c3, cache.getInvalidationStamp(c3.getId()));
+            Assert.assertEquals(cache.getEvictions(), 1);
+            Assert.assertEquals(cache.getSize(), 2);
+            Assert.assertEquals(cache.getWeight(), 2 * weight);
+            Assert.assertNull(cache.get(divisionId, pks.get(1)), "Least recently used content not evicted");
+            Assert.assertNotNull(cache.get(divisionId, pks.get(0)));
+            Assert.assertNotNull(cache.get(divisionId, pks.get(2)));
+            // other division
+            Assert.assertNull(cache.get(divisionId + 1, pks.get(0)));
+            Assert.assertEquals(cache.getHits(), 3);
+            Assert.assertEquals(cache.getMisses(), 2);
+
+            // contents larger than the cache are not added
+            final FxLocalContentCache smallCache = new FxLocalContentCache(weight - 1);
+            smallCache.put(divisionId, c1, smallCache.getInvalidationStamp(c1.getId()));
+            Assert.assertEquals(smallCache.getSize(), 0);
+            Assert.assertEquals(smallCache.getWeight(), 0);
+
+            final FxLocalContentCache disabled = new FxLocalContentCache(0);
+            Assert.assertFalse(disabled.isEnabled());
+            disabled.put(divisionId, c1, disabled.getInvalidationStamp(c1.getId()));
+            Assert.assertEquals(disabled.getSize(), 0);
+        } finally {
+            removeContents(pks);
+            logout();
+        }
+    }
+
+    @Test
+    public void testLocalContentCacheInvalidation() throws Exception {
+        login(TestUsers.SUPERVISOR);
+        final List<FxPK> pks = createFolders(2);
+        try {
+            final int divisionId = FxContext.get().getDivisionId();
+            final FxCachedContentContainer c1 = getContainer(pks.get(0));
+            final FxCachedContentContainer c2 = getContainer(pks.get(1));
+            final FxLocalContentCache cache = new FxLocalContentCache(Long.MAX_VALUE);
+
+            // removed contents are not added with an outdated stamp
+            final long stamp = cache.getInvalidationStamp(c1.getId());
+            cache.remove(divisionId, c1.getId());
+            cache.put(divisionId, c1, stamp);
+            Assert.assertNull(cache.get(divisionId, pks.get(0)), "Content added although it was invalidated");
+
+            cache.put(divisionId, c1, cache.getInvalidationStamp(c1.getId()));
+            cache.put(divisionId, c2, cache.getInvalidationStamp(c2.getId()));
+            cache.remove(divisionId, c1.getId());
+            Assert.assertNull(cache.get(divisionId, pks.get(0)));
+            Assert.assertNotNull(cache.get(divisionId, pks.get(1)));
+            Assert.assertEquals(cache.getSize(), 1);
+
+            // invalidations of the backing cache
+            Assert.assertEquals(cache.getSyncedSequence(divisionId), -1);
+            cache.put(divisionId, c1, cache.getInvalidationStamp(c1.getId()));
+            cache.applyInvalidations(divisionId, new long[]{5, c2.getId()});
+            Assert.assertEquals(cache.getSyncedSequence(divisionId), 5);
+            Assert.assertNotNull(cache.get(divisionId, pks.get(0)));
+            Assert.assertNull(cache.get(divisionId, pks.get(1)));
+            cache.applyInvalidations(divisionId, new long[]{6, -1});
+            Assert.assertEquals(cache.getSyncedSequence(divisionId), 6);
+            Assert.assertEquals(cache.getSize(), 0);
+            Assert.assertEquals(cache.getWeight(), 0);
+
+            // clear only removes contents of the given division
+            cache.put(divisionId, c1, cache.getInvalidationStamp(c1.getId()));
+            cache.put(divisionId + 1, c2, cache.getInvalidationStamp(c2.getId()));
+            cache.clear(divisionId);
+            Assert.assertNull(cache.get(divisionId, pks.get(0)));
+            Assert.assertNotNull(cache.get(divisionId + 1, pks.get(1)));
+        } finally {
+            removeContents(pks);
+            logout();
+        }
+    }
+
+    @Test
+    public void testExpireLocalCachedContent() throws Exception {
+        final FxLocalContentCache cache = CacheAdmin.getLocalContentCache();
+        if (!cache.isEnabled()) {
+            throw new SkipException("Local content cache is disabled");
+        }
+        login(TestUsers.SUPERVISOR);
+        final List<FxPK> pks = createFolders(1);
+        try {
+            final int divisionId = FxContext.get().getDivisionId();
+            final FxPK pk = pks.get(0);
+            getContentEngine().load(pk);
+            Assert.assertNotNull(CacheAdmin.getCachedContent(pk));
+            Assert.assertNotNull(cache.get(divisionId, pk), "Content not added to the local content cache");
+            Assert.assertNotSame(getContentEngine().load(pk), getContentEngine().load(pk),
+                    "Loaded contents must be copies of the cached instance");
+
+            CacheAdmin.expireCachedContent(pk.getId());
+            Assert.assertNull(cache.get(divisionId, pk), "Content not removed from the local content cache");
+
+            getContentEngine().load(pk);
+            Assert.assertNotNull(cache.get(divisionId, pk));
+            CacheAdmin.expireCachedContents();
+            Assert.assertNull(cache.get(divisionId, pk), "Contents not removed from the local content cache");
+        } finally {
+            removeContents(pks);
+            logout();
+        }
+    }
+
+    private static List<FxPK> createFolders(int count) throws FxApplicationException {
+        final ContentEngine ce = getContentEngine();
+        final List<FxPK> pks = new ArrayList<FxPK>(count);
+        for (int i = 0; i < count; i++) {
+            pks.add(ce.save(ce.initialize(FxType.FOLDER)));
+        }
+        return pks;
+    }
+
+    private static void removeContents(List<FxPK> pks) throws FxApplicationException {
+        for (FxPK pk : pks) {
+            getContentEngine().remove(pk);
+        }
+    }
+
+    private static FxCachedContentContainer getContainer(FxPK pk) throws FxApplicationException {
+        getContentEngine().load(pk);
+        final FxCachedContent cached = CacheAdmin.getCachedContent(pk);
+        Assert.assertNotNull(cached, "Content " + pk + " not cached after loading");
+        return new FxCachedContentContainer(cached);
+    }
 }
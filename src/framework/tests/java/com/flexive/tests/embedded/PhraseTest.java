@@ -208,6 +208,54 @@ public class PhraseTest {
         Assert.assertEquals(pe.loadPhrases("fx.", ownMandator, testMandator).size(), 0);
     }
 
+    /**
+     * Cached phrases must reflect updates, removals and the mandator fallback
+     *
+     * @throws FxApplicationException on errors
+     */
+    @Test
+    public void phraseCacheTest() throws FxApplicationException {
+        final long ownMandator = FxContext.get().getTicket().getMandatorId();
+        PhraseEngine pe = EJBLookup.getPhraseEngine();
+        pe.savePhrase("fx.cache.1", new FxString(true, FxLanguage.ENGLISH, "cached 1"), testMandator);
+        pe.savePhrase("fx.cache.2", new FxString(true, FxLanguage.ENGLISH, "cached 2"), ownMandator);
+        try {
+            // the first lookup loads the whole category, missing keys must not be found afterwards
+            Assert.assertEquals(pe.loadPhrase("fx.cache.2", ownMandator).getValue().getTranslation(FxLanguage.ENGLISH), "cached 2");
+            Assert.assertEquals(pe.loadPhrase("fx.cache.1", ownMandator, testMandator).getMandator(), testMandator);
+            try {
+                pe.loadPhrase("fx.cache.3", ownMandator, testMandator);
+                Assert.fail("Phrase fx.cache.3 should not exist");
+            } catch (FxNotFoundException e) {
+                //expected
+            }
+
+            // phrases created after the category was cached must be found
+            pe.savePhrase("fx.cache.1", new FxString(true, FxLanguage.ENGLISH, "cached 1 own"), ownMandator);
+            Assert.assertEquals(pe.loadPhrase("fx.cache.1", ownMandator, testMandator).getMandator(), ownMandator);
+            Assert.assertEquals(pe.loadPhraseValue(FxLanguage.ENGLISH, "fx.cache.1", ownMandator, testMandator), "cached 1 own");
+
+            // updates must be visible
+            pe.savePhrase("fx.cache.1", new FxString(true, FxLanguage.ENGLISH, "cached 1 updated"), ownMandator);
+            Assert.assertEquals(pe.loadPhraseValue(FxLanguage.ENGLISH, "fx.cache.1", ownMandator, testMandator), "cached 1 updated");
+            Assert.assertEquals(pe.loadPhrase("fx.cache.1", ownMandator).getValue().getTranslation(FxLanguage.ENGLISH), "cached 1 updated");
+
+            // removal must fall back to the next mandator
+            Assert.assertTrue(pe.removePhrase("fx.cache.1", ownMandator));
+            Assert.assertEquals(pe.loadPhraseValue(FxLanguage.ENGLISH, "fx.cache.1", ownMandator, testMandator), "cached 1");
+            Assert.assertEquals(pe.loadPhrase("fx.cache.1", ownMandator, testMandator).getMandator(), testMandator);
+        } finally {
+            pe.removePhrases("fx.cache.", ownMandator);
+            pe.removePhrases("fx.cache.", testMandator);
+        }
+        try {
+            pe.loadPhraseValue("fx.cache.1", testMandator);
+            Assert.fail("Phrase fx.cache.1 should have been removed");
+        } catch (FxNotFoundException e) {
+            //expected
+        }
+    }
+
     @Test
     public void phraseTreeNodeTest() throws FxApplicationException {
         final long ownMandator = FxContext.get().getTicket().getMandatorId();
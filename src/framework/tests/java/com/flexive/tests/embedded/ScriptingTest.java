@@ -31,6 +31,7 @@
  ***************************************************************/
 package com.flexive.tests.embedded;
 
+import com.flexive.core.JDK6Scripting;
 import com.flexive.ejb.beans.ScriptingEngineBean;
 import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
@@ -49,6 +50,7 @@ import com.flexive.shared.security.ACLCategory;
 import com.flexive.shared.structure.*;
 import com.flexive.shared.value.FxString;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeSuite;
@@ -182,6 +184,94 @@ public class ScriptingTest {
         }
     }
 
+    /**
+     * Tests the execution statistics of scripts.
+     *
+     * @throws Exception on errors
+     */
+    @Test
+    public void scriptStatistics() throws Exception {
+        FxScriptInfo si = se.createScript(new FxScriptInfoEdit(-1, FxScriptEvent.Manual, "statisticsTestScript.gy", "statisticsTestScript",
+                "if (fail) throw new IllegalArgumentException(\"failed\"); return \"done\";", true, true));
+        try {
+            assertNull(getStatistics(si.getId()));
+            final FxScriptBinding binding = new FxScriptBinding();
+            binding.setVariable("fail", false);
+            se.runScript(si.getId(), binding);
+            se.runScript(si.getId(), binding);
+            binding.setVariable("fail", true);
+            try {
+                se.runScript(si.getId(), binding);
+                fail("Script should have thrown an exception");
+            } catch (FxApplicationException e) {
+                // expected
+            }
+            final FxScriptStatistics statistics = getStatistics(si.getId());
+            assertNotNull(statistics, "No statistics for script " + si.getName());
+            assertEquals(statistics.getName(), si.getName());
+            assertEquals(statistics.getInvocations(), 3);
+            assertEquals(statistics.getErrors(), 1);
+            assertTrue(statistics.getMaxTimeNanos() <= statistics.getTotalTimeNanos());
+
+            se.resetScriptStatistics();
+            assertNull(getStatistics(si.getId()));
+            binding.setVariable("fail", false);
+            se.runScript(si.getId(), binding);
+            assertEquals(getStatistics(si.getId()).getInvocations(), 1);
+        } finally {
+            se.remove(si.getId());
+        }
+        // the statistics of removed scripts are dropped
+        assertNull(getStatistics(si.getId()));
+    }
+
+    /**
+     * Tests that cached JSR-223 scripts, which are compiled once if supported by the script engine,
+     * are invalidated when the script code is updated.
+     *
+     * @throws Exception on errors
+     */
+    @Test
+    public void cachedScriptUpdate() throws Exception {
+        boolean javaScriptAvailable = false;
+        for (String[] engine : se.getAvailableScriptEngines()) {
+            javaScriptAvailable |= "js".equals(engine[0]);
+        }
+        if (!javaScriptAvailable) {
+            throw new SkipException("No JavaScript engine available");
+        }
+        FxScriptInfo si = se.createScript(new FxScriptInfoEdit(-1, FxScriptEvent.Manual, "cachedScriptTest.js", "cachedScriptTest",
+                "'first' + suffix", true, true));
+        try {
+            final long compilations = JDK6Scripting.getCompilationCount();
+            final FxScriptBinding binding = new FxScriptBinding();
+            binding.setVariable("suffix", "1");
+            assertEquals(String.valueOf(se.runScript(si.getId(), binding).getResult()), "first1");
+            assertEquals(JDK6Scripting.getCompilationCount(), compilations + 1, "Script should be compiled on first use");
+            // the cached script is run with the new binding
+            binding.setVariable("suffix", "2");
+            assertEquals(String.valueOf(se.runScript(si.getId(), binding).getResult()), "first2");
+            assertEquals(JDK6Scripting.getCompilationCount(), compilations + 1, "Compiled script should be reused");
+
+            se.updateScriptCode(si.getId(), "'second' + suffix");
+            assertEquals(String.valueOf(se.runScript(si.getId(), binding).getResult()), "second2");
+            assertEquals(JDK6Scripting.getCompilationCount(), compilations + 2, "Updated script should be recompiled");
+            se.runScript(si.getId(), binding);
+            assertEquals(JDK6Scripting.getCompilationCount(), compilations + 2, "Updated script should be compiled once");
+        } finally {
+            se.remove(si.getId());
+        }
+    }
+
+    private FxScriptStatistics getStatistics(long scriptId) {
+        for (FxScriptStatistics statistics : se.getScriptStatistics()) {
+            if (statistics.getScriptId() == scriptId) {
+                return statistics;
+            }
+        }
+        return null;
+    }
+
     /**
      * This method tests all aspects of script assignments to type properties.
      *
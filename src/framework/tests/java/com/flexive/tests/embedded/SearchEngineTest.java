@@ -174,6 +174,45 @@ public class SearchEngineTest {
         assertEquals(result.getTotalRowCount(), result.getRowCount());
     }
 
+    @Test
+    public void streamingSearchTest() throws FxApplicationException {
+        final SqlQueryBuilder sqb = new SqlQueryBuilder().select("@pk", "caption").type(TEST_TYPE);
+        final FxResultSet expected = sqb.getResult();
+        assertTrue(expected.getRowCount() > 1, "Test requires at least two rows");
+
+        for (boolean noResultInfo : new boolean[] { false, true }) {
+            sqb.getParams().setHintNoResultInfo(noResultInfo);
+            final List<Object[]> rows = Lists.newArrayList();
+            final FxResultSet result = getSearchEngineLocal().search(sqb.getQuery(), 0, -1, sqb.getParams(),
+                    new FxResultRowHandler() {
+                        @Override
+                        public boolean processRow(FxResultSet result, Object[] row) {
+                            assertEquals(result.getColumnIndex("caption"), 2);
+                            rows.add(row);
+                            return true;
+                        }
+                    });
+            assertEquals(result.getRowCount(), 0, "Streamed rows should not be added to the result set");
+            assertEquals(result.getTotalRowCount(), expected.getTotalRowCount());
+            assertEquals(rows.size(), expected.getRowCount());
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(rows.get(i)[0], expected.getResultRow(i).getPk(1));
+                assertEquals(rows.get(i)[1], expected.getResultRow(i).getValue(2));
+            }
+        }
+
+        // stop after the first row
+        final int[] count = new int[1];
+        getSearchEngineLocal().search(sqb.getQuery(), 0, -1, sqb.getParams(), new FxResultRowHandler() {
+            @Override
+            public boolean processRow(FxResultSet result, Object[] row) {
+                count[0]++;
+                return false;
+            }
+        });
+        assertEquals(count[0], 1, "Handler should not be called after returning false");
+    }
+
     @Test
     public void simpleNestedQueryTest() throws FxApplicationException {
         final FxResultSet result = new SqlQueryBuilder().select("caption").andSub()
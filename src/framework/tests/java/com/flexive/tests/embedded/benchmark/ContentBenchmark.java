@@ -33,7 +33,11 @@ package com.flexive.tests.embedded.benchmark;
 
 import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
+import com.flexive.shared.FxContext;
+import com.flexive.shared.FxLanguage;
+import com.flexive.shared.content.FxCachedContent;
 import com.flexive.shared.content.FxContent;
+import com.flexive.shared.content.FxDelta;
 import com.flexive.shared.content.FxPK;
 import com.flexive.shared.exceptions.FxAccountInUseException;
 import com.flexive.shared.exceptions.FxApplicationException;
@@ -43,10 +47,14 @@ import com.flexive.shared.interfaces.ContentEngine;
 import com.flexive.shared.scripting.FxScriptEvent;
 import com.flexive.shared.scripting.FxScriptInfo;
 import com.flexive.shared.scripting.FxScriptInfoEdit;
+import com.flexive.shared.scripting.FxScriptStatistics;
 import com.flexive.shared.search.FxResultSet;
 import com.flexive.shared.search.query.PropertyValueComparator;
 import com.flexive.shared.search.query.SqlQueryBuilder;
+import com.flexive.shared.structure.FxDataType;
+import com.flexive.shared.structure.FxMultiplicity;
 import com.flexive.shared.structure.FxType;
+import com.flexive.shared.structure.FxTypeEdit;
 import com.flexive.shared.value.FxString;
 import com.flexive.tests.embedded.FxTestUtils;
 import com.flexive.tests.embedded.TestUsers;
@@ -56,10 +64,14 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.getResultLogger;
+import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.runConcurrently;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Benchmarks content instances.
@@ -153,4 +165,216 @@ public class ContentBenchmark {
         }
         getResultLogger().logTime("getContentData", startTime, 100000 * 4, "instance property lookup");
     }
+
+    @Test(groups = "benchmark")
+    public void processDeltaLargeContent() throws FxApplicationException {
+        final int values = 5000;
+        FxContext.startRunningAsSystem();
+        long typeId = -1;
+        try {
+            typeId = createMultiValueType("DeltaBenchmark");
+            final FxContent original = createMultiValueContent(typeId, values);
+            final FxContent compare = original.copy();
+            for (int i = 1; i <= values; i += 100) {
+                compare.setValue("/text[" + i + "]", new FxString(false, "Changed value " + i));
+            }
+            compare.setValue("/number[" + (values + 1) + "]", values + 1);
+
+            FxDelta delta = FxDelta.processDelta(original, compare);    // warm up
+            final int iterations = 20;
+            final long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                delta = FxDelta.processDelta(original, compare);
+            }
+            getResultLogger().logTime("processDelta-" + values * 2 + "values", start, iterations, "delta");
+            assertEquals(delta.getUpdates().size(), values / 100);
+            assertEquals(delta.getAdds().size(), 1);
+            assertEquals(delta.getRemoves().size(), 0);
+        } finally {
+            if (typeId != -1) {
+                EJBLookup.getTypeEngine().remove(typeId);
+            }
+            FxContext.stopRunningAsSystem();
+        }
+    }
+
+    @Test(groups = "benchmark")
+    public void valueAccessLargeContent() throws FxApplicationException {
+        final int values = 5000;
+        FxContext.startRunningAsSystem();
+        long typeId = -1;
+        try {
+            typeId = createMultiValueType("ValueAccessBenchmark");
+            long start = System.currentTimeMillis();
+            final FxContent content = createMultiValueContent(typeId, values);
+            getResultLogger().logTime("setValue-" + values * 2 + "values", start, values * 2, "value");
+
+            final int iterations = 20;
+            start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                for (int j = 1; j <= values; j++) {
+                    content.getValue("/text[" + j + "]");
+                    content.getPropertyData("/number[" + j + "]");
+                }
+            }
+            getResultLogger().logTime("getValue-" + values * 2 + "values", start, iterations * values * 2, "value");
+
+            start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                for (int j = 1; j <= values; j++) {
+                    content.setValue("/number[" + j + "]", i + j);
+                }
+            }
+            getResultLogger().logTime("updateValue-" + values * 2 + "values", start, iterations * values, "value");
+            assertEquals(content.getValue("/number[" + values + "]").getBestTranslation(), iterations - 1 + values);
+        } finally {
+            if (typeId != -1) {
+                EJBLookup.getTypeEngine().remove(typeId);
+            }
+            FxContext.stopRunningAsSystem();
+        }
+    }
+
+    @Test(groups = "benchmark")
+    public void concurrentCreateAndCopy() throws Exception {
+        final int threads = 32;
+        final int iterations = 200;
+        FxContext.startRunningAsSystem();
+        long typeId = -1;
+        try {
+            typeId = createMultiValueType("ConcurrentCopyBenchmark");
+            final long benchTypeId = typeId;
+            final FxContent template = createMultiValueContent(typeId, 50);
+            template.copy();    // warm up
+
+            final ContentEngine ce = EJBLookup.getContentEngine();
+            final long start = runConcurrently(threads, new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int j = 0; j < iterations; j++) {
+                        ce.initialize(benchTypeId);
+                        template.copy();
+                    }
+                    return null;
+                }
+            });
+            getResultLogger().logTime("createAndCopy-" + threads + "threads", start, threads * iterations, "content");
+        } finally {
+            if (typeId != -1) {
+                EJBLookup.getTypeEngine().remove(typeId);
+            }
+            FxContext.stopRunningAsSystem();
+        }
+    }
+
+    @Test(groups = "benchmark")
+    public void cachedContentFootprint() throws FxApplicationException {
+        final int values = 500;
+        final int instances = 200;
+        FxContext.startRunningAsSystem();
+        long typeId = -1;
+        try {
+            final FxTypeEdit type = FxTypeEdit.createNew("FootprintBenchmark").save();
+            type.addProperty("text", FxDataType.String1024).setMultiplicity(FxMultiplicity.MULT_0_N).setMultiLang(true).save();
+            typeId = type.getId();
+            final FxContent content = EJBLookup.getContentEngine().initialize(typeId);
+            for (int i = 1; i <= values; i++) {
+                final FxString value = new FxString(true, FxLanguage.ENGLISH, "Text value " + i);
+                value.setTranslation(FxLanguage.GERMAN, "Textwert " + i);
+                content.setValue("/text[" + i + "]", value);
+            }
+
+            final long before = getUsedMemory();
+            final List<FxCachedContent> cached = new ArrayList<FxCachedContent>(instances);
+            for (int i = 0; i < instances; i++) {
+                cached.add(new FxCachedContent(content.copy(), null));
+            }
+            final long used = getUsedMemory() - before;
+            getResultLogger().logValue("cachedContentFootprint-" + values + "values", (double) used / instances,
+                    "cached content", "bytes");
+            assertEquals(cached.size(), instances);
+        } finally {
+            if (typeId != -1) {
+                EJBLookup.getTypeEngine().remove(typeId);
+            }
+            FxContext.stopRunningAsSystem();
+        }
+    }
+
+    private static long getUsedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test(groups = "benchmark")
+    public void concurrentSaveWithScript() throws Exception {
+        final int threads = 16;
+        final int iterations = 25;
+        FxContext.startRunningAsSystem();
+        long typeId = -1;
+        FxScriptInfo script = null;
+        final List<FxPK> pks = Collections.synchronizedList(new ArrayList<FxPK>(threads * iterations));
+        try {
+            typeId = createMultiValueType("ScriptSaveBenchmark");
+            final long benchTypeId = typeId;
+            script = EJBLookup.getScriptingEngine().createScript(
+                    new FxScriptInfoEdit(-1, FxScriptEvent.BeforeContentCreate, "ContentBenchmark.beforeCreate.gy", "",
+                            "content.setValue(\"/text[1]\", new com.flexive.shared.value.FxString(false, scriptname)); content",
+                            true, true));
+            EJBLookup.getScriptingEngine().createTypeScriptMapping(script.getId(), typeId, true, true);
+            final ContentEngine ce = EJBLookup.getContentEngine();
+            pks.add(ce.save(ce.initialize(typeId)));    // warm up
+
+            final long start = runConcurrently(threads, new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int j = 0; j < iterations; j++) {
+                        pks.add(ce.save(ce.initialize(benchTypeId)));
+                    }
+                    return null;
+                }
+            });
+            getResultLogger().logTime("saveWithScript-" + threads + "threads", start, threads * iterations, "instance");
+            assertEquals(ce.load(pks.get(pks.size() - 1)).getValue("/text[1]").getBestTranslation(), script.getName());
+
+            boolean found = false;
+            for (FxScriptStatistics statistics : EJBLookup.getScriptingEngine().getScriptStatistics()) {
+                if (statistics.getScriptId() == script.getId()) {
+                    assertEquals(statistics.getInvocations(), threads * iterations + 1);
+                    found = true;
+                }
+            }
+            assertTrue(found, "No statistics for script " + script.getName());
+        } finally {
+            for (FxPK pk : pks) {
+                EJBLookup.getContentEngine().remove(pk);
+            }
+            if (script != null) {
+                EJBLookup.getScriptingEngine().remove(script.getId());
+            }
+            if (typeId != -1) {
+                EJBLookup.getTypeEngine().remove(typeId);
+            }
+            FxContext.stopRunningAsSystem();
+        }
+    }
+
+    private long createMultiValueType(String name) throws FxApplicationException {
+        final FxTypeEdit type = FxTypeEdit.createNew(name).save();
+        type.addProperty("text", FxDataType.String1024).setMultiplicity(FxMultiplicity.MULT_0_N).save();
+        type.addProperty("number", FxDataType.Number).setMultiplicity(FxMultiplicity.MULT_0_N).save();
+        return type.getId();
+    }
+
+    private FxContent createMultiValueContent(long typeId, int values) throws FxApplicationException {
+        final FxContent content = EJBLookup.getContentEngine().initialize(typeId);
+        for (int i = 1; i <= values; i++) {
+            content.setValue("/text[" + i + "]", new FxString(false, "Text value " + i));
+            content.setValue("/number[" + i + "]", i);
+        }
+        return content;
+    }
 }
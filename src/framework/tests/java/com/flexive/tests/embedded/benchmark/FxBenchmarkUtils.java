@@ -31,9 +31,19 @@
  ***************************************************************/
 package com.flexive.tests.embedded.benchmark;
 
+import com.flexive.shared.FxContext;
+import com.flexive.shared.configuration.DivisionData;
 import com.flexive.tests.embedded.benchmark.logger.PlainTextLogger;
 import com.flexive.tests.embedded.benchmark.logger.ResultLogger;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import static org.testng.Assert.assertTrue;
+
 /**
  * Some utility methods for our benchmarks. The result logger class can be specified using the system property
  * {@code flexive.benchmark.resultlogger}.
@@ -64,4 +74,44 @@ class FxBenchmarkUtils {
         return RESULT_LOG;
     }
 
+    /**
+     * Run a task concurrently in the given number of threads. The task is called once per thread as global
+     * supervisor of the test division, all threads are started before the first task is called.
+     * Fails if a task threw an exception.
+     *
+     * @param threads   the number of threads
+     * @param task      the task
+     * @return          the start time of the tasks, to be passed to {@link ResultLogger#logTime}
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the tasks
+     */
+    public static long runConcurrently(int threads, final Callable<?> task) throws InterruptedException {
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    FxContext.get().setDivisionId(DivisionData.DIVISION_TEST);
+                    FxContext.get().setContextPath("flexiveTest");
+                    FxContext.get().runAsSystem();
+                    try {
+                        startSignal.await();
+                        task.call();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        FxContext.get().stopRunAsSystem();
+                        doneSignal.countDown();
+                    }
+                }
+            }).start();
+        }
+        final long start = System.currentTimeMillis();
+        startSignal.countDown();
+        doneSignal.await();
+        assertTrue(errors.isEmpty(), "Errors in concurrent tasks: " + errors);
+        return start;
+    }
+
 }
@@ -0,0 +1,122 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.embedded.benchmark;
+
+import com.flexive.core.security.UserTicketImpl;
+import com.flexive.shared.CacheAdmin;
+import com.flexive.shared.EJBLookup;
+import com.flexive.shared.FxLanguage;
+import com.flexive.shared.security.UserTicket;
+import com.flexive.shared.security.ACLAssignment;
+import com.flexive.shared.security.ACLCategory;
+import com.flexive.shared.security.Account;
+import com.flexive.shared.security.Role;
+import com.flexive.shared.security.UserGroup;
+import org.testng.annotations.Test;
+
+import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.getResultLogger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+/**
+ * Security-related benchmarks (user ticket permission checks and retrieval).
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+@Test(groups = "benchmark", enabled = true)
+public class SecurityBenchmark {
+    private static final long USER_ID = 1000;
+
+    /**
+     * Benchmark ACL permission checks of a ticket with several hundred group ACL assignments.
+     */
+    public void benchTicketACLChecks() {
+        final int aclCount = 500;
+        final ACLAssignment[] assignments = new ACLAssignment[aclCount * 2];
+        for (int i = 0; i < aclCount; i++) {
+            // group assignment with read permission for every ACL, edit permission for the owner of even ACLs
+            assignments[i * 2] = new ACLAssignment(i + 1, 100 + i % 20, true, false, false, false, false, false,
+                    ACLCategory.INSTANCE, null);
+            assignments[i * 2 + 1] = new ACLAssignment(i + 1, UserGroup.GROUP_OWNER, true, i % 2 == 0, false, false, false, false,
+                    ACLCategory.INSTANCE, null);
+        }
+        final Account account = new Account(USER_ID, "benchmark", "benchmark", 1, "", FxLanguage.DEFAULT, true, true,
+                null, null, -1, "", -1, true, null, null, -1, null);
+        final UserTicketImpl ticket = new UserTicketImpl("benchmark", false, account, new long[]{100},
+                new Role[0], assignments, FxLanguage.DEFAULT);
+
+        final int iterations = 1000000;
+        int granted = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++) {
+            final long aclId = i % (aclCount * 2) + 1;  // half of the checks for unassigned ACLs
+            if (ticket.mayReadACL(aclId, USER_ID)) {
+                granted++;
+            }
+            if (ticket.mayEditACL(aclId, i % 2 == 0 ? USER_ID : USER_ID + 1)) {
+                granted++;
+            }
+        }
+        getResultLogger().logTime("ticketACLChecks-" + assignments.length + "assignments", start, iterations * 2, "check");
+        assertEquals(granted, iterations / 2 + iterations / 4);
+    }
+
+    /**
+     * Compare the retrieval of the user ticket through the EJB layer (as done by FxContext#storeInfos for every
+     * dynamic request) with the validation of the session-local ticket by its marker.
+     */
+    public void benchUserTicketRetrieval() {
+        final int iterations = 10000;
+        final UserTicket last = EJBLookup.getAccountEngine().getUserTicket();
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++) {
+            assertNotNull(EJBLookup.getAccountEngine().getUserTicket());
+        }
+        final long ejbTime = System.currentTimeMillis() - start;
+        getResultLogger().logTime("userTicketFromEJB", start, iterations, "request");
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++) {
+            // the environment read for the marker is cached for the rest of the request, start a new one
+            CacheAdmin.environmentChanged();
+            assertNotNull(CacheAdmin.getUserTicketMarker());
+            assertNotNull(last.isGuest() ? last : last.copy());
+        }
+        final long markerTime = System.currentTimeMillis() - start;
+        getResultLogger().logTime("userTicketFromSession", start, iterations, "request");
+
+        getResultLogger().logValue("userTicketRetrievalSaving", (ejbTime - markerTime) * 1000.0 / iterations,
+                "request", "us");
+    }
+}
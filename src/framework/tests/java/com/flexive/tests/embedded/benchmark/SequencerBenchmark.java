@@ -0,0 +1,100 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.embedded.benchmark;
+
+import com.flexive.core.storage.genericSQL.GenericSequencerStorage;
+import com.flexive.shared.EJBLookup;
+import com.flexive.shared.FxContext;
+import com.flexive.shared.interfaces.SequencerEngine;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.getResultLogger;
+import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.runConcurrently;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Concurrent sequencer benchmarks, comparing single id fetches with block allocation.
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+@Test(groups = "benchmark", enabled = true)
+public class SequencerBenchmark {
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 500;
+
+    public void benchSequencerSingle() throws Exception {
+        benchSequencer("BENCH_SEQ_SINGLE", 1);
+    }
+
+    public void benchSequencerBlock() throws Exception {
+        benchSequencer("BENCH_SEQ_BLOCK", 100);
+    }
+
+    private void benchSequencer(final String name, int blockSize) throws Exception {
+        System.setProperty(GenericSequencerStorage.CONFIG_BLOCK_SIZE + "." + name, String.valueOf(blockSize));
+        final SequencerEngine sequencer = EJBLookup.getSequencerEngine();
+        FxContext.get().runAsSystem();
+        try {
+            if (sequencer.sequencerExists(name)) {
+                sequencer.removeSequencer(name);
+            }
+            sequencer.createSequencer(name, false, 0);
+            sequencer.getId(name);  // warm up
+
+            final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>(THREADS * IDS_PER_THREAD * 2));
+            final long start = runConcurrently(THREADS, new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        ids.add(sequencer.getId(name));
+                    }
+                    return null;
+                }
+            });
+            getResultLogger().logTime("sequencer-" + name + "-" + THREADS + "threads", start, THREADS * IDS_PER_THREAD, "id");
+
+            assertEquals(ids.size(), THREADS * IDS_PER_THREAD, "Sequencer " + name + " returned duplicate ids");
+        } finally {
+            if (sequencer.sequencerExists(name)) {
+                sequencer.removeSequencer(name);
+            }
+            FxContext.get().stopRunAsSystem();
+            System.clearProperty(GenericSequencerStorage.CONFIG_BLOCK_SIZE + "." + name);
+        }
+    }
+}
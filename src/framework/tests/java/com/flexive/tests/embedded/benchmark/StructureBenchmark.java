@@ -31,12 +31,18 @@
  ***************************************************************/
 package com.flexive.tests.embedded.benchmark;
 
+import com.flexive.core.structure.StructureLoader;
 import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.FxContext;
+import com.flexive.shared.FxSharedUtils;
 import com.flexive.shared.structure.FxEnvironment;
+import com.flexive.shared.structure.FxType;
 import org.apache.commons.lang.SerializationUtils;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.flexive.tests.embedded.benchmark.FxBenchmarkUtils.getResultLogger;
 
 /**
@@ -68,6 +74,46 @@ public class StructureBenchmark {
         }
     }
 
+    /**
+     * Compare the partial structure reloads with a full environment reload.
+     * @throws Exception on errors
+     */
+    public void benchStructurePartialReload() throws Exception {
+        FxContext.get().runAsSystem();
+        try {
+            final int divisionId = FxContext.get().getDivisionId();
+            StructureLoader.reloadTypes(divisionId, null);  // warm up
+            StructureLoader.reloadSelectLists(divisionId, null);
+            StructureLoader.reloadAssignments(divisionId);
+
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 50; i++) {
+                CacheAdmin.reloadEnvironment();
+            }
+            getResultLogger().logTime("reloadEnvironmentFull", start, 50, "reload");
+
+            start = System.currentTimeMillis();
+            for (int i = 0; i < 50; i++) {
+                StructureLoader.reloadTypes(divisionId, null);
+            }
+            getResultLogger().logTime("reloadEnvironmentTypes", start, 50, "reload");
+
+            start = System.currentTimeMillis();
+            for (int i = 0; i < 50; i++) {
+                StructureLoader.reloadSelectLists(divisionId, null);
+            }
+            getResultLogger().logTime("reloadEnvironmentSelectLists", start, 50, "reload");
+
+            start = System.currentTimeMillis();
+            for (int i = 0; i < 50; i++) {
+                StructureLoader.reloadAssignments(divisionId);
+            }
+            getResultLogger().logTime("reloadEnvironmentAssignments", start, 50, "reload");
+        } finally {
+            FxContext.get().stopRunAsSystem();
+        }
+    }
+
     public void benchStructureSerialization() {
         // benchmark environment serialization for shared/distributed caches
 
@@ -141,4 +187,92 @@ public class StructureBenchmark {
             }
         }
     }
+
+    public void benchGetTypeById() {
+        final FxEnvironment env = CacheAdmin.getEnvironment();
+        final long[] typeIds = FxSharedUtils.getSelectableObjectIdArray(env.getTypes());
+        // warm up
+        fetchTypesById(env, typeIds, 1000);
+        fetchTypesByIdLinear(env, typeIds, 1000);
+
+        // compare with a linear scan of the type list (the lookup strategy used before 3.2.1)
+        long start = System.currentTimeMillis();
+        fetchTypesByIdLinear(env, typeIds, 10000);
+        getResultLogger().logTime("getTypeByIdLinear", start, 10000 * typeIds.length, "lookup");
+
+        start = System.currentTimeMillis();
+        fetchTypesById(env, typeIds, 10000);
+        getResultLogger().logTime("getTypeById", start, 10000 * typeIds.length, "lookup");
+    }
+
+    public void benchGetTypeByName() {
+        final FxEnvironment env = CacheAdmin.getEnvironment();
+        final List<String> names = new ArrayList<String>();
+        for (FxType type : env.getTypes()) {
+            names.add(type.getName().toLowerCase());
+        }
+        // warm up
+        fetchTypesByName(env, names, 1000);
+
+        final long start = System.currentTimeMillis();
+        fetchTypesByName(env, names, 10000);
+        getResultLogger().logTime("getTypeByName", start, 10000 * names.size(), "lookup");
+    }
+
+    public void benchGetSecurityObjectsById() {
+        final FxEnvironment env = CacheAdmin.getEnvironment();
+        final long[] stepIds = FxSharedUtils.getSelectableObjectIdArray(env.getSteps());
+        final long[] aclIds = FxSharedUtils.getSelectableObjectIdArray(env.getACLs());
+        final long[] mandatorIds = FxSharedUtils.getSelectableObjectIdArray(env.getMandators(true, true));
+        // warm up
+        fetchSecurityObjectsById(env, stepIds, aclIds, mandatorIds, 1000);
+
+        final long start = System.currentTimeMillis();
+        fetchSecurityObjectsById(env, stepIds, aclIds, mandatorIds, 10000);
+        getResultLogger().logTime("getStepAclMandatorById", start,
+                10000 * (stepIds.length + aclIds.length + mandatorIds.length), "lookup");
+    }
+
+    private void fetchTypesById(FxEnvironment environment, long[] ids, int times) {
+        for (int i = 0; i < times; i++) {
+            for (long id : ids) {
+                environment.getType(id);
+            }
+        }
+    }
+
+    private void fetchTypesByIdLinear(FxEnvironment environment, long[] ids, int times) {
+        final List<FxType> types = environment.getTypes();
+        for (int i = 0; i < times; i++) {
+            for (long id : ids) {
+                for (FxType type : types) {
+                    if (type.getId() == id) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void fetchTypesByName(FxEnvironment environment, List<String> names, int times) {
+        for (int i = 0; i < times; i++) {
+            for (String name : names) {
+                environment.getType(name);
+            }
+        }
+    }
+
+    private void fetchSecurityObjectsById(FxEnvironment environment, long[] stepIds, long[] aclIds, long[] mandatorIds, int times) {
+        for (int i = 0; i < times; i++) {
+            for (long id : stepIds) {
+                environment.getStep(id);
+            }
+            for (long id : aclIds) {
+                environment.getACL(id);
+            }
+            for (long id : mandatorIds) {
+                environment.getMandator(id);
+            }
+        }
+    }
 }
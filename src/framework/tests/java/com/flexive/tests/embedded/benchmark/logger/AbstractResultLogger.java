@@ -56,6 +56,12 @@ public abstract class AbstractResultLogger implements ResultLogger {
         logResult(name, getLoggedResult(startTimeMillis, factor), measurement, "ms");
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void logValue(String name, double value, String measurement, String unit) {
+        logResult(name, value, measurement, unit);
+    }
+
 
     protected double getLoggedResult(long startTimeMillis, int factor) {
         return ((double) System.currentTimeMillis() - startTimeMillis) / factor;
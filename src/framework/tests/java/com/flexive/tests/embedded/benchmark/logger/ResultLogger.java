@@ -50,6 +50,17 @@ public interface ResultLogger {
      */
     void logTime(String name, long startTimeMillis, int factor, String measurement);
 
+    /**
+     * Log a benchmark result that is not a time measurement (e.g. memory usage).
+     *
+     * @param name  unique name of the result
+     * @param value the measured value
+     * @param measurement   the human-readable measured action (e.g. "cached content")
+     * @param unit  the human-readable result unit (e.g. "bytes")
+     * @since 3.2.1
+     */
+    void logValue(String name, double value, String measurement, String unit);
+
     /**
      * Returns the accumulated output of the logged results. The logger should not be used
      * for logging after a call to this method.
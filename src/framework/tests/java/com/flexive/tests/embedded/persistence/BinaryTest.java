@@ -57,6 +57,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.io.*;
+import java.util.Arrays;
 
 import static com.flexive.shared.value.BinaryDescriptor.PreviewSizes;
 import static com.flexive.tests.embedded.FxTestUtils.login;
@@ -222,6 +223,7 @@ public class BinaryTest {
             bin.getBestTranslation().download(fos);
             fos.close();
             Assert.assertTrue(FxFileUtils.fileCompare(comp, testFile), "Files do not match!");
+            checkRangeDownload(bin.getBestTranslation(), testFile);
             final BinaryDescriptor desc = ((BinaryDescriptor) img.getValue("/File").getBestTranslation());
             if (binThreshold > testFile.length()) {
                 //binary is expected to be stored on the filesystem
@@ -253,6 +255,32 @@ public class BinaryTest {
         }
     }
 
+    /**
+     * Check that partial downloads return the requested bytes
+     *
+     * @param binary   the stored binary
+     * @param testFile the original file
+     * @throws IOException       on errors
+     * @throws FxStreamException on errors
+     */
+    private void checkRangeDownload(BinaryDescriptor binary, File testFile) throws IOException, FxStreamException {
+        final byte[] expected = new byte[200];
+        final DataInputStream in = new DataInputStream(new FileInputStream(testFile));
+        try {
+            Assert.assertEquals(in.skipBytes(100), 100);
+            in.readFully(expected);
+        } finally {
+            in.close();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        binary.download(out, PreviewSizes.ORIGINAL, 100, 200);
+        Assert.assertTrue(Arrays.equals(out.toByteArray(), expected), "Range download does not match!");
+
+        out = new ByteArrayOutputStream();
+        binary.download(out, PreviewSizes.ORIGINAL, testFile.length() - 10, -1);
+        Assert.assertEquals(out.size(), 10, "Invalid length of the last 10 bytes");
+    }
+
     /**
      * Check if a preview file is handled correctly
      *
@@ -64,6 +64,7 @@ import java.io.FileInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.flexive.tests.embedded.FxTestUtils.*;
@@ -836,6 +837,55 @@ public class ContentEngineTest {
         }
     }
 
+    @Test(groups = {"ejb", "content"})
+    public void batchLoadTest() throws Exception {
+        FxType article = CacheAdmin.getEnvironment().getType(TYPE_ARTICLE);
+        final List<FxPK> pks = new ArrayList<FxPK>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                FxContent test = ce.initialize(article.getId());
+                test.setAclId(CacheAdmin.getEnvironment().getACL("Article ACL").getId());
+                test.setValue("/MYTITLE", new FxString(FxLanguage.ENGLISH, "Batch title " + i));
+                test.setValue("/TEXT", new FxString(FxLanguage.ENGLISH, "Batch text " + i));
+                pks.add(ce.save(test));
+            }
+            final FxContent versioned = ce.load(pks.get(0));
+            versioned.setValue("/TEXT", new FxString(FxLanguage.ENGLISH, "Batch text version 2"));
+            final FxPK pk2 = ce.createNewVersion(versioned);
+
+            final List<FxPK> request = Arrays.asList(
+                    pks.get(2), new FxPK(pks.get(0).getId(), 1), new FxPK(pks.get(0).getId(), FxPK.MAX),
+                    pks.get(1), new FxPK(pks.get(1).getId(), FxPK.LIVE), pks.get(2)
+            );
+            // load once without and once with cached contents
+            for (int run = 0; run < 2; run++) {
+                if (run == 0) {
+                    for (FxPK pk : pks) {
+                        CacheAdmin.expireCachedContent(pk.getId());
+                    }
+                }
+                final List<FxContent> loaded = ce.load(request);
+                assertEquals(loaded.size(), request.size());
+                for (int i = 0; i < request.size(); i++) {
+                    assertEquals(loaded.get(i), ce.load(request.get(i)), "Batch load differs for " + request.get(i));
+                }
+                assertEquals(loaded.get(2).getVersion(), pk2.getVersion());
+                assertEquals(loaded.get(1).getVersion(), 1);
+            }
+
+            try {
+                ce.load(Arrays.asList(pks.get(0), new FxPK(pks.get(0).getId(), 42)));
+                fail("Batch load of a non-existing version should fail");
+            } catch (FxNotFoundException e) {
+                //ok
+            }
+        } finally {
+            for (FxPK pk : pks) {
+                ce.remove(pk);
+            }
+        }
+    }
+
     @Test(groups = {"ejb", "content"})
     public void binaryUploadTest() throws Exception {
         //        File testFile = new File("/home/mplesser/install/java/testng-5.1.zip");
@@ -1171,6 +1221,80 @@ public class ContentEngineTest {
         assertFalse(test.containsValue("/TestGroup1/TestGroup1_2[1]/TestProperty1_2_1[1]"));
     }
 
+    /**
+     * Indexed XPath lookups must reflect structural changes of the content data
+     *
+     * @throws FxApplicationException on errors
+     */
+    @Test(groups = {"ejb", "content"})
+    public void xpathIndexUpdateTest() throws FxApplicationException {
+        FxContent test = ce.initialize(TEST_TYPE);
+        FxString testValue1 = new FxString("Hello world1");
+        FxString testValue2 = new FxString("Hello world2");
+        FxString testValue3 = new FxString("Hello world3");
+        test.setValue("/TestProperty3[1]", testValue1);
+        test.setValue("/TestProperty3[2]", testValue2);
+        test.setValue("/TestProperty3[3]", testValue3);
+        assertEquals(test.getValue("/TestProperty3[3]"), testValue3);
+
+        // remove and compact indices
+        test.remove("/TestProperty3[1]");
+        assertEquals(test.getValue("/TestProperty3[1]"), testValue2);
+        assertEquals(test.getValue("/TestProperty3[2]"), testValue3);
+        assertNoData(test, "/TestProperty3[3]");
+        test.setValue("/TestProperty3[2]", testValue1);
+        assertEquals(test.getValue("/TestProperty3[2]"), testValue1);
+
+        // move
+        final FxPropertyData moved = test.getPropertyData("/TestProperty3[2]");
+        test.move("/TestProperty3[2]", -1);
+        assertTrue(test.getPropertyData(moved.getXPathFull()) == moved);
+        test.setValue(moved.getXPathFull(), testValue3);
+        assertEquals(test.getValue(moved.getXPathFull()), testValue3);
+
+        // compact positions
+        test.getRootGroup().compactPositions(true);
+        assertTrue(test.getPropertyData(moved.getXPathFull()) == moved);
+        test.setValue(moved.getXPathFull(), testValue2);
+        assertEquals(moved.getValue(), testValue2);
+
+        // modify the children of a group directly
+        final FxPropertyData removed = test.getPropertyData("/TestProperty3[1]");
+        assertTrue(test.getRootGroup().getChildren().remove(removed));
+        assertNoData(test, "/TestProperty3[1]");
+        for (Iterator<FxData> iterator = test.getRootGroup().getChildren().iterator(); iterator.hasNext();) {
+            if ("TestProperty3".equalsIgnoreCase(iterator.next().getAlias())) {
+                iterator.remove();
+            }
+        }
+        assertNoData(test, moved.getXPathFull());
+        test.getRootGroup().getChildren().add(removed);
+        assertTrue(test.getPropertyData("/TestProperty3[1]") == removed);
+
+        // the same for sub groups
+        test.setValue("/TestGroup1/TestProperty1_3[1]", testValue1);
+        test.setValue("/TestGroup1/TestProperty1_3[2]", testValue2);
+        assertEquals(test.getValue("/TestGroup1/TestProperty1_3[2]"), testValue2);
+        test.remove("/TestGroup1/TestProperty1_3[1]");
+        assertEquals(test.getValue("/TestGroup1/TestProperty1_3[1]"), testValue2);
+        assertNoData(test, "/TestGroup1/TestProperty1_3[2]");
+        final List<FxData> children = test.getGroupData("/TestGroup1").getChildren();
+        children.subList(0, children.size()).clear();
+        assertNoData(test, "/TestGroup1/TestProperty1_3[1]");
+    }
+
+    private static void assertNoData(FxContent content, String xpath) {
+        try {
+            content.getData(xpath);
+            fail(xpath + " should no longer exist!");
+        } catch (FxRuntimeException e) {
+            if (!(e.getConverted() instanceof FxNotFoundException)) {
+                throw e;
+            }
+            //expected
+        }
+    }
+
     @Test(groups = {"ejb", "content"})
     public void modifyXPathTest() throws Exception {
         final FxContent test = ce.initialize(CacheAdmin.getEnvironment().getType(TEST_TYPE).getId());
@@ -31,6 +31,7 @@
  ***************************************************************/
 package com.flexive.tests.embedded.persistence;
 
+import com.flexive.core.search.SearchUtils;
 import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.FxContext;
@@ -933,6 +934,138 @@ public class ContentSecurityTest {
         }
     }
 
+    /**
+     * Searches must not reuse cached security filters after the type permissions, the type ACL
+     * or the ACL of a workflow step changed.
+     *
+     * @throws FxApplicationException on errors
+     */
+    @Test
+    public void searchAfterPermissionChange() throws FxApplicationException {
+        assignMatrix(1, typeACL);
+        assignMatrix(0, instanceACL);
+        assignMatrix(0, property1ACL);
+        assignMatrix(0, property2ACL);
+        assignMatrix(0, editACL);
+        assignMatrix(0, liveACL);
+        useTypePermissions(false, false, false, false);
+
+        final FxPK pk = createReferenceContent().getPk();
+        final Step step = CacheAdmin.getEnvironment().getStep(getContentEngine().load(pk).getStepId());
+        final int stepPosition = CacheAdmin.getEnvironment().getWorkflow(step.getWorkflowId()).getSteps().indexOf(step) + 1;
+        long noReadACL = -1;
+        try {
+            // group 2 may edit, but not read instances of the type ACL
+            assignGroup(2);
+            assertSearchReturnsPK(pk, 1);
+
+            // enable type permissions
+            useTypePermissions(false, false, false, true);
+            assertSearchReturnsPK(pk, 0);
+
+            // change the type ACL to a readable one and back
+            setTypeACL(property1ACL);
+            assertSearchReturnsPK(pk, 1);
+            setTypeACL(typeACL);
+            assertSearchReturnsPK(pk, 0);
+
+            // switch to step permissions and replace the step ACL with an ACL without assignments
+            useTypePermissions(false, false, true, false);
+            assertSearchReturnsPK(pk, 1);
+            FxContext.get().runAsSystem();
+            try {
+                noReadACL = getAclEngine().create("NOREAD_" + RandomStringUtils.randomAlphanumeric(5), new FxString("No read ACL"),
+                        TestUsers.getTestMandator(), "#FFFFFF", "No read ACL", ACLCategory.WORKFLOW);
+                EJBLookup.getWorkflowStepEngine().updateStep(step.getId(), noReadACL, stepPosition);
+            } finally {
+                FxContext.get().stopRunAsSystem();
+            }
+            assertSearchReturnsPK(pk, 0);
+        } finally {
+            FxContext.get().runAsSystem();
+            try {
+                if (noReadACL != -1) {
+                    EJBLookup.getWorkflowStepEngine().updateStep(step.getId(), step.getAclId(), stepPosition);
+                    getAclEngine().remove(noReadACL);
+                }
+                getContentEngine().remove(pk);
+            } finally {
+                FxContext.get().stopRunAsSystem();
+            }
+            setTypeACL(typeACL);
+        }
+    }
+
+    /**
+     * Check the security filter that selects the readable ACLs with a subquery, which is used when
+     * the user is assigned to more ACLs than configured for an inlined ACL list.
+     *
+     * @throws FxApplicationException on errors
+     */
+    @Test
+    public void searchWithReadableAclSubquery() throws FxApplicationException {
+        assignMatrix(0, typeACL);
+        assignMatrix(1, instanceACL);
+        assignMatrix(0, property1ACL);
+        assignMatrix(0, property2ACL);
+        assignMatrix(0, editACL);
+        assignMatrix(0, liveACL);
+        useTypePermissions(true, false, false, false);
+
+        final FxPK pk = createReferenceContent().getPk();
+        FxPK ownerPk = null;
+        long ownerACL = -1;
+        final int maxACLs = SearchUtils.setSecurityFilterMaxACLs(0);
+        try {
+            // group 1 may read, group 2 may only edit instances of the instance ACL
+            assignGroup(1);
+            assertSearchReturnsPK(pk, 1);
+            assignGroup(2);
+            assertSearchReturnsPK(pk, 0);
+
+            // an ACL readable only by the owner of the instance
+            FxContext.get().runAsSystem();
+            try {
+                ownerACL = getAclEngine().create("OWNER_" + RandomStringUtils.randomAlphanumeric(5), new FxString("Owner ACL"),
+                        TestUsers.getTestMandator(), "#FFFFFF", "Owner ACL", ACLCategory.INSTANCE);
+                getAclEngine().assign(ownerACL, UserGroup.GROUP_OWNER, ACLPermission.READ);
+                final FxContent content = getContentEngine().initialize(type.getId());
+                content.setValue("/P1", PROP1_VALUE);
+                content.setValue("/P2", PROP2_VALUE);
+                content.setAclId(ownerACL);
+                ownerPk = getContentEngine().save(content);
+            } finally {
+                FxContext.get().stopRunAsSystem();
+            }
+            assertEquals(getContentEngine().load(ownerPk).getLifeCycleInfo().getCreatorId(), FxContext.getUserTicket().getUserId());
+            assertSearchReturnsPK(ownerPk, 1);
+        } finally {
+            SearchUtils.setSecurityFilterMaxACLs(maxACLs);
+            FxContext.get().runAsSystem();
+            try {
+                getContentEngine().remove(pk);
+                if (ownerPk != null) {
+                    getContentEngine().remove(ownerPk);
+                }
+                if (ownerACL != -1) {
+                    getAclEngine().remove(ownerACL);
+                }
+            } finally {
+                FxContext.get().stopRunAsSystem();
+            }
+        }
+    }
+
+    private void setTypeACL(ACL acl) throws FxApplicationException {
+        FxContext.get().runAsSystem();
+        try {
+            EJBLookup.getTypeEngine().save(type.asEditable().setACL(acl));
+        } finally {
+            FxContext.get().stopRunAsSystem();
+        }
+        type = CacheAdmin.getEnvironment().getType(type.getId());
+    }
+
     private void assertSearchReturnsPK(FxPK pk, int expectedRows) throws FxApplicationException {
         assertEquals(EJBLookup.getSearchEngine().search("SELECT @pk WHERE id=" + pk.getId()).getRowCount(), expectedRows,
                 "Expected " + expectedRows + " result rows.");
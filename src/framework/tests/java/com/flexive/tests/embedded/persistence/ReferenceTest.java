@@ -35,6 +35,7 @@ import com.flexive.shared.CacheAdmin;
 import com.flexive.shared.EJBLookup;
 import com.flexive.shared.content.FxContent;
 import com.flexive.shared.content.FxPK;
+import com.flexive.shared.content.FxReferenceResolver;
 import com.flexive.shared.exceptions.FxApplicationException;
 import com.flexive.shared.exceptions.FxLogoutFailedException;
 import com.flexive.shared.interfaces.ContentEngine;
@@ -250,4 +251,47 @@ public class ReferenceTest {
         co.remove(pkA);
         co.remove(pkB);
     }
+
+    /**
+     * A references B1 twice (in different contents), B1 references B2.
+     * References should be resolved in bulk up to the requested depth.
+     *
+     * @throws FxApplicationException on errors
+     */
+    @Test
+    public void loadReferences() throws FxApplicationException {
+        FxPK pkB2 = co.save(co.initialize(typeB));
+        FxContent coB1 = co.initialize(typeB);
+        coB1.setValue("/REFB", new FxReference(false, new ReferencedContent(pkB2.getId())));
+        FxPK pkB1 = co.save(coB1);
+        FxContent coA = co.initialize(typeA);
+        coA.setValue("/REFB", new FxReference(false, new ReferencedContent(pkB1.getId())));
+        FxPK pkA1 = co.save(coA.copyAsNewInstance());
+        FxPK pkA2 = co.save(coA.copyAsNewInstance());
+        try {
+            FxContent a1 = co.load(pkA1);
+            a1.loadReferences(co);
+            FxContent b1 = ((FxReference) a1.getValue("/REFB")).getDefaultTranslation().getContent();
+            Assert.assertEquals(b1.getPk().getId(), pkB1.getId());
+            Assert.assertFalse(((FxReference) b1.getValue("/REFB")).getDefaultTranslation().hasContent(),
+                    "Nested reference should not be resolved with depth 1");
+
+            a1 = co.load(pkA1);
+            final FxContent a2 = co.load(pkA2);
+            new FxReferenceResolver(co).depth(2).resolve(a1, a2);
+            b1 = ((FxReference) a1.getValue("/REFB")).getDefaultTranslation().getContent();
+            final FxContent b1a2 = ((FxReference) a2.getValue("/REFB")).getDefaultTranslation().getContent();
+            Assert.assertEquals(b1a2.getPk().getId(), pkB1.getId());
+            Assert.assertNotSame(b1a2, b1, "Every reference should get its own content instance");
+            final FxContent b2 = ((FxReference) b1.getValue("/REFB")).getDefaultTranslation().getContent();
+            Assert.assertEquals(b2.getPk().getId(), pkB2.getId());
+            Assert.assertTrue(((FxReference) b1a2.getValue("/REFB")).getDefaultTranslation().hasContent(),
+                    "Nested references of duplicate instances should be resolved too");
+        } finally {
+            co.remove(pkA1);
+            co.remove(pkA2);
+            co.remove(pkB1);
+            co.remove(pkB2);
+        }
+    }
 }
@@ -89,6 +89,16 @@ public class ScriptManagementTest extends AbstractRoleTest {
         }
     }
 
+    @Test
+    public void resetScriptStatisticsTest() throws FxApplicationException {
+        try {
+            getScriptingEngine().resetScriptStatistics();
+            assertSuccess(ScriptManagement, -1);
+        } catch (FxNoAccessException e) {
+            assertNoAccess(e, ScriptManagement, -1);
+        }
+    }
+
     @Test
     public void runScriptTest() throws FxApplicationException {
         createScript(true);
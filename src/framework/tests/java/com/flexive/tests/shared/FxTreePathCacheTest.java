@@ -0,0 +1,127 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.shared;
+
+import com.flexive.shared.cache.FxTreePathCache;
+import com.flexive.shared.tree.FxTreeMode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for com.flexive.shared.cache.FxTreePathCache.
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @see com.flexive.shared.cache.FxTreePathCache
+ */
+@Test(groups = {"shared"})
+public class FxTreePathCacheTest {
+
+    @Test
+    public void cacheLookupTest() {
+        final FxTreePathCache cache = new FxTreePathCache(100);
+        Assert.assertNull(cache.getIdByPath(1, FxTreeMode.Live, 10, 1, "/a/b"));
+        cache.putIdByPath(1, FxTreeMode.Live, 10, 1, "/a/b", 42);
+        cache.putPathById(1, FxTreeMode.Live, 10, 42, "/a/b");
+        cache.putIdChain(1, FxTreeMode.Live, 10, 42, new long[]{1, 41, 42});
+        cache.putIdByPath(1, FxTreeMode.Live, 10, 1, "/missing", -1);
+
+        Assert.assertEquals(cache.getIdByPath(1, FxTreeMode.Live, 10, 1, "/a/b"), Long.valueOf(42));
+        Assert.assertEquals(cache.getIdByPath(1, FxTreeMode.Live, 10, 1, "/missing"), Long.valueOf(-1));
+        Assert.assertEquals(cache.getPathById(1, FxTreeMode.Live, 10, 42), "/a/b");
+        final long[] chain = cache.getIdChain(1, FxTreeMode.Live, 10, 42);
+        Assert.assertTrue(Arrays.equals(chain, new long[]{1, 41, 42}));
+        chain[0] = -1;
+        Assert.assertTrue(Arrays.equals(cache.getIdChain(1, FxTreeMode.Live, 10, 42), new long[]{1, 41, 42}), "Cached chain was modified");
+
+        // other start node, tree mode or division
+        Assert.assertNull(cache.getIdByPath(1, FxTreeMode.Live, 10, 2, "/a/b"));
+        Assert.assertNull(cache.getIdByPath(1, FxTreeMode.Edit, 10, 1, "/a/b"));
+        Assert.assertNull(cache.getIdByPath(2, FxTreeMode.Live, 10, 1, "/a/b"));
+
+        Assert.assertEquals(cache.getSize(), 4);
+        Assert.assertEquals(cache.getHits(), 5);
+        Assert.assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test
+    public void timestampInvalidationTest() {
+        final FxTreePathCache cache = new FxTreePathCache(100);
+        cache.getPathById(1, FxTreeMode.Live, 10, 42);
+        cache.putPathById(1, FxTreeMode.Live, 10, 42, "/a");
+        cache.putPathById(1, FxTreeMode.Edit, 10, 42, "/a");
+        Assert.assertEquals(cache.getPathById(1, FxTreeMode.Live, 10, 42), "/a");
+
+        // tree was modified
+        Assert.assertNull(cache.getPathById(1, FxTreeMode.Live, 11, 42));
+        // entries read with the outdated timestamp must not be added
+        cache.putPathById(1, FxTreeMode.Live, 10, 42, "/a");
+        Assert.assertNull(cache.getPathById(1, FxTreeMode.Live, 11, 42));
+        cache.putPathById(1, FxTreeMode.Live, 11, 42, "/b");
+        Assert.assertEquals(cache.getPathById(1, FxTreeMode.Live, 11, 42), "/b");
+
+        cache.clear(1);
+        Assert.assertNull(cache.getPathById(1, FxTreeMode.Live, 11, 42));
+    }
+
+    @Test
+    public void olderTimestampTest() {
+        final FxTreePathCache cache = new FxTreePathCache(100);
+        cache.getPathById(1, FxTreeMode.Live, 11, 42);
+        cache.putPathById(1, FxTreeMode.Live, 11, 42, "/b");
+
+        // a reader with an outdated timestamp gets a miss, but does not invalidate the cache
+        Assert.assertNull(cache.getPathById(1, FxTreeMode.Live, 10, 42));
+        cache.putPathById(1, FxTreeMode.Live, 10, 42, "/a");
+        Assert.assertEquals(cache.getPathById(1, FxTreeMode.Live, 11, 42), "/b");
+        Assert.assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void maxEntriesTest() {
+        final FxTreePathCache cache = new FxTreePathCache(10);
+        cache.getPathById(1, FxTreeMode.Live, 1, 0);
+        for (int i = 0; i < 20; i++) {
+            cache.putPathById(1, FxTreeMode.Live, 1, i, "/" + i);
+        }
+        Assert.assertEquals(cache.getSize(), 10);
+        Assert.assertNull(cache.getPathById(1, FxTreeMode.Live, 1, 0));
+        Assert.assertEquals(cache.getPathById(1, FxTreeMode.Live, 1, 19), "/19");
+
+        final FxTreePathCache disabled = new FxTreePathCache(0);
+        Assert.assertFalse(disabled.isEnabled());
+        disabled.getPathById(1, FxTreeMode.Live, 1, 0);
+        disabled.putPathById(1, FxTreeMode.Live, 1, 0, "/0");
+        Assert.assertNull(disabled.getPathById(1, FxTreeMode.Live, 1, 0));
+    }
+}
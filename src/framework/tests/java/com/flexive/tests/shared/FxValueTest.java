@@ -37,6 +37,10 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -296,6 +300,57 @@ public class FxValueTest {
         assertEquals(val.getValueDataRaw(FxLanguage.ITALIAN), (Integer) 2);
     }
 
+    @Test
+    public void translationsTest() {
+        final FxString val = new FxString(true, FxLanguage.GERMAN, "de");
+        val.setTranslation(FxLanguage.ENGLISH, "en");
+        val.setTranslation(FxLanguage.ITALIAN, "it");
+        val.setTranslation(FxLanguage.FRENCH, "fr");
+        assertEquals(val.getTranslatedLanguages().length, 4);
+        assertEquals(val.getTranslation(FxLanguage.ENGLISH), "en");
+        assertEquals(val.getTranslation(FxLanguage.GERMAN), "de");
+        assertEquals(val.getTranslation(FxLanguage.FRENCH), "fr");
+
+        final FxString copy = val.copy();
+        val.removeLanguage(FxLanguage.ITALIAN);
+        val.removeLanguage(FxLanguage.FRENCH);
+        val.removeLanguage(FxLanguage.ENGLISH);
+        assertEquals(val.getTranslatedLanguages().length, 1);
+        assertEquals(val.getTranslation(FxLanguage.GERMAN), "de");
+        assertNull(val.getTranslation(FxLanguage.ENGLISH));
+
+        // copy is not affected
+        assertEquals(copy.getTranslatedLanguages().length, 4);
+        assertEquals(copy.getTranslation(FxLanguage.ITALIAN), "it");
+        assertFalse(val.equals(copy));
+        val.setTranslation(FxLanguage.ENGLISH, "en");
+        val.setTranslation(FxLanguage.ITALIAN, "it");
+        val.setTranslation(FxLanguage.FRENCH, "fr");
+        assertEquals(val, copy);
+        assertEquals(val.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        final FxString val = new FxString(true, FxLanguage.ENGLISH, "en");
+        val.setTranslation(FxLanguage.GERMAN, "de");
+        val.setEmpty(FxLanguage.ITALIAN);
+        val.setValueData(FxLanguage.GERMAN, 1, false);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(val);
+        oos.close();
+        final FxString copy = (FxString) new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+
+        assertEquals(copy, val);
+        assertEquals(copy.getTranslation(FxLanguage.GERMAN), "de");
+        assertEquals(copy.getValueDataRaw(FxLanguage.GERMAN), (Integer) 1);
+        assertFalse(copy.translationExists(FxLanguage.ITALIAN));
+        copy.setTranslation(FxLanguage.FRENCH, "fr");
+        assertEquals(copy.getTranslation(FxLanguage.FRENCH), "fr");
+    }
+
     @DataProvider(name = "testInstances")
     private Object[][] getTestInstances() {
         return testInstances;
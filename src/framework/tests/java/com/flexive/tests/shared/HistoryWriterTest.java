@@ -0,0 +1,259 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.shared;
+
+import com.flexive.core.HistoryWriter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the queue, batching, overflow policies and shutdown of com.flexive.core.HistoryWriter.
+ * The database writes are replaced by lists of the written keys.
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @see com.flexive.core.HistoryWriter
+ */
+@Test(groups = {"shared"})
+public class HistoryWriterTest {
+    // flush interval that is never reached by the tests
+    private static final long NO_INTERVAL = 60000;
+
+    @Test
+    public void flushTest() throws Exception {
+        final TestWriter writer = new TestWriter(100, 3, NO_INTERVAL, HistoryWriter.OverflowPolicy.SYNC);
+        try {
+            writer.addAll("e1", "e2", "e3", "e4", "e5", "e6", "e7");
+            writer.flush();
+            Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2", "e3", "e4", "e5", "e6", "e7"));
+            Assert.assertEquals(writer.getBatchSizes(), Arrays.asList(3, 3, 1));
+            Assert.assertEquals(writer.getWrittenEntries(), 7);
+            Assert.assertEquals(writer.getPendingEntries(), 0);
+            Assert.assertTrue(writer.getWrittenSync().isEmpty());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void flushIntervalTest() throws Exception {
+        final TestWriter writer = new TestWriter(100, 100, 10, HistoryWriter.OverflowPolicy.SYNC);
+        try {
+            writer.addAll("e1", "e2");
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (writer.getWrittenEntries() < 2 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2"), "Entries not written after the flush interval");
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void overflowDiscardTest() throws Exception {
+        final TestWriter writer = new TestWriter(2, 1, NO_INTERVAL, HistoryWriter.OverflowPolicy.DISCARD);
+        try {
+            writer.fillQueue();
+            writer.addAll("e4");
+            Assert.assertEquals(writer.getDiscardedEntries(), 1);
+            Assert.assertTrue(writer.getWrittenSync().isEmpty());
+
+            writer.release();
+            writer.flush();
+            Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2", "e3"));
+            Assert.assertEquals(writer.getPendingEntries(), 0);
+        } finally {
+            writer.release();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void overflowSyncTest() throws Exception {
+        final TestWriter writer = new TestWriter(2, 1, NO_INTERVAL, HistoryWriter.OverflowPolicy.SYNC);
+        try {
+            writer.fillQueue();
+            writer.addAll("e4");
+            Assert.assertEquals(writer.getWrittenSync(), Arrays.asList("e4"));
+            Assert.assertEquals(writer.getDiscardedEntries(), 0);
+
+            writer.release();
+            writer.flush();
+            Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2", "e3"));
+            Assert.assertEquals(writer.getPendingEntries(), 0);
+        } finally {
+            writer.release();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void overflowBlockTest() throws Exception {
+        final TestWriter writer = new TestWriter(2, 1, NO_INTERVAL, HistoryWriter.OverflowPolicy.BLOCK);
+        try {
+            writer.fillQueue();
+            final Thread blocked = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writer.addAll("e4");
+                }
+            });
+            blocked.start();
+            blocked.join(200);
+            Assert.assertTrue(blocked.isAlive(), "Thread should wait until the entry can be queued");
+
+            writer.release();
+            blocked.join(10000);
+            Assert.assertFalse(blocked.isAlive());
+            writer.flush();
+            Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2", "e3", "e4"));
+            Assert.assertTrue(writer.getWrittenSync().isEmpty());
+            Assert.assertEquals(writer.getDiscardedEntries(), 0);
+        } finally {
+            writer.release();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownTest() throws Exception {
+        final TestWriter writer = new TestWriter(100, 100, NO_INTERVAL, HistoryWriter.OverflowPolicy.SYNC);
+        writer.addAll("e1", "e2", "e3");
+        writer.shutdown();
+        Assert.assertEquals(writer.getWritten(), Arrays.asList("e1", "e2", "e3"), "Queued entries not written on shutdown");
+        Assert.assertEquals(writer.getPendingEntries(), 0);
+
+        // entries are written synchronously after shutdown
+        writer.addAll("e4");
+        Assert.assertEquals(writer.getWrittenSync(), Arrays.asList("e4"));
+        Assert.assertEquals(writer.getPendingEntries(), 0);
+    }
+
+    @Test
+    public void synchronousTest() throws Exception {
+        final TestWriter writer = new TestWriter(false, 100, 100, NO_INTERVAL, HistoryWriter.OverflowPolicy.DISCARD);
+        writer.addAll("e1", "e2");
+        Assert.assertEquals(writer.getWrittenSync(), Arrays.asList("e1", "e2"));
+        Assert.assertTrue(writer.getWritten().isEmpty());
+        writer.flush();
+        writer.shutdown();
+    }
+
+    /**
+     * History writer that records the written keys instead of writing to the database. The writer thread
+     * can be blocked until {@link #release()} is called.
+     */
+    private static class TestWriter extends HistoryWriter {
+        private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> writtenSync = Collections.synchronizedList(new ArrayList<String>());
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        private TestWriter(int queueSize, int batchSize, long flushInterval, OverflowPolicy overflowPolicy) {
+            this(true, queueSize, batchSize, flushInterval, overflowPolicy);
+        }
+
+        private TestWriter(boolean async, int queueSize, int batchSize, long flushInterval, OverflowPolicy overflowPolicy) {
+            super(async, queueSize, batchSize, flushInterval, overflowPolicy);
+        }
+
+        @Override
+        protected void writeSync(Entry entry) {
+            writtenSync.add(entry.getKey());
+        }
+
+        @Override
+        protected void writeBatch(List<Entry> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (blocking) {
+                writing.countDown();
+                try {
+                    released.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(batch.size());
+            for (Entry entry : batch) {
+                written.add(entry.getKey());
+            }
+        }
+
+        /**
+         * Block the writer thread while it writes "e1" and fill the queue (size 2) with "e2" and "e3".
+         */
+        void fillQueue() throws InterruptedException {
+            blocking = true;
+            addAll("e1");
+            Assert.assertTrue(writing.await(10, TimeUnit.SECONDS), "Writer thread did not start");
+            addAll("e2", "e3");
+        }
+
+        void release() {
+            blocking = false;
+            released.countDown();
+        }
+
+        void addAll(String... keys) {
+            for (String key : keys) {
+                try {
+                    add(new Entry(key));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        List<String> getWritten() {
+            return new ArrayList<String>(written);
+        }
+
+        List<String> getWrittenSync() {
+            return new ArrayList<String>(writtenSync);
+        }
+
+        List<Integer> getBatchSizes() {
+            return new ArrayList<Integer>(batchSizes);
+        }
+    }
+}
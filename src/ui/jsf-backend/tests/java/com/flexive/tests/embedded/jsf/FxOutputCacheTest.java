@@ -0,0 +1,257 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.embedded.jsf;
+
+import com.flexive.war.filter.FxOutputCache;
+import com.flexive.war.filter.FxResponseWrapper;
+import org.testng.annotations.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the output cache of FxFilter.
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ */
+@Test(groups = {"jsf"})
+public class FxOutputCacheTest {
+    private static final FxOutputCache.Stamp STAMP = new FxOutputCache.Stamp(1, 100, 200, 300);
+
+    @Test
+    public void putAndGet() throws IOException {
+        final FxOutputCache cache = new FxOutputCache(100000, 10000, 0);
+        final byte[] data = randomData(1000, 1);
+        final FxOutputCache.Entry entry = cache.put("page", STAMP, "text/html", data);
+        assertNotNull(entry);
+        assertEquals(entry.getLength(), data.length);
+        assertEquals(cache.getSize(), 1);
+        assertEquals(cache.getCompressedSize(), entry.getCompressedLength());
+
+        final FxOutputCache.Entry cached = cache.get("page", new FxOutputCache.Stamp(1, 100, 200, 300));
+        assertSame(cached, entry);
+        assertEquals(cached.getContentType(), "text/html");
+        assertTrue(Arrays.equals(uncompress(cached), data));
+        assertEquals(cached.getHits(), 1);
+        assertEquals(cache.getHits(), 1);
+
+        assertNull(cache.get("otherPage", STAMP));
+        assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void stampMismatch() throws IOException {
+        final FxOutputCache.Stamp[] outdated = {
+                new FxOutputCache.Stamp(2, 100, 200, 300),
+                new FxOutputCache.Stamp(1, 101, 200, 300),
+                new FxOutputCache.Stamp(1, 100, 201, 300),
+                new FxOutputCache.Stamp(1, 100, 200, 301)
+        };
+        final FxOutputCache cache = new FxOutputCache(100000, 10000, 0);
+        for (int i = 0; i < outdated.length; i++) {
+            cache.put("page", STAMP, "text/html", randomData(1000, i));
+            assertNull(cache.get("page", outdated[i]), "Entry returned for outdated stamp #" + i);
+            assertEquals(cache.getSize(), 0);
+            assertEquals(cache.getCompressedSize(), 0);
+            assertEquals(cache.getInvalidations(), i + 1);
+        }
+    }
+
+    @Test
+    public void lruEviction() throws IOException {
+        final int compressedLength = new FxOutputCache(100000, 10000, 0)
+                .put("page", STAMP, null, randomData(1000, 1)).getCompressedLength();
+        // room for two entries
+        final FxOutputCache cache = new FxOutputCache(2 * compressedLength + 100, 10000, 0);
+        final FxOutputCache.Entry page1 = cache.put("page1", STAMP, null, randomData(1000, 1));
+        final FxOutputCache.Entry page2 = cache.put("page2", STAMP, null, randomData(1000, 2));
+        assertEquals(cache.getSize(), 2);
+        // make page1 the most recently used entry
+        assertNotNull(cache.get("page1", STAMP));
+
+        final FxOutputCache.Entry page3 = cache.put("page3", STAMP, null, randomData(1000, 3));
+        assertEquals(cache.getEvictions(), 1);
+        assertNull(cache.get("page2", STAMP));
+        assertEquals(cache.getEntries(), Arrays.asList(page1, page3));
+        assertEquals(cache.getCompressedSize(), page1.getCompressedLength() + page3.getCompressedLength());
+        assertTrue(cache.getCompressedSize() <= cache.getMaxSize());
+        assertFalse(cache.getEntries().contains(page2));
+    }
+
+    @Test
+    public void sizeAccounting() throws IOException {
+        final FxOutputCache cache = new FxOutputCache(100000, 10000, 0);
+        cache.put("page1", STAMP, null, randomData(1000, 1));
+        final FxOutputCache.Entry replaced = cache.put("page1", STAMP, null, randomData(2000, 2));
+        assertEquals(cache.getSize(), 1);
+        assertEquals(cache.getCompressedSize(), replaced.getCompressedLength());
+
+        final FxOutputCache.Entry page2 = cache.put("page2", STAMP, null, randomData(500, 3));
+        cache.remove("page1");
+        assertEquals(cache.getCompressedSize(), page2.getCompressedLength());
+        cache.remove("page1");
+        assertEquals(cache.getCompressedSize(), page2.getCompressedLength());
+
+        cache.clear();
+        assertEquals(cache.getSize(), 0);
+        assertEquals(cache.getCompressedSize(), 0);
+    }
+
+    @Test
+    public void maxAge() throws IOException, InterruptedException {
+        final FxOutputCache cache = new FxOutputCache(100000, 10000, 1);
+        cache.put("page", STAMP, null, randomData(100, 1));
+        Thread.sleep(20);
+        assertNull(cache.get("page", STAMP));
+        assertEquals(cache.getInvalidations(), 1);
+        assertEquals(cache.getCompressedSize(), 0);
+    }
+
+    @Test
+    public void putLimits() throws IOException {
+        final FxOutputCache cache = new FxOutputCache(100000, 1000, 0);
+        assertNotNull(cache.put("page", STAMP, null, randomData(1000, 1)));
+        assertNull(cache.put("large", STAMP, null, randomData(1001, 2)));
+        assertNull(cache.put("unknownSequence", new FxOutputCache.Stamp(1, 100, 200, -1), null, randomData(100, 3)));
+        assertEquals(cache.getSize(), 1);
+
+        final FxOutputCache disabled = new FxOutputCache(0, 1000, 0);
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.put("page", STAMP, null, randomData(100, 1)));
+        assertEquals(disabled.getSize(), 0);
+    }
+
+    @Test
+    public void responseHeaders() throws IOException {
+        final FxResponseWrapper wrapper = new FxResponseWrapper(response(new ArrayList<String>(), null), true);
+        wrapper.setHeader("X-Before", "not recorded");
+        wrapper.recordHeaders();
+        wrapper.setHeader("Content-Disposition", "inline; filename=page.html");
+        wrapper.setHeader("Cache-Control", "no-cache");
+        wrapper.setHeader("cache-control", "max-age=60");
+        wrapper.addHeader("X-Test", "a");
+        wrapper.addHeader("X-Test", "b");
+        wrapper.setDateHeader("Expires", 1000L);
+        wrapper.setIntHeader("Content-Length", 10);
+        wrapper.setLocale(Locale.GERMAN);
+        assertTrue(wrapper.isCacheable());
+
+        final FxOutputCache cache = new FxOutputCache(100000, 10000, 0);
+        final byte[] data = randomData(100, 1);
+        cache.put("page", STAMP, "text/html", wrapper.getRecordedHeaders(), wrapper.getRecordedLocale(), data);
+
+        final List<String> calls = new ArrayList<String>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        cache.get("page", STAMP).send(response(calls, body), false);
+        assertEquals(calls, Arrays.asList(
+                "setLocale:de",
+                "setHeader:Content-Disposition=inline; filename=page.html",
+                "setHeader:cache-control=max-age=60",
+                "addHeader:X-Test=a",
+                "addHeader:X-Test=b",
+                "setDateHeader:Expires=1000",
+                "setContentType:text/html",
+                "setHeader:Vary=Accept-Encoding",
+                "setContentLength:100"
+        ));
+        assertTrue(Arrays.equals(body.toByteArray(), data));
+    }
+
+    @Test
+    public void uncacheableHeaders() {
+        for (String header : new String[]{"Set-Cookie", "Content-Encoding"}) {
+            final FxResponseWrapper wrapper = new FxResponseWrapper(response(new ArrayList<String>(), null), true);
+            wrapper.recordHeaders();
+            wrapper.addHeader(header, "value");
+            assertFalse(wrapper.isCacheable(), "Response with header " + header + " must not be cached");
+            assertTrue(wrapper.getRecordedHeaders().isEmpty());
+        }
+    }
+
+    /**
+     * Create a response that records header calls as "method:name=value" strings.
+     *
+     * @param calls the recorded calls
+     * @param body  the response body stream
+     * @return      the response
+     */
+    private static HttpServletResponse response(final List<String> calls, final ByteArrayOutputStream body) {
+        return (HttpServletResponse) Proxy.newProxyInstance(FxOutputCacheTest.class.getClassLoader(),
+                new Class[]{HttpServletResponse.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        final String name = method.getName();
+                        if ("getOutputStream".equals(name)) {
+                            return new ServletOutputStream() {
+                                @Override
+                                public void write(int b) throws IOException {
+                                    body.write(b);
+                                }
+                            };
+                        } else if ("setLocale".equals(name) || "setContentType".equals(name)
+                                || "setContentLength".equals(name)) {
+                            calls.add(name + ":" + args[0]);
+                        } else if ((name.startsWith("set") || name.startsWith("add")) && name.endsWith("Header")) {
+                            calls.add(name + ":" + args[0] + "=" + args[1]);
+                        } else if ("containsHeader".equals(name)) {
+                            return false;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static byte[] randomData(int length, long seed) {
+        // random bytes are not compressible, so the compressed sizes are predictable
+        final byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] uncompress(FxOutputCache.Entry entry) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entry.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,276 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.tests.embedded.jsf;
+
+import com.flexive.shared.value.BinaryDescriptor;
+import com.flexive.war.servlet.FxServletUtils;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the conditional request and byte range handling of {@link FxServletUtils}.
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ */
+@Test(groups = {"jsf"})
+public class FxServletUtilsTest {
+    private static final long LENGTH = 1000;
+    // 2010-01-01 10:00:00 GMT
+    private static final long LAST_MODIFIED = 1262340000000L;
+    private static final BinaryDescriptor DESCRIPTOR = new BinaryDescriptor(null, 42, 3, 1, LAST_MODIFIED, "test.txt",
+            LENGTH, null, "text/plain", false, 0, 0, 0, "d41d8cd98f00b204e9800998ecf8427e");
+    private static final String ETAG = FxServletUtils.getETag(DESCRIPTOR, BinaryDescriptor.PreviewSizes.ORIGINAL);
+
+    @Test
+    public void parseSingleRanges() {
+        assertRanges("bytes=0-99", 0, 99);
+        assertRanges("bytes=500-", 500, 999);
+        assertRanges("bytes=999-999", 999, 999);
+        // last byte beyond the content length
+        assertRanges("bytes=900-2000", 900, 999);
+    }
+
+    @Test
+    public void parseSuffixRanges() {
+        assertRanges("bytes=-100", 900, 999);
+        assertRanges("bytes=-1000", 0, 999);
+        assertRanges("bytes=-5000", 0, 999);
+        assertRanges("bytes=-0");
+    }
+
+    @Test
+    public void parseMultipleRanges() {
+        assertRanges("bytes=0-9, 20-29,-10", 0, 9, 20, 29, 990, 999);
+        // ranges are sorted
+        assertRanges("bytes=-10,20-29,0-9", 0, 9, 20, 29, 990, 999);
+    }
+
+    @Test
+    public void coalesceRanges() {
+        // overlapping ranges
+        assertRanges("bytes=0-499,400-999", 0, 999);
+        assertRanges("bytes=0-0,0-0", 0, 0);
+        assertRanges("bytes=500-,0-99,50-600", 0, 999);
+        assertRanges("bytes=100-199,120-130,-950", 50, 999);
+        // adjacent ranges
+        assertRanges("bytes=0-9,10-19,30-39", 0, 19, 30, 39);
+        // repeated full ranges are sent only once
+        final StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i < 16; i++) {
+            header.append(i > 0 ? "," : "").append("0-");
+        }
+        assertRanges(header.toString(), 0, 999);
+    }
+
+    @Test
+    public void parseUnsatisfiableRanges() {
+        assertRanges("bytes=1000-");
+        assertRanges("bytes=1000-2000");
+        assertRanges("bytes=5000-6000,1000-");
+        // unsatisfiable ranges are dropped if other ranges can be served
+        assertRanges("bytes=0-9,2000-3000", 0, 9);
+        assertEquals(FxServletUtils.parseByteRanges("bytes=0-", 0).size(), 0);
+    }
+
+    @Test
+    public void parseInvalidRanges() {
+        for (String header : new String[]{null, "", "items=0-10", "bytes=", "bytes=abc", "bytes=1-x", "bytes=10",
+                "bytes=5-2", "bytes=0-9,x-y"}) {
+            assertNull(FxServletUtils.parseByteRanges(header, LENGTH), "Range header should be ignored: " + header);
+        }
+    }
+
+    @Test
+    public void parseRangeLimit() {
+        final StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i < 16; i++) {
+            header.append(i > 0 ? "," : "").append(i * 10).append('-').append(i * 10 + 4);
+        }
+        assertEquals(FxServletUtils.parseByteRanges(header.toString(), LENGTH).size(), 16);
+        // more than 16 ranges: send the full content
+        assertNull(FxServletUtils.parseByteRanges(header.append(",500-510").toString(), LENGTH));
+    }
+
+    @Test
+    public void etag() {
+        assertTrue(ETAG.startsWith("\"") && ETAG.endsWith("\""), "ETag is not quoted: " + ETAG);
+        assertFalse(ETAG.startsWith("W/"), "ETag should be strong: " + ETAG);
+        final String previewEtag = FxServletUtils.getETag(DESCRIPTOR, BinaryDescriptor.PreviewSizes.PREVIEW1, 0);
+        assertFalse(ETAG.equals(previewEtag));
+        assertEquals(FxServletUtils.getETag(DESCRIPTOR, BinaryDescriptor.PreviewSizes.ORIGINAL), ETAG);
+
+        // preview updates change the ETag of the previews, but not of the original binary
+        assertFalse(previewEtag.equals(
+                FxServletUtils.getETag(DESCRIPTOR, BinaryDescriptor.PreviewSizes.PREVIEW1, LAST_MODIFIED + 1000)));
+        assertEquals(FxServletUtils.getETag(DESCRIPTOR, BinaryDescriptor.PreviewSizes.ORIGINAL, LAST_MODIFIED + 1000), ETAG);
+
+        // use the creation time if no checksum is available
+        final BinaryDescriptor noChecksum = new BinaryDescriptor(null, 42, 3, 1, LAST_MODIFIED, "test.txt",
+                LENGTH, null, "text/plain", false, 0, 0, 0, null);
+        final BinaryDescriptor otherTime = new BinaryDescriptor(null, 42, 3, 1, LAST_MODIFIED + 1000, "test.txt",
+                LENGTH, null, "text/plain", false, 0, 0, 0, null);
+        assertFalse(FxServletUtils.getETag(noChecksum, BinaryDescriptor.PreviewSizes.ORIGINAL)
+                .equals(FxServletUtils.getETag(otherTime, BinaryDescriptor.PreviewSizes.ORIGINAL)));
+    }
+
+    @Test
+    public void notModified() {
+        assertFalse(FxServletUtils.isNotModified(request(), ETAG, LAST_MODIFIED));
+        assertTrue(FxServletUtils.isNotModified(request("If-None-Match", ETAG), ETAG, LAST_MODIFIED));
+        assertTrue(FxServletUtils.isNotModified(request("If-None-Match", "\"other\", " + ETAG), ETAG, LAST_MODIFIED));
+        assertTrue(FxServletUtils.isNotModified(request("If-None-Match", "*"), ETAG, LAST_MODIFIED));
+        // weak comparison for If-None-Match
+        assertTrue(FxServletUtils.isNotModified(request("If-None-Match", "W/" + ETAG), ETAG, LAST_MODIFIED));
+        assertFalse(FxServletUtils.isNotModified(request("If-None-Match", "\"other\""), ETAG, LAST_MODIFIED));
+        // If-None-Match takes precedence over If-Modified-Since
+        assertFalse(FxServletUtils.isNotModified(
+                request("If-None-Match", "\"other\"", "If-Modified-Since", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    public void notModifiedSince() {
+        assertTrue(FxServletUtils.isNotModified(request("If-Modified-Since", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED));
+        // HTTP dates have a resolution of one second
+        assertTrue(FxServletUtils.isNotModified(request("If-Modified-Since", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED + 999));
+        assertFalse(FxServletUtils.isNotModified(request("If-Modified-Since", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED + 1000));
+        assertTrue(FxServletUtils.isNotModified(request("If-Modified-Since", formatDate(LAST_MODIFIED + 60000)), ETAG, LAST_MODIFIED));
+        assertFalse(FxServletUtils.isNotModified(request("If-Modified-Since", formatDate(LAST_MODIFIED)), ETAG, -1));
+        assertFalse(FxServletUtils.isNotModified(request("If-Modified-Since", "invalid date"), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    public void rangeApplicable() {
+        assertTrue(FxServletUtils.isRangeApplicable(request(), ETAG, LAST_MODIFIED));
+        assertTrue(FxServletUtils.isRangeApplicable(request("If-Range", ETAG), ETAG, LAST_MODIFIED));
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", "\"other\""), ETAG, LAST_MODIFIED));
+        // weak validators must not be used for ranges
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", "W/" + ETAG), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    public void rangeApplicableDate() {
+        assertTrue(FxServletUtils.isRangeApplicable(request("If-Range", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED));
+        assertTrue(FxServletUtils.isRangeApplicable(request("If-Range", formatDate(LAST_MODIFIED)), ETAG, LAST_MODIFIED + 500));
+        // the date must match exactly, a later date does not validate the range
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", formatDate(LAST_MODIFIED + 60000)), ETAG, LAST_MODIFIED));
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", formatDate(LAST_MODIFIED - 60000)), ETAG, LAST_MODIFIED));
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", formatDate(LAST_MODIFIED)), ETAG, -1));
+        assertFalse(FxServletUtils.isRangeApplicable(request("If-Range", "invalid date"), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    public void byteRangesLength() {
+        final String boundary = FxServletUtils.createMultipartBoundary();
+        final List<long[]> ranges = FxServletUtils.parseByteRanges("bytes=0-9,-100", LENGTH);
+        final String body = "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Range: bytes 0-9/1000\r\n"
+                + "\r\n"
+                + "0123456789"
+                + "\r\n--" + boundary + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Range: bytes 900-999/1000\r\n"
+                + "\r\n"
+                + new String(new char[100])
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(FxServletUtils.getByteRangesLength(DESCRIPTOR, ranges, boundary), body.length());
+        assertFalse(boundary.equals(FxServletUtils.createMultipartBoundary()));
+    }
+
+    private static void assertRanges(String header, long... expected) {
+        final List<long[]> ranges = FxServletUtils.parseByteRanges(header, LENGTH);
+        assertNotNull(ranges, "Range header ignored: " + header);
+        assertEquals(ranges.size(), expected.length / 2, "Unexpected number of ranges for " + header);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue(Arrays.equals(ranges.get(i), new long[]{expected[i * 2], expected[i * 2 + 1]}),
+                    "Unexpected range #" + i + " for " + header + ": " + Arrays.toString(ranges.get(i)));
+        }
+    }
+
+    private static String formatDate(long timestamp) {
+        return createDateFormat().format(timestamp);
+    }
+
+    private static SimpleDateFormat createDateFormat() {
+        final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    /**
+     * Create a request with the given headers (name/value pairs). Only the header methods are implemented,
+     * date headers are parsed like by the servlet container.
+     *
+     * @param headers   the header names and values
+     * @return          the request
+     */
+    private static HttpServletRequest request(String... headers) {
+        final Map<String, String> values = new HashMap<String, String>();
+        for (int i = 0; i < headers.length; i += 2) {
+            values.put(headers[i], headers[i + 1]);
+        }
+        return (HttpServletRequest) Proxy.newProxyInstance(FxServletUtilsTest.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getHeader".equals(method.getName())) {
+                            return values.get((String) args[0]);
+                        } else if ("getDateHeader".equals(method.getName())) {
+                            final String value = values.get((String) args[0]);
+                            if (value == null) {
+                                return -1L;
+                            }
+                            try {
+                                return createDateFormat().parse(value).getTime();
+                            } catch (ParseException e) {
+                                throw new IllegalArgumentException(e);
+                            }
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
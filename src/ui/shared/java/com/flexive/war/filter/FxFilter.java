@@ -39,10 +39,12 @@ import com.flexive.shared.EJBLookup;
 import com.flexive.shared.FxContext;
 import com.flexive.shared.FxSharedUtils;
 import com.flexive.shared.configuration.DivisionData;
+import com.flexive.shared.content.FxReferenceResolver;
 import com.flexive.shared.exceptions.FxApplicationException;
 import com.flexive.shared.exceptions.FxExceptionMessage;
 import com.flexive.shared.mbeans.MBeanHelper;
 import com.flexive.shared.media.impl.FxMimeType;
+import com.flexive.war.servlet.FxRenditionCache;
 import com.google.common.collect.Sets;
 import com.metaparadigm.jsonrpc.JSONRPCBridge;
 import org.apache.commons.lang.StringUtils;
@@ -72,6 +74,20 @@ import java.util.concurrent.ConcurrentMap;
  * <ul>
  *     <li><strong>excludedPaths</strong>: a list of path prefixes separated by semicolons that will completely bypass the filter (useful
  *     since FxFilter is often mapped with wide "catch-all" patterns, e.g. "/*")</li>
+ *     <li><strong>outputCachePaths</strong>: a list of path prefixes separated by semicolons for which the rendered
+ *     pages are cached (see {@link FxOutputCache}). Only GET requests from clients with an established session cookie
+ *     are cached. Cached pages are kept per user (the key contains the user ID, since owner permissions may grant
+ *     access to contents of a single user), the user's permissions and locale settings. Pages that depend on other
+ *     session state can opt out with {@link FxOutputCache#disableForRequest(javax.servlet.ServletRequest)}.
+ *     The response headers set by the page are cached and replayed with the page, responses that set a cookie
+ *     are never cached. JSF pages containing a form (<code>h:form</code>) must not be listed, since the
+ *     view state would be shared between all sessions of a user (e.g. all guest sessions).
+ *     The output cache is disabled if no paths are set.</li>
+ *     <li><strong>outputCacheSize</strong>: the maximum size of all (compressed) cached pages in kilobytes
+ *     (default: 16384)</li>
+ *     <li><strong>outputCacheMaxEntrySize</strong>: the maximum size of a single page in kilobytes (default: 1024)</li>
+ *     <li><strong>outputCacheMaxAge</strong>: the maximum age of a cached page in seconds (default: 0, pages are cached
+ *     until the environment, the tree or a content changes)</li>
  * </ul>
  *
  * @author Daniel Lichtenberger (daniel.lichtenberger@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
@@ -90,10 +106,16 @@ public class FxFilter implements Filter {
 
     private static final ConcurrentMap<Integer, Boolean> DIVISION_SERVICES = new ConcurrentHashMap<Integer, Boolean>();
     private static final String PARAM_EXCLUDED_PATHS = "excludedPaths";
+    private static final String PARAM_OUTPUT_CACHE_PATHS = "outputCachePaths";
+    private static final String PARAM_OUTPUT_CACHE_SIZE = "outputCacheSize";
+    private static final String PARAM_OUTPUT_CACHE_MAX_ENTRY_SIZE = "outputCacheMaxEntrySize";
+    private static final String PARAM_OUTPUT_CACHE_MAX_AGE = "outputCacheMaxAge";
 
     private String FILESYSTEM_WAR_ROOT;
     private FilterConfig config;
     private Set<String> excludedPaths;
+    private Set<String> outputCachePaths;
+    private FxOutputCache outputCache;
 
     /**
      * Returns the root of the war directory on the filesystem.
@@ -118,6 +140,43 @@ public class FxFilter implements Filter {
         } else {
             this.excludedPaths = Collections.emptySet();
         }
+
+        final String cached = config.getInitParameter(PARAM_OUTPUT_CACHE_PATHS);
+        if (StringUtils.isNotBlank(cached)) {
+            this.outputCachePaths = Sets.newHashSet(StringUtils.split(cached, ";"));
+            this.outputCache = new FxOutputCache(
+                    getIntParameter(PARAM_OUTPUT_CACHE_SIZE, 16384) * 1024L,
+                    getIntParameter(PARAM_OUTPUT_CACHE_MAX_ENTRY_SIZE, 1024) * 1024,
+                    getIntParameter(PARAM_OUTPUT_CACHE_MAX_AGE, 0) * 1000L
+            );
+            filterConfig.getServletContext().setAttribute(FxOutputCache.class.getName(), outputCache);
+            LOG.info("Output cache enabled for paths: " + this.outputCachePaths);
+        } else {
+            this.outputCachePaths = Collections.emptySet();
+        }
+    }
+
+    private int getIntParameter(String name, int defaultValue) throws ServletException {
+        final String value = config.getInitParameter(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServletException("Invalid value for init parameter " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Returns the output cache of this filter, or null if it is disabled. The output cache is also available
+     * as servlet context attribute under the name of the {@link FxOutputCache} class.
+     *
+     * @return  the output cache of this filter, or null if it is disabled
+     * @since 3.2.1
+     */
+    public FxOutputCache getOutputCache() {
+        return outputCache;
     }
 
     @Override
@@ -129,6 +188,12 @@ public class FxFilter implements Filter {
             // cleanup MIME detectors
             FxMimeType.shutdownDetectors();
 
+            // stop reference loader threads
+            FxReferenceResolver.shutdown();
+
+            // remove cached thumbnail renditions
+            FxRenditionCache.getInstance().shutdown();
+
             cleanupCache();
 
             EJBLookup.clearCache();
@@ -217,14 +282,12 @@ public class FxFilter implements Filter {
             performDivisionServices();
             initializeJsonRpc(request.getSession());
 
-            // Cache data for jsp,jsf,and xhtml pages only
-            /* TODO: fix/implements response caching.
-               The 'catchData' mode doesn't work for static 
-               resources like images or CSS files served by servlets, like for example Seam/Richfaces
-               includes. Besides, since caching has not been implemented yet, 'catchData' doesn't do much
-               except rendering our own error page when the page threw an exception.
-            */
-            final boolean cacheData = false; //request.isDynamicContent();
+            // Cache data only for dynamic pages selected for the output cache.
+            // The 'catchData' mode doesn't work for static resources like images or CSS files served by servlets,
+            // like for example Seam/Richfaces includes.
+            final String outputCacheKey = getOutputCacheKey(request);
+            final FxOutputCache.Stamp outputCacheStamp = outputCacheKey != null ? FxOutputCache.getCurrentStamp() : null;
+            final boolean cacheData = outputCacheKey != null;
 
             // Wrap the response to provide additional features (content length counting, caching)
             final FxResponseWrapper response =
@@ -239,6 +302,18 @@ public class FxFilter implements Filter {
                 response.enableBrowserCache(FxResponseWrapper.CacheControl.PRIVATE, null, false);
             }
 
+            if (outputCacheKey != null) {
+                // the response body depends on the accepted encoding whether it is cached or not
+                response.getWrappedResponse().setHeader("Vary", "Accept-Encoding");
+                // record the headers set by the page for the output cache
+                response.recordHeaders();
+                final FxOutputCache.Entry cached = outputCache.get(outputCacheKey, outputCacheStamp);
+                if (cached != null) {
+                    cached.send(response.getWrappedResponse(), FxOutputCache.isGzipAccepted(request));
+                    return;
+                }
+            }
+
             filterChain.doFilter(request, response);
 
             try {
@@ -252,10 +327,21 @@ public class FxFilter implements Filter {
 
                 if (!response.isClientWriteThrough()) {
                     // Manually write the final response to the client
-                    if (response.hadError()) {
+                    if (response.getWrappedResponse().isCommitted()) {
+                        // response was already sent, e.g. by a redirect
+                    } else if (response.getStatus() >= HttpServletResponse.SC_BAD_REQUEST) {
                         writeErrorPage(response);
                     } else {
-                        response.writeToUnderlyingResponse(null);
+                        final FxOutputCache.Entry entry = !response.hadError() && response.isCacheable()
+                                && !FxOutputCache.isDisabledForRequest(request)
+                                ? outputCache.put(outputCacheKey, outputCacheStamp, response.getContentType(),
+                                        response.getRecordedHeaders(), response.getRecordedLocale(), response.getData())
+                                : null;
+                        if (entry != null) {
+                            entry.send(response.getWrappedResponse(), FxOutputCache.isGzipAccepted(request));
+                        } else {
+                            response.writeToUnderlyingResponse(null);
+                        }
                     }
                 } else {
                     // nothing
@@ -273,6 +359,30 @@ public class FxFilter implements Filter {
 
     }
 
+    /**
+     * Returns the output cache key of the given request.
+     *
+     * @param request   the current request
+     * @return          the output cache key, or null if the response must not be cached
+     */
+    private String getOutputCacheKey(FxRequestWrapper request) {
+        if (outputCache == null || !"GET".equals(request.getMethod()) || !request.isDynamicContent()
+                || !request.isRequestedSessionIdFromCookie()) {
+            // don't cache pages rendered with an URL-encoded session ID
+            return null;
+        }
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String prefix : outputCachePaths) {
+            if (path.startsWith(prefix)) {
+                final String query = request.getQueryString();
+                return FxContext.get().getDivisionId() + ";" + request.getRequestURI()
+                        + (query != null ? "?" + query : "")
+                        + ";" + FxOutputCache.getUserFingerprint(FxContext.getUserTicket());
+            }
+        }
+        return null;
+    }
+
     private void writeErrorPage(FxResponseWrapper response) throws IOException, FxApplicationException {
         response.getWrappedResponse().reset();
         response.disableBrowserCache();
@@ -0,0 +1,612 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.war.filter;
+
+import com.flexive.shared.CacheAdmin;
+import com.flexive.shared.FxContext;
+import com.flexive.shared.security.Role;
+import com.flexive.shared.security.UserTicket;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A bounded, node-local cache for rendered pages and page fragments.
+ * <p>
+ * The cached bodies are stored gzip-compressed and sent as-is to clients that accept a gzip
+ * content encoding. The least recently used entries are evicted when the total compressed size exceeds
+ * the configured maximum.
+ * </p>
+ * <p>
+ * Every entry is stored with a {@link Stamp} that was obtained before the cached output was rendered. An entry is
+ * only returned while the current stamp matches, i.e. while the environment, the tree and the contents
+ * of the division (see {@link CacheAdmin#getContentModificationSequence()}) remain unchanged.
+ * </p>
+ * <p>
+ * The response headers and the locale set by the page are stored with the entry and replayed when it is sent
+ * (see {@link FxResponseWrapper#recordHeaders()}).
+ * </p>
+ * <p>
+ * Cache keys are chosen by the caller. Output that depends on the current user should include the
+ * {@link #getUserFingerprint(UserTicket) user fingerprint} in the key. It covers the user ID, the user's
+ * permissions and locale settings, so cached pages are never shared between different users (owner permissions
+ * may grant access to contents of one user only). Pages that depend on other session state must not be cached.
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public class FxOutputCache {
+    private static final String ATTR_DISABLED = FxOutputCache.class.getName() + ".DISABLED";
+    private static final String HTTP_HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HTTP_HEADER_VARY = "Vary";
+
+    private final long maxSize;
+    private final int maxEntrySize;
+    private final long maxAge;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private long size;
+
+    /**
+     * Create a new output cache.
+     *
+     * @param maxSize       the maximum total size of the compressed entries in bytes, 0 to disable the cache
+     * @param maxEntrySize  the maximum (uncompressed) size of a single entry in bytes
+     * @param maxAge        the maximum age of an entry in milliseconds, 0 if entries do not expire
+     */
+    public FxOutputCache(long maxSize, int maxEntrySize, long maxAge) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return  true if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return  the maximum total size of the compressed entries in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return a cached entry.
+     *
+     * @param key   the cache key
+     * @param stamp the current stamp (see {@link #getCurrentStamp()})
+     * @return      the cached entry, or null if the entry is not cached or no longer valid
+     */
+    public Entry get(String key, Stamp stamp) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && (!entry.stamp.equals(stamp) || isExpired(entry))) {
+                removeEntry(key);
+                invalidations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.hits.incrementAndGet();
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * Add rendered output to the cache.
+     *
+     * @param key           the cache key
+     * @param stamp         the stamp obtained before the output was rendered
+     * @param contentType   the content type of the output (may be null)
+     * @param data          the (uncompressed) output
+     * @return              the new cache entry, or null if the output was not cached
+     * @throws IOException  if the output could not be compressed
+     */
+    public Entry put(String key, Stamp stamp, String contentType, byte[] data) throws IOException {
+        return put(key, stamp, contentType, Collections.<Header>emptyList(), null, data);
+    }
+
+    /**
+     * Add rendered output and its response headers to the cache.
+     *
+     * @param key           the cache key
+     * @param stamp         the stamp obtained before the output was rendered
+     * @param contentType   the content type of the output (may be null)
+     * @param headers       the response headers set by the page, except content type, length and encoding
+     * @param locale        the response locale set by the page (may be null)
+     * @param data          the (uncompressed) output
+     * @return              the new cache entry, or null if the output was not cached
+     * @throws IOException  if the output could not be compressed
+     */
+    public Entry put(String key, Stamp stamp, String contentType, List<Header> headers, Locale locale, byte[] data) throws IOException {
+        if (!isEnabled() || data.length > maxEntrySize || stamp.contentSequence == -1) {
+            return null;
+        }
+        final Entry entry = new Entry(key, stamp, contentType, new ArrayList<Header>(headers), locale,
+                compress(data), data.length);
+        synchronized (entries) {
+            removeEntry(key);
+            entries.put(key, entry);
+            size += entry.data.length;
+            final Iterator<Entry> iter = entries.values().iterator();
+            while (size > maxSize && iter.hasNext()) {
+                final Entry eldest = iter.next();
+                iter.remove();
+                size -= eldest.data.length;
+                evictions.incrementAndGet();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Remove an entry from the cache.
+     *
+     * @param key   the cache key
+     */
+    public void remove(String key) {
+        synchronized (entries) {
+            removeEntry(key);
+        }
+    }
+
+    /**
+     * Remove all entries from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * @return  a snapshot of all cached entries, in least recently used order
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<Entry>(entries.values());
+        }
+    }
+
+    /**
+     * @return  the number of successful lookups
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  the number of lookups that were not answered from the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  the number of entries that were evicted because the cache was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return  the number of entries that were removed because they were outdated
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return  the number of cached entries
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return  the total size of the compressed entries in bytes
+     */
+    public long getCompressedSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the stamp for the current request that must be used for all cache lookups and must be obtained
+     * before the output that should be cached is rendered.
+     *
+     * @return  the stamp for the current request
+     */
+    public static Stamp getCurrentStamp() {
+        return new Stamp(
+                FxContext.get().getDivisionId(),
+                CacheAdmin.getEnvironment().getTimeStamp(),
+                CacheAdmin.getTreeModificationTimestamp(),
+                CacheAdmin.getContentModificationSequence()
+        );
+    }
+
+    /**
+     * Returns a fingerprint of the user, the user's permissions and locale settings. Requests with the same
+     * fingerprint see the same contents rendered in the same way. The user ID is always included, since
+     * the readable contents also depend on owner permissions (ACL assignments of the owner group).
+     *
+     * @param ticket    the user ticket
+     * @return          the fingerprint of the user ticket
+     */
+    public static String getUserFingerprint(UserTicket ticket) {
+        final StringBuilder out = new StringBuilder(64);
+        out.append(ticket.getUserId()).append(';')
+                .append(ticket.getLanguage().getId()).append(';').append(ticket.getMandatorId());
+        if (ticket.isGlobalSupervisor()) {
+            out.append('G');
+        }
+        if (ticket.isMandatorSupervisor()) {
+            out.append('M');
+        }
+        out.append(';');
+        final long[] groups = ticket.getGroups().clone();
+        Arrays.sort(groups);
+        for (long group : groups) {
+            out.append(group).append(',');
+        }
+        out.append(';');
+        for (Role role : Role.values()) {
+            if (ticket.isInRole(role)) {
+                out.append(role.getId()).append(',');
+            }
+        }
+        out.append(';').append(ticket.getDateTimeFormat())
+                .append(';').append(ticket.getDecimalSeparator())
+                .append(ticket.useGroupingSeparator() ? ticket.getGroupingSeparator() : ' ');
+        return out.toString();
+    }
+
+    /**
+     * Prevent the output of the current request from being cached, e.g. because it contains user specific data.
+     *
+     * @param request   the current request
+     */
+    public static void disableForRequest(ServletRequest request) {
+        request.setAttribute(ATTR_DISABLED, Boolean.TRUE);
+    }
+
+    /**
+     * @param request   the current request
+     * @return          true if {@link #disableForRequest(javax.servlet.ServletRequest)} was called for the request
+     */
+    public static boolean isDisabledForRequest(ServletRequest request) {
+        return request.getAttribute(ATTR_DISABLED) != null;
+    }
+
+    /**
+     * @param request   the current request
+     * @return          true if the client accepts gzip-encoded responses
+     */
+    public static boolean isGzipAccepted(HttpServletRequest request) {
+        final String accept = request.getHeader("Accept-Encoding");
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    private boolean isExpired(Entry entry) {
+        return maxAge > 0 && System.currentTimeMillis() - entry.createdAt > maxAge;
+    }
+
+    private void removeEntry(String key) {
+        final Entry removed = entries.remove(key);
+        if (removed != null) {
+            size -= removed.data.length;
+        }
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        final GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * The state of the environment, the tree and the cached contents when an entry was rendered.
+     */
+    public static final class Stamp {
+        private final int divisionId;
+        private final long environmentTimestamp;
+        private final long treeTimestamp;
+        private final long contentSequence;
+
+        /**
+         * Create a stamp for the given state. Use {@link FxOutputCache#getCurrentStamp()} to obtain the
+         * stamp of the current request.
+         *
+         * @param divisionId            the division ID
+         * @param environmentTimestamp  the environment timestamp
+         * @param treeTimestamp         the tree modification timestamp
+         * @param contentSequence       the content modification sequence, -1 if unknown (never cached)
+         */
+        public Stamp(int divisionId, long environmentTimestamp, long treeTimestamp, long contentSequence) {
+            this.divisionId = divisionId;
+            this.environmentTimestamp = environmentTimestamp;
+            this.treeTimestamp = treeTimestamp;
+            this.contentSequence = contentSequence;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Stamp)) return false;
+            final Stamp stamp = (Stamp) o;
+            return divisionId == stamp.divisionId
+                    && environmentTimestamp == stamp.environmentTimestamp
+                    && treeTimestamp == stamp.treeTimestamp
+                    && contentSequence == stamp.contentSequence;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = divisionId;
+            result = 31 * result + (int) (environmentTimestamp ^ (environmentTimestamp >>> 32));
+            result = 31 * result + (int) (treeTimestamp ^ (treeTimestamp >>> 32));
+            result = 31 * result + (int) (contentSequence ^ (contentSequence >>> 32));
+            return result;
+        }
+    }
+
+    /**
+     * A response header of a cached page.
+     */
+    public static final class Header {
+        private final String name;
+        private final String value;
+        private final long date;
+        private final boolean dateHeader;
+        private final boolean add;
+
+        /**
+         * @param name  the header name
+         * @param value the header value
+         * @param add   true if the value was added to existing values of the header
+         */
+        public Header(String name, String value, boolean add) {
+            this(name, value, -1, false, add);
+        }
+
+        /**
+         * @param name  the header name
+         * @param date  the date value of the header
+         * @param add   true if the value was added to existing values of the header
+         */
+        public Header(String name, long date, boolean add) {
+            this(name, null, date, true, add);
+        }
+
+        private Header(String name, String value, long date, boolean dateHeader, boolean add) {
+            this.name = name;
+            this.value = value;
+            this.date = date;
+            this.dateHeader = dateHeader;
+            this.add = add;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return  the header value, or null for date headers
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return  the date value, or -1 if this is not a date header
+         */
+        public long getDate() {
+            return date;
+        }
+
+        public boolean isAdd() {
+            return add;
+        }
+
+        /**
+         * Set (or add) the header on the given response.
+         *
+         * @param response  the response
+         */
+        public void apply(HttpServletResponse response) {
+            if (dateHeader) {
+                if (add) {
+                    response.addDateHeader(name, date);
+                } else {
+                    response.setDateHeader(name, date);
+                }
+            } else if (add) {
+                response.addHeader(name, value);
+            } else {
+                response.setHeader(name, value);
+            }
+        }
+    }
+
+    /**
+     * A cached page or fragment with its statistics.
+     */
+    public static final class Entry {
+        private final String key;
+        private final Stamp stamp;
+        private final String contentType;
+        private final List<Header> headers;
+        private final Locale locale;
+        private final byte[] data;
+        private final int length;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicLong hits = new AtomicLong();
+        private volatile long lastAccess = createdAt;
+
+        Entry(String key, Stamp stamp, String contentType, List<Header> headers, Locale locale, byte[] data, int length) {
+            this.key = key;
+            this.stamp = stamp;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.locale = locale;
+            this.data = data;
+            this.length = length;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return  the response headers set by the cached page
+         */
+        public List<Header> getHeaders() {
+            return Collections.unmodifiableList(headers);
+        }
+
+        /**
+         * @return  the response locale set by the cached page, or null
+         */
+        public Locale getLocale() {
+            return locale;
+        }
+
+        /**
+         * @return  the uncompressed size in bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return  the compressed size in bytes
+         */
+        public int getCompressedLength() {
+            return data.length;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        /**
+         * Write the uncompressed output to the given stream.
+         *
+         * @param out   the output stream
+         * @throws IOException  on I/O errors
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        /**
+         * Send the cached output and its response headers. The compressed output is sent if the client accepts it.
+         *
+         * @param response  the response
+         * @param gzip      true if the client accepts gzip-encoded responses
+         * @throws IOException  on I/O errors
+         */
+        public void send(HttpServletResponse response, boolean gzip) throws IOException {
+            if (locale != null) {
+                response.setLocale(locale);
+            }
+            for (Header header : headers) {
+                header.apply(response);
+            }
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            response.setHeader(HTTP_HEADER_VARY, "Accept-Encoding");
+            if (gzip) {
+                response.setHeader(HTTP_HEADER_CONTENT_ENCODING, "gzip");
+                response.setContentLength(data.length);
+                response.getOutputStream().write(data);
+            } else {
+                response.setContentLength(length);
+                writeTo(response.getOutputStream());
+            }
+        }
+    }
+}
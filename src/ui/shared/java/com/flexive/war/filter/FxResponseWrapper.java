@@ -43,7 +43,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Response Wrapper to provide access to the content length and status.
@@ -58,6 +63,10 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     private static final String HTTP_HEADER_X_POWERED_BY = "X-Powered-By";
     private static final String HTTP_HEADER_CACHE_CONTROL = "Cache-Control";
     private static final String HTTP_HEADER_PRAGMA = "Pragma";
+    private static final String HTTP_HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HTTP_HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HTTP_HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HTTP_HEADER_SET_COOKIE = "Set-Cookie";
 
 
     FxOutputStream fos = null;
@@ -73,6 +82,9 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     private static long PAGE_ID_GEN = 0;
     private long pageId = getPageId();
     private String contentType = null;
+    private boolean cacheable = true;
+    private List<FxOutputCache.Header> recordedHeaders = null;
+    private Locale recordedLocale = null;
 
     private static synchronized long getPageId() {
         if (PAGE_ID_GEN == Long.MIN_VALUE) {
@@ -151,11 +163,104 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     @Override
     public void setDateHeader(String s, long l) {
         resp.setDateHeader(s, l);
+        recordHeader(new FxOutputCache.Header(s, l, false));
+    }
+
+    @Override
+    public void addDateHeader(String s, long l) {
+        resp.addDateHeader(s, l);
+        recordHeader(new FxOutputCache.Header(s, l, true));
     }
 
     @Override
     public void setHeader(String s, String s1) {
         resp.setHeader(s, s1);
+        recordHeader(new FxOutputCache.Header(s, s1, false));
+    }
+
+    @Override
+    public void addHeader(String s, String s1) {
+        resp.addHeader(s, s1);
+        recordHeader(new FxOutputCache.Header(s, s1, true));
+    }
+
+    @Override
+    public void setIntHeader(String s, int i) {
+        resp.setIntHeader(s, i);
+        recordHeader(new FxOutputCache.Header(s, String.valueOf(i), false));
+    }
+
+    @Override
+    public void addIntHeader(String s, int i) {
+        resp.addIntHeader(s, i);
+        recordHeader(new FxOutputCache.Header(s, String.valueOf(i), true));
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        super.setLocale(locale);
+        if (recordedHeaders != null) {
+            recordedLocale = locale;
+        }
+    }
+
+    /**
+     * Record all headers and the locale set from now on, so they can be stored with the response body
+     * in a server-side cache (see {@link #getRecordedHeaders()}). Content type and length are not recorded,
+     * responses that set a cookie or a content encoding are not {@link #isCacheable() cacheable}.
+     *
+     * @since 3.2.1
+     */
+    public void recordHeaders() {
+        if (recordedHeaders == null) {
+            recordedHeaders = new ArrayList<FxOutputCache.Header>();
+        }
+    }
+
+    /**
+     * Returns the headers set since {@link #recordHeaders()} was called, in the order they were set.
+     *
+     * @return the recorded headers
+     * @since 3.2.1
+     */
+    public List<FxOutputCache.Header> getRecordedHeaders() {
+        return recordedHeaders != null
+                ? Collections.unmodifiableList(recordedHeaders)
+                : Collections.<FxOutputCache.Header>emptyList();
+    }
+
+    /**
+     * Returns the locale set since {@link #recordHeaders()} was called.
+     *
+     * @return the recorded locale, or null if no locale was set
+     * @since 3.2.1
+     */
+    public Locale getRecordedLocale() {
+        return recordedLocale;
+    }
+
+    private void recordHeader(FxOutputCache.Header header) {
+        if (recordedHeaders == null) {
+            return;
+        }
+        final String name = header.getName();
+        if (HTTP_HEADER_CONTENT_TYPE.equalsIgnoreCase(name) || HTTP_HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            // set when the cached response is sent
+            return;
+        }
+        if (HTTP_HEADER_CONTENT_ENCODING.equalsIgnoreCase(name) || HTTP_HEADER_SET_COOKIE.equalsIgnoreCase(name)) {
+            cacheable = false;
+            return;
+        }
+        if (!header.isAdd()) {
+            // replaces all previous values
+            for (Iterator<FxOutputCache.Header> iter = recordedHeaders.iterator(); iter.hasNext();) {
+                if (iter.next().getName().equalsIgnoreCase(name)) {
+                    iter.remove();
+                }
+            }
+        }
+        recordedHeaders.add(header);
     }
 
     /**
@@ -230,6 +335,18 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     @Override
     public void sendRedirect(String s) throws IOException {
         super.sendRedirect(s);
+        this.status = HttpServletResponse.SC_MOVED_TEMPORARILY;
+    }
+
+    /**
+     * Returns false if the response must not be stored in a server-side cache, e.g. because
+     * it sets a cookie.
+     *
+     * @return true if the response may be stored in a server-side cache
+     * @since 3.2.1
+     */
+    public boolean isCacheable() {
+        return cacheable;
     }
 
 
@@ -403,6 +520,7 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     @Override
     public void setStatus(int i) {
         if (!catchContent) resp.setStatus(i);
+        this.status = i;
     }
 
     /**
@@ -525,6 +643,7 @@ public class FxResponseWrapper extends HttpServletResponseWrapper {
     @Override
     public void addCookie(Cookie cookie) {
         resp.addCookie(cookie);
+        cacheable = false;
     }
 
     /**
@@ -53,6 +53,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.util.List;
 
 /**
  * <p>Provides streaming downloads for all binary objects ({@link com.flexive.shared.value.FxBinary FxBinary}).
@@ -70,6 +71,10 @@ import java.net.URLEncoder;
  * <li><strong>hintBinaryId=[id]</strong> hint at the expected binary ID. Used from UI content editors that may change
  * the order of binaries (the binary will only be returned if it's actually present in the content, to preserve security)</li>
  * </ul>
+ * <p>
+ * Responses carry an ETag and Last-Modified header for conditional requests. Single and multiple byte ranges
+ * are supported via the Range header.
+ * </p>
  *
  *
  * @author Daniel Lichtenberger (daniel.lichtenberger@flexive.com), UCS - unique computing solutions gmbh (http://www.ucs.at)
@@ -203,12 +208,47 @@ public class DownloadServlet implements Servlet {
         }
         // stream content
         try {
-            response.setContentType(descriptor.getMimeType());
-            response.setContentLength((int) descriptor.getSize());
+            final String etag = FxServletUtils.getETag(descriptor, BinaryDescriptor.PreviewSizes.ORIGINAL);
+            final long lastModified = descriptor.getCreationTime();
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setHeader("ETag", etag);
+            response.setHeader("Cache-Control", "private");
+            if (lastModified > 0) {
+                response.setDateHeader("Last-Modified", lastModified);
+            }
+            if (FxServletUtils.isNotModified(request, etag, lastModified)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            final List<long[]> ranges = FxServletUtils.isRangeApplicable(request, etag, lastModified)
+                    ? FxServletUtils.parseByteRanges(request.getHeader("Range"), descriptor.getSize())
+                    : null;
+            if (ranges != null && ranges.isEmpty()) {
+                response.setHeader("Content-Range", "bytes */" + descriptor.getSize());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
             if (request.getParameter("inline") == null || "false".equals(request.getParameter("inline"))) {
                 response.setHeader("Content-Disposition", "attachment; filename=\"" + descriptor.getName() + "\";");
             }
-            descriptor.download(response.getOutputStream());
+            if (ranges == null) {
+                response.setContentType(descriptor.getMimeType());
+                response.setHeader("Content-Length", String.valueOf(descriptor.getSize()));
+                descriptor.download(response.getOutputStream());
+            } else if (ranges.size() == 1) {
+                final long[] range = ranges.get(0);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(descriptor.getMimeType());
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + descriptor.getSize());
+                response.setHeader("Content-Length", String.valueOf(range[1] - range[0] + 1));
+                descriptor.download(response.getOutputStream(), BinaryDescriptor.PreviewSizes.ORIGINAL, range[0], range[1] - range[0] + 1);
+            } else {
+                final String boundary = FxServletUtils.createMultipartBoundary();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType("multipart/byteranges; boundary=" + boundary);
+                response.setHeader("Content-Length", String.valueOf(FxServletUtils.getByteRangesLength(descriptor, ranges, boundary)));
+                FxServletUtils.writeByteRanges(response.getOutputStream(), descriptor, ranges, boundary);
+            }
         } catch (Exception e) {
             FxServletUtils.sendErrorMessage(response, "Download failed: " + e.getMessage());
             //noinspection UnnecessaryReturnStatement
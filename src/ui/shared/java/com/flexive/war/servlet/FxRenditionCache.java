@@ -0,0 +1,446 @@
+/***************************************************************
+ *  This file is part of the [fleXive](R) framework.
+ *
+ *  Copyright (c) 1999-2014
+ *  UCS - unique computing solutions gmbh (http://www.ucs.at)
+ *  All rights reserved
+ *
+ *  The [fleXive](R) project is free software; you can redistribute
+ *  it and/or modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1 or higher as published by the Free Software Foundation.
+ *
+ *  The GNU Lesser General Public License can be found at
+ *  http://www.gnu.org/licenses/lgpl.html.
+ *  A copy is found in the textfile LGPL.txt and important notices to the
+ *  license from the author are found in LICENSE.txt distributed with
+ *  these libraries.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  For further information about UCS - unique computing solutions gmbh,
+ *  please see the company website: http://www.ucs.at
+ *
+ *  For further information about [fleXive](R), please see the
+ *  project website: http://www.flexive.org
+ *
+ *
+ *  This copyright notice MUST APPEAR in all copies of the file!
+ ***************************************************************/
+package com.flexive.war.servlet;
+
+import com.flexive.shared.media.FxMediaSelector;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.awt.Rectangle;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local cache for manipulated images (scaled, rotated, flipped or cropped) served by the
+ * {@link ThumbnailServlet}. Renditions are stored as files in a local directory and evicted in
+ * least-recently-used order when the total size exceeds the configured limit.
+ * <p>
+ * Configuration (system properties):
+ * <ul>
+ * <li><code>flexive.thumbnail.cacheDir</code> - the parent directory of the cache
+ * (default: <code>flexive-renditions</code> in the temp directory). Every cache instance (i.e. web application)
+ * stores its renditions in its own, newly created subdirectory that is removed on {@link #shutdown()}.</li>
+ * <li><code>flexive.thumbnail.cacheSize</code> - the maximum size in megabytes (default: 100, 0 disables the cache)</li>
+ * </ul>
+ * </p>
+ *
+ * @author UCS - unique computing solutions gmbh (http://www.ucs.at)
+ * @since 3.2.1
+ */
+public final class FxRenditionCache {
+    private static final Log LOG = LogFactory.getLog(FxRenditionCache.class);
+
+    /**
+     * System property for the cache directory
+     */
+    public static final String CONFIG_DIRECTORY = "flexive.thumbnail.cacheDir";
+    /**
+     * System property for the maximum cache size in megabytes
+     */
+    public static final String CONFIG_SIZE = "flexive.thumbnail.cacheSize";
+
+    private static final int DEFAULT_SIZE_MB = 100;
+    private static final int MAX_BINARY_INFOS = 10000;
+
+    private static final FxRenditionCache INSTANCE = new FxRenditionCache(
+            new File(System.getProperty(CONFIG_DIRECTORY, new File(System.getProperty("java.io.tmpdir"), "flexive-renditions").getPath())),
+            getSizeProperty() * 1024L * 1024L
+    );
+
+    private final File directory;    // null if the cache directory could not be created
+    private final long maxSize;
+    private final LinkedHashMap<String, Rendition> renditions = new LinkedHashMap<String, Rendition>(128, 0.75f, true);
+    private final Map<String, BinaryInfo> binaryInfos = new LinkedHashMap<String, BinaryInfo>(128, 0.75f, true) {
+        private static final long serialVersionUID = -3527216208421093754L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BinaryInfo> eldest) {
+            return size() > MAX_BINARY_INFOS;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long size;
+
+    /**
+     * A cached rendition.
+     */
+    public static final class Rendition {
+        private final FxRenditionCache cache;
+        private final String key;
+        private final File file;
+        private final String mimeType;
+        private final long length;
+
+        private Rendition(FxRenditionCache cache, String key, File file, String mimeType, long length) {
+            this.cache = cache;
+            this.key = key;
+            this.file = file;
+            this.mimeType = mimeType;
+            this.length = length;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Write the rendition to the given stream. The file contents are transferred with
+         * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, without copying
+         * them to the heap.
+         *
+         * @param out   the output stream
+         * @return      false if the rendition file was removed in the meantime and nothing was written
+         * @throws IOException  if the rendition could not be written
+         */
+        public boolean writeTo(OutputStream out) throws IOException {
+            final FileInputStream in;
+            try {
+                in = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                // evicted concurrently or removed from the file system
+                cache.remove(this);
+                return false;
+            }
+            try {
+                final FileChannel channel = in.getChannel();
+                final WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                final long count = channel.size();
+                while (position < count) {
+                    position += channel.transferTo(position, count - position, target);
+                }
+                out.flush();
+                return true;
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Version, creation timestamp and preview modification timestamp of a binary.
+     */
+    public static final class BinaryInfo {
+        private final int version;
+        private final int quality;
+        private final long creationTime;
+        private final long previewModified;
+
+        /**
+         * @param version           the binary version
+         * @param quality           the binary quality
+         * @param creationTime      the creation timestamp
+         * @param previewModified   the timestamp of the last preview update
+         *                          (see {@link com.flexive.shared.CacheAdmin#getBinaryPreviewModification(long)})
+         */
+        public BinaryInfo(int version, int quality, long creationTime, long previewModified) {
+            this.version = version;
+            this.quality = quality;
+            this.creationTime = creationTime;
+            this.previewModified = previewModified;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        public long getPreviewModified() {
+            return previewModified;
+        }
+
+        /**
+         * @return  the last modification of the binary or its previews, used for conditional requests
+         */
+        public long getLastModified() {
+            return Math.max(creationTime, previewModified);
+        }
+    }
+
+    private FxRenditionCache(File parent, long maxSize) {
+        this.directory = maxSize > 0 ? createDirectory(parent) : null;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return  the rendition cache instance
+     */
+    public static FxRenditionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return  true if renditions are cached
+     */
+    public boolean isEnabled() {
+        return maxSize > 0 && directory != null && directory.isDirectory();
+    }
+
+    /**
+     * Remove all cached renditions and the cache directory of this instance. Called when the web
+     * application is shut down.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            renditions.clear();
+            binaryInfos.clear();
+            size = 0;
+        }
+        if (directory != null) {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    deleteFile(file);
+                }
+            }
+            deleteFile(directory);
+        }
+    }
+
+    /**
+     * Build the cache key of a rendition. The key contains only digits, letters and underscores and is
+     * used as the file name.
+     *
+     * @param divisionId    the division ID
+     * @param binaryId      the binary ID
+     * @param info          the binary version information
+     * @param selector      the requested manipulations
+     * @return  the cache key
+     */
+    public static String getKey(int divisionId, long binaryId, BinaryInfo info, FxMediaSelector selector) {
+        final StringBuilder key = new StringBuilder(64);
+        key.append(divisionId).append('_').append(binaryId).append('_').append(info.getVersion())
+                .append('_').append(info.getQuality())
+                .append(info.getPreviewModified() > 0 ? "_p" + info.getPreviewModified() : "")
+                .append("_s").append(selector.getSize().getBlobIndex());
+        if (selector.isForceImage())
+            key.append("_i");
+        if (selector.isScaleWidth())
+            key.append("_w").append(selector.getScaleWidth());
+        if (selector.isScaleHeight())
+            key.append("_h").append(selector.getScaleHeight());
+        if (selector.getRotationAngle() != 0)
+            key.append("_r").append(selector.getRotationAngle());
+        if (Boolean.TRUE.equals(selector.isFlipHorizontal()))
+            key.append("_fh");
+        if (Boolean.TRUE.equals(selector.isFlipVertical()))
+            key.append("_fv");
+        if (selector.useCrop()) {
+            final Rectangle crop = selector.getCrop();
+            key.append("_c").append(crop.x).append('x').append(crop.y).append('x').append(crop.width).append('x').append(crop.height);
+        }
+        // negative IDs are used for system binaries
+        return key.toString().replace('-', 'm');
+    }
+
+    /**
+     * Return the cached version information of a binary.
+     *
+     * @param divisionId    the division ID
+     * @param binaryId      the binary ID
+     * @return  the cached binary information, or null if the binary is not cached
+     */
+    public synchronized BinaryInfo getBinaryInfo(int divisionId, long binaryId) {
+        return binaryInfos.get(divisionId + "_" + binaryId);
+    }
+
+    /**
+     * Cache the version information of a binary.
+     *
+     * @param divisionId    the division ID
+     * @param binaryId      the binary ID
+     * @param info          the binary information
+     */
+    public synchronized void putBinaryInfo(int divisionId, long binaryId, BinaryInfo info) {
+        binaryInfos.put(divisionId + "_" + binaryId, info);
+    }
+
+    /**
+     * Return a cached rendition.
+     *
+     * @param key   the cache key
+     * @return  the cached rendition, or null if it is not cached
+     */
+    public Rendition get(String key) {
+        final Rendition rendition;
+        synchronized (this) {
+            rendition = renditions.get(key);
+        }
+        (rendition != null ? hits : misses).incrementAndGet();
+        return rendition;
+    }
+
+    /**
+     * Create a new temporary file for rendering a rendition, to be passed to
+     * {@link #put(String, java.io.File, String)} when the rendition was written.
+     *
+     * @return  a new temporary file in the cache directory
+     * @throws IOException  if the file could not be created
+     */
+    public File createTempFile() throws IOException {
+        return File.createTempFile("render", ".tmp", directory);
+    }
+
+    /**
+     * Add a rendered file to the cache. The file is moved to the cache directory and
+     * renditions are evicted until the total cache size is below the limit.
+     *
+     * @param key       the cache key
+     * @param file      the rendered file, created with {@link #createTempFile()}
+     * @param mimeType  the MIME type of the rendition
+     * @return  the cached rendition, or null if the file could not be moved to the cache
+     */
+    public Rendition put(String key, File file, String mimeType) {
+        final File target = new File(directory, key);
+        final Rendition rendition;
+        synchronized (this) {
+            final Rendition existing = renditions.get(key);
+            if (existing != null) {
+                // rendered concurrently
+                deleteFile(file);
+                return existing;
+            }
+            if (!file.renameTo(target)) {
+                LOG.warn("Failed to move rendition to " + target.getAbsolutePath());
+                deleteFile(file);
+                return null;
+            }
+            rendition = new Rendition(this, key, target, mimeType, target.length());
+            renditions.put(key, rendition);
+            size += rendition.getLength();
+            final Iterator<Rendition> iterator = renditions.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                final Rendition eldest = iterator.next();
+                if (eldest == rendition) {
+                    break;
+                }
+                iterator.remove();
+                size -= eldest.getLength();
+                deleteFile(eldest.file);
+            }
+        }
+        return rendition;
+    }
+
+    /**
+     * Remove a rendition whose file no longer exists.
+     *
+     * @param rendition the rendition to be removed
+     */
+    private synchronized void remove(Rendition rendition) {
+        if (renditions.get(rendition.key) == rendition) {
+            renditions.remove(rendition.key);
+            size -= rendition.getLength();
+        }
+    }
+
+    /**
+     * @return  the number of requests answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  the number of requests that had to be rendered
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  the total size of all cached renditions in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Create a new, unique cache directory below the given parent directory. The directory is not shared with
+     * other web applications or JVMs, which may use the same parent directory.
+     *
+     * @param parent    the parent directory
+     * @return  the new cache directory, or null if it could not be created
+     */
+    private static File createDirectory(File parent) {
+        if (!parent.exists() && !parent.mkdirs()) {
+            LOG.warn("Failed to create the rendition cache directory " + parent.getAbsolutePath());
+            return null;
+        }
+        try {
+            final File directory = File.createTempFile("cache", "", parent);
+            if (directory.delete() && directory.mkdir()) {
+                return directory;
+            }
+            LOG.warn("Failed to create the rendition cache directory " + directory.getAbsolutePath());
+        } catch (IOException e) {
+            LOG.warn("Failed to create the rendition cache directory in " + parent.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete() && LOG.isDebugEnabled()) {
+            LOG.debug("Failed to remove rendition " + file.getAbsolutePath());
+        }
+    }
+
+    private static int getSizeProperty() {
+        final String value = System.getProperty(CONFIG_SIZE);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid value for " + CONFIG_SIZE + ": " + value);
+            }
+        }
+        return DEFAULT_SIZE_MB;
+    }
+}
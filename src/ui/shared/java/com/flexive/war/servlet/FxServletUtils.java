@@ -31,8 +31,21 @@
  ***************************************************************/
 package com.flexive.war.servlet;
 
+import com.flexive.shared.CacheAdmin;
+import com.flexive.shared.exceptions.FxStreamException;
+import com.flexive.shared.value.BinaryDescriptor;
+import org.apache.commons.lang.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Servlet utility functions.
@@ -41,6 +54,11 @@ import java.io.IOException;
  * @version $Rev$
  */
 public final class FxServletUtils {
+    /**
+     * Maximum number of ranges served in a single multipart/byteranges response. Requests for more ranges
+     * are answered with the full content.
+     */
+    private static final int MAX_BYTE_RANGES = 16;
 
     private FxServletUtils() {
     }
@@ -69,4 +87,266 @@ public final class FxServletUtils {
         final int pos = uri.toUpperCase().indexOf(";JSESSIONID");
         return pos == -1 ? uri : uri.substring(0, pos);
     }
+
+    /**
+     * Parse a HTTP <code>Range</code> header with one or more byte ranges
+     * (<code>first-last</code>, <code>first-</code> or <code>-suffixLength</code>). Overlapping or adjacent
+     * ranges are coalesced, so the content is sent at most once. The ranges are returned in ascending order.
+     * Headers with more than 16 ranges are ignored.
+     *
+     * @param header    the Range header (may be null)
+     * @param length    the length of the content
+     * @return  the first and last byte index (inclusive) of all satisfiable ranges, <code>null</code> if the
+     *          full content should be sent, or an empty list if none of the ranges can be satisfied
+     * @since 3.2.1
+     */
+    public static List<long[]> parseByteRanges(String header, long length) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        final String[] specs = StringUtils.split(header.substring("bytes=".length()), ',');
+        if (specs.length == 0 || specs.length > MAX_BYTE_RANGES) {
+            return null;
+        }
+        final List<long[]> ranges = new ArrayList<long[]>(specs.length);
+        for (String spec : specs) {
+            final long[] range = parseRangeSpec(spec.trim(), length);
+            if (range == null) {
+                // syntactically invalid, ignore the header
+                return null;
+            }
+            if (range.length > 0) {
+                ranges.add(range);
+            }
+        }
+        return coalesceRanges(ranges);
+    }
+
+    private static List<long[]> coalesceRanges(List<long[]> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        Collections.sort(ranges, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+            }
+        });
+        final List<long[]> result = new ArrayList<long[]>(ranges.size());
+        long[] current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            final long[] range = ranges.get(i);
+            if (range[0] <= current[1] + 1) {
+                current = new long[]{current[0], Math.max(current[1], range[1])};
+            } else {
+                result.add(current);
+                current = range;
+            }
+        }
+        result.add(current);
+        return result;
+    }
+
+    private static long[] parseRangeSpec(String range, long length) {
+        final int sep = range.indexOf('-');
+        if (sep == -1) {
+            return null;
+        }
+        final long first;
+        final long last;
+        try {
+            if (sep == 0) {
+                // suffix range
+                final long suffix = Long.parseLong(range.substring(1));
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                first = Math.max(length - suffix, 0);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(range.substring(0, sep));
+                last = sep == range.length() - 1 ? length - 1 : Math.min(Long.parseLong(range.substring(sep + 1)), length - 1);
+                if (last < first) {
+                    return first >= length ? new long[0] : null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return first < length ? new long[]{first, last} : new long[0];
+    }
+
+    /**
+     * Return the ETag of a binary. It is based on the binary ID and version and the MD5 checksum
+     * (or the creation time, if no checksum is available). ETags of previews also include the
+     * last preview modification (see {@link CacheAdmin#getBinaryPreviewModification(long)}).
+     *
+     * @param descriptor    the binary descriptor
+     * @param size          the requested preview size
+     * @return  the (strong) ETag, including the quotes
+     * @since 3.2.1
+     */
+    public static String getETag(BinaryDescriptor descriptor, BinaryDescriptor.PreviewSizes size) {
+        return getETag(descriptor, size, size != BinaryDescriptor.PreviewSizes.ORIGINAL
+                ? CacheAdmin.getBinaryPreviewModification(descriptor.getId())
+                : 0);
+    }
+
+    /**
+     * Return the ETag of a binary. It is based on the binary ID and version and the MD5 checksum
+     * (or the creation time, if no checksum is available).
+     *
+     * @param descriptor        the binary descriptor
+     * @param size              the requested preview size
+     * @param previewModified   the timestamp of the last preview modification, 0 if the previews were not
+     *                          modified (ignored for the original binary)
+     * @return  the (strong) ETag, including the quotes
+     * @since 3.2.1
+     */
+    public static String getETag(BinaryDescriptor descriptor, BinaryDescriptor.PreviewSizes size, long previewModified) {
+        final StringBuilder out = new StringBuilder(64);
+        out.append('"').append(descriptor.getId()).append('_').append(descriptor.getVersion()).append('_');
+        if (StringUtils.isNotBlank(descriptor.getMd5sum())) {
+            out.append(descriptor.getMd5sum());
+        } else {
+            out.append(descriptor.getCreationTime());
+        }
+        if (size != BinaryDescriptor.PreviewSizes.ORIGINAL) {
+            out.append('_').append(size.getBlobIndex());
+            if (previewModified > 0) {
+                out.append("_p").append(previewModified);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Check the conditional request headers (<code>If-None-Match</code>, <code>If-Modified-Since</code>)
+     * against the ETag and timestamp of the response.
+     *
+     * @param request       the servlet request
+     * @param etag          the ETag of the response
+     * @param lastModified  the last modification timestamp of the response, or -1 if unknown
+     * @return  true if the client's copy is up to date
+     * @since 3.2.1
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+                final String value = tag.trim();
+                if ("*".equals(value) || etag.equals(value) || ("W/" + etag).equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified <= 0) {
+            return false;
+        }
+        final long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have a resolution of one second
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Check if the <code>Range</code> header of a request should be applied. When the request contains
+     * an <code>If-Range</code> header that does not match the current ETag or timestamp, the full content
+     * must be sent.
+     *
+     * @param request       the servlet request
+     * @param etag          the ETag of the response
+     * @param lastModified  the last modification timestamp of the response, or -1 if unknown
+     * @return  true if a requested range should be served
+     * @since 3.2.1
+     */
+    public static boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        final String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            // only strong validators can be used for ranges
+            return etag.equals(ifRange.trim());
+        }
+        try {
+            final long date = request.getDateHeader("If-Range");
+            return lastModified > 0 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a boundary for a multipart/byteranges response.
+     *
+     * @return  a new boundary string
+     * @since 3.2.1
+     */
+    public static String createMultipartBoundary() {
+        return "FXBYTERANGES_" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * Return the length of a multipart/byteranges response body as written by
+     * {@link #writeByteRanges(java.io.OutputStream, com.flexive.shared.value.BinaryDescriptor, java.util.List, String)}.
+     *
+     * @param descriptor    the binary descriptor
+     * @param ranges        the ranges (first and last byte index)
+     * @param boundary      the multipart boundary
+     * @return  the length of the response body
+     * @since 3.2.1
+     */
+    public static long getByteRangesLength(BinaryDescriptor descriptor, List<long[]> ranges, String boundary) {
+        long length = 0;
+        for (long[] range : ranges) {
+            length += getPartHeader(descriptor, range, boundary).length + range[1] - range[0] + 1;
+        }
+        return length + getMultipartEnd(boundary).length;
+    }
+
+    /**
+     * Write a multipart/byteranges response body. The binary ranges are streamed directly to the output stream.
+     *
+     * @param out           the output stream
+     * @param descriptor    the binary descriptor
+     * @param ranges        the ranges (first and last byte index)
+     * @param boundary      the multipart boundary
+     * @throws IOException          if the response could not be written
+     * @throws FxStreamException    if the binary could not be streamed
+     * @since 3.2.1
+     */
+    public static void writeByteRanges(OutputStream out, BinaryDescriptor descriptor, List<long[]> ranges, String boundary)
+            throws IOException, FxStreamException {
+        for (long[] range : ranges) {
+            out.write(getPartHeader(descriptor, range, boundary));
+            descriptor.download(out, BinaryDescriptor.PreviewSizes.ORIGINAL, range[0], range[1] - range[0] + 1);
+        }
+        out.write(getMultipartEnd(boundary));
+    }
+
+    private static byte[] getPartHeader(BinaryDescriptor descriptor, long[] range, String boundary) {
+        return toAscii("\r\n--" + boundary + "\r\n"
+                + "Content-Type: " + descriptor.getMimeType() + "\r\n"
+                + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + descriptor.getSize() + "\r\n"
+                + "\r\n");
+    }
+
+    private static byte[] getMultipartEnd(String boundary) {
+        return toAscii("\r\n--" + boundary + "--\r\n");
+    }
+
+    private static byte[] toAscii(String value) {
+        try {
+            return value.getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            // shouldn't happen with ISO-8859-1
+            throw new IllegalArgumentException(e);
+        }
+    }
 }
@@ -55,8 +55,7 @@ import org.apache.commons.logging.LogFactory;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.*;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 
@@ -153,6 +152,28 @@ public class ThumbnailServlet implements Servlet {
         }
     }
 
+    /**
+     * Callback to receive the mimetype of a rendered image
+     */
+    private static class RenditionCallback implements BinaryDownloadCallback {
+        private String mimeType;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setMimeType(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setBinarySize(int size) {
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -210,6 +231,7 @@ public class ThumbnailServlet implements Servlet {
                     if (binaryDescriptor == null) {
                         LOG.warn("Invalid hintBinaryId for thumbnail of " + conf.getPK() + ": " + hintBinaryId);
                         response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
                     }
 
                     binaryId = hintBinaryId;
@@ -224,11 +246,29 @@ public class ThumbnailServlet implements Servlet {
         } catch (FxApplicationException e) {
             binaryId = BinaryDescriptor.SYS_UNKNOWN;
         }
+        final int divisionId = FxContext.get().getDivisionId();
+        final FxRenditionCache.BinaryInfo info = getBinaryInfo(divisionId, binaryId);
+        final String key = info != null ? FxRenditionCache.getKey(divisionId, binaryId, info, conf) : null;
         try {
             response.setDateHeader("Expires", System.currentTimeMillis() + 24L * 3600 * 1000);
-            response.setDateHeader("Last-Modified", System.currentTimeMillis());
             response.setHeader("Cache-Control", "private");
             response.setHeader("Pragma", "cache");
+            if (info != null && info.getCreationTime() > 0) {
+                final long lastModified = info.getLastModified();
+                final String etag = "\"" + key + "_" + lastModified + "\"";
+                response.setHeader("ETag", etag);
+                response.setDateHeader("Last-Modified", lastModified);
+                if (FxServletUtils.isNotModified(request, etag, lastModified)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            } else {
+                response.setDateHeader("Last-Modified", System.currentTimeMillis());
+            }
+            if (key != null && conf.isApplyManipulations() && FxRenditionCache.getInstance().isEnabled()
+                    && sendRendition(response, binaryId, conf, key)) {
+                return;
+            }
             FxStreamUtils.downloadBinary(new ThumbnailBinaryCallback(response),
                     CacheAdmin.getStreamServers(), response.getOutputStream(), binaryId, conf);
         } catch (FxStreamException e) {
@@ -237,6 +277,79 @@ public class ThumbnailServlet implements Servlet {
         }
     }
 
+    /**
+     * Serve a manipulated image from the rendition cache, rendering it first if it is not cached yet.
+     *
+     * @param response  the servlet response
+     * @param binaryId  the binary ID
+     * @param conf      the requested manipulations
+     * @param key       the rendition cache key
+     * @return  true if the rendition was sent, false if it could not be cached
+     * @throws FxStreamException    if the binary could not be rendered
+     * @throws IOException          if the rendition could not be written
+     */
+    private boolean sendRendition(HttpServletResponse response, long binaryId, FxThumbnailURIConfigurator conf, String key) throws FxStreamException, IOException {
+        final FxRenditionCache cache = FxRenditionCache.getInstance();
+        FxRenditionCache.Rendition rendition = cache.get(key);
+        if (rendition == null) {
+            final File file = cache.createTempFile();
+            final RenditionCallback callback = new RenditionCallback();
+            boolean success = false;
+            try {
+                final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+                try {
+                    FxStreamUtils.downloadBinary(callback, CacheAdmin.getStreamServers(), out, binaryId, conf);
+                } finally {
+                    out.close();
+                }
+                success = callback.mimeType != null;
+            } finally {
+                if (!success && !file.delete()) {
+                    LOG.warn("Failed to remove temporary rendition " + file.getAbsolutePath());
+                }
+            }
+            rendition = cache.put(key, file, callback.mimeType);
+            if (rendition == null) {
+                return false;
+            }
+        }
+        response.setContentType(rendition.getMimeType());
+        response.setContentLength((int) rendition.getLength());
+        return rendition.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * Return the version, creation and preview modification timestamp of a binary. The binary must have been
+     * checked for read access by the caller.
+     *
+     * @param divisionId    the division ID
+     * @param binaryId      the binary ID
+     * @return  the binary information, or null if the binary could not be loaded
+     */
+    private static FxRenditionCache.BinaryInfo getBinaryInfo(int divisionId, long binaryId) {
+        final FxRenditionCache cache = FxRenditionCache.getInstance();
+        final long previewModified = CacheAdmin.getBinaryPreviewModification(binaryId);
+        FxRenditionCache.BinaryInfo info = cache.getBinaryInfo(divisionId, binaryId);
+        if (info == null || info.getPreviewModified() != previewModified) {
+            // not cached or the previews were updated in place
+            info = null;
+            FxContext.get().runAsSystem();
+            try {
+                final BinaryDescriptor descriptor = EJBLookup.getContentEngine().getBinaryDescriptor(binaryId);
+                info = new FxRenditionCache.BinaryInfo(descriptor.getVersion(), descriptor.getQuality(),
+                        descriptor.getCreationTime(), previewModified);
+                cache.putBinaryInfo(divisionId, binaryId, info);
+            } catch (FxApplicationException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to load binary descriptor " + binaryId + ": " + e.getMessage());
+                }
+            } finally {
+                FxContext.get().stopRunAsSystem();
+            }
+        }
+        return info;
+    }
+
     /**
      * Get the binary id of a structure element (property or property assignment)
      *